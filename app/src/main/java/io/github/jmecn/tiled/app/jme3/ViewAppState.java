@@ -32,10 +32,14 @@ import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
 import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
 import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
 import io.github.jmecn.tiled.renderer.factory.MaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.TileMeshCache;
 import io.github.jmecn.tiled.renderer.queue.YAxisComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * ViewAppState manage a {@link MapRenderer} for {@link TiledMap} and render it.
  * 
@@ -59,6 +63,9 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
     // Tiled Map
     private TiledMap map;
     private MapRenderer mapRenderer;
+    // the map is built in the background
+    private MapBuild mapBuild;
+    private ExecutorService buildExecutor;
 
     // The rootNode
     private final Node rootNode;
@@ -88,6 +95,11 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
     private ViewPort viewPort;
     private InputManager inputManager;
     private MaterialFactory materialFactory;
+    // the number of tile meshes kept for the maps shown
+    private static final int MESH_CACHE_SIZE = 4096;
+
+    // the tile meshes shared by the maps shown
+    private final TileMeshCache meshCache = new TileMeshCache();
 
     // The
     protected float moveSpeed = 10f;// in tiles
@@ -108,6 +120,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
      */
     public ViewAppState() {
         mapScale = 1f;
+        meshCache.setMaxSize(MESH_CACHE_SIZE);
 
         rootNode = new Node("Tiled Map Root");
 
@@ -125,6 +138,12 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
         viewPort = app.getViewPort();
         cam = app.getCamera();
 
+        buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Tiled Map Builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         // sort by y-axis
         viewPort.getQueue().setGeometryComparator(RenderQueue.Bucket.Opaque, new YAxisComparator());
 
@@ -143,6 +162,10 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
 
     @Override
     protected void cleanup(Application app) {
+        if (mapBuild != null) {
+            mapBuild.cancel();
+        }
+        buildExecutor.shutdownNow();
         rootNode.detachAllChildren();
     }
 
@@ -176,7 +199,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
 
     @Override
     public void update(float tpf) {
-        if (mapRenderer != null) {
+        if (isMapBuilt()) {
             mapRenderer.render();
 
             if (isGridUpdated) {
@@ -228,6 +251,9 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
             return;
         }
 
+        if (mapBuild != null) {
+            mapBuild.cancel();
+        }
         rootNode.detachAllChildren();
         
         viewPort.setBackgroundColor(map.getBackgroundColor());
@@ -240,28 +266,37 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
 
         // new sprite factory. the materialFactory is set in initialize()
         DefaultSpriteFactory spriteFactory = new DefaultSpriteFactory();
-        spriteFactory.setMeshFactory(new DefaultMeshFactory(map));
+        spriteFactory.setMeshFactory(new DefaultMeshFactory(map, meshCache));
         spriteFactory.setMaterialFactory(materialFactory);
 
         mapRenderer.setSpriteFactory(spriteFactory);
-
-        // create the visual part for the map
-        rootNode.attachChild(mapRenderer.getRootNode());
+        // only create the tiles seen by the camera
+        mapRenderer.setViewCamera(cam);
 
         Vector2f loc = mapRenderer.pixelToScreenCoords(map.getParallaxOriginX(), map.getParallaxOriginY());
         cam.setLocation(new Vector3f(loc.x, 0, loc.y));
 
-        if (gridMaterial != null) {
-            createGird();
-        } else {
-            isGridUpdated = true;
-        }
+        // create the visual part for the map in the background, the grid and the cursor
+        // are created once its root node is in the scene
+        mapBuild = mapRenderer.renderAsync(getApplication(), buildExecutor, rootNode);
+        isGridUpdated = true;
+        isCursorUpdated = true;
+    }
 
-        if (cursorMaterial != null) {
-            createCursor();
-        } else {
-            isCursorUpdated = true;
-        }
+    /**
+     * @return true if the root node of the map renderer is in the scene
+     */
+    private boolean isMapBuilt() {
+        return mapRenderer != null && (mapBuild == null || mapBuild.isBuilt());
+    }
+
+    /**
+     * Get the build of the current map in the background, to show its progress.
+     *
+     * @return the build, null if no map was set
+     */
+    public MapBuild getMapBuild() {
+        return mapBuild;
     }
 
     public TiledMap getMap() {
@@ -283,7 +318,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
     }
 
     private void calculateMapParallax() {
-        if (mapRenderer == null) {
+        if (!isMapBuilt()) {
             return;
         }
 
@@ -625,7 +660,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
 
         if (gridVisual != null) {
             if (isGridVisible) {
-                if (map != null && mapRenderer.getRootNode() != null) {
+                if (map != null && isMapBuilt()) {
                     mapRenderer.getRootNode().attachChild(gridVisual);
                 }
             } else {
@@ -641,7 +676,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
     public void setCursorVisible(boolean visible) {
         isCursorVisible = visible;
         if (gridCursor != null) {
-            if (isCursorVisible && map != null && mapRenderer.getRootNode() != null) {
+            if (isCursorVisible && map != null && isMapBuilt()) {
                 mapRenderer.getRootNode().attachChild(gridCursor);
             } else {
                 gridCursor.removeFromParent();
@@ -663,7 +698,7 @@ public class ViewAppState extends BaseAppState implements AnalogListener, Action
      */
     private void toggleGrid() {
         if (isGridVisible) {
-            if (map != null && mapRenderer.getRootNode() != null) {
+            if (map != null && isMapBuilt()) {
                 mapRenderer.getRootNode().attachChild(gridVisual);
             }
         } else {
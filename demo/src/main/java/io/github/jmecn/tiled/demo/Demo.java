@@ -15,7 +15,6 @@ import io.github.jmecn.tiled.core.*;
 import io.github.jmecn.tiled.demo.control.CharacterAnimControl;
 import io.github.jmecn.tiled.demo.control.BodyControl;
 import io.github.jmecn.tiled.demo.control.SensorControl;
-import io.github.jmecn.tiled.demo.control.YSortControl;
 import io.github.jmecn.tiled.demo.state.PhysicsDebugState;
 import io.github.jmecn.tiled.demo.state.PhysicsState;
 import io.github.jmecn.tiled.demo.state.PlayerState;
@@ -87,7 +86,7 @@ public class Demo extends SimpleApplication {
                 float sy = (float) obj.getY();
 
                 int layerIndex = tiledMap.getLayer("Objects").getIndex();
-                float y = mapRenderer.getLayerYIndex(layerIndex) + mapRenderer.getObjectTopDownYIndex(sy);
+                float y = mapRenderer.getYSorter().getDepth(layerIndex, sy);
 
                 // Create player
                 Tile tile = buildAnimatedTile(tileset, CHAR_BOY);
@@ -97,8 +96,8 @@ public class Demo extends SimpleApplication {
                 Spatial player = mapRenderer.getSpriteFactory().newObjectSprite(playObj, null);
                 player.setLocalTranslation(sx, y, sy);
                 player.addControl(new CharacterAnimControl());
-                player.addControl(new YSortControl(mapRenderer, layerIndex));
                 mapRenderer.getRootNode().attachChild(player);
+                mapRenderer.getYSorter().add(player, layerIndex);
 
                 Body body = createPlayBody(physicsState, obj.getX(), obj.getY(), tile.getWidth(), tile.getHeight());
                 player.addControl(new BodyControl(body));
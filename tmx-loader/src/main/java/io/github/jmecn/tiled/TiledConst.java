@@ -13,6 +13,7 @@ public final class TiledConst {
     public static final String TMX_EXTENSION = "tmx";// tiled map xml file
     public static final String TSX_EXTENSION = "tsx";// tileset xml file
     public static final String TX_EXTENSION = "tx";// object template xml file
+    public static final String TMXB_EXTENSION = "tmxb";// tiled map binary snapshot
     public static final String MAP = "map";
     public static final String NAME = "name";
     public static final String VALUE = "value";
@@ -4,11 +4,14 @@ import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetLoader;
 import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.loader.BinaryMapLoader;
 import io.github.jmecn.tiled.loader.MapLoader;
 import io.github.jmecn.tiled.loader.TilesetLoader;
 import io.github.jmecn.tiled.loader.layer.ObjectLayerLoader;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Tiled map loader.
@@ -17,8 +20,15 @@ import java.io.IOException;
  */
 public class TmxLoader implements AssetLoader {
 
+    /**
+     * Set this system property to "true" to read the files with the DOM parser instead
+     * of the StAX stream reader, e.g. to compare the results of both.
+     */
+    public static final String USE_DOM_PARSER = "tiled.loader.useDomParser";
+
     public static void registerLoader(AssetManager assetManager) {
-        assetManager.registerLoader(TmxLoader.class, TiledConst.TMX_EXTENSION, TiledConst.TSX_EXTENSION, TiledConst.TX_EXTENSION);
+        assetManager.registerLoader(TmxLoader.class, TiledConst.TMX_EXTENSION, TiledConst.TSX_EXTENSION, TiledConst.TX_EXTENSION,
+                TiledConst.TMXB_EXTENSION);
     }
 
     @Override
@@ -27,19 +37,27 @@ public class TmxLoader implements AssetLoader {
         AssetManager assetManager = assetInfo.getManager();
 
         String extension = key.getExtension();
+        boolean useDom = Boolean.getBoolean(USE_DOM_PARSER);
 
-        switch (extension) {
-            case TiledConst.TMX_EXTENSION:
-                MapLoader mapLoader = new MapLoader(assetManager, key);
-                return mapLoader.load(assetInfo.openStream());
-            case TiledConst.TSX_EXTENSION:
-                TilesetLoader tilesetLoader = new TilesetLoader(assetManager, key);
-                return tilesetLoader.load(assetInfo.openStream());
-            case TiledConst.TX_EXTENSION:
-                ObjectLayerLoader objectLayerLoader = new ObjectLayerLoader(assetManager, key, null);
-                return objectLayerLoader.loadObjectTemplate(assetInfo.openStream());
-            default:
-                return null;
+        try (InputStream inputStream = assetInfo.openStream()) {
+            switch (extension) {
+                case TiledConst.TMX_EXTENSION:
+                    MapLoader mapLoader = new MapLoader(assetManager, key);
+                    return useDom ? mapLoader.loadDocument(inputStream) : mapLoader.load(inputStream);
+                case TiledConst.TSX_EXTENSION:
+                    TilesetLoader tilesetLoader = new TilesetLoader(assetManager, key);
+                    Tileset tileset = useDom ? tilesetLoader.loadDocument(inputStream) : tilesetLoader.load(inputStream);
+                    // cached and shared by the maps, each map binds it at its own firstgid
+                    tileset.freeze();
+                    return tileset;
+                case TiledConst.TX_EXTENSION:
+                    ObjectLayerLoader objectLayerLoader = new ObjectLayerLoader(assetManager, key, null);
+                    return useDom ? objectLayerLoader.loadObjectTemplateDocument(inputStream) : objectLayerLoader.loadObjectTemplate(inputStream);
+                case TiledConst.TMXB_EXTENSION:
+                    return new BinaryMapLoader(assetManager, key).load(inputStream);
+                default:
+                    return null;
+            }
         }
     }
 
@@ -1,5 +1,6 @@
 package io.github.jmecn.tiled.core;
 
+import io.github.jmecn.tiled.enums.TileStorage;
 import io.github.jmecn.tiled.math2d.Point;
 
 /**
@@ -30,18 +31,30 @@ public class Chunk implements TileContainer {
     /**
      * The data stored in the chunk. Format is the same as data.
      */
-    private final Tile[][] map;
-    private final boolean[][] needUpdateSpatial;
+    private final TileGrid map;
+    private final DirtyRegion dirtyRegion;
 
     private boolean isNeedUpdate;
 
     public Chunk(int x, int y, int width, int height) {
+        this(x, y, width, height, null, TileStorage.TILES);
+    }
+
+    /**
+     * @param x the x coordinate of the chunk in tiles
+     * @param y the y coordinate of the chunk in tiles
+     * @param width the width of the chunk in tiles
+     * @param height the height of the chunk in tiles
+     * @param tiledMap the map of the chunk, needed by {@link TileStorage#GIDS}
+     * @param storage how the cells are stored
+     */
+    public Chunk(int x, int y, int width, int height, TiledMap tiledMap, TileStorage storage) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
-        this.map = new Tile[height][width];
-        this.needUpdateSpatial = new boolean[height][width];
+        this.map = TileGrid.create(storage, tiledMap, width, height);
+        this.dirtyRegion = new DirtyRegion(width, height);
         this.isNeedUpdate = true;
     }
 
@@ -63,6 +76,18 @@ public class Chunk implements TileContainer {
         return height;
     }
 
+    /**
+     * @return how the cells of this chunk are stored
+     */
+    public TileStorage getTileStorage() {
+        return map.getStorage();
+    }
+
+    @Override
+    public boolean isTileIdStorage() {
+        return map.getStorage() == TileStorage.GIDS;
+    }
+
     /**
      * Removes any occurences of the given tile from this map layer. If layer is
      * locked, an exception is thrown.
@@ -73,7 +98,7 @@ public class Chunk implements TileContainer {
     public void removeTile(Tile tile) {
         for (int row = 0; row < height; row++) {
             for (int col = 0; col < width; col++) {
-                if (map[row][col] == tile) {
+                if (map.getTile(col, row) == tile) {
                     setTileAt(col, row, null);
                 }
             }
@@ -102,8 +127,19 @@ public class Chunk implements TileContainer {
     @Override
     public void setTileAt(int x, int y, Tile tile) {
         if (contains(x, y)) {
-            map[y][x] = tile;
-            needUpdateSpatial[y][x] = true;
+            map.setTile(x, y, tile);
+            dirtyRegion.mark(x, y);
+
+            // tell map renderer to update it
+            setNeedUpdated(true);
+        }
+    }
+
+    @Override
+    public void setTileIdAt(int x, int y, int tileId) {
+        if (contains(x, y)) {
+            map.setTileId(x, y, tileId);
+            dirtyRegion.mark(x, y);
 
             // tell map renderer to update it
             setNeedUpdated(true);
@@ -119,7 +155,12 @@ public class Chunk implements TileContainer {
      */
     @Override
     public Tile getTileAt(int x, int y) {
-        return (contains(x, y)) ? map[y][x] : null;
+        return (contains(x, y)) ? map.getTile(x, y) : null;
+    }
+
+    @Override
+    public int getTileIdAt(int x, int y) {
+        return (contains(x, y)) ? map.getTileId(x, y) : 0;
     }
 
     /**
@@ -166,7 +207,7 @@ public class Chunk implements TileContainer {
      * @return true if the spatial should be updated.
      */
     public boolean isNeedUpdateAt(int x, int y) {
-        return contains(x, y) && needUpdateSpatial[y][x];
+        return contains(x, y) && dirtyRegion.isDirty(x, y);
     }
 
     /**
@@ -177,10 +218,19 @@ public class Chunk implements TileContainer {
      */
     public void setNeedUpdateAt(int x, int y, boolean needUpdate) {
         if (contains(x, y)) {
-            needUpdateSpatial[y][x] = needUpdate;
+            dirtyRegion.set(x, y, needUpdate);
         }
     }
 
+    /**
+     * The cells changed since they were last rendered.
+     *
+     * @return the dirty region
+     */
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
     /**
      * @return true if the spatial should be updated.
      */
@@ -0,0 +1,259 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.math2d.TileRect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps track of the cells of a {@link TileLayer} or {@link Chunk} that changed since
+ * they were last rendered.
+ *
+ * <p>The dirty cells are kept in a bitset, one bit per cell, and their bounds in a
+ * short list of disjoint rectangles. A cell next to a rectangle grows it, rectangles that
+ * overlap are merged, and if there are too many of them they are merged into one. So a
+ * few edits only cost a scan of a few small rectangles instead of the whole layer.</p>
+ *
+ * <p>Coordinates are the column and row in the container, starting at 0.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class DirtyRegion {
+
+    /**
+     * Visits a dirty cell.
+     */
+    public interface CellVisitor {
+        void visit(int col, int row);
+    }
+
+    static final int MAX_RECTS = 16;
+
+    private final int width;
+    private final int height;
+    private final long[] words;
+    private final List<TileRect> rects;
+    private int count;
+
+    public DirtyRegion(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = new long[(width * height + 63) >>> 6];
+        this.rects = new ArrayList<>();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of dirty cells
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the disjoint rectangles containing all the dirty cells
+     */
+    public List<TileRect> getRects() {
+        return Collections.unmodifiableList(rects);
+    }
+
+    public boolean isDirty(int col, int row) {
+        int index = row * width + col;
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Mark the cell dirty.
+     *
+     * @param col the column
+     * @param row the row
+     */
+    public void mark(int col, int row) {
+        int index = row * width + col;
+        long bit = 1L << index;
+        if ((words[index >>> 6] & bit) != 0) {
+            return;
+        }
+        words[index >>> 6] |= bit;
+        count++;
+        addToRects(col, row);
+    }
+
+    /**
+     * Clear the cell. The rectangles are not shrunk, they're dropped when no cell is dirty.
+     *
+     * @param col the column
+     * @param row the row
+     */
+    public void clear(int col, int row) {
+        int index = row * width + col;
+        long bit = 1L << index;
+        if ((words[index >>> 6] & bit) == 0) {
+            return;
+        }
+        words[index >>> 6] &= ~bit;
+        count--;
+        if (count == 0) {
+            rects.clear();
+        }
+    }
+
+    /**
+     * Set the dirty flag of the cell.
+     *
+     * @param col the column
+     * @param row the row
+     * @param dirty true to mark the cell dirty, false to clear it
+     */
+    public void set(int col, int row, boolean dirty) {
+        if (dirty) {
+            mark(col, row);
+        } else {
+            clear(col, row);
+        }
+    }
+
+    /**
+     * Mark all the cells dirty.
+     */
+    public void markAll() {
+        int cells = width * height;
+        if (cells == 0) {
+            return;
+        }
+        Arrays.fill(words, -1L);
+        // clear the bits after the last cell
+        int tail = cells & 63;
+        if (tail != 0) {
+            words[words.length - 1] = (1L << tail) - 1;
+        }
+        count = cells;
+        rects.clear();
+        rects.add(new TileRect(0, 0, width, height));
+    }
+
+    /**
+     * Clear all the cells.
+     */
+    public void clear() {
+        if (count == 0) {
+            return;
+        }
+        if (count * 8 < words.length) {
+            // only a few cells, clear their words
+            for (TileRect r : rects) {
+                for (int row = r.getY(); row < r.getMaxY(); row++) {
+                    int from = row * width + r.getX();
+                    int to = row * width + r.getMaxX() - 1;
+                    for (int w = from >>> 6; w <= to >>> 6; w++) {
+                        words[w] = 0;
+                    }
+                }
+            }
+        } else {
+            Arrays.fill(words, 0L);
+        }
+        count = 0;
+        rects.clear();
+    }
+
+    /**
+     * Visit every dirty cell once, rectangle by rectangle and row by row. The cells must
+     * not be marked or cleared by the visitor.
+     *
+     * @param visitor the visitor
+     */
+    public void forEach(CellVisitor visitor) {
+        for (int i = 0, n = rects.size(); i < n; i++) {
+            TileRect r = rects.get(i);
+            int x0 = r.getX();
+            int x1 = r.getMaxX();
+            for (int row = r.getY(); row < r.getMaxY(); row++) {
+                int base = row * width;
+                int index = nextSetBit(base + x0, base + x1);
+                while (index >= 0) {
+                    visitor.visit(index - base, row);
+                    index = nextSetBit(index + 1, base + x1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first set bit in [from, to), or -1
+     */
+    private int nextSetBit(int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(word);
+                return index < to ? index : -1;
+            }
+            w++;
+            if ((w << 6) >= to) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    private void addToRects(int col, int row) {
+        // grow a rectangle the cell is in or next to
+        TileRect target = null;
+        for (int i = 0, n = rects.size(); i < n; i++) {
+            TileRect r = rects.get(i);
+            if (col >= r.getX() - 1 && col <= r.getMaxX() && row >= r.getY() - 1 && row <= r.getMaxY()) {
+                target = r;
+                break;
+            }
+        }
+
+        if (target == null) {
+            if (rects.size() < MAX_RECTS) {
+                rects.add(new TileRect(col, row, 1, 1));
+                return;
+            }
+            // too many rectangles, merge them all
+            target = rects.get(0);
+            for (int i = rects.size() - 1; i > 0; i--) {
+                target.add(rects.remove(i));
+            }
+        }
+
+        if (target.contains(col, row)) {
+            return;
+        }
+        target.add(col, row);
+
+        // keep the rectangles disjoint, so no cell is visited twice
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = rects.size() - 1; i >= 0; i--) {
+                TileRect r = rects.get(i);
+                if (r != target && r.intersects(target)) {
+                    target.add(r);
+                    rects.remove(i);
+                    merged = true;
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package io.github.jmecn.tiled.core;
 import java.util.List;
 
 import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.enums.DrawOrder;
 import io.github.jmecn.tiled.enums.ObjectType;
 
 /**
@@ -92,6 +93,9 @@ public class MapObject extends Base {
 
     private boolean isNeedUpdate = true;
 
+    // the place of this object in the draw order of its group changed since the last sort
+    private boolean orderChanged = false;
+
     public MapObject() {
         // for serialization
     }
@@ -117,6 +121,9 @@ public class MapObject extends Base {
 
     public void setId(int id) {
         this.id = id;
+        if (objectGroup != null) {
+            objectGroup.reorder(this, DrawOrder.INDEX);
+        }
     }
 
     public String getName() {
@@ -141,6 +148,7 @@ public class MapObject extends Base {
 
     public void setShape(ObjectType shape) {
         this.shape = shape;
+        updateIndex();
     }
 
     public double getX() {
@@ -150,6 +158,7 @@ public class MapObject extends Base {
     public void setX(double x) {
         this.x = x;
         invalidate();
+        updateIndex();
     }
 
     public double getY() {
@@ -159,6 +168,10 @@ public class MapObject extends Base {
     public void setY(double y) {
         this.y = y;
         invalidate();
+        updateIndex();
+        if (objectGroup != null) {
+            objectGroup.reorder(this, DrawOrder.TOPDOWN);
+        }
     }
 
     public double getWidth() {
@@ -167,6 +180,7 @@ public class MapObject extends Base {
 
     public void setWidth(double width) {
         this.width = width;
+        updateIndex();
     }
 
     public double getHeight() {
@@ -175,6 +189,7 @@ public class MapObject extends Base {
 
     public void setHeight(double height) {
         this.height = height;
+        updateIndex();
     }
 
     public double getRotation() {
@@ -184,6 +199,7 @@ public class MapObject extends Base {
     public void setRotation(double rotation) {
         this.rotation = rotation;
         invalidate();
+        updateIndex();
     }
 
     public String getTemplate() {
@@ -225,6 +241,7 @@ public class MapObject extends Base {
 
     public void setPoints(List<Vector2f> points) {
         this.points = points;
+        updateIndex();
     }
 
     public TiledImage getImage() {
@@ -250,6 +267,23 @@ public class MapObject extends Base {
         }
     }
 
+    /**
+     * Update the bounds of this object in the spatial index of its group, if any.
+     */
+    private void updateIndex() {
+        if (objectGroup != null) {
+            objectGroup.updateIndex(this);
+        }
+    }
+
+    boolean isOrderChanged() {
+        return orderChanged;
+    }
+
+    void setOrderChanged(boolean orderChanged) {
+        this.orderChanged = orderChanged;
+    }
+
     public boolean isNeedUpdate() {
         return isNeedUpdate;
     }
@@ -1,6 +1,6 @@
 package io.github.jmecn.tiled.core;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.jme3.math.ColorRGBA;
@@ -28,7 +28,25 @@ public class ObjectGroup extends Layer {
      */
     private DrawOrder drawOrder = DrawOrder.TOPDOWN;
 
-    private final List<MapObject> objects = new LinkedList<>();
+    /**
+     * The objects, in draw order once sorted by {@link #sortObjects()}.
+     */
+    private final ArrayList<MapObject> objects = new ArrayList<>();
+
+    /**
+     * The objects whose place in the draw order changed since the last sort.
+     */
+    private final List<MapObject> movedObjects = new ArrayList<>();
+
+    /**
+     * Whether all the objects must be sorted again.
+     */
+    private boolean unsorted = false;
+
+    /**
+     * The optional spatial index of the objects.
+     */
+    private ObjectIndex index;
 
     public ObjectGroup() {
         // for serialization
@@ -51,13 +69,96 @@ public class ObjectGroup extends Layer {
     }
 
     public void setDrawOrder(DrawOrder drawOrder) {
-        this.drawOrder = drawOrder;
+        if (this.drawOrder != drawOrder) {
+            this.drawOrder = drawOrder;
+            unsorted = true;
+        }
     }
 
+    /**
+     * Get the objects of this group, in draw order after {@link #sortObjects()}.
+     * Use {@link #add(MapObject)} and {@link #remove(MapObject)} to change them.
+     *
+     * @return the objects
+     */
     public List<MapObject> getObjects() {
         return objects;
     }
 
+    /**
+     * Put the objects in draw order. Only the objects whose y coordinate or id changed since
+     * the last sort are moved: they are taken out and merged back, so the cost is linear in
+     * the number of objects when few of them moved.
+     */
+    public void sortObjects() {
+        if (movedObjects.isEmpty() && !unsorted) {
+            return;
+        }
+        int size = objects.size();
+        int moved = movedObjects.size();
+        if (unsorted || moved * 8L > size) {
+            objects.sort(drawOrder);
+        } else {
+            // take the moved objects out, the others are still in order
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                MapObject obj = objects.get(i);
+                if (!obj.isOrderChanged()) {
+                    objects.set(kept++, obj);
+                }
+            }
+            movedObjects.sort(drawOrder);
+
+            // merge them back from the end, a moved object goes after the equal ones
+            int end = kept;
+            int k = size;
+            for (int j = moved - 1; j >= 0; j--) {
+                MapObject obj = movedObjects.get(j);
+                int at = upperBound(obj, end);
+                while (end > at) {
+                    objects.set(--k, objects.get(--end));
+                }
+                objects.set(--k, obj);
+            }
+        }
+
+        for (int i = 0; i < moved; i++) {
+            movedObjects.get(i).setOrderChanged(false);
+        }
+        movedObjects.clear();
+        unsorted = false;
+    }
+
+    /**
+     * Find the first of the sorted objects before the given end that goes after an object.
+     */
+    private int upperBound(MapObject obj, int end) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (drawOrder.compare(objects.get(mid), obj) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Called when the y coordinate or the id of an object changed.
+     *
+     * @param obj the object
+     * @param cause the draw order that depends on this change
+     */
+    void reorder(MapObject obj, DrawOrder cause) {
+        if (cause == drawOrder && !obj.isOrderChanged()) {
+            obj.setOrderChanged(true);
+            movedObjects.add(obj);
+        }
+    }
+
     public MapObject get(int id) {
         for (MapObject obj : objects) {
             if (obj.getId() == id) {
@@ -70,11 +171,64 @@ public class ObjectGroup extends Layer {
     public void add(MapObject obj) {
         obj.setObjectGroup(this);
         objects.add(obj);
+        // its place is found by the next sort
+        obj.setOrderChanged(false);
+        reorder(obj, drawOrder);
+        if (index != null) {
+            index.add(obj);
+        }
     }
 
     public void remove(MapObject o) {
-        objects.remove(o);
+        if (!objects.remove(o)) {
+            return;
+        }
         o.setObjectGroup(null);
+        if (o.isOrderChanged()) {
+            movedObjects.remove(o);
+            o.setOrderChanged(false);
+        }
+        if (index != null) {
+            index.remove(o);
+        }
+    }
+
+    /**
+     * Index the objects of this group in a grid, so they can be found by region, by point or
+     * by distance without scanning all of them. The index follows the objects added, removed
+     * and changed afterwards.
+     *
+     * @param cellSize the width and height of the cells of the grid, in pixels
+     * @return the index
+     */
+    public ObjectIndex createObjectIndex(double cellSize) {
+        index = new ObjectIndex(cellSize);
+        for (MapObject obj : objects) {
+            index.add(obj);
+        }
+        return index;
+    }
+
+    public void removeObjectIndex() {
+        index = null;
+    }
+
+    /**
+     * @return the spatial index of the objects, or null if there is none
+     */
+    public ObjectIndex getObjectIndex() {
+        return index;
+    }
+
+    /**
+     * Update the bounds of an object in the index, after it was changed.
+     *
+     * @param obj the object
+     */
+    void updateIndex(MapObject obj) {
+        if (index != null) {
+            index.update(obj);
+        }
     }
 
     /**
@@ -0,0 +1,428 @@
+package io.github.jmecn.tiled.core;
+
+import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.math2d.Bound2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A uniform grid over the bounds of the objects of an {@link ObjectGroup}, to find the
+ * objects in a region, under a point or nearest to a point without scanning all of them.
+ *
+ * <p>The bounds of an object are the axis aligned box of its shape, in pixels: its points
+ * for a polygon or a polyline, its rectangle otherwise, rotated around its origin. An object
+ * is put in every cell its bounds overlap. An object overlapping more than
+ * {@link #MAX_CELLS_PER_OBJECT} cells is kept apart, and tested by every query.</p>
+ *
+ * <p>The setters of {@link MapObject} update the index. When the points of a polygon are
+ * changed in place, call {@link #update(MapObject)}. The index is not thread safe.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class ObjectIndex {
+
+    public static final int MAX_CELLS_PER_OBJECT = 64;
+
+    private static final class Entry {
+        private final MapObject object;
+        private double minX;
+        private double minY;
+        private double maxX;
+        private double maxY;
+        // the cells overlapped by the bounds
+        private int cx0;
+        private int cy0;
+        private int cx1;
+        private int cy1;
+        private boolean large;
+        // the last query which visited this entry
+        private int stamp;
+        // the squared distance to the point of the last nearest query
+        private double distance;
+
+        Entry(MapObject object) {
+            this.object = object;
+        }
+    }
+
+    private static final Comparator<Entry> FARTHEST_FIRST = (a, b) -> Double.compare(b.distance, a.distance);
+
+    private final double cellSize;
+    private final Map<MapObject, Entry> entries = new IdentityHashMap<>();
+    // the entries in each cell, by cell coordinate, see cellKey()
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> largeEntries = new ArrayList<>();
+    private final double[] bounds = new double[4];
+    private int stamp;
+
+    // the range of the cells ever used, to stop the search of the nearest objects
+    private int minCx = Integer.MAX_VALUE;
+    private int minCy = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE;
+    private int maxCy = Integer.MIN_VALUE;
+
+    /**
+     * @param cellSize the width and height of the cells, in pixels
+     */
+    public ObjectIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(MapObject object) {
+        return entries.containsKey(object);
+    }
+
+    public void add(MapObject object) {
+        if (entries.containsKey(object)) {
+            update(object);
+            return;
+        }
+        Entry entry = new Entry(object);
+        entries.put(object, entry);
+        setBounds(entry);
+        link(entry);
+    }
+
+    public boolean remove(MapObject object) {
+        Entry entry = entries.remove(object);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry, entry.cx0, entry.cy0, entry.cx1, entry.cy1);
+        return true;
+    }
+
+    /**
+     * Update the bounds of an object, after it was moved or changed.
+     *
+     * @param object the object
+     */
+    public void update(MapObject object) {
+        Entry entry = entries.get(object);
+        if (entry == null) {
+            return;
+        }
+        int cx0 = entry.cx0;
+        int cy0 = entry.cy0;
+        int cx1 = entry.cx1;
+        int cy1 = entry.cy1;
+        setBounds(entry);
+        if (cx0 != entry.cx0 || cy0 != entry.cy0 || cx1 != entry.cx1 || cy1 != entry.cy1) {
+            unlink(entry, cx0, cy0, cx1, cy1);
+            link(entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        cells.clear();
+        largeEntries.clear();
+        minCx = Integer.MAX_VALUE;
+        minCy = Integer.MAX_VALUE;
+        maxCx = Integer.MIN_VALUE;
+        maxCy = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Get the bounds of an object of the index.
+     *
+     * @param object the object
+     * @param store the bounds to set
+     * @return the bounds, or null if the object is not in the index
+     */
+    public Bound2D getBounds(MapObject object, Bound2D store) {
+        Entry entry = entries.get(object);
+        if (entry == null) {
+            return null;
+        }
+        if (store == null) {
+            store = new Bound2D();
+        }
+        store.setX(entry.minX);
+        store.setY(entry.minY);
+        store.setWidth(entry.maxX - entry.minX);
+        store.setHeight(entry.maxY - entry.minY);
+        return store;
+    }
+
+    /**
+     * Get the objects whose bounds overlap a region, in no particular order.
+     *
+     * @param region the region, in pixels
+     * @param store the list to add the objects to
+     * @return the list
+     */
+    public List<MapObject> query(Bound2D region, List<MapObject> store) {
+        return query(region.getX(), region.getY(), region.getX() + region.getWidth(),
+                region.getY() + region.getHeight(), store);
+    }
+
+    /**
+     * Get the objects whose bounds contain a point, in no particular order.
+     *
+     * @param x the x coordinate of the point, in pixels
+     * @param y the y coordinate of the point, in pixels
+     * @param store the list to add the objects to
+     * @return the list
+     */
+    public List<MapObject> query(double x, double y, List<MapObject> store) {
+        return query(x, y, x, y, store);
+    }
+
+    private List<MapObject> query(double x0, double y0, double x1, double y1, List<MapObject> store) {
+        int s = ++stamp;
+        int cx0 = cell(x0);
+        int cy0 = cell(y0);
+        int cx1 = cell(x1);
+        int cy1 = cell(y1);
+        if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > cells.size()) {
+            // the region has more cells than the index
+            for (List<Entry> list : cells.values()) {
+                collect(list, s, x0, y0, x1, y1, store);
+            }
+        } else {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    List<Entry> list = cells.get(cellKey(cx, cy));
+                    if (list != null) {
+                        collect(list, s, x0, y0, x1, y1, store);
+                    }
+                }
+            }
+        }
+        collect(largeEntries, s, x0, y0, x1, y1, store);
+        return store;
+    }
+
+    private static void collect(List<Entry> list, int s, double x0, double y0, double x1, double y1, List<MapObject> store) {
+        for (int i = 0, n = list.size(); i < n; i++) {
+            Entry entry = list.get(i);
+            if (entry.stamp != s) {
+                entry.stamp = s;
+                if (entry.minX <= x1 && entry.maxX >= x0 && entry.minY <= y1 && entry.maxY >= y0) {
+                    store.add(entry.object);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the objects nearest to a point, by the distance from the point to their bounds.
+     *
+     * @param x the x coordinate of the point, in pixels
+     * @param y the y coordinate of the point, in pixels
+     * @param k the number of objects
+     * @param store the list to add the objects to, nearest first
+     * @return the list
+     */
+    public List<MapObject> nearest(double x, double y, int k, List<MapObject> store) {
+        if (k <= 0 || entries.isEmpty()) {
+            return store;
+        }
+        int s = ++stamp;
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.min(k, entries.size()), FARTHEST_FIRST);
+        consider(largeEntries, s, x, y, k, heap);
+
+        int pcx = cell(x);
+        int pcy = cell(y);
+        int maxRing = cells.isEmpty() ? -1 : Math.max(Math.max(Math.abs(pcx - minCx), Math.abs(pcx - maxCx)),
+                Math.max(Math.abs(pcy - minCy), Math.abs(pcy - maxCy)));
+        long lookups = 0;
+        for (int r = 0; r <= maxRing; r++) {
+            if (lookups > cells.size()) {
+                // the rings are mostly empty, test the objects left one by one
+                consider(entries.values(), s, x, y, k, heap);
+                break;
+            }
+            for (int cx = pcx - r; cx <= pcx + r; cx++) {
+                consider(cells.get(cellKey(cx, pcy - r)), s, x, y, k, heap);
+                if (r > 0) {
+                    consider(cells.get(cellKey(cx, pcy + r)), s, x, y, k, heap);
+                }
+            }
+            for (int cy = pcy - r + 1; cy <= pcy + r - 1; cy++) {
+                consider(cells.get(cellKey(pcx - r, cy)), s, x, y, k, heap);
+                consider(cells.get(cellKey(pcx + r, cy)), s, x, y, k, heap);
+            }
+            lookups += r == 0 ? 1 : 8L * r;
+
+            // the cells of the next rings are at least r cells away from the point
+            double bound = r * cellSize;
+            if (heap.size() == k && heap.peek().distance <= bound * bound) {
+                break;
+            }
+        }
+
+        Entry[] nearest = heap.toArray(new Entry[0]);
+        Arrays.sort(nearest, FARTHEST_FIRST.reversed());
+        for (Entry entry : nearest) {
+            store.add(entry.object);
+        }
+        return store;
+    }
+
+    private static void consider(Iterable<Entry> list, int s, double x, double y, int k, PriorityQueue<Entry> heap) {
+        if (list == null) {
+            return;
+        }
+        for (Entry entry : list) {
+            if (entry.stamp == s) {
+                continue;
+            }
+            entry.stamp = s;
+            double dx = Math.max(Math.max(entry.minX - x, x - entry.maxX), 0);
+            double dy = Math.max(Math.max(entry.minY - y, y - entry.maxY), 0);
+            entry.distance = dx * dx + dy * dy;
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (entry.distance < heap.peek().distance) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+    }
+
+    private void link(Entry entry) {
+        long count = (long) (entry.cx1 - entry.cx0 + 1) * (entry.cy1 - entry.cy0 + 1);
+        entry.large = count > MAX_CELLS_PER_OBJECT;
+        if (entry.large) {
+            largeEntries.add(entry);
+            return;
+        }
+        for (int cy = entry.cy0; cy <= entry.cy1; cy++) {
+            for (int cx = entry.cx0; cx <= entry.cx1; cx++) {
+                cells.computeIfAbsent(cellKey(cx, cy), key -> new ArrayList<>(4)).add(entry);
+            }
+        }
+        minCx = Math.min(minCx, entry.cx0);
+        minCy = Math.min(minCy, entry.cy0);
+        maxCx = Math.max(maxCx, entry.cx1);
+        maxCy = Math.max(maxCy, entry.cy1);
+    }
+
+    /**
+     * Remove an entry from the cells it was linked to.
+     */
+    private void unlink(Entry entry, int cx0, int cy0, int cx1, int cy1) {
+        if (entry.large) {
+            largeEntries.remove(entry);
+            return;
+        }
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Long key = cellKey(cx, cy);
+                List<Entry> list = cells.get(key);
+                if (list != null && list.remove(entry) && list.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private void setBounds(Entry entry) {
+        computeBounds(entry.object, bounds);
+        entry.minX = bounds[0];
+        entry.minY = bounds[1];
+        entry.maxX = bounds[2];
+        entry.maxY = bounds[3];
+        entry.cx0 = cell(entry.minX);
+        entry.cy0 = cell(entry.minY);
+        entry.cx1 = cell(entry.maxX);
+        entry.cy1 = cell(entry.maxY);
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Compute the axis aligned bounds of an object, in pixels.
+     *
+     * @param object the object
+     * @param store minX, minY, maxX and maxY
+     */
+    static void computeBounds(MapObject object, double[] store) {
+        double cos = 1;
+        double sin = 0;
+        if (object.getRotation() != 0) {
+            double rotation = Math.toRadians(object.getRotation());
+            cos = Math.cos(rotation);
+            sin = Math.sin(rotation);
+        }
+        store[0] = Double.POSITIVE_INFINITY;
+        store[1] = Double.POSITIVE_INFINITY;
+        store[2] = Double.NEGATIVE_INFINITY;
+        store[3] = Double.NEGATIVE_INFINITY;
+
+        double w = object.getWidth();
+        double h = object.getHeight();
+        List<Vector2f> points = object.getPoints();
+        switch (object.getShape()) {
+            case POLYGON:
+            case POLYLINE:
+                if (points != null && !points.isEmpty()) {
+                    for (Vector2f p : points) {
+                        extend(store, p.x, p.y, cos, sin);
+                    }
+                } else {
+                    extend(store, 0, 0, cos, sin);
+                }
+                break;
+            case POINT:
+                extend(store, 0, 0, cos, sin);
+                break;
+            case TILE:
+                // the origin of a tile object is its bottom left corner
+                extend(store, 0, -h, cos, sin);
+                extend(store, w, -h, cos, sin);
+                extend(store, 0, 0, cos, sin);
+                extend(store, w, 0, cos, sin);
+                break;
+            default:
+                extend(store, 0, 0, cos, sin);
+                extend(store, w, 0, cos, sin);
+                extend(store, 0, h, cos, sin);
+                extend(store, w, h, cos, sin);
+                break;
+        }
+
+        store[0] += object.getX();
+        store[1] += object.getY();
+        store[2] += object.getX();
+        store[3] += object.getY();
+    }
+
+    /**
+     * Extend the bounds with a point rotated clockwise around the origin, y pointing down.
+     */
+    private static void extend(double[] store, double x, double y, double cos, double sin) {
+        double rx = x * cos - y * sin;
+        double ry = x * sin + y * cos;
+        store[0] = Math.min(store[0], rx);
+        store[1] = Math.min(store[1], ry);
+        store[2] = Math.max(store[2], rx);
+        store[3] = Math.max(store[3], ry);
+    }
+}
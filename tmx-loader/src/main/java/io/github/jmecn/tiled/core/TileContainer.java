@@ -34,4 +34,39 @@ public interface TileContainer {
      *         outside this layer
      */
     Tile getTileAt(int x, int y);
+
+    /**
+     * Returns the global id of the tile at the specified position, with the flip flags.
+     *
+     * @param x
+     *            Tile-space x coordinate
+     * @param y
+     *            Tile-space y coordinate
+     * @return the global id, or 0 when there is no tile or (x, y) is outside this layer
+     */
+    default int getTileIdAt(int x, int y) {
+        Tile tile = getTileAt(x, y);
+        return tile == null ? 0 : tile.getGid();
+    }
+
+    /**
+     * @return true if this container stores the global ids of the tiles instead of the tiles
+     */
+    default boolean isTileIdStorage() {
+        return false;
+    }
+
+    /**
+     * Sets the global id of the tile at the specified position. Does nothing if (x, y)
+     * falls outside of this layer. The tile is resolved by the map, when it is asked for
+     * if {@link #isTileIdStorage()}, at once otherwise.
+     *
+     * @param x
+     *            x position of tile
+     * @param y
+     *            y position of tile
+     * @param tileId
+     *            global id of the tile, with the flip flags, or 0 to remove the tile
+     */
+    void setTileIdAt(int x, int y, int tileId);
 }
@@ -0,0 +1,132 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.enums.TileStorage;
+
+/**
+ * The cells of a {@link TileLayer} or a {@link Chunk}, by column and row.
+ *
+ * @author yanmaoyuan
+ */
+abstract class TileGrid {
+
+    protected final int width;
+    protected final int height;
+
+    protected TileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    static TileGrid create(TileStorage storage, TiledMap map, int width, int height) {
+        if (storage == TileStorage.GIDS) {
+            if (map == null) {
+                throw new IllegalArgumentException("A map is needed to resolve the tiles of a gid storage");
+            }
+            return new GidGrid(map, width, height);
+        }
+        return new ObjectGrid(map, width, height);
+    }
+
+    abstract TileStorage getStorage();
+
+    abstract Tile getTile(int col, int row);
+
+    abstract void setTile(int col, int row, Tile tile);
+
+    /**
+     * @return the global id of the tile with the flip flags, or 0 if the cell is empty
+     */
+    abstract int getTileId(int col, int row);
+
+    /**
+     * @param tileId the global id of the tile with the flip flags, or 0 to empty the cell
+     */
+    abstract void setTileId(int col, int row, int tileId);
+
+    /**
+     * A reference to the tile per cell, a global id is resolved by the map when it is set.
+     */
+    static final class ObjectGrid extends TileGrid {
+        private final TiledMap map;
+        private final Tile[][] tiles;
+
+        ObjectGrid(TiledMap map, int width, int height) {
+            super(width, height);
+            this.map = map;
+            this.tiles = new Tile[height][width];
+        }
+
+        @Override
+        TileStorage getStorage() {
+            return TileStorage.TILES;
+        }
+
+        @Override
+        Tile getTile(int col, int row) {
+            return tiles[row][col];
+        }
+
+        @Override
+        void setTile(int col, int row, Tile tile) {
+            tiles[row][col] = tile;
+        }
+
+        @Override
+        int getTileId(int col, int row) {
+            Tile tile = tiles[row][col];
+            return tile == null ? 0 : tile.getGid();
+        }
+
+        @Override
+        void setTileId(int col, int row, int tileId) {
+            if (tileId == 0) {
+                tiles[row][col] = null;
+                return;
+            }
+            if (map == null) {
+                throw new IllegalStateException("A map is needed to resolve the tile id:" + tileId);
+            }
+            tiles[row][col] = map.getTileForTileId(tileId);
+        }
+    }
+
+    /**
+     * The global id of the tile per cell, the tiles are resolved by the map.
+     */
+    static final class GidGrid extends TileGrid {
+        private final TiledMap map;
+        private final int[] tileIds;
+
+        GidGrid(TiledMap map, int width, int height) {
+            super(width, height);
+            this.map = map;
+            this.tileIds = new int[width * height];
+        }
+
+        @Override
+        TileStorage getStorage() {
+            return TileStorage.GIDS;
+        }
+
+        @Override
+        Tile getTile(int col, int row) {
+            int tileId = tileIds[row * width + col];
+            return tileId == 0 ? null : map.getTileForTileId(tileId);
+        }
+
+        @Override
+        void setTile(int col, int row, Tile tile) {
+            tileIds[row * width + col] = tile == null ? 0 : tile.getGid();
+        }
+
+        @Override
+        int getTileId(int col, int row) {
+            return tileIds[row * width + col];
+        }
+
+        @Override
+        void setTileId(int col, int row, int tileId) {
+            tileIds[row * width + col] = tileId;
+        }
+    }
+}
@@ -2,24 +2,45 @@ package io.github.jmecn.tiled.core;
 
 import java.util.*;
 
+import io.github.jmecn.tiled.enums.TileStorage;
 import io.github.jmecn.tiled.math2d.Point;
+import io.github.jmecn.tiled.math2d.TileRect;
 
 /**
  * A TileLayer is a specialized MapLayer, used for tracking two-dimensional tile
  * data.
+ *
+ * <p>The layers of an infinite map have no grid of their own, their cells are stored
+ * in chunks, found by their chunk coordinate. The tile coordinates may be negative.</p>
  * 
  * @author yanmaoyuan
  */
 public class TileLayer extends Layer implements TileContainer {
 
-    private Tile[][] tiles;
-    
-    private boolean[][] needUpdateSpatial;
+    /**
+     * The size of the chunks created by setting a tile outside the chunks of an infinite layer,
+     * when the layer has no chunk yet.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16;
+
+    private TileGrid tiles;
+
+    private DirtyRegion dirtyRegion;
 
     protected HashMap<Object, Properties> tileInstanceProperties = new HashMap<>();
 
     private List<Chunk> chunks;
 
+    // the cells are stored in the chunks
+    private boolean infinite;
+    // the chunks by chunk coordinate, see chunkKey()
+    private final Map<Long, Chunk> chunkMap = new HashMap<>();
+    private int chunkWidth;
+    private int chunkHeight;
+    // false if the chunks are not all of the same size and aligned on it
+    private boolean regularChunks = true;
+    private final TileRect chunkBounds = new TileRect();
+
     /**
      * Construct a TileLayer from the given width and height.
      * 
@@ -31,8 +52,8 @@ public class TileLayer extends Layer implements TileContainer {
     public TileLayer(int w, int h) {
         super(w, h);
 
-        tiles = new Tile[height][width];
-        needUpdateSpatial = new boolean[height][width];
+        tiles = TileGrid.create(TileStorage.TILES, null, width, height);
+        dirtyRegion = new DirtyRegion(width, height);
         chunks = new ArrayList<>();
     }
 
@@ -57,8 +78,53 @@ public class TileLayer extends Layer implements TileContainer {
      *            height in tiles
      */
     public TileLayer(TiledMap m, int w, int h) {
+        this(m, w, h, TileStorage.TILES);
+    }
+
+    /**
+     * Construct a TileLayer with the given storage of its cells.
+     *
+     * @param m
+     *            the map this layer is part of, needed by {@link TileStorage#GIDS}
+     * @param w
+     *            width in tiles
+     * @param h
+     *            height in tiles
+     * @param storage
+     *            how the cells are stored
+     */
+    public TileLayer(TiledMap m, int w, int h, TileStorage storage) {
         super(w, h);
         setMap(m);
+
+        infinite = m != null && m.isInfinite();
+        if (infinite) {
+            tiles = TileGrid.create(storage, m, 0, 0);
+            dirtyRegion = new DirtyRegion(0, 0);
+        } else {
+            tiles = TileGrid.create(storage, m, width, height);
+            dirtyRegion = new DirtyRegion(width, height);
+        }
+        chunks = new ArrayList<>();
+    }
+
+    /**
+     * @return true if the cells of this layer are stored in chunks
+     */
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    /**
+     * @return how the cells of this layer are stored
+     */
+    public TileStorage getTileStorage() {
+        return tiles.getStorage();
+    }
+
+    @Override
+    public boolean isTileIdStorage() {
+        return tiles.getStorage() == TileStorage.GIDS;
     }
 
     /**
@@ -73,6 +139,9 @@ public class TileLayer extends Layer implements TileContainer {
      *         <code>false</code> otherwise
      */
     public boolean contains(int x, int y) {
+        if (infinite) {
+            return getChunkAt(x, y) != null;
+        }
         return x >= 0 && y >= 0 && x < width && y < height;
     }
 
@@ -84,9 +153,16 @@ public class TileLayer extends Layer implements TileContainer {
      *            the Tile to be removed
      */
     public void removeTile(Tile tile) {
+        if (infinite) {
+            for (Chunk chunk : chunks) {
+                chunk.removeTile(tile);
+            }
+            setNeedUpdated(true);
+            return;
+        }
         for (int y = 0; y < this.height; y++) {
             for (int x = 0; x < this.width; x++) {
-                if (tiles[y][x] == tile) {
+                if (tiles.getTile(x, y) == tile) {
                     setTileAt(x + this.x, y + this.y, null);
                 }
             }
@@ -106,15 +182,42 @@ public class TileLayer extends Layer implements TileContainer {
      */
     @Override
     public void setTileAt(int tx, int ty, Tile ti) {
+        if (infinite) {
+            Chunk chunk = ti != null ? getOrCreateChunkAt(tx, ty) : getChunkAt(tx, ty);
+            if (chunk != null) {
+                chunk.setTileAt(tx - chunk.getX(), ty - chunk.getY(), ti);
+                setNeedUpdated(true);
+            }
+            return;
+        }
         if (contains(tx, ty)) {
-            tiles[ty - y][tx - x] = ti;
-            needUpdateSpatial[ty - y][tx - x] = true;
+            tiles.setTile(tx - x, ty - y, ti);
+            dirtyRegion.mark(tx - x, ty - y);
             
             // tell map renderer to update it
             setNeedUpdated(true);
         }
     }
 
+    @Override
+    public void setTileIdAt(int tx, int ty, int tileId) {
+        if (infinite) {
+            Chunk chunk = tileId != 0 ? getOrCreateChunkAt(tx, ty) : getChunkAt(tx, ty);
+            if (chunk != null) {
+                chunk.setTileIdAt(tx - chunk.getX(), ty - chunk.getY(), tileId);
+                setNeedUpdated(true);
+            }
+            return;
+        }
+        if (contains(tx, ty)) {
+            tiles.setTileId(tx - x, ty - y, tileId);
+            dirtyRegion.mark(tx - x, ty - y);
+
+            // tell map renderer to update it
+            setNeedUpdated(true);
+        }
+    }
+
     /**
      * Returns the tile at the specified position.
      * 
@@ -127,7 +230,20 @@ public class TileLayer extends Layer implements TileContainer {
      */
     @Override
     public Tile getTileAt(int tx, int ty) {
-        return (contains(tx, ty)) ? tiles[ty - y][tx - x] : null;
+        if (infinite) {
+            Chunk chunk = getChunkAt(tx, ty);
+            return chunk != null ? chunk.getTileAt(tx - chunk.getX(), ty - chunk.getY()) : null;
+        }
+        return (contains(tx, ty)) ? tiles.getTile(tx - x, ty - y) : null;
+    }
+
+    @Override
+    public int getTileIdAt(int tx, int ty) {
+        if (infinite) {
+            Chunk chunk = getChunkAt(tx, ty);
+            return chunk != null ? chunk.getTileIdAt(tx - chunk.getX(), ty - chunk.getY()) : 0;
+        }
+        return (contains(tx, ty)) ? tiles.getTileId(tx - x, ty - y) : 0;
     }
 
     /**
@@ -138,6 +254,15 @@ public class TileLayer extends Layer implements TileContainer {
      * @return A {@link com.jme3.math.Vector2f} instance of the first instance of t, or <code>null</code> if it is not found
      */
     public Point locationOf(Tile t) {
+        if (infinite) {
+            for (Chunk chunk : chunks) {
+                Point p = chunk.locationOf(t);
+                if (p != null) {
+                    return new Point(p.getX() + chunk.getX(), p.getY() + chunk.getY());
+                }
+            }
+            return null;
+        }
         for (int y = this.y; y < this.height + this.y; y++) {
             for (int x = this.x; x < this.width + this.x; x++) {
                 if (getTileAt(x, y) == t) {
@@ -158,6 +283,13 @@ public class TileLayer extends Layer implements TileContainer {
      *            the replacement tile
      */
     public void replaceTile(Tile find, Tile replace) {
+        if (infinite) {
+            for (Chunk chunk : chunks) {
+                chunk.replaceTile(find, replace);
+            }
+            setNeedUpdated(true);
+            return;
+        }
         for (int y = this.y; y < this.y + this.height; y++) {
             for (int x = this.x; x < this.x + this.width; x++) {
                 if (getTileAt(x, y) == find) {
@@ -178,7 +310,11 @@ public class TileLayer extends Layer implements TileContainer {
      * @return true if the spatial should be updated.
      */
     public boolean isNeedUpdateAt(int tx, int ty) {
-        return contains(tx, ty) && needUpdateSpatial[ty - y][tx - x];
+        if (infinite) {
+            Chunk chunk = getChunkAt(tx, ty);
+            return chunk != null && chunk.isNeedUpdateAt(tx - chunk.getX(), ty - chunk.getY());
+        }
+        return contains(tx, ty) && dirtyRegion.isDirty(tx - x, ty - y);
     }
 
     /**
@@ -188,11 +324,28 @@ public class TileLayer extends Layer implements TileContainer {
      * @param needUpdate true if the spatial should be updated.
      */
     public void setNeedUpdateAt(int tx, int ty, boolean needUpdate) {
+        if (infinite) {
+            Chunk chunk = getChunkAt(tx, ty);
+            if (chunk != null) {
+                chunk.setNeedUpdateAt(tx - chunk.getX(), ty - chunk.getY(), needUpdate);
+            }
+            return;
+        }
         if (contains(tx, ty)) {
-            needUpdateSpatial[ty - y][tx - x] = needUpdate;
+            dirtyRegion.set(tx - x, ty - y, needUpdate);
         }
     }
 
+    /**
+     * The cells changed since they were last rendered, by column and row in this layer.
+     * An infinite layer keeps them in its chunks, its own region is always empty.
+     *
+     * @return the dirty region
+     */
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
     /**
      * <p>
      * getTileInstancePropertiesAt.
@@ -235,7 +388,111 @@ public class TileLayer extends Layer implements TileContainer {
         return chunks;
     }
 
+    /**
+     * Add a chunk, it replaces the chunk at the same coordinate.
+     *
+     * @param chunk the chunk
+     */
     public void addChunk(Chunk chunk) {
+        if (chunks.isEmpty()) {
+            chunkWidth = chunk.getWidth();
+            chunkHeight = chunk.getHeight();
+        }
+        if (chunk.getWidth() != chunkWidth || chunk.getHeight() != chunkHeight
+                || Math.floorMod(chunk.getX(), Math.max(1, chunkWidth)) != 0
+                || Math.floorMod(chunk.getY(), Math.max(1, chunkHeight)) != 0) {
+            regularChunks = false;
+        }
+
+        Chunk old = chunkMap.put(chunkKey(chunk.getX(), chunk.getY()), chunk);
+        if (old != null) {
+            chunks.remove(old);
+        }
         chunks.add(chunk);
+        chunkBounds.add(new TileRect(chunk.getX(), chunk.getY(), chunk.getWidth(), chunk.getHeight()));
+    }
+
+    /**
+     * Get the chunk containing a cell.
+     *
+     * @param tx the x coordinate of the cell, in tiles
+     * @param ty the y coordinate of the cell, in tiles
+     * @return the chunk, or null if no chunk contains the cell
+     */
+    public Chunk getChunkAt(int tx, int ty) {
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        if (regularChunks && chunkWidth > 0 && chunkHeight > 0) {
+            int cx = Math.floorDiv(tx, chunkWidth) * chunkWidth;
+            int cy = Math.floorDiv(ty, chunkHeight) * chunkHeight;
+            return chunkMap.get(chunkKey(cx, cy));
+        }
+        for (Chunk chunk : chunks) {
+            if (chunk.contains(tx - chunk.getX(), ty - chunk.getY())) {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the chunks overlapping a region.
+     *
+     * @param region the region, in tiles
+     * @param store the list to add the chunks to
+     * @return the list
+     */
+    public List<Chunk> getChunks(TileRect region, List<Chunk> store) {
+        TileRect r = new TileRect(region).intersectLocal(chunkBounds);
+        if (r.isEmpty()) {
+            return store;
+        }
+        if (regularChunks && chunkWidth > 0 && chunkHeight > 0) {
+            int cx0 = Math.floorDiv(r.getX(), chunkWidth);
+            int cy0 = Math.floorDiv(r.getY(), chunkHeight);
+            int cx1 = Math.floorDiv(r.getMaxX() - 1, chunkWidth);
+            int cy1 = Math.floorDiv(r.getMaxY() - 1, chunkHeight);
+            // scan the chunk grid only when it's smaller than the list of chunks
+            if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) < chunks.size()) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    for (int cx = cx0; cx <= cx1; cx++) {
+                        Chunk chunk = chunkMap.get(chunkKey(cx * chunkWidth, cy * chunkHeight));
+                        if (chunk != null) {
+                            store.add(chunk);
+                        }
+                    }
+                }
+                return store;
+            }
+        }
+        for (Chunk chunk : chunks) {
+            if (r.intersects(new TileRect(chunk.getX(), chunk.getY(), chunk.getWidth(), chunk.getHeight()))) {
+                store.add(chunk);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @return the bounds of all the chunks, in tiles
+     */
+    public TileRect getChunkBounds() {
+        return new TileRect(chunkBounds);
+    }
+
+    private Chunk getOrCreateChunkAt(int tx, int ty) {
+        Chunk chunk = getChunkAt(tx, ty);
+        if (chunk == null) {
+            int w = chunks.isEmpty() || !regularChunks ? DEFAULT_CHUNK_SIZE : chunkWidth;
+            int h = chunks.isEmpty() || !regularChunks ? DEFAULT_CHUNK_SIZE : chunkHeight;
+            chunk = new Chunk(Math.floorDiv(tx, w) * w, Math.floorDiv(ty, h) * h, w, h, getMap(), tiles.getStorage());
+            addChunk(chunk);
+        }
+        return chunk;
+    }
+
+    private static long chunkKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
     }
 }
@@ -0,0 +1,83 @@
+package io.github.jmecn.tiled.core;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * A two-level lookup table from the global tile id to the {@link Tile}.
+ *
+ * <p>The global ids are split into pages of {@link #PAGE_SIZE} ids, only the pages
+ * covered by a tileset are allocated, so a map with large gaps between the firstgid of
+ * its tilesets doesn't need a huge array. Resolving a gid is two array reads, without
+ * the boxing and tree lookups of the tilesets.</p>
+ *
+ * <p>The table is a snapshot of the tilesets at the time it is built, it's rebuilt by
+ * the {@link TiledMap} whenever a tileset is added or removed.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class TileTable {
+
+    static final int PAGE_BITS = 8;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final Tile[][] pages;
+
+    /**
+     * Build the table with the same rules as a floor lookup on the firstgid: a gid belongs
+     * to the tileset with the greatest firstgid that is not greater than it.
+     *
+     * @param tilesetPerFirstGid the tilesets by firstgid
+     */
+    TileTable(NavigableMap<Integer, Tileset> tilesetPerFirstGid) {
+        int maxGid = 0;
+        for (Map.Entry<Integer, Tileset> entry : tilesetPerFirstGid.entrySet()) {
+            // the ids of a collection of images can be greater than its size
+            for (Tile tile : entry.getValue()) {
+                if (tile != null) {
+                    maxGid = Math.max(maxGid, entry.getKey() + tile.getId());
+                }
+            }
+        }
+
+        pages = new Tile[(maxGid >>> PAGE_BITS) + 1][];
+
+        int upperGid = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Tileset> entry : tilesetPerFirstGid.descendingMap().entrySet()) {
+            int firstGid = entry.getKey();
+            for (Tile tile : entry.getValue()) {
+                if (tile == null) {
+                    continue;
+                }
+                int gid = firstGid + tile.getId();
+                if (gid > 0 && gid < upperGid) {
+                    put(gid, tile);
+                }
+            }
+            upperGid = firstGid;
+        }
+    }
+
+    private void put(int gid, Tile tile) {
+        Tile[] page = pages[gid >>> PAGE_BITS];
+        if (page == null) {
+            page = new Tile[PAGE_SIZE];
+            pages[gid >>> PAGE_BITS] = page;
+        }
+        page[gid & PAGE_MASK] = tile;
+    }
+
+    /**
+     * @param gid the global tile id, without the flip flags
+     * @return the tile, or null if no tileset has a tile with this id
+     */
+    Tile get(int gid) {
+        int index = gid >>> PAGE_BITS;
+        if (index >= pages.length) {
+            return null;
+        }
+        Tile[] page = pages[index];
+        return page == null ? null : page[gid & PAGE_MASK];
+    }
+}
@@ -2,6 +2,7 @@ package io.github.jmecn.tiled.core;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.jme3.math.ColorRGBA;
@@ -126,6 +127,15 @@ public class TiledMap extends Base {
     private boolean infinite;
 
     private final TreeMap<Integer, Tileset> tilesetPerFirstGid;
+    /**
+     * The gid lookup table, built on demand and dropped when the tilesets change.
+     */
+    private volatile TileTable tileTable;
+    /**
+     * The flipped and rotated variants of the tiles, by global id with the flags. All the
+     * cells with the same global id share the same variant.
+     */
+    private final Map<Integer, Tile> tileVariants = new ConcurrentHashMap<>();
     private final List<Tileset> tilesets;
     private final Map<String, Tileset> tilesetMap;
     private List<Layer> layers;
@@ -343,7 +353,16 @@ public class TiledMap extends Base {
         }
 
         // Go through the map and remove any instances of the tiles in the set
+        List<Tile> removed = new ArrayList<>();
         for (Tile tile : tileset) {
+            removed.add(tile);
+        }
+        for (Tile variant : tileVariants.values()) {
+            if (variant.getTileset() == tileset) {
+                removed.add(variant);
+            }
+        }
+        for (Tile tile : removed) {
             for (Layer ml : layers) {
                 if (ml instanceof TileLayer) {
                     ((TileLayer) ml).removeTile(tile);
@@ -353,6 +372,9 @@ public class TiledMap extends Base {
 
         tilesets.remove(tileset);
         tilesetMap.remove(tileset.getName());
+        tilesetPerFirstGid.values().remove(tileset);
+        tileTable = null;
+        tileVariants.values().removeIf(variant -> variant.getTileset() == tileset);
     }
 
     /**
@@ -399,6 +421,17 @@ public class TiledMap extends Base {
     private void setFirstGidForTileset(Tileset tileset, int firstGid) {
         tilesetPerFirstGid.put(firstGid, tileset);
         tilesetMap.put(tileset.getName(), tileset);
+        tileTable = null;
+    }
+
+    private TileTable getTileTable() {
+        TileTable table = tileTable;
+        if (table == null) {
+            // tiles may be decoded by several threads, the last table built wins.
+            table = new TileTable(tilesetPerFirstGid);
+            tileTable = table;
+        }
+        return table;
     }
 
     /**
@@ -410,17 +443,33 @@ public class TiledMap extends Base {
      * @param tileId global id of the tile as read from the file
      */
     public void setTileAtFromTileId(TileContainer tileContainer, int x, int y, int tileId) {
-        // clear the flag
-        int gid = tileId & ~Tile.FLIPPED_MASK;
+        if (tileContainer.isTileIdStorage()) {
+            // keep only the cells the tiles storage would keep, the tile is resolved later
+            if (getTileForTileGID(tileId & ~Tile.FLIPPED_MASK) != null) {
+                tileContainer.setTileIdAt(x, y, tileId);
+            }
+            return;
+        }
 
-        Tile tile = getTileForTileGID(gid);
+        Tile tile = getTileForTileId(tileId);
         if (tile != null) {
-            if (tile.getGid() != tileId) {
-                Tile t = tile.copy();
-                t.setGid(tileId);
-                tileContainer.setTileAt(x, y, t);
-            } else {
-                tileContainer.setTileAt(x, y, tile);
+            tileContainer.setTileAt(x, y, tile);
+        }
+    }
+
+    /**
+     * Helper method to set all the tiles of a container from their global ids.
+     *
+     * @param tileContainer tile layer or chunk
+     * @param tileIds global ids of the tiles as read from the file, row by row
+     */
+    public void setTilesFromTileIds(TileContainer tileContainer, int[] tileIds) {
+        int width = tileContainer.getWidth();
+        int height = tileContainer.getHeight();
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                setTileAtFromTileId(tileContainer, x, y, tileIds[i++]);
             }
         }
     }
@@ -436,10 +485,13 @@ public class TiledMap extends Base {
      */
     public Tile getTileForTileGID(final int gid) {
 
-        Tile tile = null;
-        Entry<Integer, Tileset> ts = findTileSetForTileGID(gid);
-        if (ts != null) {
-            tile = ts.getValue().getTile(gid - ts.getKey());
+        Tile tile = getTileTable().get(gid);
+        if (tile == null && gid > 0) {
+            // the tileset may have been modified since the table was built
+            Entry<Integer, Tileset> ts = findTileSetForTileGID(gid);
+            if (ts != null) {
+                tile = ts.getValue().getTile(gid - ts.getKey());
+            }
         }
 
         if (gid > 0 && tile == null) {
@@ -449,6 +501,41 @@ public class TiledMap extends Base {
         return tile;
     }
 
+    /**
+     * Helper method to get the tile based on its global id as read from the file, with
+     * the flip and rotation flags.
+     *
+     * <p>A flipped or rotated tile is a copy of the tile in the tileset with the flags in
+     * its gid. The copies are shared: every cell with the same global id gets the same
+     * instance, so it must not be modified.</p>
+     *
+     * @param tileId global id of the tile as read from the file
+     * @return <ul>
+     *         <li>{@link Tile} object corresponding to the global id, if found</li>
+     *         <li><code>null</code>, otherwise</li>
+     *         </ul>
+     */
+    public Tile getTileForTileId(final int tileId) {
+        // clear the flag
+        int gid = tileId & ~Tile.FLIPPED_MASK;
+
+        Tile tile = getTileForTileGID(gid);
+        if (tile == null || tile.getGid() == tileId) {
+            return tile;
+        }
+
+        Tile variant = tileVariants.get(tileId);
+        if (variant == null) {
+            variant = tile.copy();
+            variant.setGid(tileId);
+            Tile previous = tileVariants.putIfAbsent(tileId, variant);
+            if (previous != null) {
+                variant = previous;
+            }
+        }
+        return variant;
+    }
+
     public void addObjectTemplate(ObjectTemplate objectTemplate) {
         templates.add(objectTemplate);
         templateMap.put(objectTemplate.getSource(), objectTemplate);
@@ -458,6 +545,10 @@ public class TiledMap extends Base {
         return templateMap.get(source);
     }
 
+    public List<ObjectTemplate> getObjectTemplates() {
+        return templates;
+    }
+
     /**
      * Returns whether the given tile coordinates fall within the map
      * boundaries.
@@ -130,6 +130,16 @@ public class Tileset extends Base implements Iterable<Tile> {
     private List<Tile> tiles = new ArrayList<>();
     private final Map<Integer, Tile> idTile = new TreeMap<>();
 
+    /**
+     * The tileset shared by the maps, when this one is bound to a map.
+     */
+    private Tileset shared;
+
+    /**
+     * A frozen tileset rejects any change, see {@link #freeze()}.
+     */
+    private boolean frozen;
+
     /**
      * Default constructor
      */
@@ -160,25 +170,111 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @param firstGid The first global tile ID of this tileset.
      */
     public void setFirstGid(int firstGid) {
+        checkNotFrozen();
         this.firstGid = firstGid;
     }
 
     /**
      * Update the first global tile ID of this tileset. Also update the global tile ID of all tiles in this tileset.
      * @param firstGid The first global tile ID of this tileset.
+     * @deprecated an external tileset is shared by the maps using it, use {@link #bind(int, String)} instead.
+     * @throws IllegalStateException if this tileset is frozen
      */
+    @Deprecated
     public void updateFirstGid(int firstGid) {
+        checkNotFrozen();
         this.firstGid = firstGid;
         for (Tile t : tiles) {
             t.setGid(firstGid + t.getId());
         }
     }
 
+    /**
+     * Bind this tileset to a map at the given first global tile ID.
+     *
+     * <p>An external tileset is loaded and cached once by the AssetManager, then shared by
+     * all the maps and templates using it, each one at its own firstgid, so it's frozen by
+     * the loader. The binding has its own tiles, to hold their global tile ID, and its own
+     * properties. It shares the rest: the image, the terrains and the wang sets, read-only,
+     * and the image, the animations and the collisions of the tiles.</p>
+     *
+     * @param firstGid The first global tile ID of this tileset in the map.
+     * @param source The source of this tileset, as written in the map.
+     * @return the tileset of the map
+     */
+    public Tileset bind(int firstGid, String source) {
+        Tileset tileset = new Tileset(tileWidth, tileHeight, spacing, margin);
+        tileset.shared = getShared();
+        tileset.firstGid = firstGid;
+        tileset.source = source;
+        tileset.name = name;
+        tileset.clazz = clazz;
+        tileset.tileCount = tileCount;
+        tileset.columns = columns;
+        tileset.objectAlignment = objectAlignment;
+        tileset.tileRenderSize = tileRenderSize;
+        tileset.fillMode = fillMode;
+        tileset.tileOffset.set(tileOffset);
+        tileset.grid = grid;
+        tileset.image = image;
+        tileset.imageSource = imageSource;
+        tileset.transformations = transformations;
+        // the shared parts can't be changed through a binding
+        tileset.terrains = Collections.unmodifiableList(terrains);
+        tileset.wangSets = Collections.unmodifiableList(wangSets);
+        tileset.properties = new Properties();
+        tileset.properties.putAll(properties);
+
+        for (Tile t : tiles) {
+            Tile tile = null;
+            if (t != null) {
+                tile = t.copy();
+                tile.setClazz(t.getClazz());
+                tile.setGid(firstGid + t.getId());
+                tile.setTileset(tileset);
+                tileset.idTile.put(tile.getId(), tile);
+            }
+            tileset.tiles.add(tile);
+        }
+        return tileset;
+    }
+
+    /**
+     * Reject any further change of this tileset. An external tileset is frozen once loaded,
+     * as it's cached by the AssetManager and shared by the maps, change a binding instead.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * @return true if this tileset rejects any change
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Tileset " + name + " is shared by the maps and can't be changed, change its binding instead");
+        }
+    }
+
+    /**
+     * Get the tileset shared by the maps, which this one is bound from.
+     *
+     * @return the shared tileset, or this tileset if it isn't bound from another one
+     */
+    public Tileset getShared() {
+        return shared != null ? shared : this;
+    }
+
     public String getSource() {
         return source;
     }
 
     public void setSource(String source) {
+        checkNotFrozen();
         this.source = source;
     }
 
@@ -187,6 +283,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setName(String name) {
+        checkNotFrozen();
         this.name = name;
     }
 
@@ -195,6 +292,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setTileWidth(int tileWidth) {
+        checkNotFrozen();
         this.tileWidth = tileWidth;
     }
 
@@ -203,6 +301,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setTileHeight(int tileHeight) {
+        checkNotFrozen();
         this.tileHeight = tileHeight;
     }
 
@@ -211,6 +310,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setSpacing(int spacing) {
+        checkNotFrozen();
         this.spacing = spacing;
     }
 
@@ -219,6 +319,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setMargin(int margin) {
+        checkNotFrozen();
         this.margin = margin;
     }
 
@@ -227,6 +328,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setTileCount(int tileCount) {
+        checkNotFrozen();
         this.tileCount = tileCount;
     }
 
@@ -235,6 +337,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setColumns(int columns) {
+        checkNotFrozen();
         this.columns = columns;
     }
 
@@ -243,6 +346,7 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setImage(TiledImage image) {
+        checkNotFrozen();
         this.image = image;
     }
 
@@ -251,18 +355,21 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setImageSource(String imageSource) {
+        checkNotFrozen();
         this.imageSource = imageSource;
     }
 
     public List<Terrain> getTerrains() {
-        return terrains;
+        return frozen ? Collections.unmodifiableList(terrains) : terrains;
     }
 
     public void setTerrains(List<Terrain> terrains) {
+        checkNotFrozen();
         this.terrains = terrains;
     }
 
     public void addTerrain(Terrain terrain) {
+        checkNotFrozen();
         terrain.setId(terrains.size());
         terrains.add(terrain);
     }
@@ -272,12 +379,14 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public List<WangSet> getWangSets() {
-        return wangSets;
+        return frozen ? Collections.unmodifiableList(wangSets) : wangSets;
     }
     public void setWangSets(List<WangSet> wangSets) {
+        checkNotFrozen();
         this.wangSets = wangSets;
     }
     public void addWangSet(WangSet wangSet) {
+        checkNotFrozen();
         wangSet.setId(wangSets.size());
         wangSet.setTileset(this);
         wangSets.add(wangSet);
@@ -288,10 +397,11 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public List<Tile> getTiles() {
-        return tiles;
+        return frozen ? Collections.unmodifiableList(tiles) : tiles;
     }
 
     public void setTiles(List<Tile> tiles) {
+        checkNotFrozen();
         this.tiles = tiles;
     }
 
@@ -304,6 +414,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @return int The <b>local</b> id of the tile
      */
     public int addTile(Tile t) {
+        checkNotFrozen();
         if (t.getId() < 0) {
             t.setId(tiles.size());
         }
@@ -336,6 +447,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      *            the new tile to add.
      */
     public void addNewTile(Tile t) {
+        checkNotFrozen();
         t.setId(-1);
         addTile(t);
     }
@@ -348,6 +460,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @param i the index to remove
      */
     public void removeTile(int i) {
+        checkNotFrozen();
         tiles.set(i, null);
         idTile.remove(i);
     }
@@ -415,7 +528,7 @@ public class Tileset extends Base implements Iterable<Tile> {
 
     @Override
     public Iterator<Tile> iterator() {
-        return tiles.iterator();
+        return getTiles().iterator();
     }
 
     /**
@@ -425,6 +538,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @param y Vertical offset in pixels (positive is down, defaults to 0)
      */
     public void setTileOffset(int x, int y) {
+        checkNotFrozen();
         this.tileOffset.set(x, y);
     }
 
@@ -446,6 +560,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @param clazz The class of this tileset (since 1.9, defaults to “”).
      */
     public void setClazz(String clazz) {
+        checkNotFrozen();
         this.clazz = clazz;
     }
 
@@ -454,10 +569,12 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setObjectAlignment(ObjectAlignment objectAlignment) {
+        checkNotFrozen();
         this.objectAlignment = objectAlignment;
     }
 
     public void setObjectAlignment(String objectAlignment) {
+        checkNotFrozen();
         this.objectAlignment = ObjectAlignment.fromString(objectAlignment);
     }
 
@@ -466,10 +583,12 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setTileRenderSize(TileRenderSize tileRenderSize) {
+        checkNotFrozen();
         this.tileRenderSize = tileRenderSize;
     }
 
     public void setTileRenderSize(String tileRenderSize) {
+        checkNotFrozen();
         this.tileRenderSize = TileRenderSize.fromString(tileRenderSize);
     }
 
@@ -478,10 +597,12 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setFillMode(FillMode fillMode) {
+        checkNotFrozen();
         this.fillMode = fillMode;
     }
 
     public void setFillMode(String fillMode) {
+        checkNotFrozen();
         this.fillMode = FillMode.fromString(fillMode);
     }
 
@@ -494,6 +615,7 @@ public class Tileset extends Base implements Iterable<Tile> {
      * @param grid The grid for the tiles in this tileset.
      */
     public void setGrid(TilesetGrid grid) {
+        checkNotFrozen();
         this.grid = grid;
     }
 
@@ -510,6 +632,37 @@ public class Tileset extends Base implements Iterable<Tile> {
     }
 
     public void setTransformations(Transformations transformations) {
+        checkNotFrozen();
         this.transformations = transformations;
     }
+
+    @Override
+    public void setProperties(Properties properties) {
+        checkNotFrozen();
+        super.setProperties(properties);
+    }
+
+    @Override
+    public void putProperty(String key, Object value) {
+        checkNotFrozen();
+        super.putProperty(key, value);
+    }
+
+    @Override
+    public void putAll(Properties properties) {
+        checkNotFrozen();
+        super.putAll(properties);
+    }
+
+    @Override
+    public void removeProperty(String key) {
+        checkNotFrozen();
+        super.removeProperty(key);
+    }
+
+    @Override
+    public void clearProperties() {
+        checkNotFrozen();
+        super.clearProperties();
+    }
 }
@@ -0,0 +1,19 @@
+package io.github.jmecn.tiled.enums;
+
+/**
+ * How the cells of a tile layer or chunk are stored.
+ * @author yanmaoyuan
+ */
+public enum TileStorage {
+    /**
+     * A reference to the {@link io.github.jmecn.tiled.core.Tile} per cell. This is the default.
+     */
+    TILES,
+    /**
+     * The global id of the tile per cell, in a flat int array. The Tile objects are
+     * resolved through the map when they are asked for, so the layer must be part of
+     * a map. This needs less memory when the tiles are rarely looked up, e.g. on a
+     * server.
+     */
+    GIDS
+}
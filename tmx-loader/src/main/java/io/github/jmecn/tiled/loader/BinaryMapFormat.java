@@ -0,0 +1,39 @@
+package io.github.jmecn.tiled.loader;
+
+import java.nio.ByteOrder;
+
+/**
+ * The constants of the binary snapshot of a map, a .tmxb file.
+ *
+ * <p>A snapshot starts with the magic bytes "TMXB" and the version of the format, followed
+ * by the attributes and properties of the map, its tilesets, its object templates and its
+ * layers. All the values are little-endian: the tile ids of a layer are an array of ints,
+ * copied at once into the layer by the reader on most platforms. Strings are stored as
+ * their length and UTF-8 bytes, -1 for null, and enums by their name.</p>
+ *
+ * <p>Increase the {@link #VERSION} when the layout changes, the reader refuses the files of
+ * another version, so the snapshots are written again from the .tmx files.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class BinaryMapFormat {
+    private BinaryMapFormat() {
+    }
+
+    static final byte[] MAGIC = {'T', 'M', 'X', 'B'};
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // layer kinds
+    static final byte TILE_LAYER = 0;
+    static final byte OBJECT_GROUP = 1;
+    static final byte IMAGE_LAYER = 2;
+    static final byte GROUP_LAYER = 3;
+
+    // property types
+    static final byte STRING = 0;
+    static final byte INT = 1;
+    static final byte FLOAT = 2;
+    static final byte BOOL = 3;
+    static final byte COLOR = 4;
+}
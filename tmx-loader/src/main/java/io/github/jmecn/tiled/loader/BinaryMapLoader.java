@@ -0,0 +1,561 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.animation.Animation;
+import io.github.jmecn.tiled.animation.Frame;
+import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.enums.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static io.github.jmecn.tiled.loader.BinaryMapFormat.*;
+
+/**
+ * Load a map from its binary snapshot, a .tmxb file written by the {@link BinaryMapWriter}.
+ *
+ * <p>Nothing is parsed: a file is read at once into a buffer and the tile ids of each layer are
+ * copied at once into an array, then resolved into tiles like the tile data of a .tmx
+ * file. The images are loaded by the asset manager. The tile storage of a
+ * {@link TmxMapKey} is used, its other options are ignored.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class BinaryMapLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryMapLoader.class);
+
+    private final AssetKey<?> assetKey;
+    private final ImageLoader imageLoader;
+    private final TileStorage tileStorage;
+
+    private ByteBuffer buffer;
+    private TiledMap map;
+
+    public BinaryMapLoader(AssetManager assetManager, AssetKey<?> key) {
+        this.assetKey = key;
+        this.imageLoader = new ImageLoader(assetManager, key);
+        this.tileStorage = key instanceof TmxMapKey ? ((TmxMapKey) key).getTileStorage() : TileStorage.TILES;
+    }
+
+    /**
+     * Load a map from a .tmxb file. The stream is read at once into a heap buffer, so
+     * nothing holds the file once this returns.
+     *
+     * @param inputStream the input stream of the file
+     * @return the TiledMap
+     * @throws IOException if an error occurs while reading the file
+     */
+    public TiledMap load(InputStream inputStream) throws IOException {
+        return load(readFully(inputStream));
+    }
+
+    /**
+     * Load a map from the content of a .tmxb file.
+     *
+     * @param bytes the content of the file, from its position to its limit
+     * @return the TiledMap
+     */
+    public TiledMap load(ByteBuffer bytes) {
+        buffer = bytes.slice().order(BYTE_ORDER);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            if (buffer.remaining() < MAGIC.length + 4 || !Arrays.equals(MAGIC, get(magic))) {
+                throw new IllegalArgumentException("Not a valid tmxb map file.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                logger.warn("Unsupported tmxb version:{}, expected:{}, file:{}", version, VERSION, assetKey.getName());
+                throw new IllegalArgumentException("Unsupported tmxb version:" + version);
+            }
+            return readMap();
+        } catch (BufferUnderflowException e) {
+            logger.error("Error while reading map file: {}", assetKey.getName(), e);
+            throw new IllegalStateException("Error while reading map file: " + assetKey.getName(), e);
+        } finally {
+            buffer = null;
+            map = null;
+        }
+    }
+
+    private static ByteBuffer readFully(InputStream inputStream) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        ByteBuffer bytes = ByteBuffer.allocate(Math.max(inputStream.available(), 8192));
+        while (channel.read(bytes) >= 0) {
+            if (!bytes.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                larger.put(bytes);
+                bytes = larger;
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    private TiledMap readMap() {
+        String version = readString();
+        String tiledVersion = readString();
+        String clazz = readString();
+        Orientation orientation = readEnum(Orientation.class);
+        RenderOrder renderOrder = readEnum(RenderOrder.class);
+        int compressionLevel = buffer.getInt();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+
+        map = new TiledMap(width, height);
+        map.setVersion(version);
+        map.setTiledVersion(tiledVersion);
+        map.setClazz(clazz);
+        map.setOrientation(orientation);
+        map.setRenderOrder(renderOrder);
+        map.setCompressionLevel(compressionLevel);
+        map.setTileWidth(buffer.getInt());
+        map.setTileHeight(buffer.getInt());
+        map.setHexSideLength(buffer.getInt());
+        map.setStaggerAxis(readEnum(StaggerAxis.class));
+        map.setStaggerIndex(readEnum(StaggerIndex.class));
+        map.setParallaxOriginX(buffer.getInt());
+        map.setParallaxOriginY(buffer.getInt());
+        ColorRGBA backgroundColor = readColor();
+        if (backgroundColor != null) {
+            map.setBackgroundColor(backgroundColor);
+        }
+        map.setNextLayerId(buffer.getInt());
+        map.setNextObjectId(buffer.getInt());
+        map.setInfinite(readBoolean());
+        map.setProperties(readProperties());
+
+        int tilesetCount = buffer.getInt();
+        for (int i = 0; i < tilesetCount; i++) {
+            map.addTileset(readTileset());
+        }
+
+        int templateCount = buffer.getInt();
+        for (int i = 0; i < templateCount; i++) {
+            ObjectTemplate template = new ObjectTemplate();
+            template.setSource(readString());
+            int tileset = buffer.getInt();
+            if (tileset >= 0) {
+                template.setTileset(map.getTileSets().get(tileset));
+            }
+            template.setObject(readObject(true));
+            map.addObjectTemplate(template);
+        }
+
+        int layerCount = buffer.getInt();
+        for (int i = 0; i < layerCount; i++) {
+            map.addLayer(readLayer(true));
+        }
+
+        return map;
+    }
+
+    private Tileset readTileset() {
+        int firstGid = buffer.getInt();
+        String source = readString();
+        String name = readString();
+        String clazz = readString();
+        int tileWidth = buffer.getInt();
+        int tileHeight = buffer.getInt();
+        int spacing = buffer.getInt();
+        int margin = buffer.getInt();
+
+        Tileset tileset = new Tileset(tileWidth, tileHeight, spacing, margin);
+        tileset.setFirstGid(firstGid);
+        tileset.setSource(source);
+        tileset.setName(name);
+        tileset.setClazz(clazz);
+        tileset.setTileCount(buffer.getInt());
+        tileset.setColumns(buffer.getInt());
+        tileset.setObjectAlignment(readEnum(ObjectAlignment.class));
+        tileset.setTileRenderSize(readEnum(TileRenderSize.class));
+        tileset.setFillMode(readEnum(FillMode.class));
+        int tileOffsetX = buffer.getInt();
+        int tileOffsetY = buffer.getInt();
+        tileset.setTileOffset(tileOffsetX, tileOffsetY);
+
+        if (readBoolean()) {
+            Orientation orientation = readEnum(Orientation.class);
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            tileset.setGrid(new TilesetGrid(orientation, width, height));
+        }
+
+        tileset.setImage(readImage());
+        tileset.setImageSource(readString());
+
+        if (readBoolean()) {
+            int verticallyFlip = buffer.getInt();
+            int horizontallyFlip = buffer.getInt();
+            int rotate = buffer.getInt();
+            int preferUntransformed = buffer.getInt();
+            tileset.setTransformations(new Transformations(verticallyFlip, horizontallyFlip, rotate, preferUntransformed));
+        }
+
+        int terrainCount = buffer.getInt();
+        for (int i = 0; i < terrainCount; i++) {
+            Terrain terrain = new Terrain(readString());
+            terrain.setTile(buffer.getInt());
+            terrain.setProperties(readProperties());
+            tileset.addTerrain(terrain);
+        }
+
+        int wangSetCount = buffer.getInt();
+        for (int i = 0; i < wangSetCount; i++) {
+            tileset.addWangSet(readWangSet());
+        }
+
+        tileset.setProperties(readProperties());
+
+        int tileCount = buffer.getInt();
+        for (int i = 0; i < tileCount; i++) {
+            tileset.addTile(readTile());
+        }
+
+        return tileset;
+    }
+
+    private WangSet readWangSet() {
+        WangSet wangSet = new WangSet(readString());
+        wangSet.setClazz(readString());
+        wangSet.setTile(buffer.getInt());
+        wangSet.setProperties(readProperties());
+
+        int colorCount = buffer.getInt();
+        for (int i = 0; i < colorCount; i++) {
+            WangColor wangColor = new WangColor();
+            wangColor.setName(readString());
+            wangColor.setClazz(readString());
+            wangColor.setColor(readColor());
+            wangColor.setTile(buffer.getInt());
+            wangColor.setProbability(buffer.getFloat());
+            wangColor.setProperties(readProperties());
+            wangSet.addWangColor(wangColor);
+        }
+
+        int tileCount = buffer.getInt();
+        for (int i = 0; i < tileCount; i++) {
+            int tileId = buffer.getInt();
+            wangSet.addWangTile(new WangTile(tileId, readString()));
+        }
+        return wangSet;
+    }
+
+    private Tile readTile() {
+        int id = buffer.getInt();
+        int gid = buffer.getInt();
+        String clazz = readString();
+        int x = buffer.getInt();
+        int y = buffer.getInt();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+
+        Tile tile = new Tile(x, y, width, height);
+        tile.setId(id);
+        tile.setGid(gid);
+        tile.setClazz(clazz);
+        tile.setImage(readImage());
+        tile.setTerrain(buffer.getInt());
+        tile.setProbability(buffer.getFloat());
+        tile.setProperties(readProperties());
+
+        int animationCount = buffer.getInt();
+        for (int i = 0; i < animationCount; i++) {
+            Animation animation = new Animation(readString());
+            animation.setFlags(buffer.getInt());
+            animation.setFrameRate(buffer.getFloat());
+            int frameCount = buffer.getInt();
+            for (int k = 0; k < frameCount; k++) {
+                int tileId = buffer.getInt();
+                int duration = buffer.getInt();
+                animation.addFrame(new Frame(tileId, duration));
+            }
+            tile.addAnimation(animation);
+        }
+
+        if (readBoolean()) {
+            // the objects of the collisions don't refer to the tiles of the map
+            tile.setCollisions((ObjectGroup) readLayer(false));
+        }
+        return tile;
+    }
+
+    /**
+     * Read a layer.
+     *
+     * @param resolveTiles false if the tiles of the objects can't be found in the map
+     * @return the layer
+     */
+    private Layer readLayer(boolean resolveTiles) {
+        byte kind = buffer.get();
+        int id = buffer.getInt();
+        String name = readString();
+        String clazz = readString();
+        int x = buffer.getInt();
+        int y = buffer.getInt();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+
+        Layer layer;
+        switch (kind) {
+            case TILE_LAYER:
+                layer = new TileLayer(map, width, height, tileStorage);
+                break;
+            case OBJECT_GROUP:
+                layer = new ObjectGroup(width, height);
+                break;
+            case IMAGE_LAYER:
+                layer = new ImageLayer(width, height);
+                break;
+            case GROUP_LAYER:
+                layer = new GroupLayer();
+                layer.setMap(map);
+                layer.setWidth(width);
+                layer.setHeight(height);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown layer kind:" + kind);
+        }
+
+        layer.setId(id);
+        layer.setName(name);
+        layer.setClazz(clazz);
+        layer.setX(x);
+        layer.setY(y);
+        layer.setOpacity(buffer.getDouble());
+        layer.setVisible(readBoolean());
+        layer.setLocked(readBoolean());
+        ColorRGBA tintColor = readColor();
+        if (tintColor != null) {
+            layer.setTintColor(tintColor);
+        }
+        int offsetX = buffer.getInt();
+        int offsetY = buffer.getInt();
+        layer.setOffset(offsetX, offsetY);
+        double parallaxX = buffer.getDouble();
+        double parallaxY = buffer.getDouble();
+        layer.setParallaxFactor(parallaxX, parallaxY);
+        layer.setProperties(readProperties());
+
+        switch (kind) {
+            case TILE_LAYER:
+                readTileLayer((TileLayer) layer);
+                break;
+            case OBJECT_GROUP:
+                readObjectGroup((ObjectGroup) layer, resolveTiles);
+                break;
+            case IMAGE_LAYER: {
+                ImageLayer imageLayer = (ImageLayer) layer;
+                imageLayer.setRepeatX(readBoolean());
+                imageLayer.setRepeatY(readBoolean());
+                imageLayer.setImage(readImage());
+                break;
+            }
+            default: {
+                GroupLayer groupLayer = (GroupLayer) layer;
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    groupLayer.addLayer(readLayer(resolveTiles));
+                }
+                break;
+            }
+        }
+        return layer;
+    }
+
+    private void readTileLayer(TileLayer layer) {
+        if (layer.isInfinite()) {
+            int chunkCount = buffer.getInt();
+            for (int i = 0; i < chunkCount; i++) {
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+                int width = buffer.getInt();
+                int height = buffer.getInt();
+                Chunk chunk = new Chunk(x, y, width, height, map, tileStorage);
+                map.setTilesFromTileIds(chunk, readTileIds(width * height));
+                layer.addChunk(chunk);
+            }
+        } else {
+            map.setTilesFromTileIds(layer, readTileIds(layer.getWidth() * layer.getHeight()));
+        }
+    }
+
+    /**
+     * Copy the tile ids of a container at once.
+     */
+    private int[] readTileIds(int count) {
+        int length = buffer.getInt();
+        if (length != count) {
+            throw new IllegalArgumentException("Expected " + count + " tile ids, found " + length);
+        }
+        int[] tileIds = new int[length];
+        buffer.asIntBuffer().get(tileIds);
+        buffer.position(buffer.position() + length * 4);
+        return tileIds;
+    }
+
+    private void readObjectGroup(ObjectGroup layer, boolean resolveTiles) {
+        layer.setColor(readColor());
+        layer.setDrawOrder(readEnum(DrawOrder.class));
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            layer.add(readObject(resolveTiles));
+        }
+    }
+
+    private MapObject readObject(boolean resolveTiles) {
+        int id = buffer.getInt();
+        String name = readString();
+        String clazz = readString();
+        ObjectType shape = readEnum(ObjectType.class);
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double width = buffer.getDouble();
+        double height = buffer.getDouble();
+
+        MapObject obj = new MapObject(x, y, width, height);
+        obj.setId(id);
+        obj.setName(name);
+        obj.setClazz(clazz);
+        obj.setShape(shape);
+        obj.setRotation(buffer.getDouble());
+        obj.setTemplate(readString());
+        obj.setVisible(readBoolean());
+        obj.setGid(buffer.getInt());
+        if (readBoolean() && resolveTiles) {
+            obj.setTile(map.getTileForTileId(obj.getGid()));
+        }
+
+        int pointCount = buffer.getInt();
+        if (pointCount >= 0) {
+            List<Vector2f> points = new ArrayList<>(pointCount);
+            for (int i = 0; i < pointCount; i++) {
+                float px = buffer.getFloat();
+                float py = buffer.getFloat();
+                points.add(new Vector2f(px, py));
+            }
+            obj.setPoints(points);
+        }
+
+        obj.setImage(readImage());
+
+        if (readBoolean()) {
+            ObjectText text = new ObjectText(readString());
+            text.setFontFamily(readString());
+            text.setPixelSize(buffer.getInt());
+            text.setColor(readColor());
+            text.setHorizontalAlignment(readString());
+            text.setVerticalAlignment(readString());
+            text.setBold(readBoolean());
+            text.setItalic(readBoolean());
+            text.setUnderline(readBoolean());
+            text.setStrikeout(readBoolean());
+            text.setKerning(readBoolean());
+            text.setWrap(readBoolean());
+            obj.setTextData(text);
+        }
+
+        obj.setProperties(readProperties());
+        return obj;
+    }
+
+    private TiledImage readImage() {
+        if (!readBoolean()) {
+            return null;
+        }
+        String source = readString();
+        String trans = readString();
+        String format = readString();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        return imageLoader.load(source, trans, format, width, height);
+    }
+
+    private Properties readProperties() {
+        Properties props = new Properties();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = readString();
+            byte type = buffer.get();
+            Object value;
+            switch (type) {
+                case STRING:
+                    value = readString();
+                    break;
+                case INT:
+                    value = buffer.getInt();
+                    break;
+                case FLOAT:
+                    value = buffer.getFloat();
+                    break;
+                case BOOL:
+                    value = readBoolean();
+                    break;
+                case COLOR:
+                    value = readColor();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown property type:" + type + ", name:" + name);
+            }
+            props.put(name, value);
+        }
+        return props;
+    }
+
+    private ColorRGBA readColor() {
+        if (!readBoolean()) {
+            return null;
+        }
+        float r = buffer.getFloat();
+        float g = buffer.getFloat();
+        float b = buffer.getFloat();
+        float a = buffer.getFloat();
+        return new ColorRGBA(r, g, b, a);
+    }
+
+    private <E extends Enum<E>> E readEnum(Class<E> type) {
+        String name = readString();
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    private String readString() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (buffer.hasArray()) {
+            int position = buffer.position();
+            String value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+            buffer.position(position + length);
+            return value;
+        }
+        return new String(get(new byte[length]), StandardCharsets.UTF_8);
+    }
+
+    private boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    private byte[] get(byte[] bytes) {
+        buffer.get(bytes);
+        return bytes;
+    }
+}
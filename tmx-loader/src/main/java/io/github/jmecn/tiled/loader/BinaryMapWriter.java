@@ -0,0 +1,503 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.animation.Animation;
+import io.github.jmecn.tiled.core.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static io.github.jmecn.tiled.loader.BinaryMapFormat.*;
+
+/**
+ * Writes a binary snapshot of a map, a .tmxb file, which is loaded by the
+ * {@link BinaryMapLoader} without parsing any xml.
+ *
+ * <p>The snapshot holds the tilesets with their tiles, the object templates, the layers
+ * with their objects and all the properties. The external tilesets and templates are
+ * copied into it. The images are stored by the asset path of their source and loaded again
+ * by the asset manager, so the embedded images are not supported.</p>
+ *
+ * <pre>
+ * TiledMap map = (TiledMap) assetManager.loadAsset("Maps/world.tmx");
+ * new BinaryMapWriter().write(map, new File("assets/Maps/world.tmxb"));
+ * </pre>
+ *
+ * @author yanmaoyuan
+ */
+public final class BinaryMapWriter {
+
+    private ByteBuffer buffer;
+    private TiledMap map;
+
+    /**
+     * Write the snapshot of a map to a file.
+     *
+     * @param map the map
+     * @param file the file
+     * @throws IOException if an error occurs while writing the file
+     */
+    public void write(TiledMap map, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(map, out);
+        }
+    }
+
+    /**
+     * Write the snapshot of a map to a stream, the stream is not closed.
+     *
+     * @param map the map
+     * @param out the stream
+     * @throws IOException if an error occurs while writing the stream
+     */
+    public void write(TiledMap map, OutputStream out) throws IOException {
+        ByteBuffer bytes = write(map);
+        out.write(bytes.array(), 0, bytes.limit());
+        out.flush();
+    }
+
+    /**
+     * Write the snapshot of a map to a buffer.
+     *
+     * @param map the map
+     * @return the buffer, from 0 to its limit
+     */
+    public ByteBuffer write(TiledMap map) {
+        this.map = map;
+        this.buffer = ByteBuffer.allocate(64 * 1024).order(BYTE_ORDER);
+        try {
+            ensure(MAGIC.length);
+            buffer.put(MAGIC);
+            writeInt(VERSION);
+            writeMap();
+            buffer.flip();
+            return buffer;
+        } finally {
+            this.map = null;
+            this.buffer = null;
+        }
+    }
+
+    private void writeMap() {
+        writeString(map.getVersion());
+        writeString(map.getTiledVersion());
+        writeString(map.getClazz());
+        writeEnum(map.getOrientation());
+        writeEnum(map.getRenderOrder());
+        writeInt(map.getCompressionLevel());
+        writeInt(map.getWidth());
+        writeInt(map.getHeight());
+        writeInt(map.getTileWidth());
+        writeInt(map.getTileHeight());
+        writeInt(map.getHexSideLength());
+        writeEnum(map.getStaggerAxis());
+        writeEnum(map.getStaggerIndex());
+        writeInt(map.getParallaxOriginX());
+        writeInt(map.getParallaxOriginY());
+        writeColor(map.getBackgroundColor());
+        writeInt(map.getNextLayerId());
+        writeInt(map.getNextObjectId());
+        writeBoolean(map.isInfinite());
+        writeProperties(map.getProperties());
+
+        List<Tileset> tilesets = map.getTileSets();
+        writeInt(tilesets.size());
+        for (Tileset tileset : tilesets) {
+            writeTileset(tileset);
+        }
+
+        List<ObjectTemplate> templates = map.getObjectTemplates();
+        writeInt(templates.size());
+        for (ObjectTemplate template : templates) {
+            writeString(template.getSource());
+            writeInt(tilesets.indexOf(template.getTileset()));
+            writeObject(template.getObject());
+        }
+
+        List<Layer> layers = map.getLayers();
+        writeInt(layers.size());
+        for (Layer layer : layers) {
+            writeLayer(layer);
+        }
+    }
+
+    private void writeTileset(Tileset tileset) {
+        writeInt(tileset.getFirstGid());
+        writeString(tileset.getSource());
+        writeString(tileset.getName());
+        writeString(tileset.getClazz());
+        writeInt(tileset.getTileWidth());
+        writeInt(tileset.getTileHeight());
+        writeInt(tileset.getSpacing());
+        writeInt(tileset.getMargin());
+        writeInt(tileset.getTileCount());
+        writeInt(tileset.getColumns());
+        writeEnum(tileset.getObjectAlignment());
+        writeEnum(tileset.getTileRenderSize());
+        writeEnum(tileset.getFillMode());
+        writeInt((int) tileset.getTileOffset().x);
+        writeInt((int) tileset.getTileOffset().y);
+
+        TilesetGrid grid = tileset.getGrid();
+        writeBoolean(grid != null);
+        if (grid != null) {
+            writeEnum(grid.getOrientation());
+            writeInt(grid.getWidth());
+            writeInt(grid.getHeight());
+        }
+
+        writeImage(tileset.getImage());
+        writeString(tileset.getImageSource());
+
+        Transformations transformations = tileset.getTransformations();
+        writeBoolean(transformations != null);
+        if (transformations != null) {
+            writeInt(transformations.getVerticallyFlip());
+            writeInt(transformations.getHorizontallyFlip());
+            writeInt(transformations.getRotate());
+            writeInt(transformations.getPreferUntransformed());
+        }
+
+        writeInt(tileset.getTerrains().size());
+        for (Terrain terrain : tileset.getTerrains()) {
+            writeString(terrain.getName());
+            writeInt(terrain.getTile());
+            writeProperties(terrain.getProperties());
+        }
+
+        writeInt(tileset.getWangSets().size());
+        for (WangSet wangSet : tileset.getWangSets()) {
+            writeWangSet(wangSet);
+        }
+
+        writeProperties(tileset.getProperties());
+
+        // the removed tiles are null
+        int count = 0;
+        for (Tile tile : tileset) {
+            if (tile != null) {
+                count++;
+            }
+        }
+        writeInt(count);
+        for (Tile tile : tileset) {
+            if (tile != null) {
+                writeTile(tile);
+            }
+        }
+    }
+
+    private void writeWangSet(WangSet wangSet) {
+        writeString(wangSet.getName());
+        writeString(wangSet.getClazz());
+        writeInt(wangSet.getTile());
+        writeProperties(wangSet.getProperties());
+
+        writeInt(wangSet.getWangColors().size());
+        for (WangColor wangColor : wangSet.getWangColors()) {
+            writeString(wangColor.getName());
+            writeString(wangColor.getClazz());
+            writeColor(wangColor.getColor());
+            writeInt(wangColor.getTile());
+            writeFloat(wangColor.getProbability());
+            writeProperties(wangColor.getProperties());
+        }
+
+        writeInt(wangSet.getWangTiles().size());
+        for (WangTile wangTile : wangSet.getWangTiles()) {
+            writeInt(wangTile.getTileId());
+            writeString(wangTile.getWangId());
+        }
+    }
+
+    private void writeTile(Tile tile) {
+        writeInt(tile.getId());
+        writeInt(tile.getGid());
+        writeString(tile.getClazz());
+        writeInt(tile.getX());
+        writeInt(tile.getY());
+        writeInt(tile.getWidth());
+        writeInt(tile.getHeight());
+        writeImage(tile.getImage());
+        writeInt(tile.getTerrain());
+        writeFloat(tile.getProbability());
+        writeProperties(tile.getProperties());
+
+        List<Animation> animations = tile.getAnimations();
+        writeInt(animations.size());
+        for (Animation animation : animations) {
+            writeString(animation.getName());
+            writeInt(animation.getFlags());
+            writeFloat(animation.getFrameRate());
+            writeInt(animation.getTotalFrames());
+            for (int i = 0; i < animation.getTotalFrames(); i++) {
+                writeInt(animation.getFrame(i).getTileId());
+                writeInt(animation.getFrame(i).getDuration());
+            }
+        }
+
+        ObjectGroup collisions = tile.getCollisions();
+        writeBoolean(collisions != null);
+        if (collisions != null) {
+            writeLayer(collisions);
+        }
+    }
+
+    private void writeLayer(Layer layer) {
+        if (layer instanceof TileLayer) {
+            writeByte(TILE_LAYER);
+        } else if (layer instanceof ObjectGroup) {
+            writeByte(OBJECT_GROUP);
+        } else if (layer instanceof ImageLayer) {
+            writeByte(IMAGE_LAYER);
+        } else if (layer instanceof GroupLayer) {
+            writeByte(GROUP_LAYER);
+        } else {
+            throw new IllegalArgumentException("Unsupported layer: " + layer.getClass().getName());
+        }
+
+        writeInt(layer.getId());
+        writeString(layer.getName());
+        writeString(layer.getClazz());
+        writeInt(layer.getX());
+        writeInt(layer.getY());
+        writeInt(layer.getWidth());
+        writeInt(layer.getHeight());
+        writeDouble(layer.getOpacity());
+        writeBoolean(layer.isVisible());
+        writeBoolean(layer.isLocked());
+        writeColor(layer.getTintColor());
+        writeInt(layer.getOffsetX());
+        writeInt(layer.getOffsetY());
+        writeDouble(layer.getParallaxX());
+        writeDouble(layer.getParallaxY());
+        writeProperties(layer.getProperties());
+
+        if (layer instanceof TileLayer) {
+            writeTileLayer((TileLayer) layer);
+        } else if (layer instanceof ObjectGroup) {
+            ObjectGroup objectGroup = (ObjectGroup) layer;
+            writeColor(objectGroup.getColor());
+            writeEnum(objectGroup.getDrawOrder());
+            writeInt(objectGroup.getObjects().size());
+            for (MapObject obj : objectGroup.getObjects()) {
+                writeObject(obj);
+            }
+        } else if (layer instanceof ImageLayer) {
+            ImageLayer imageLayer = (ImageLayer) layer;
+            writeBoolean(imageLayer.isRepeatX());
+            writeBoolean(imageLayer.isRepeatY());
+            writeImage(imageLayer.getImage());
+        } else {
+            GroupLayer groupLayer = (GroupLayer) layer;
+            writeInt(groupLayer.getLayerCount());
+            for (Layer child : groupLayer.getLayers()) {
+                writeLayer(child);
+            }
+        }
+    }
+
+    private void writeTileLayer(TileLayer layer) {
+        if (layer.isInfinite()) {
+            List<Chunk> chunks = layer.getChunks();
+            writeInt(chunks.size());
+            for (Chunk chunk : chunks) {
+                writeInt(chunk.getX());
+                writeInt(chunk.getY());
+                writeInt(chunk.getWidth());
+                writeInt(chunk.getHeight());
+                writeTileIds(chunk);
+            }
+        } else {
+            writeTileIds(layer);
+        }
+    }
+
+    /**
+     * Write the tile ids of a container row by row, with their flip flags.
+     */
+    private void writeTileIds(TileContainer tileContainer) {
+        int width = tileContainer.getWidth();
+        int height = tileContainer.getHeight();
+        int[] tileIds = new int[width * height];
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                tileIds[i++] = tileContainer.getTileIdAt(x, y);
+            }
+        }
+
+        writeInt(tileIds.length);
+        ensure(tileIds.length * 4);
+        int position = buffer.position();
+        buffer.asIntBuffer().put(tileIds);
+        buffer.position(position + tileIds.length * 4);
+    }
+
+    private void writeObject(MapObject obj) {
+        writeInt(obj.getId());
+        writeString(obj.getName());
+        writeString(obj.getClazz());
+        writeEnum(obj.getShape());
+        writeDouble(obj.getX());
+        writeDouble(obj.getY());
+        writeDouble(obj.getWidth());
+        writeDouble(obj.getHeight());
+        writeDouble(obj.getRotation());
+        writeString(obj.getTemplate());
+        writeBoolean(obj.isVisible());
+        writeInt(obj.getGid());
+        // the tile is resolved by the gid, the objects of the tile collisions have none
+        writeBoolean(obj.getTile() != null);
+
+        List<Vector2f> points = obj.getPoints();
+        writeInt(points == null ? -1 : points.size());
+        if (points != null) {
+            for (Vector2f point : points) {
+                writeFloat(point.x);
+                writeFloat(point.y);
+            }
+        }
+
+        writeImage(obj.getImage());
+
+        ObjectText text = obj.getTextData();
+        writeBoolean(text != null);
+        if (text != null) {
+            writeString(text.getText());
+            writeString(text.getFontFamily());
+            writeInt(text.getPixelSize());
+            writeColor(text.getColor());
+            writeString(text.getHorizontalAlignment());
+            writeString(text.getVerticalAlignment());
+            writeBoolean(text.isBold());
+            writeBoolean(text.isItalic());
+            writeBoolean(text.isUnderline());
+            writeBoolean(text.isStrikeout());
+            writeBoolean(text.isKerning());
+            writeBoolean(text.isWrap());
+        }
+
+        writeProperties(obj.getProperties());
+    }
+
+    private void writeImage(TiledImage image) {
+        writeBoolean(image != null);
+        if (image != null) {
+            if (image.getSource() == null) {
+                throw new IllegalArgumentException("Embedded images are not supported by the binary map: " + image);
+            }
+            writeString(image.getSource());
+            writeString(image.getTrans());
+            writeString(image.getFormat());
+            writeInt(image.getWidth());
+            writeInt(image.getHeight());
+        }
+    }
+
+    private void writeProperties(Properties properties) {
+        if (properties == null) {
+            writeInt(0);
+            return;
+        }
+
+        writeInt(properties.size());
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                throw new IllegalArgumentException("Unsupported property name: " + entry.getKey());
+            }
+            writeString((String) entry.getKey());
+
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                writeByte(INT);
+                writeInt((Integer) value);
+            } else if (value instanceof Float) {
+                writeByte(FLOAT);
+                writeFloat((Float) value);
+            } else if (value instanceof Boolean) {
+                writeByte(BOOL);
+                writeBoolean((Boolean) value);
+            } else if (value instanceof ColorRGBA) {
+                writeByte(COLOR);
+                writeColor((ColorRGBA) value);
+            } else {
+                throw new IllegalArgumentException("Unsupported property type: " + value.getClass().getName()
+                        + ", name:" + entry.getKey());
+            }
+        }
+    }
+
+    private void writeColor(ColorRGBA color) {
+        writeBoolean(color != null);
+        if (color != null) {
+            writeFloat(color.r);
+            writeFloat(color.g);
+            writeFloat(color.b);
+            writeFloat(color.a);
+        }
+    }
+
+    private void writeEnum(Enum<?> value) {
+        writeString(value == null ? null : value.name());
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void writeBoolean(boolean value) {
+        writeByte((byte) (value ? 1 : 0));
+    }
+
+    private void writeByte(byte value) {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    private void writeFloat(float value) {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+
+    private void writeDouble(double value) {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Grow the buffer to write the given number of bytes.
+     */
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer larger = ByteBuffer.allocate(capacity).order(BYTE_ORDER);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
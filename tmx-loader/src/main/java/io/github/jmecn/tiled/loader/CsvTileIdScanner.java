@@ -0,0 +1,129 @@
+package io.github.jmecn.tiled.loader;
+
+import java.io.IOException;
+
+/**
+ * Single pass scanner for csv encoded tile data.
+ *
+ * <p>The global ids are parsed as unsigned 32-bit numbers, flip flags included, straight
+ * from the characters into an int array. The text can be fed in pieces, e.g. as the
+ * character events of a stream reader arrive, so no String is created per tile.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class CsvTileIdScanner {
+
+    private static final long MAX_TILE_ID = 0xFFFFFFFFL;
+
+    private final int[] tileIds;
+    private int index;
+
+    private long value;
+    // digits of the current value have been read
+    private boolean inValue;
+    // whitespace after the digits of the current value
+    private boolean valueEnded;
+    // a separator without a value, only legal at the end
+    private boolean emptyValue;
+
+    /**
+     * @param count the expected number of tiles
+     */
+    public CsvTileIdScanner(int count) {
+        this.tileIds = new int[count];
+    }
+
+    /**
+     * Scan the whole csv text of a data or chunk element.
+     *
+     * @param text the csv text
+     * @param count the expected number of tiles
+     * @return the global ids of the tiles, row by row
+     * @throws IOException if the text is malformed or the number of tiles doesn't match
+     */
+    public static int[] scan(CharSequence text, int count) throws IOException {
+        CsvTileIdScanner scanner = new CsvTileIdScanner(count);
+        scanner.scan(text);
+        return scanner.finish();
+    }
+
+    /**
+     * Scan the next piece of the csv text.
+     *
+     * @param text the characters
+     * @throws IOException if the text is malformed or contains too many tiles
+     */
+    public void scan(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            next(text.charAt(i));
+        }
+    }
+
+    /**
+     * Scan the next piece of the csv text.
+     *
+     * @param chars the character buffer
+     * @param start the offset of the first character
+     * @param length the number of characters
+     * @throws IOException if the text is malformed or contains too many tiles
+     */
+    public void scan(char[] chars, int start, int length) throws IOException {
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            next(chars[i]);
+        }
+    }
+
+    private void next(char c) throws IOException {
+        if (c >= '0' && c <= '9') {
+            if (valueEnded || emptyValue) {
+                throw new IOException("Invalid csv tile data, missing separator or value at tile " + index);
+            }
+            value = value * 10 + (c - '0');
+            if (value > MAX_TILE_ID) {
+                throw new IOException("Invalid csv tile data, tile id out of range at tile " + index);
+            }
+            inValue = true;
+        } else if (c == ',') {
+            if (inValue) {
+                endValue();
+            } else {
+                // an empty value, like the old split() it is ignored if it's trailing
+                emptyValue = true;
+            }
+        } else if (Character.isWhitespace(c)) {
+            if (inValue) {
+                valueEnded = true;
+            }
+        } else {
+            throw new IOException("Invalid csv tile data, unexpected character '" + c + "' at tile " + index);
+        }
+    }
+
+    private void endValue() throws IOException {
+        if (index >= tileIds.length) {
+            throw new IOException("Number of tiles does not match the layer's width and height");
+        }
+        tileIds[index++] = (int) value;
+        value = 0;
+        inValue = false;
+        valueEnded = false;
+    }
+
+    /**
+     * Finish scanning.
+     *
+     * @return the global ids of the tiles, row by row
+     * @throws IOException if the number of tiles doesn't match
+     */
+    public int[] finish() throws IOException {
+        if (inValue) {
+            endValue();
+        }
+        if (index != tileIds.length) {
+            throw new IOException("Number of tiles does not match the layer's width and height");
+        }
+        return tileIds;
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.jmecn.tiled.loader;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the decoding of tile layer data on an {@link Executor} while the map file is
+ * still being read.
+ *
+ * <p>The layers are created and attached to the map by the loading thread, in document
+ * order, only their tile data is filled in by the tasks. At most {@code parallelism}
+ * tasks are in flight, the loading thread waits for a free slot before submitting
+ * another one, so no more than that many payloads are held in memory.</p>
+ *
+ * <p>If several tasks fail, {@link #await()} rethrows the failure of the first one in
+ * document order, so the result doesn't depend on the scheduling. If the map itself fails
+ * to load, {@link #abort()} stops the tasks before the decoders are released.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class DecodeScheduler {
+
+    /**
+     * The decoding of one layer.
+     */
+    public interface Task {
+        void decode() throws IOException;
+    }
+
+    private final Executor executor;
+    private final int parallelism;
+    private final Semaphore slots;
+
+    private int submitted;
+    private int failedIndex = Integer.MAX_VALUE;
+    private Throwable failure;
+    private volatile boolean aborted;
+
+    /**
+     * @param executor the executor to run the tasks, or null to use the common {@link ForkJoinPool}
+     * @param parallelism the maximum number of tasks in flight, or 0 to use the parallelism of the executor
+     */
+    public DecodeScheduler(Executor executor, int parallelism) {
+        this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+        if (parallelism > 0) {
+            this.parallelism = parallelism;
+        } else if (this.executor instanceof ForkJoinPool) {
+            this.parallelism = ((ForkJoinPool) this.executor).getParallelism();
+        } else {
+            this.parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.slots = new Semaphore(this.parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Submit a task, waits if there are already {@code parallelism} tasks in flight.
+     *
+     * @param task the task
+     * @throws IOException if the loading thread is interrupted
+     */
+    public void submit(Task task) throws IOException {
+        final int index = submitted++;
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding tile data", e);
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!aborted) {
+                        task.decode();
+                    }
+                } catch (Throwable e) {
+                    fail(index, e);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected by the executor
+            slots.release();
+            fail(index, e);
+        }
+    }
+
+    private synchronized void fail(int index, Throwable e) {
+        if (index < failedIndex) {
+            failedIndex = index;
+            failure = e;
+        }
+    }
+
+    /**
+     * Stop the tasks which are not started yet, and wait for the running ones to complete,
+     * so none of them uses the map or a pooled decoder anymore. Returns at once if all the
+     * tasks are already completed. The failures of the tasks are ignored.
+     */
+    public void abort() {
+        aborted = true;
+        // a decoding can't be interrupted, it's short anyway
+        slots.acquireUninterruptibly(parallelism);
+        slots.release(parallelism);
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Wait for all the submitted tasks to complete.
+     *
+     * @throws IOException if one of the tasks failed
+     */
+    public void await() throws IOException {
+        try {
+            slots.acquire(parallelism);
+            slots.release(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding tile data", e);
+        }
+
+        Throwable e;
+        synchronized (this) {
+            e = failure;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IOException(e);
+        }
+    }
+}
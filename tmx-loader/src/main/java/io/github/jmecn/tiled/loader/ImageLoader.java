@@ -89,6 +89,28 @@ public final class ImageLoader {
         return image;
     }
 
+    /**
+     * Load an image from the asset path of its source, e.g. an image of a binary map.
+     *
+     * @param source the asset path of the image
+     * @param trans the transparent color
+     * @param format the format of the image
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the loaded image
+     */
+    public TiledImage load(String source, String trans, String format, int width, int height) {
+        Texture2D texture = loadTexture2D(source);
+        if (texture == null) {
+            logger.error("Image source not found: {}", source);
+            throw new IllegalArgumentException("Image source not found: " + source);
+        }
+
+        TiledImage image = new TiledImage(source, trans, format, width, height);
+        image.setTexture(texture);
+
+        return image;
+    }
 
     /**
      * Load a Texture from source
@@ -4,8 +4,11 @@ import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetManager;
 import io.github.jmecn.tiled.core.Layer;
 import io.github.jmecn.tiled.util.ColorUtil;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.util.Properties;
 
@@ -41,6 +44,21 @@ public abstract class LayerLoader {
      */
     public abstract Layer load(Node node) throws IOException;
 
+    /**
+     * Loads a map layer from a stream reader. By default the element is copied into a
+     * detached fragment and read with {@link #load(Node)}, loaders of large layers
+     * should read the stream directly.
+     *
+     * @param reader the stream reader, positioned on the start of the layer element
+     * @param owner the owner document for fragments
+     * @return the loaded map layer
+     * @throws IOException if an I/O error occurs
+     * @throws XMLStreamException if the document is malformed
+     */
+    public Layer load(XMLStreamReader reader, Document owner) throws IOException, XMLStreamException {
+        return load(StaxUtils.readElement(reader, owner));
+    }
+
     /**
      * read the common part of a Layer
      *
@@ -13,6 +13,7 @@ import io.github.jmecn.tiled.util.ColorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
@@ -21,6 +22,8 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -55,13 +58,40 @@ public final class MapLoader {
     }
 
     /**
-     * Load a Map from .tmx file
+     * Load a Map from .tmx file with a StAX stream reader. The document is never
+     * built in memory, tile data is decoded into the layers as it is read.
      *
      * @param inputStream InputStream
      * @return the TiledMap
      * @throws IOException if an error occurs while reading the map
      */
     public TiledMap load(InputStream inputStream) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = StaxUtils.createReader(inputStream);
+            return readMap(reader);
+        } catch (XMLStreamException e) {
+            logger.error("Error while parsing map file: {}", assetKey.getName(), e);
+            throw new IllegalStateException("Error while parsing map file: " + assetKey.getName());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Error while closing map file: {}", assetKey.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load a Map from .tmx file with a DOM parser.
+     *
+     * @param inputStream InputStream
+     * @return the TiledMap
+     * @throws IOException if an error occurs while reading the map
+     */
+    public TiledMap loadDocument(InputStream inputStream) throws IOException {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         Document doc;
         try {
@@ -95,6 +125,95 @@ public final class MapLoader {
             throw new IllegalArgumentException("Not a valid tmx map file.");
         }
 
+        map = createMap(mapNode);
+
+        // Load properties
+        Properties props = propertiesLoader.readProperties(mapNode);
+        map.setProperties(props);
+
+        // read tilesets
+        readTilesets(doc);
+
+        // read layers
+        DecodeScheduler scheduler = createScheduler();
+        try {
+            readLayers(mapNode, scheduler);
+            if (scheduler != null) {
+                scheduler.await();
+            }
+        } finally {
+            if (scheduler != null) {
+                // if the map failed to load, nothing must decode with a cleared pool
+                scheduler.abort();
+            }
+            // the decoders are reused by the layers of a map, their memory is not kept between maps
+            TileDataDecoder.clearPool();
+        }
+
+        return map;
+    }
+
+    public TiledMap readMap(XMLStreamReader reader) throws IOException, XMLStreamException {
+        if (!MAP.equals(StaxUtils.nextRootElement(reader))) {
+            throw new IllegalArgumentException("Not a valid tmx map file.");
+        }
+
+        Document owner = StaxUtils.newDocument();
+        // keep the attributes, the properties will be appended later.
+        Element mapNode = StaxUtils.readStartElement(reader, owner);
+        map = createMap(mapNode);
+
+        DecodeScheduler scheduler = createScheduler();
+        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map, scheduler);
+
+        try {
+            while (StaxUtils.nextChildElement(reader)) {
+                String childName = reader.getLocalName();
+                if (PROPERTIES.equals(childName)) {
+                    mapNode.appendChild(StaxUtils.readElement(reader, owner));
+                    Properties props = propertiesLoader.readProperties(mapNode);
+                    map.setProperties(props);
+                } else if (TILESET.equals(childName)) {
+                    readTileset(StaxUtils.readElement(reader, owner));
+                } else {
+                    LayerLoader layerLoader = layerLoaders.create(childName);
+                    if (layerLoader != null) {
+                        addLayer(layerLoader.load(reader, owner));
+                    } else {
+                        StaxUtils.skipElement(reader);
+                    }
+                }
+            }
+
+            if (scheduler != null) {
+                scheduler.await();
+            }
+        } finally {
+            if (scheduler != null) {
+                // if the map failed to load, nothing must decode with a cleared pool
+                scheduler.abort();
+            }
+            // the decoders are reused by the layers of a map, their memory is not kept between maps
+            TileDataDecoder.clearPool();
+        }
+
+        return map;
+    }
+
+    /**
+     * @return the scheduler to decode the layers in parallel, or null if the key doesn't ask for it
+     */
+    private DecodeScheduler createScheduler() {
+        if (assetKey instanceof TmxMapKey) {
+            TmxMapKey key = (TmxMapKey) assetKey;
+            if (key.isParallel()) {
+                return new DecodeScheduler(key.getExecutor(), key.getParallelism());
+            }
+        }
+        return null;
+    }
+
+    private TiledMap createMap(Node mapNode) {
         // Load other map attributes
         String version = getAttributeValue(mapNode, VERSION);
         String tiledVersion = getAttributeValue(mapNode, TILED_VERSION);
@@ -121,79 +240,70 @@ public final class MapLoader {
             throw new IllegalArgumentException("Couldn't locate map dimensions.");
         }
 
-        map = new TiledMap(width, height);
-        map.setVersion(version);
-        map.setTiledVersion(tiledVersion);
-        map.setClazz(clazz);
-        map.setOrientation(orientation);
-        map.setRenderOrder(RenderOrder.fromString(renderOrder));
-        map.setCompressionLevel(compressionLevel);
-        map.setTileWidth(tileWidth);
-        map.setTileHeight(tileHeight);
-        map.setHexSideLength(hexSideLength);
-        map.setStaggerAxis(staggerAxis);
-        map.setStaggerIndex(staggerIndex);
-        map.setParallaxOriginX(parallaxOriginX);
-        map.setParallaxOriginY(parallaxOriginY);
+        TiledMap tiledMap = new TiledMap(width, height);
+        tiledMap.setVersion(version);
+        tiledMap.setTiledVersion(tiledVersion);
+        tiledMap.setClazz(clazz);
+        tiledMap.setOrientation(orientation);
+        tiledMap.setRenderOrder(RenderOrder.fromString(renderOrder));
+        tiledMap.setCompressionLevel(compressionLevel);
+        tiledMap.setTileWidth(tileWidth);
+        tiledMap.setTileHeight(tileHeight);
+        tiledMap.setHexSideLength(hexSideLength);
+        tiledMap.setStaggerAxis(staggerAxis);
+        tiledMap.setStaggerIndex(staggerIndex);
+        tiledMap.setParallaxOriginX(parallaxOriginX);
+        tiledMap.setParallaxOriginY(parallaxOriginY);
 
         ColorRGBA backgroundColor;
         if (backgroundColorStr != null) {
             backgroundColor = ColorUtil.toColorRGBA(backgroundColorStr);
-            map.setBackgroundColor(backgroundColor);
+            tiledMap.setBackgroundColor(backgroundColor);
         }
 
-        map.setNextLayerId(nextLayerId);
-        map.setNextObjectId(nextObjectId);
-        map.setInfinite(infinite);
-
-        // Load properties
-        Properties props = propertiesLoader.readProperties(mapNode);
-        map.setProperties(props);
-
-        // read tilesets
-        readTilesets(doc);
-
-        // read layers
-        readLayers(mapNode);
+        tiledMap.setNextLayerId(nextLayerId);
+        tiledMap.setNextObjectId(nextObjectId);
+        tiledMap.setInfinite(infinite);
 
-        return map;
+        return tiledMap;
     }
 
     public void readTilesets(Document doc) {
         NodeList tileSets = doc.getElementsByTagName(TILESET);
         for (int i = 0; i < tileSets.getLength(); i++) {
-            Node node = tileSets.item(i);
-
-            String source = getAttributeValue(node, SOURCE);
-            int firstGid = getAttribute(node, FIRST_GID, 1);
-
-            Tileset tileset;
-            if (source != null) {
-                logger.info("Load tileset: {}", source);
-                tileset = (Tileset) assetManager.loadAsset(assetKey.getFolder() + source);
-                // as first gid is a map related property, we need to update it.
-                tileset.updateFirstGid(firstGid);
-                tileset.setSource(source);
-            } else {
-                tileset = tilesetLoader.readTileset(node);
-            }
+            readTileset(tileSets.item(i));
+        }
+    }
 
-            // Set tile width and height if not set
-            if (tileset.getTileWidth() <= 0) {
-                tileset.setTileWidth(map.getTileWidth());
-                logger.debug("Tileset {} has no tile width. Using map tile width: {}", tileset.getName(), map.getTileWidth());
-            }
-            if (tileset.getTileHeight() <= 0) {
-                tileset.setTileHeight(map.getTileHeight());
-                logger.debug("Tileset {} has no tile height. Using map tile height: {}", tileset.getName(), map.getTileHeight());
-            }
+    private void readTileset(Node node) {
+        String source = getAttributeValue(node, SOURCE);
+        int firstGid = getAttribute(node, FIRST_GID, 1);
+
+        Tileset tileset;
+        if (source != null) {
+            logger.info("Load tileset: {}", source);
+            // the cached tileset is shared by the maps using it, first gid is a map related property.
+            Tileset shared = (Tileset) assetManager.loadAsset(assetKey.getFolder() + source);
+            tileset = shared.bind(firstGid, source);
+        } else {
+            tileset = tilesetLoader.readTileset(node);
+        }
 
-            map.addTileset(tileset);
+        // Set tile width and height if not set
+        if (tileset.getTileWidth() <= 0) {
+            tileset.setTileWidth(map.getTileWidth());
+            logger.debug("Tileset {} has no tile width. Using map tile width: {}", tileset.getName(), map.getTileWidth());
         }
+        if (tileset.getTileHeight() <= 0) {
+            tileset.setTileHeight(map.getTileHeight());
+            logger.debug("Tileset {} has no tile height. Using map tile height: {}", tileset.getName(), map.getTileHeight());
+        }
+
+        map.addTileset(tileset);
     }
 
-    private void readLayers(Node mapNode) throws IOException {
-        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map);
+    private void readLayers(Node mapNode, DecodeScheduler scheduler) throws IOException {
+        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map, scheduler);
 
         Node child = mapNode.getFirstChild();
         while (child != null) {
@@ -202,16 +312,19 @@ public final class MapLoader {
             if (!TILESET.equals(childName) && !PROPERTIES.equals(childName) && !TEXT_EMPTY.equals(childName)) {
                 LayerLoader layerLoader = layerLoaders.create(childName);
                 if (layerLoader != null) {
-                    Layer layer = layerLoader.load(child);
-                    // in case the layer has no dimensions, set the map dimensions
-                    if (layer.getWidth() == 0 && layer.getHeight() == 0) {
-                        layer.setWidth(map.getWidth());
-                        layer.setHeight(map.getHeight());
-                    }
-                    map.addLayer(layer);
+                    addLayer(layerLoader.load(child));
                 }
             }
             child = child.getNextSibling();
         }
     }
+
+    private void addLayer(Layer layer) {
+        // in case the layer has no dimensions, set the map dimensions
+        if (layer.getWidth() == 0 && layer.getHeight() == 0) {
+            layer.setWidth(map.getWidth());
+            layer.setHeight(map.getHeight());
+        }
+        map.addLayer(layer);
+    }
 }
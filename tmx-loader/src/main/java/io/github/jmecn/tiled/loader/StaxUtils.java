@@ -0,0 +1,258 @@
+package io.github.jmecn.tiled.loader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Helpers for the StAX based loaders.
+ *
+ * <p>The streaming loaders never build a document for the whole file. Small elements
+ * such as &lt;properties&gt;, &lt;tile&gt; or &lt;object&gt; are copied into detached
+ * DOM fragments, so they can be handed to the existing node based readers, and are
+ * dropped as soon as they have been read. Tile data is decoded straight from the
+ * stream.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class StaxUtils {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private StaxUtils() {
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // the map.dtd is never needed to read a map, don't resolve it.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Create a stream reader, positioned before the root element.
+     *
+     * @param inputStream the input stream
+     * @return the stream reader
+     * @throws XMLStreamException if the stream can't be opened
+     */
+    public static XMLStreamReader createReader(InputStream inputStream) throws XMLStreamException {
+        synchronized (INPUT_FACTORY) {
+            return INPUT_FACTORY.createXMLStreamReader(inputStream, "UTF-8");
+        }
+    }
+
+    /**
+     * Create an empty document, used as the owner of the fragments.
+     *
+     * @return an empty document
+     */
+    public static Document newDocument() {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Can't create document builder", e);
+        }
+    }
+
+    /**
+     * Move to the root element of the document.
+     *
+     * @param reader the stream reader
+     * @return the name of the root element
+     * @throws XMLStreamException if there is no root element
+     */
+    public static String nextRootElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                return reader.getLocalName();
+            }
+        }
+        throw new XMLStreamException("No root element found");
+    }
+
+    /**
+     * Move to the next child element of the current element. Text, comments and
+     * processing instructions are skipped.
+     *
+     * @param reader the stream reader, positioned on a start element or the end of a child
+     * @return true if the reader is on the start of a child element, false if it reached
+     * the end of the current element
+     * @throws XMLStreamException if the document is malformed
+     */
+    public static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip the current element and all its children.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @throws XMLStreamException if the document is malformed
+     */
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Read an int attribute of the current start element.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @param attributeName the attribute name
+     * @param def the default value
+     * @return the attribute value, or the default value if it is missing
+     */
+    public static int getAttribute(XMLStreamReader reader, String attributeName, int def) {
+        final String attr = reader.getAttributeValue(null, attributeName);
+        if (attr != null) {
+            return Integer.parseInt(attr);
+        } else {
+            return def;
+        }
+    }
+
+    /**
+     * Copy the current start element with its attributes, but without children.
+     * The reader is not moved.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @param owner the owner document
+     * @return the element
+     */
+    public static Element readStartElement(XMLStreamReader reader, Document owner) {
+        Element element = owner.createElement(reader.getLocalName());
+        int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    /**
+     * Copy the current element and all its children into a detached DOM fragment.
+     * The reader is left on the end of the element.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @param owner the owner document
+     * @return the element
+     * @throws XMLStreamException if the document is malformed
+     */
+    public static Element readElement(XMLStreamReader reader, Document owner) throws XMLStreamException {
+        Element root = readStartElement(reader, owner);
+        Node current = root;
+        while (current != null && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    Element child = readStartElement(reader, owner);
+                    current.appendChild(child);
+                    current = child;
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT: {
+                    current = current == root ? null : current.getParentNode();
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE: {
+                    Node last = current.getLastChild();
+                    if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+                        last.setNodeValue(last.getNodeValue() + reader.getText());
+                    } else {
+                        current.appendChild(owner.createTextNode(reader.getText()));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Receives the character data of an element piece by piece.
+     */
+    public interface TextHandler {
+        void characters(char[] chars, int start, int length) throws IOException;
+    }
+
+    /**
+     * Read the text content of the current element. Child elements are skipped.
+     * The reader is left on the end of the element.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @return the text content
+     * @throws XMLStreamException if the document is malformed
+     */
+    public static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            readText(reader, sb::append);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pass the text content of the current element to the handler, as it is read from
+     * the stream. Child elements are skipped. The reader is left on the end of the element.
+     *
+     * @param reader the stream reader, positioned on a start element
+     * @param handler the text handler
+     * @throws XMLStreamException if the document is malformed
+     * @throws IOException if the handler fails
+     */
+    public static void readText(XMLStreamReader reader, TextHandler handler) throws XMLStreamException, IOException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 1) {
+                        handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package io.github.jmecn.tiled.loader;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import io.github.jmecn.tiled.enums.DataCompression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Bulk decoder for base64 encoded tile data.
+ *
+ * <p>The data is inflated into a reusable byte array and read as little-endian ints in
+ * one call. Decoders hold their {@link Inflater}s, zstd context and buffer, and are kept
+ * in a pool, so they are reused across the layers and chunks of a map. The pool keeps at
+ * most {@link #MAX_POOL_SIZE} decoders, the default parallelism of a {@link DecodeScheduler},
+ * and a buffer larger than {@link #MAX_POOLED_BUFFER} is dropped when its decoder goes back
+ * in the pool. The {@link MapLoader} clears the pool at the end of a load.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class TileDataDecoder {
+
+    /**
+     * The maximum number of idle decoders in the pool.
+     */
+    public static final int MAX_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The maximum size of the buffer of an idle decoder, the data of 512x512 tiles.
+     */
+    public static final int MAX_POOLED_BUFFER = 512 * 512 * 4 + 1;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final Queue<TileDataDecoder> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+    // gzip header flags
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private Inflater zlibInflater;
+    private Inflater gzipInflater;
+    private ZstdDecompressCtx zstdContext;
+    private byte[] buffer = EMPTY;
+
+    private TileDataDecoder() {
+    }
+
+    /**
+     * Decode the base64 text of a data or chunk element.
+     *
+     * @param base64 the base64 text, without leading or trailing whitespace
+     * @param compression the compression of the data
+     * @param count the number of tiles
+     * @return the global ids of the tiles, row by row
+     * @throws IOException if the data is corrupted or the number of tiles doesn't match
+     */
+    public static int[] decodeBase64(String base64, DataCompression compression, int count) throws IOException {
+        byte[] data;
+        try {
+            data = Base64.getDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid base64 tile data", e);
+        }
+
+        TileDataDecoder decoder = acquire();
+        try {
+            return decoder.decode(data, compression, count);
+        } finally {
+            release(decoder);
+        }
+    }
+
+    /**
+     * Release the pooled decoders and their buffers, e.g. when a map is loaded.
+     */
+    public static void clearPool() {
+        TileDataDecoder decoder = acquire(POOL.poll());
+        while (decoder != null) {
+            decoder.dispose();
+            decoder = acquire(POOL.poll());
+        }
+    }
+
+    /**
+     * @return the number of idle decoders in the pool
+     */
+    static int getPoolSize() {
+        return POOL_SIZE.get();
+    }
+
+    private static TileDataDecoder acquire() {
+        TileDataDecoder decoder = acquire(POOL.poll());
+        return decoder != null ? decoder : new TileDataDecoder();
+    }
+
+    private static TileDataDecoder acquire(TileDataDecoder decoder) {
+        if (decoder != null) {
+            POOL_SIZE.decrementAndGet();
+        }
+        return decoder;
+    }
+
+    private static void release(TileDataDecoder decoder) {
+        if (decoder.buffer.length > MAX_POOLED_BUFFER) {
+            decoder.buffer = EMPTY;
+        }
+        if (POOL_SIZE.incrementAndGet() <= MAX_POOL_SIZE) {
+            POOL.offer(decoder);
+        } else {
+            POOL_SIZE.decrementAndGet();
+            decoder.dispose();
+        }
+    }
+
+    private int[] decode(byte[] data, DataCompression compression, int count) throws IOException {
+        final int len = count * 4;
+
+        byte[] bytes;
+        int size;
+        switch (compression) {
+            case ZLIB: {
+                if (zlibInflater == null) {
+                    zlibInflater = new Inflater();
+                }
+                size = inflate(zlibInflater, data, 0, len);
+                bytes = buffer;
+                break;
+            }
+            case GZIP: {
+                if (gzipInflater == null) {
+                    gzipInflater = new Inflater(true);
+                }
+                size = inflate(gzipInflater, data, getGzipHeaderLength(data), len);
+                bytes = buffer;
+                break;
+            }
+            case ZSTANDARD: {
+                if (zstdContext == null) {
+                    zstdContext = new ZstdDecompressCtx();
+                }
+                bytes = getBuffer(len);
+                try {
+                    size = zstdContext.decompressByteArray(bytes, 0, len, data, 0, data.length);
+                } catch (RuntimeException e) {// ZstdException
+                    throw new IOException("Invalid zstd tile data", e);
+                }
+                break;
+            }
+            default: {
+                bytes = data;
+                size = data.length;
+                break;
+            }
+        }
+
+        if (size != len) {
+            throw new IOException("Number of tiles does not match the layer's width and height");
+        }
+
+        int[] tileIds = new int[count];
+        ByteBuffer.wrap(bytes, 0, len).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(tileIds);
+        return tileIds;
+    }
+
+    private byte[] getBuffer(int len) {
+        if (buffer.length < len) {
+            buffer = new byte[len];
+        }
+        return buffer;
+    }
+
+    /**
+     * Inflate the data into the buffer. One more byte than expected is requested, so that
+     * too much data is reported as a size mismatch.
+     */
+    private int inflate(Inflater inflater, byte[] data, int offset, int len) throws IOException {
+        byte[] out = getBuffer(len + 1);
+        inflater.reset();
+        inflater.setInput(data, offset, data.length - offset);
+        int size = 0;
+        try {
+            while (size <= len && !inflater.finished()) {
+                int n = inflater.inflate(out, size, len + 1 - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed tile data", e);
+        }
+        return size;
+    }
+
+    /**
+     * @param data the gzip data
+     * @return the length of the gzip member header, the deflate stream starts after it
+     * @throws IOException if the data is not in gzip format
+     */
+    private static int getGzipHeaderLength(byte[] data) throws IOException {
+        if (data.length < 10 || (data[0] & 0xFF) != 0x1F || (data[1] & 0xFF) != 0x8B || data[2] != 8) {
+            throw new IOException("Not in GZIP format");
+        }
+
+        int flags = data[3] & 0xFF;
+        int pos = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (pos + 2 > data.length) {
+                throw new IOException("Corrupt GZIP header");
+            }
+            pos += 2 + ((data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(data, pos);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(data, pos);
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > data.length) {
+            throw new IOException("Corrupt GZIP header");
+        }
+        return pos;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int pos) throws IOException {
+        while (pos < data.length) {
+            if (data[pos++] == 0) {
+                return pos;
+            }
+        }
+        throw new IOException("Corrupt GZIP header");
+    }
+
+    private void dispose() {
+        if (zlibInflater != null) {
+            zlibInflater.end();
+            zlibInflater = null;
+        }
+        if (gzipInflater != null) {
+            gzipInflater.end();
+            gzipInflater = null;
+        }
+        if (zstdContext != null) {
+            zstdContext.close();
+            zstdContext = null;
+        }
+        buffer = EMPTY;
+    }
+}
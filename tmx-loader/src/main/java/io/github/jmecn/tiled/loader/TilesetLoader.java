@@ -22,6 +22,7 @@ import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
 import java.util.Properties;
 
@@ -53,12 +54,55 @@ public final class TilesetLoader {
     }
 
     /**
-     * Load a TileSet from .tsx file.
+     * Load a TileSet from .tsx file with a StAX stream reader. Each child of the
+     * tileset is read and dropped before the next one is parsed.
      *
      * @param inputStream the input stream of the tileset file
      * @return the loaded tileset
      */
     public Tileset load(final InputStream inputStream) {
+        XMLStreamReader reader = null;
+        try {
+            reader = StaxUtils.createReader(inputStream);
+
+            // There can be only one tileset in a .tsx file.
+            if (!TILESET.equals(StaxUtils.nextRootElement(reader))) {
+                logger.warn("No tileset found in file.");
+                throw new AssetLoadException("No tileset found in file.");
+            }
+
+            Document owner = StaxUtils.newDocument();
+            Tileset tileset = createTileset(StaxUtils.readStartElement(reader, owner));
+            while (StaxUtils.nextChildElement(reader)) {
+                readTilesetChild(tileset, StaxUtils.readElement(reader, owner));
+            }
+
+            if (tileset.getSource() != null) {
+                logger.warn("Recursive external tilesets are not supported.{}", tileset.getSource());
+            } else {
+                tileset.setSource(assetKey.getName());
+            }
+            return tileset;
+        } catch (Exception e) {
+            throw new AssetLoadException("Failed loading tileset", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception e) {
+                    logger.debug("Error while closing tileset file: {}", assetKey.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load a TileSet from .tsx file with a DOM parser.
+     *
+     * @param inputStream the input stream of the tileset file
+     * @return the loaded tileset
+     */
+    public Tileset loadDocument(final InputStream inputStream) {
         Node root;
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -126,6 +170,17 @@ public final class TilesetLoader {
      * @return Tileset
      */
     public Tileset readTileset(Node node) {
+        Tileset tileset = createTileset(node);
+
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            readTilesetChild(tileset, children.item(i));
+        }
+
+        return tileset;
+    }
+
+    private Tileset createTileset(Node node) {
         int firstGid = getAttribute(node, FIRST_GID, 1);
         String source = getAttributeValue(node, SOURCE);
         String name = getAttributeValue(node, NAME);
@@ -151,58 +206,55 @@ public final class TilesetLoader {
         tileset.setTileRenderSize(tileRenderSize);
         tileset.setFillMode(fillMode);
 
-        NodeList children = node.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
+        return tileset;
+    }
 
-            String nodeName = child.getNodeName();
-            switch (nodeName) {
-                case IMAGE: {
-                    readImage(tileset, child);
-                    break;
-                }
-                case GRID: {
-                    tileset.setGrid(readGrid(child));
-                    break;
-                }
-                case TERRAIN_TYPES: {
-                    getChildrenByTag(child, TERRAIN).forEach(n -> {
-                        Terrain terrain = readTerrain(n);
-                        tileset.addTerrain(terrain);
-                    });
-                    break;
-                }
-                case TILE:
-                    readTile(tileset, child);
-                    break;
-                case TILE_OFFSET: {
-                    int tileOffsetX = getAttribute(child, X, 0);
-                    int tileOffsetY = getAttribute(child, Y, 0);
-                    tileset.setTileOffset(tileOffsetX, tileOffsetY);
-                    break;
-                }
-                case TRANSFORMATIONS: {
-                    tileset.setTransformations(readTransformation(child));
-                    break;
-                }
-                case WANGSETS: {
-                    // read wangsets
-                    getChildrenByTag(child, WANGSET).forEach(n -> {
-                        WangSet wangSet = readWangSet(n);
-                        tileset.addWangSet(wangSet);
-                    });
-                    break;
-                }
-                default: {
-                    if (!PROPERTIES.equals(nodeName) && !TEXT_EMPTY.equals(nodeName)) {
-                        logger.warn("Unsupported tileset element: {}", nodeName);
-                    }
-                    break;
+    private void readTilesetChild(Tileset tileset, Node child) {
+        String nodeName = child.getNodeName();
+        switch (nodeName) {
+            case IMAGE: {
+                readImage(tileset, child);
+                break;
+            }
+            case GRID: {
+                tileset.setGrid(readGrid(child));
+                break;
+            }
+            case TERRAIN_TYPES: {
+                getChildrenByTag(child, TERRAIN).forEach(n -> {
+                    Terrain terrain = readTerrain(n);
+                    tileset.addTerrain(terrain);
+                });
+                break;
+            }
+            case TILE:
+                readTile(tileset, child);
+                break;
+            case TILE_OFFSET: {
+                int tileOffsetX = getAttribute(child, X, 0);
+                int tileOffsetY = getAttribute(child, Y, 0);
+                tileset.setTileOffset(tileOffsetX, tileOffsetY);
+                break;
+            }
+            case TRANSFORMATIONS: {
+                tileset.setTransformations(readTransformation(child));
+                break;
+            }
+            case WANGSETS: {
+                // read wangsets
+                getChildrenByTag(child, WANGSET).forEach(n -> {
+                    WangSet wangSet = readWangSet(n);
+                    tileset.addWangSet(wangSet);
+                });
+                break;
+            }
+            default: {
+                if (!PROPERTIES.equals(nodeName) && !TEXT_EMPTY.equals(nodeName)) {
+                    logger.warn("Unsupported tileset element: {}", nodeName);
                 }
+                break;
             }
         }
-
-        return tileset;
     }
 
     private void readImage(Tileset tileset, Node node) {
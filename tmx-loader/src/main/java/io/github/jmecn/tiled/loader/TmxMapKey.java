@@ -0,0 +1,123 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetKey;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.enums.TileStorage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The key to load a .tmx map with options.
+ *
+ * <p>By default the layers are decoded one after the other on the loading thread. Set an
+ * executor or a parallelism level greater than 1 to decode the tile data of the layers
+ * concurrently. The layers are still attached to the map in document order, so the
+ * result is the same.</p>
+ *
+ * <pre>
+ * TmxMapKey key = new TmxMapKey("Maps/world.tmx");
+ * key.setParallelism(4);// decode 4 layers at a time on the common ForkJoinPool
+ * TiledMap map = assetManager.loadAsset(key);
+ * </pre>
+ *
+ * @author yanmaoyuan
+ */
+public class TmxMapKey extends AssetKey<TiledMap> {
+
+    private transient Executor executor;
+    private int parallelism;
+    private TileStorage tileStorage = TileStorage.TILES;
+
+    public TmxMapKey(String name) {
+        super(name);
+    }
+
+    public TmxMapKey() {
+        super();
+    }
+
+    /**
+     * @return the executor used to decode the layers, or null
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor used to decode the layers. If it is null and the parallelism is
+     * greater than 1, the common {@link ForkJoinPool} is used.
+     *
+     * @param executor the executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the maximum number of layers decoded at the same time, 0 if not set
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the maximum number of layers decoded at the same time. If it is 0 and an
+     * executor is set, the parallelism of the executor is used.
+     *
+     * @param parallelism the parallelism level
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("parallelism must not be negative: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return true if the layers should be decoded concurrently
+     */
+    public boolean isParallel() {
+        return executor != null || parallelism > 1;
+    }
+
+    /**
+     * @return how the cells of the tile layers are stored
+     */
+    public TileStorage getTileStorage() {
+        return tileStorage;
+    }
+
+    /**
+     * Set how the cells of the tile layers are stored. Use {@link TileStorage#GIDS} to
+     * keep only the global ids, e.g. for a map used on a server.
+     *
+     * @param tileStorage the storage
+     */
+    public void setTileStorage(TileStorage tileStorage) {
+        if (tileStorage == null) {
+            throw new IllegalArgumentException("tileStorage must not be null");
+        }
+        this.tileStorage = tileStorage;
+    }
+
+    /**
+     * Two keys of the same file are equal only if they store the tiles the same way, so a
+     * map loaded with {@link TileStorage#GIDS} is not cached in place of the default one.
+     * A plain {@link AssetKey} stores the tiles by default.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!super.equals(other)) {
+            return false;
+        }
+        TileStorage otherStorage = other instanceof TmxMapKey ? ((TmxMapKey) other).tileStorage : TileStorage.TILES;
+        return tileStorage == otherStorage;
+    }
+
+    @Override
+    public int hashCode() {
+        // keep the hash of a plain key for the default storage
+        return tileStorage == TileStorage.TILES ? super.hashCode() : 31 * super.hashCode() + tileStorage.hashCode();
+    }
+}
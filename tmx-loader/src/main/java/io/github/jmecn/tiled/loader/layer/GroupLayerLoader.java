@@ -3,9 +3,15 @@ package io.github.jmecn.tiled.loader.layer;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetManager;
 import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.loader.DecodeScheduler;
 import io.github.jmecn.tiled.loader.LayerLoader;
+import io.github.jmecn.tiled.loader.StaxUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 
 import static io.github.jmecn.tiled.TiledConst.*;
@@ -19,10 +25,16 @@ import static io.github.jmecn.tiled.TiledConst.TEXT_EMPTY;
 public class GroupLayerLoader extends LayerLoader {
 
     private final TiledMap map;
+    private final DecodeScheduler scheduler;
 
     public GroupLayerLoader(AssetManager assetManager, AssetKey<?> key, TiledMap map) {
+        this(assetManager, key, map, null);
+    }
+
+    public GroupLayerLoader(AssetManager assetManager, AssetKey<?> key, TiledMap map, DecodeScheduler scheduler) {
         super(assetManager, key);
         this.map = map;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -31,7 +43,7 @@ public class GroupLayerLoader extends LayerLoader {
         readLayerBase(node, groupLayer);
         groupLayer.setMap(map);
 
-        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map);
+        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map, scheduler);
 
         Node child = node.getFirstChild();
         while (child != null) {
@@ -47,4 +59,33 @@ public class GroupLayerLoader extends LayerLoader {
         }
         return groupLayer;
     }
+
+    @Override
+    public GroupLayer load(XMLStreamReader reader, Document owner) throws IOException, XMLStreamException {
+        // keep the attributes, the properties will be appended later.
+        Element node = StaxUtils.readStartElement(reader, owner);
+
+        GroupLayer groupLayer = new GroupLayer();
+        groupLayer.setMap(map);
+
+        LayerLoaders layerLoaders = new LayerLoaders(assetManager, assetKey, map, scheduler);
+
+        while (StaxUtils.nextChildElement(reader)) {
+            String nodeName = reader.getLocalName();
+            if (PROPERTIES.equals(nodeName)) {
+                node.appendChild(StaxUtils.readElement(reader, owner));
+            } else {
+                LayerLoader layerLoader = layerLoaders.create(nodeName);
+                if (layerLoader != null) {
+                    Layer layer = layerLoader.load(reader, owner);
+                    groupLayer.addLayer(layer);
+                } else {
+                    StaxUtils.skipElement(reader);
+                }
+            }
+        }
+
+        readLayerBase(node, groupLayer);
+        return groupLayer;
+    }
 }
@@ -3,6 +3,7 @@ package io.github.jmecn.tiled.loader.layer;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetManager;
 import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.loader.DecodeScheduler;
 import io.github.jmecn.tiled.loader.LayerLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,22 +23,29 @@ public class LayerLoaders {
 
     private final TiledMap map;
 
+    private final DecodeScheduler scheduler;
+
     public LayerLoaders(AssetManager assetManager, AssetKey<?> assetKey, TiledMap map) {
+        this(assetManager, assetKey, map, null);
+    }
+
+    public LayerLoaders(AssetManager assetManager, AssetKey<?> assetKey, TiledMap map, DecodeScheduler scheduler) {
         this.assetManager = assetManager;
         this.assetKey = assetKey;
         this.map = map;
+        this.scheduler = scheduler;
     }
 
     public LayerLoader create(String layerType) {
         switch (layerType) {
             case LAYER:
-                return new TileLayerLoader(assetManager, assetKey, map);
+                return new TileLayerLoader(assetManager, assetKey, map, scheduler);
             case OBJECTGROUP:
                 return new ObjectLayerLoader(assetManager, assetKey, map);
             case IMAGELAYER:
                 return new ImageLayerLoader(assetManager, assetKey, map);
             case GROUP:
-                return new GroupLayerLoader(assetManager, assetKey, map);
+                return new GroupLayerLoader(assetManager, assetKey, map, scheduler);
             default:
                 if (!TILESET.equals(layerType) && !PROPERTIES.equals(layerType) && !TEXT_EMPTY.equals(layerType)) {
                     logger.warn("Unsupported layer type: {}", layerType);
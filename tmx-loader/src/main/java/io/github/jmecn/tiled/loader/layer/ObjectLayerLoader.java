@@ -7,6 +7,7 @@ import io.github.jmecn.tiled.core.*;
 import io.github.jmecn.tiled.enums.DrawOrder;
 import io.github.jmecn.tiled.enums.ObjectType;
 import io.github.jmecn.tiled.loader.LayerLoader;
+import io.github.jmecn.tiled.loader.StaxUtils;
 import io.github.jmecn.tiled.loader.TiledMapKey;
 import io.github.jmecn.tiled.loader.Utils;
 import io.github.jmecn.tiled.util.ColorUtil;
@@ -20,6 +21,8 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -94,12 +97,49 @@ public class ObjectLayerLoader extends LayerLoader {
 
 
     /**
-     * Load an ObjectTemplate from .tx file.
+     * Load an ObjectTemplate from .tx file with a StAX stream reader.
      *
      * @param inputStream the input stream of the template file
      * @return the loaded ObjectTemplate
      */
     public ObjectTemplate loadObjectTemplate(final InputStream inputStream) {
+        XMLStreamReader reader = null;
+        try {
+            reader = StaxUtils.createReader(inputStream);
+
+            // There can be only one template in a .tx file.
+            if (!TEMPLATE.equals(StaxUtils.nextRootElement(reader))) {
+                logger.warn("Not a valid template file.");
+                throw new IllegalArgumentException("Not a valid template file");
+            }
+
+            // a template holds a single object, read it as a fragment.
+            Document owner = StaxUtils.newDocument();
+            Node root = StaxUtils.readElement(reader, owner);
+
+            ObjectTemplate template = readObjectTemplate(root);
+            template.setSource(assetKey.getName());
+            return template;
+        } catch (XMLStreamException e) {
+            throw new AssetLoadException("Error while parsing template file.", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Error while closing template file: {}", assetKey.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load an ObjectTemplate from .tx file with a DOM parser.
+     *
+     * @param inputStream the input stream of the template file
+     * @return the loaded ObjectTemplate
+     */
+    public ObjectTemplate loadObjectTemplateDocument(final InputStream inputStream) {
         ObjectTemplate template;
         Node root;
 
@@ -200,9 +240,8 @@ public class ObjectLayerLoader extends LayerLoader {
 
             // the source may be like "../obj.tsx", should calculate the actual path
             String tilesetPath = AssetKey.reducePath(assetKey.getFolder() + source);
-            tileset = (Tileset) assetManager.loadAsset(tilesetPath);
-            tileset.updateFirstGid(firstGid);
-            tileset.setSource(source);
+            Tileset shared = (Tileset) assetManager.loadAsset(tilesetPath);
+            tileset = shared.bind(firstGid, source);
 
             // set MapObject tile
             if (obj.getShape() == ObjectType.TILE) {
@@ -290,12 +329,7 @@ public class ObjectLayerLoader extends LayerLoader {
         obj.setGid(gid);
 
         if (map != null) {
-            // clear the flag
-            int tileId = gid & ~Tile.FLIPPED_MASK;
-            Tile tile = map.getTileForTileGID(tileId);
-            Tile t = tile.copy();
-            t.setGid(gid);
-            obj.setTile(t);
+            obj.setTile(map.getTileForTileId(gid));
         }
     }
 
@@ -1,24 +1,28 @@
 package io.github.jmecn.tiled.loader.layer;
 
-import com.github.luben.zstd.ZstdInputStream;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetManager;
 import io.github.jmecn.tiled.core.*;
 import io.github.jmecn.tiled.enums.DataCompression;
 import io.github.jmecn.tiled.enums.DataEncoding;
+import io.github.jmecn.tiled.enums.TileStorage;
+import io.github.jmecn.tiled.loader.CsvTileIdScanner;
+import io.github.jmecn.tiled.loader.DecodeScheduler;
 import io.github.jmecn.tiled.loader.LayerLoader;
+import io.github.jmecn.tiled.loader.StaxUtils;
+import io.github.jmecn.tiled.loader.TileDataDecoder;
+import io.github.jmecn.tiled.loader.TmxMapKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import java.io.ByteArrayInputStream;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Base64;
 import java.util.Properties;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 
 import static io.github.jmecn.tiled.TiledConst.*;
 import static io.github.jmecn.tiled.loader.Utils.getAttribute;
@@ -33,10 +37,24 @@ public class TileLayerLoader extends LayerLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(TileLayerLoader.class);
     private final TiledMap map;
+    private final DecodeScheduler scheduler;
+    private final TileStorage tileStorage;
 
     public TileLayerLoader(AssetManager assetManager, AssetKey<?> key, TiledMap map) {
+        this(assetManager, key, map, null);
+    }
+
+    /**
+     * @param assetManager the asset manager
+     * @param key the asset key
+     * @param map the map
+     * @param scheduler the scheduler to decode the tile data in parallel, or null to decode on the loading thread
+     */
+    public TileLayerLoader(AssetManager assetManager, AssetKey<?> key, TiledMap map, DecodeScheduler scheduler) {
         super(assetManager, key);
         this.map = map;
+        this.scheduler = scheduler;
+        this.tileStorage = key instanceof TmxMapKey ? ((TmxMapKey) key).getTileStorage() : TileStorage.TILES;
     }
 
     /**
@@ -51,7 +69,7 @@ public class TileLayerLoader extends LayerLoader {
         final int layerWidth = getAttribute(node, WIDTH, map.getWidth());
         final int layerHeight = getAttribute(node, HEIGHT, map.getHeight());
 
-        TileLayer layer = new TileLayer(layerWidth, layerHeight);
+        TileLayer layer = new TileLayer(map, layerWidth, layerHeight, tileStorage);
 
         readLayerBase(node, layer);
 
@@ -69,28 +87,48 @@ public class TileLayerLoader extends LayerLoader {
         return layer;
     }
 
-    private void readData(TileLayer layer, Node node) throws IOException {
-        String enc = getAttributeValue(node, "encoding");
-        String comp = getAttributeValue(node, "compression");
+    /**
+     * Loads a map layer while streaming. The tile data is decoded straight into the
+     * layer, only the properties are copied into a fragment.
+     *
+     * @param reader the stream reader, positioned on the start of the "layer" element
+     * @param owner the owner document for fragments
+     * @return the loaded map layer
+     * @throws IOException if an I/O error occurs
+     * @throws XMLStreamException if the document is malformed
+     */
+    @Override
+    public TileLayer load(XMLStreamReader reader, Document owner) throws IOException, XMLStreamException {
+        // keep the attributes, the properties will be appended later.
+        Element node = StaxUtils.readStartElement(reader, owner);
+        final int layerWidth = getAttribute(node, WIDTH, map.getWidth());
+        final int layerHeight = getAttribute(node, HEIGHT, map.getHeight());
 
-        DataEncoding encoding = DataEncoding.NONE;
-        if (enc != null) {
-            encoding = DataEncoding.fromValue(enc);
-            if (encoding == null) {
-                logger.warn("Unsupported encoding:{}, layer:{}", enc, layer.getName());
-                throw new IllegalArgumentException("Unsupported encoding:" + enc);
-            }
-        }
+        TileLayer layer = new TileLayer(map, layerWidth, layerHeight, tileStorage);
+        layer.setName(getAttributeValue(node, NAME));
 
-        DataCompression compression = DataCompression.NONE;
-        if (comp != null) {
-            compression = DataCompression.fromValue(comp);
-            if (compression == null) {
-                logger.warn("Unsupported compression:{}, layer:{}", comp, layer.getName());
-                throw new IllegalArgumentException("Unsupported compression:" + comp);
+        while (StaxUtils.nextChildElement(reader)) {
+            String nodeName = reader.getLocalName();
+            if (DATA.equals(nodeName)) {
+                readData(layer, reader);
+            } else if ("tileproperties".equals(nodeName)) {
+                readTileProperties(layer, StaxUtils.readElement(reader, owner));
+            } else if (PROPERTIES.equals(nodeName)) {
+                node.appendChild(StaxUtils.readElement(reader, owner));
+            } else {
+                StaxUtils.skipElement(reader);
             }
         }
 
+        readLayerBase(node, layer);
+
+        return layer;
+    }
+
+    private void readData(TileLayer layer, Node node) throws IOException {
+        DataEncoding encoding = getEncoding(layer, getAttributeValue(node, "encoding"));
+        DataCompression compression = getCompression(layer, getAttributeValue(node, "compression"));
+
         if (map.isInfinite()) {
             // read chunks
             NodeList children = node.getChildNodes();
@@ -100,120 +138,129 @@ public class TileLayerLoader extends LayerLoader {
                 if ("chunk".equals(nodeName)) {
                     Chunk chunk = readChunk(layer, child, encoding, compression);
                     layer.addChunk(chunk);
-                    mergeChunk(layer, chunk);// FIXME experimental
                 }
             }
         } else {
-            switch (encoding) {
-                case BASE64:
-                    decodeBase64Data(layer, node, compression);
-                    break;
-                case CSV:
-                    decodeCsvData(layer, node);
-                    break;
-                default:
-                    decodeTileData(layer, node);
-                    break;
+            decodeData(layer, node, encoding, compression);
+        }
+    }
+
+    private void readData(TileLayer layer, XMLStreamReader reader) throws IOException, XMLStreamException {
+        DataEncoding encoding = getEncoding(layer, reader.getAttributeValue(null, "encoding"));
+        DataCompression compression = getCompression(layer, reader.getAttributeValue(null, "compression"));
+
+        if (map.isInfinite()) {
+            // read chunks
+            while (StaxUtils.nextChildElement(reader)) {
+                if ("chunk".equals(reader.getLocalName())) {
+                    Chunk chunk = readChunk(layer, reader, encoding, compression);
+                    layer.addChunk(chunk);
+                } else {
+                    StaxUtils.skipElement(reader);
+                }
             }
+        } else {
+            decodeData(layer, reader, encoding, compression);
         }
     }
 
-    private void mergeChunk(TileLayer layer, Chunk chunk) {
-        int x = chunk.getX();
-        int y = chunk.getY();
-        int width = chunk.getWidth();
-        int height = chunk.getHeight();
-
-        // set chunk to layer
-        for (int cy = 0; cy < height; cy++) {
-            for (int cx = 0; cx < width; cx++) {
-                Tile tile = chunk.getTileAt(cx, cy);
-                layer.setTileAt(x + cx, y + cy, tile);
+    private DataEncoding getEncoding(TileLayer layer, String enc) {
+        DataEncoding encoding = DataEncoding.NONE;
+        if (enc != null) {
+            encoding = DataEncoding.fromValue(enc);
+            if (encoding == null) {
+                logger.warn("Unsupported encoding:{}, layer:{}", enc, layer.getName());
+                throw new IllegalArgumentException("Unsupported encoding:" + enc);
             }
         }
+        return encoding;
     }
+
+    private DataCompression getCompression(TileLayer layer, String comp) {
+        DataCompression compression = DataCompression.NONE;
+        if (comp != null) {
+            compression = DataCompression.fromValue(comp);
+            if (compression == null) {
+                logger.warn("Unsupported compression:{}, layer:{}", comp, layer.getName());
+                throw new IllegalArgumentException("Unsupported compression:" + comp);
+            }
+        }
+        return compression;
+    }
+
     /**
-     * Get the InputStream for the data element.
-     *
-     * @param len the length of the data
-     * @param compression the compression method
-     * @param decode the decoded data
-     * @return the InputStream
-     * @throws IOException if an I/O error occurs
+     * Decode the content of a data or chunk element.
      */
-    private InputStream getInputStream(int len, DataCompression compression, byte[] decode) throws IOException {
-        InputStream is;
-        switch (compression) {
-            case GZIP: {
-                is = new GZIPInputStream(new ByteArrayInputStream(decode), len);
-                break;
-            }
-            case ZLIB: {
-                is = new InflaterInputStream(new ByteArrayInputStream(decode));
+    private void decodeData(TileContainer tileContainer, Node node, DataEncoding encoding, DataCompression compression) throws IOException {
+        switch (encoding) {
+            case BASE64: {
+                Node cdata = node.getFirstChild();
+                if (cdata != null) {
+                    decodeText(tileContainer, cdata.getNodeValue(), encoding, compression);
+                }
                 break;
             }
-            case ZSTANDARD: {
-                is = new ZstdInputStream(new ByteArrayInputStream(decode));
+            case CSV:
+                decodeText(tileContainer, node.getTextContent(), encoding, compression);
                 break;
-            }
-            default: {
-                is = new ByteArrayInputStream(decode);
+            default:
+                decodeTileData(tileContainer, node);
                 break;
-            }
         }
-        return is;
     }
 
-    private void decodeBase64Data(TileContainer tileContainer, Node node, DataCompression compression) throws IOException {
-        Node cdata = node.getFirstChild();
-        if (cdata != null) {
-            byte[] decodeData = Base64.getDecoder().decode(cdata.getNodeValue().trim());
-            int width = tileContainer.getWidth();
-            int height = tileContainer.getHeight();
-            int len = width * height * 4;
-            InputStream is = getInputStream(len, compression, decodeData);
-
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int tileId = 0;
-                    tileId |= is.read();
-                    tileId |= is.read() << 8;
-                    tileId |= is.read() << 16;
-                    tileId |= is.read() << 24;
-
-                    map.setTileAtFromTileId(tileContainer, x, y, tileId);
-                }
-            }
+    /**
+     * Decode the content of a data or chunk element from the stream.
+     * The reader is left on the end of the element.
+     */
+    private void decodeData(TileContainer tileContainer, XMLStreamReader reader, DataEncoding encoding, DataCompression compression) throws IOException, XMLStreamException {
+        if (encoding == DataEncoding.BASE64 || (encoding == DataEncoding.CSV && scheduler != null)) {
+            decodeText(tileContainer, StaxUtils.readText(reader), encoding, compression);
+        } else if (encoding == DataEncoding.CSV) {
+            // scan the characters as they arrive, the text is never collected.
+            CsvTileIdScanner scanner = new CsvTileIdScanner(tileContainer.getWidth() * tileContainer.getHeight());
+            StaxUtils.readText(reader, scanner::scan);
+            map.setTilesFromTileIds(tileContainer, scanner.finish());
+        } else {
+            decodeTileData(tileContainer, reader);
         }
     }
 
-    private void decodeCsvData(TileContainer tileContainer, Node node) throws IOException {
-        String csvText = node.getTextContent();
-
-        /*
-         * trim 'space', 'tab', 'newline'. pay attention to
-         * additional unicode chars like \u2028, \u2029, \u0085 if
-         * necessary
-         */
-        String[] csvTileIds = csvText.trim().split("[\\s]*,[\\s]*");
-
-        int width = tileContainer.getWidth();
-        int height = tileContainer.getHeight();
-        int len = width * height;
+    /**
+     * Decode base64 or csv text into the container. When the layers are decoded in
+     * parallel, this is done by the scheduler and the text must not be touched by the
+     * loading thread anymore.
+     */
+    private void decodeText(TileContainer tileContainer, String text, DataEncoding encoding, DataCompression compression) throws IOException {
+        DecodeScheduler.Task task = () -> {
+            if (encoding == DataEncoding.BASE64) {
+                decodeBase64Data(tileContainer, text, compression);
+            } else {
+                decodeCsvData(tileContainer, text);
+            }
+        };
 
-        if (csvTileIds.length != len) {
-            throw new IOException("Number of tiles does not match the layer's width and height");
+        if (scheduler != null) {
+            scheduler.submit(task);
+        } else {
+            task.decode();
         }
+    }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                String sTileId = csvTileIds[x + y * width];
-                int tileId = (int) Long.parseLong(sTileId);
-                map.setTileAtFromTileId(tileContainer, x, y, tileId);
-            }
+    private void decodeBase64Data(TileContainer tileContainer, String text, DataCompression compression) throws IOException {
+        String base64 = text.trim();
+        if (!base64.isEmpty()) {
+            int count = tileContainer.getWidth() * tileContainer.getHeight();
+            int[] tileIds = TileDataDecoder.decodeBase64(base64, compression, count);
+            map.setTilesFromTileIds(tileContainer, tileIds);
         }
     }
 
+    private void decodeCsvData(TileContainer tileContainer, String text) throws IOException {
+        int[] tileIds = CsvTileIdScanner.scan(text, tileContainer.getWidth() * tileContainer.getHeight());
+        map.setTilesFromTileIds(tileContainer, tileIds);
+    }
+
     private void decodeTileData(TileContainer tileContainer, Node node) {
         int x = 0;
         int y = 0;
@@ -238,6 +285,27 @@ public class TileLayerLoader extends LayerLoader {
         }
     }
 
+    private void decodeTileData(TileContainer tileContainer, XMLStreamReader reader) throws XMLStreamException {
+        int x = 0;
+        int y = 0;
+        int width = tileContainer.getWidth();
+        int height = tileContainer.getHeight();
+        while (StaxUtils.nextChildElement(reader)) {
+            if (TILE.equals(reader.getLocalName()) && y < height) {
+                String gid = reader.getAttributeValue(null, GID);
+                int tileId = gid == null ? -1 : (int) Long.parseLong(gid);
+                map.setTileAtFromTileId(tileContainer, x, y, tileId);
+
+                x++;
+                if (x == width) {
+                    x = 0;
+                    y++;
+                }
+            }
+            StaxUtils.skipElement(reader);
+        }
+    }
+
     /**
      * <p>This is currently added only for infinite maps. The contents of a chunk element is
      * same as that of the data element, except it stores the data of the area specified
@@ -257,20 +325,10 @@ public class TileLayerLoader extends LayerLoader {
         int width = getAttribute(node, WIDTH, 0);
         int height = getAttribute(node, HEIGHT, 0);
 
-        Chunk chunk = new Chunk(x, y, width, height);
+        Chunk chunk = new Chunk(x, y, width, height, map, tileStorage);
 
         if (node.hasChildNodes()) {
-            switch (encoding) {
-                case BASE64:
-                    decodeBase64Data(chunk, node, compression);
-                    break;
-                case CSV:
-                    decodeCsvData(chunk, node);
-                    break;
-                default:
-                    decodeTileData(chunk, node);
-                    break;
-            }
+            decodeData(chunk, node, encoding, compression);
         } else {
             logger.warn("Chunk has no child nodes, layer:{}", layer.getName());
             throw new IllegalArgumentException("Chunk has no child nodes");
@@ -279,6 +337,17 @@ public class TileLayerLoader extends LayerLoader {
         return chunk;
     }
 
+    private Chunk readChunk(TileLayer layer, XMLStreamReader reader, DataEncoding encoding, DataCompression compression) throws IOException, XMLStreamException {
+        int x = StaxUtils.getAttribute(reader, X, 0);
+        int y = StaxUtils.getAttribute(reader, Y, 0);
+        int width = StaxUtils.getAttribute(reader, WIDTH, 0);
+        int height = StaxUtils.getAttribute(reader, HEIGHT, 0);
+
+        Chunk chunk = new Chunk(x, y, width, height, map, tileStorage);
+        decodeData(chunk, reader, encoding, compression);
+        return chunk;
+    }
+
     private void readTileProperties(TileLayer layer, Node node) {
         Node child = node.getFirstChild();
         while (child != null) {
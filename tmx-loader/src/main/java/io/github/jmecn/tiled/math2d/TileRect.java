@@ -0,0 +1,159 @@
+package io.github.jmecn.tiled.math2d;
+
+/**
+ * A rectangle of tiles, in tile coordinates.
+ *
+ * @author yanmaoyuan
+ */
+public class TileRect {
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    public TileRect() {
+        this(0, 0, 0, 0);
+    }
+
+    public TileRect(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public TileRect(TileRect r) {
+        this(r.x, r.y, r.width, r.height);
+    }
+
+    public void set(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the x coordinate after the right column
+     */
+    public int getMaxX() {
+        return x + width;
+    }
+
+    /**
+     * @return the y coordinate after the bottom row
+     */
+    public int getMaxY() {
+        return y + height;
+    }
+
+    public boolean isEmpty() {
+        return width <= 0 || height <= 0;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= this.x && y >= this.y && x < this.x + width && y < this.y + height;
+    }
+
+    public boolean intersects(TileRect r) {
+        return !isEmpty() && !r.isEmpty()
+                && r.x < x + width && x < r.x + r.width
+                && r.y < y + height && y < r.y + r.height;
+    }
+
+    /**
+     * Grow this rectangle to contain the given tile.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     */
+    public void add(int x, int y) {
+        if (isEmpty()) {
+            set(x, y, 1, 1);
+            return;
+        }
+        int x0 = Math.min(this.x, x);
+        int y0 = Math.min(this.y, y);
+        int x1 = Math.max(getMaxX(), x + 1);
+        int y1 = Math.max(getMaxY(), y + 1);
+        set(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Grow this rectangle to contain the given one.
+     *
+     * @param r the rectangle
+     */
+    public void add(TileRect r) {
+        if (r.isEmpty()) {
+            return;
+        }
+        if (isEmpty()) {
+            set(r.x, r.y, r.width, r.height);
+            return;
+        }
+        int x0 = Math.min(x, r.x);
+        int y0 = Math.min(y, r.y);
+        int x1 = Math.max(getMaxX(), r.getMaxX());
+        int y1 = Math.max(getMaxY(), r.getMaxY());
+        set(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Shrink this rectangle to its intersection with the given one.
+     *
+     * @param r the rectangle
+     * @return this rectangle
+     */
+    public TileRect intersectLocal(TileRect r) {
+        int x0 = Math.max(x, r.x);
+        int y0 = Math.max(y, r.y);
+        int x1 = Math.min(getMaxX(), r.getMaxX());
+        int y1 = Math.min(getMaxY(), r.getMaxY());
+        set(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TileRect)) {
+            return false;
+        }
+        TileRect r = (TileRect) o;
+        return x == r.x && y == r.y && width == r.width && height == r.height;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = x;
+        result = 31 * result + y;
+        result = 31 * result + width;
+        result = 31 * result + height;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TileRect[x=" + x + ", y=" + y + ", width=" + width + ", height=" + height + "]";
+    }
+}
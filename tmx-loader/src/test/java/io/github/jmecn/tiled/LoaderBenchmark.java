@@ -0,0 +1,103 @@
+package io.github.jmecn.tiled;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.loader.MapLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * A simple benchmark of the map loader. It loads the example maps with the StAX
+ * stream reader and the DOM parser, and prints the average wall-clock time and the
+ * peak heap usage of each.
+ *
+ * <p>Run it from the tmx-loader folder, so the examples can be found. Pass map names
+ * relative to the examples folder as arguments to benchmark other maps.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class LoaderBenchmark {
+
+    private static final String[] MAPS = {"sewers.tmx", "csvmap.tmx", "Desert/desert.tmx",
+            "Orthogonal/orthogonal-outside.tmx", "Isometric/isometric_grass_and_water.tmx",
+            "BeatBoss/forest.tmx", "sticker-knight/map/sandbox.tmx"};
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    private final List<MemoryPoolMXBean> heapPools;
+
+    public LoaderBenchmark() {
+        heapPools = ManagementFactory.getMemoryPoolMXBeans();
+        heapPools.removeIf(pool -> pool.getType() != MemoryType.HEAP);
+    }
+
+    /**
+     * Load the map with a new AssetManager, so nothing is cached between two loads.
+     */
+    private void load(String map, boolean useDom) throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        AssetKey<TiledMap> key = new AssetKey<>(map);
+        AssetInfo info = assetManager.locateAsset(key);
+        MapLoader mapLoader = new MapLoader(assetManager, key);
+        try (InputStream inputStream = info.openStream()) {
+            if (useDom) {
+                mapLoader.loadDocument(inputStream);
+            } else {
+                mapLoader.load(inputStream);
+            }
+        }
+    }
+
+    private long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private void run(String map, boolean useDom) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            load(map, useDom);
+        }
+
+        resetPeakHeap();
+        long baseline = peakHeap();
+        load(map, useDom);
+        long peak = peakHeap() - baseline;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            load(map, useDom);
+        }
+        double avg = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        System.out.printf("%-45s %-5s %10.3f ms %10d KB%n", map, useDom ? "DOM" : "StAX", avg, peak / 1024);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] maps = args.length > 0 ? args : MAPS;
+
+        LoaderBenchmark benchmark = new LoaderBenchmark();
+        System.out.printf("%-45s %-5s %13s %13s%n", "map", "mode", "avg time", "peak heap");
+        for (String map : maps) {
+            benchmark.run(map, true);
+            benchmark.run(map, false);
+        }
+    }
+}
@@ -1,156 +1,278 @@
-package io.github.jmecn.tiled;
-
-import com.jme3.asset.plugins.ClasspathLocator;
-import com.jme3.asset.plugins.FileLocator;
-import io.github.jmecn.tiled.core.*;
-import io.github.jmecn.tiled.enums.Orientation;
-import io.github.jmecn.tiled.enums.StaggerAxis;
-import io.github.jmecn.tiled.enums.StaggerIndex;
-
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import static org.junit.jupiter.api.Assertions.*;
-
-import com.jme3.asset.AssetManager;
-import com.jme3.asset.DesktopAssetManager;
-import com.jme3.material.plugins.J3MLoader;
-import com.jme3.shader.plugins.GLSLLoader;
-import com.jme3.texture.plugins.AWTLoader;
-
-/**
- * JUnit test case
- * 
- * @author yanmaoyuan
- *
- */
-class TestTMXLoader {
-
-    AssetManager assetManager;
-
-    @BeforeEach void initAssetManager() {
-        assetManager = new DesktopAssetManager();
-        assetManager.registerLocator("/", ClasspathLocator.class);
-        assetManager.registerLocator("../examples", FileLocator.class);
-        assetManager.registerLoader(J3MLoader.class, "j3md");
-        assetManager.registerLoader(GLSLLoader.class, "vert", "frag", "geom", "tsctrl", "tseval", "glsl", "glsllib");
-        assetManager.registerLoader(AWTLoader.class, "jpg", "bmp", "gif", "png", "jpeg");
-        assetManager.registerLoader(TmxLoader.class, "tmx", "tsx", "tx");
-    }
-
-    @Test void testReadingExampleMap() {
-        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
-
-        // Assert
-        assertEquals(Orientation.ORTHOGONAL, map.getOrientation());
-        assertEquals(50, map.getHeight());
-        assertEquals(50, map.getHeight());
-        assertEquals(24, map.getTileWidth());
-        assertEquals(24, map.getTileHeight());
-        assertEquals(3, map.getLayerCount());
-        assertNotNull(((TileLayer)map.getLayer(0)).getTileAt(0, 0));
-    }
-
-    @Test void testReadingExampleCsvMap() {
-        TiledMap map = (TiledMap) assetManager.loadAsset("csvmap.tmx");
-
-        // Assert
-        assertEquals(Orientation.ORTHOGONAL, map.getOrientation());
-        assertEquals(100, map.getHeight());
-        assertEquals(100, map.getHeight());
-        assertEquals(32, map.getTileWidth());
-        assertEquals(32, map.getTileHeight());
-        assertEquals(1, map.getLayerCount());
-        assertNotNull(((TileLayer)map.getLayer(0)).getTileAt(0, 0));
-    }
-
-    @Test void testReadingExampleHexagonalMap() {
-        TiledMap map = (TiledMap) assetManager.loadAsset("hexagonal.tmx");
-
-        // Assert
-        assertEquals(Orientation.HEXAGONAL, map.getOrientation());
-        assertEquals(9, map.getHeight());
-        assertEquals(9, map.getHeight());
-        assertEquals(32, map.getTileWidth());
-        assertEquals(32, map.getTileHeight());
-        assertEquals(16, map.getHexSideLength());
-        assertEquals(StaggerAxis.Y, map.getStaggerAxis());
-        assertEquals(StaggerIndex.ODD, map.getStaggerIndex());
-        assertEquals(1, map.getLayerCount());
-    }
-
-    @Test void testReadingExampleStaggeredMap() {
-        TiledMap map = (TiledMap) assetManager.loadAsset("staggered.tmx");
-
-        // Assert
-        assertEquals(Orientation.STAGGERED, map.getOrientation());
-        assertEquals(9, map.getHeight());
-        assertEquals(9, map.getHeight());
-        assertEquals(32, map.getTileWidth());
-        assertEquals(32, map.getTileHeight());
-        assertEquals(StaggerAxis.Y, map.getStaggerAxis());
-        assertEquals(StaggerIndex.ODD, map.getStaggerIndex());
-        assertEquals(1, map.getLayerCount());
-    }
-
-    @Test void testReadingExampleIsometricMap() {
-        TiledMap map = (TiledMap) assetManager.loadAsset("Isometric/isometric_grass_and_water.tmx");
-
-        // Assert
-        assertEquals(Orientation.ISOMETRIC, map.getOrientation());
-        assertEquals(25, map.getHeight());
-        assertEquals(25, map.getHeight());
-        assertEquals(64, map.getTileWidth());
-        assertEquals(32, map.getTileHeight());
-        assertEquals(1, map.getLayerCount());
-    }
-
-    @Test void testTemplateLoader() {
-        ObjectTemplate block = (ObjectTemplate) assetManager.loadAsset("sticker-knight/map/templates/block.tx");
-        assertNotNull(block);
-        assertEquals("sticker-knight/map/templates/block.tx", block.getSource());
-
-        MapObject object = block.getObject();
-        assertNotNull(object);
-        assertEquals("block", object.getName());
-        assertEquals(44, object.getGid());
-        assertEquals(96, object.getWidth());
-        assertEquals(96, object.getHeight());
-
-        Tileset tileset = block.getTileset();
-        assertNotNull(tileset);
-        assertFalse(tileset.isImageBased());
-        assertEquals("../objs.tsx", tileset.getSource());
-
-        Tile tile = object.getTile();
-        assertNotNull(tile);
-        assertEquals(44, tile.getGid());
-        assertEquals(96, tile.getWidth());
-        assertEquals(96, tile.getHeight());
-        assertNotNull(tile.getImage());
-    }
-
-    @Test void testTiledMapWithTemplate() {
-        TiledMap tiledMap = (TiledMap) assetManager.loadAsset("sticker-knight/map/sandbox.tmx");
-        ObjectTemplate block = tiledMap.getObjectTemplate("templates/block.tx");
-        assertNotNull(block);
-
-        MapObject object = block.getObject();
-        assertNotNull(object);
-        assertEquals("block", object.getName());
-        assertEquals(44, object.getGid());
-        assertEquals(96, object.getWidth());
-        assertEquals(96, object.getHeight());
-
-        Tileset tileset = block.getTileset();
-        assertNotNull(tileset);
-        assertFalse(tileset.isImageBased());
-        assertEquals("objs.tsx", tileset.getSource());
-
-        Tile tile = object.getTile();
-        assertNotNull(tile);
-        assertEquals(44, tile.getGid());
-        assertEquals(96, tile.getWidth());
-        assertEquals(96, tile.getHeight());
-        assertNotNull(tile.getImage());
-    }
-}
\ No newline at end of file
+package io.github.jmecn.tiled;
+
+import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.enums.StaggerAxis;
+import io.github.jmecn.tiled.enums.StaggerIndex;
+import io.github.jmecn.tiled.enums.TileStorage;
+import io.github.jmecn.tiled.loader.MapLoader;
+import io.github.jmecn.tiled.loader.TmxMapKey;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JUnit test case
+ * 
+ * @author yanmaoyuan
+ *
+ */
+class TestTMXLoader {
+
+    AssetManager assetManager;
+
+    @BeforeEach void initAssetManager() {
+        assetManager = TestAssets.createAssetManager();
+    }
+
+    @Test void testReadingExampleMap() {
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+
+        // Assert
+        assertEquals(Orientation.ORTHOGONAL, map.getOrientation());
+        assertEquals(50, map.getHeight());
+        assertEquals(50, map.getHeight());
+        assertEquals(24, map.getTileWidth());
+        assertEquals(24, map.getTileHeight());
+        assertEquals(3, map.getLayerCount());
+        assertNotNull(((TileLayer)map.getLayer(0)).getTileAt(0, 0));
+    }
+
+    @Test void testReadingExampleCsvMap() {
+        TiledMap map = (TiledMap) assetManager.loadAsset("csvmap.tmx");
+
+        // Assert
+        assertEquals(Orientation.ORTHOGONAL, map.getOrientation());
+        assertEquals(100, map.getHeight());
+        assertEquals(100, map.getHeight());
+        assertEquals(32, map.getTileWidth());
+        assertEquals(32, map.getTileHeight());
+        assertEquals(1, map.getLayerCount());
+        assertNotNull(((TileLayer)map.getLayer(0)).getTileAt(0, 0));
+    }
+
+    @Test void testReadingExampleHexagonalMap() {
+        TiledMap map = (TiledMap) assetManager.loadAsset("hexagonal.tmx");
+
+        // Assert
+        assertEquals(Orientation.HEXAGONAL, map.getOrientation());
+        assertEquals(9, map.getHeight());
+        assertEquals(9, map.getHeight());
+        assertEquals(32, map.getTileWidth());
+        assertEquals(32, map.getTileHeight());
+        assertEquals(16, map.getHexSideLength());
+        assertEquals(StaggerAxis.Y, map.getStaggerAxis());
+        assertEquals(StaggerIndex.ODD, map.getStaggerIndex());
+        assertEquals(1, map.getLayerCount());
+    }
+
+    @Test void testReadingExampleStaggeredMap() {
+        TiledMap map = (TiledMap) assetManager.loadAsset("staggered.tmx");
+
+        // Assert
+        assertEquals(Orientation.STAGGERED, map.getOrientation());
+        assertEquals(9, map.getHeight());
+        assertEquals(9, map.getHeight());
+        assertEquals(32, map.getTileWidth());
+        assertEquals(32, map.getTileHeight());
+        assertEquals(StaggerAxis.Y, map.getStaggerAxis());
+        assertEquals(StaggerIndex.ODD, map.getStaggerIndex());
+        assertEquals(1, map.getLayerCount());
+    }
+
+    @Test void testReadingExampleIsometricMap() {
+        TiledMap map = (TiledMap) assetManager.loadAsset("Isometric/isometric_grass_and_water.tmx");
+
+        // Assert
+        assertEquals(Orientation.ISOMETRIC, map.getOrientation());
+        assertEquals(25, map.getHeight());
+        assertEquals(25, map.getHeight());
+        assertEquals(64, map.getTileWidth());
+        assertEquals(32, map.getTileHeight());
+        assertEquals(1, map.getLayerCount());
+    }
+
+    @Test void testTemplateLoader() {
+        ObjectTemplate block = (ObjectTemplate) assetManager.loadAsset("sticker-knight/map/templates/block.tx");
+        assertNotNull(block);
+        assertEquals("sticker-knight/map/templates/block.tx", block.getSource());
+
+        MapObject object = block.getObject();
+        assertNotNull(object);
+        assertEquals("block", object.getName());
+        assertEquals(44, object.getGid());
+        assertEquals(96, object.getWidth());
+        assertEquals(96, object.getHeight());
+
+        Tileset tileset = block.getTileset();
+        assertNotNull(tileset);
+        assertFalse(tileset.isImageBased());
+        assertEquals("../objs.tsx", tileset.getSource());
+
+        Tile tile = object.getTile();
+        assertNotNull(tile);
+        assertEquals(44, tile.getGid());
+        assertEquals(96, tile.getWidth());
+        assertEquals(96, tile.getHeight());
+        assertNotNull(tile.getImage());
+    }
+
+    @Test void testTiledMapWithTemplate() {
+        TiledMap tiledMap = (TiledMap) assetManager.loadAsset("sticker-knight/map/sandbox.tmx");
+        ObjectTemplate block = tiledMap.getObjectTemplate("templates/block.tx");
+        assertNotNull(block);
+
+        MapObject object = block.getObject();
+        assertNotNull(object);
+        assertEquals("block", object.getName());
+        assertEquals(44, object.getGid());
+        assertEquals(96, object.getWidth());
+        assertEquals(96, object.getHeight());
+
+        Tileset tileset = block.getTileset();
+        assertNotNull(tileset);
+        assertFalse(tileset.isImageBased());
+        assertEquals("objs.tsx", tileset.getSource());
+
+        Tile tile = object.getTile();
+        assertNotNull(tile);
+        assertEquals(44, tile.getGid());
+        assertEquals(96, tile.getWidth());
+        assertEquals(96, tile.getHeight());
+        assertNotNull(tile.getImage());
+    }
+
+    /**
+     * Read a map with one of the parsers, without going through the TmxLoader.
+     */
+    private static TiledMap loadMap(String name, boolean useDom) throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        AssetKey<TiledMap> key = new AssetKey<>(name);
+        AssetInfo info = assetManager.locateAsset(key);
+        assertNotNull(info, name);
+        MapLoader mapLoader = new MapLoader(assetManager, key);
+        try (InputStream inputStream = info.openStream()) {
+            return useDom ? mapLoader.loadDocument(inputStream) : mapLoader.load(inputStream);
+        }
+    }
+
+    @Test void testStreamingParserMatchesDom() throws IOException {
+        String[] maps = {"sewers.tmx", "csvmap.tmx", "image.tmx", "hexagonal.tmx", "Orthogonal/perspective_walls.tmx",
+                "Desert/desert.tmx", "sticker-knight/map/sandbox.tmx"};
+        for (String name : maps) {
+            TiledMap stax = loadMap(name, false);
+            TiledMap dom = loadMap(name, true);
+
+            assertEquals(dom.getProperties(), stax.getProperties(), name);
+            assertEquals(dom.getTileSets().size(), stax.getTileSets().size(), name);
+            assertEquals(dom.getLayerCount(), stax.getLayerCount(), name);
+            for (int i = 0; i < dom.getLayerCount(); i++) {
+                assertSameLayer(name, dom.getLayer(i), stax.getLayer(i));
+            }
+        }
+    }
+
+    @Test void testParallelDecodingMatchesSequential() {
+        String[] maps = {"sewers.tmx", "csvmap.tmx", "hexagonal.tmx", "Desert/desert.tmx", "sticker-knight/map/sandbox.tmx"};
+        for (String name : maps) {
+            TiledMap sequential = (TiledMap) TestAssets.createAssetManager().loadAsset(name);
+
+            TmxMapKey key = new TmxMapKey(name);
+            key.setParallelism(4);
+            TiledMap parallel = TestAssets.createAssetManager().loadAsset(key);
+
+            assertEquals(sequential.getLayerCount(), parallel.getLayerCount(), name);
+            for (int i = 0; i < sequential.getLayerCount(); i++) {
+                assertSameLayer(name, sequential.getLayer(i), parallel.getLayer(i));
+            }
+        }
+    }
+
+    @Test void testGidStorageMatchesTiles() {
+        String[] maps = {"sewers.tmx", "csvmap.tmx", "hexagonal.tmx", "Desert/desert.tmx"};
+        for (String name : maps) {
+            TiledMap tiles = (TiledMap) TestAssets.createAssetManager().loadAsset(name);
+
+            TmxMapKey key = new TmxMapKey(name);
+            key.setTileStorage(TileStorage.GIDS);
+            TiledMap gids = TestAssets.createAssetManager().loadAsset(key);
+
+            assertEquals(tiles.getLayerCount(), gids.getLayerCount(), name);
+            for (int i = 0; i < tiles.getLayerCount(); i++) {
+                Layer layer = gids.getLayer(i);
+                if (layer instanceof TileLayer) {
+                    assertEquals(TileStorage.GIDS, ((TileLayer) layer).getTileStorage(), name);
+                }
+                assertSameLayer(name, tiles.getLayer(i), layer);
+            }
+        }
+    }
+
+    @Test void testSetTileIdOnBothStorages() {
+        for (TileStorage storage : TileStorage.values()) {
+            TmxMapKey key = new TmxMapKey("sewers.tmx");
+            key.setTileStorage(storage);
+            TiledMap map = TestAssets.createAssetManager().loadAsset(key);
+            TileLayer layer = (TileLayer) map.getLayer(0);
+            int tileId = layer.getTileIdAt(1, 1) | Tile.FLIPPED_HORIZONTALLY_FLAG;
+
+            layer.setTileIdAt(0, 0, tileId);
+            assertEquals(tileId, layer.getTileIdAt(0, 0), storage.name());
+            assertEquals(tileId, layer.getTileAt(0, 0).getGid(), storage.name());
+
+            layer.setTileIdAt(0, 0, 0);
+            assertEquals(0, layer.getTileIdAt(0, 0), storage.name());
+            assertNull(layer.getTileAt(0, 0), storage.name());
+        }
+    }
+
+    @Test void testCacheByTileStorage() {
+        TmxMapKey tiles = new TmxMapKey("sewers.tmx");
+        TmxMapKey gids = new TmxMapKey("sewers.tmx");
+        gids.setTileStorage(TileStorage.GIDS);
+        assertEquals(new AssetKey<>("sewers.tmx"), tiles);
+        assertEquals(new AssetKey<>("sewers.tmx").hashCode(), tiles.hashCode());
+        assertFalse(tiles.equals(gids));
+
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        assertSame(map, assetManager.loadAsset(tiles));
+        TiledMap gidMap = assetManager.loadAsset(gids);
+        assertNotSame(map, gidMap);
+        assertEquals(TileStorage.GIDS, ((TileLayer) gidMap.getLayer(0)).getTileStorage());
+    }
+
+    private static void assertSameLayer(String map, Layer expected, Layer actual) {
+        assertEquals(expected.getClass(), actual.getClass(), map);
+        assertEquals(expected.getName(), actual.getName(), map);
+        assertEquals(expected.getProperties(), actual.getProperties(), map);
+        assertEquals(expected.getOpacity(), actual.getOpacity(), 0.0);
+        if (expected instanceof TileLayer) {
+            TileLayer e = (TileLayer) expected;
+            TileLayer a = (TileLayer) actual;
+            for (int y = 0; y < e.getHeight(); y++) {
+                for (int x = 0; x < e.getWidth(); x++) {
+                    Tile te = e.getTileAt(x, y);
+                    Tile ta = a.getTileAt(x, y);
+                    assertEquals(te == null ? 0 : te.getGid(), ta == null ? 0 : ta.getGid(), map + " " + x + "," + y);
+                }
+            }
+        } else if (expected instanceof ObjectGroup) {
+            assertEquals(((ObjectGroup) expected).getObjects().size(), ((ObjectGroup) actual).getObjects().size(), map);
+        } else if (expected instanceof GroupLayer) {
+            GroupLayer e = (GroupLayer) expected;
+            GroupLayer a = (GroupLayer) actual;
+            assertEquals(e.getLayerCount(), a.getLayerCount(), map);
+            for (int i = 0; i < e.getLayerCount(); i++) {
+                assertSameLayer(map, e.getLayer(i), a.getLayer(i));
+            }
+        }
+    }
+}
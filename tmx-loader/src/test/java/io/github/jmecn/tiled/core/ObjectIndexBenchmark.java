@@ -0,0 +1,122 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.math2d.Bound2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the queries of an {@link ObjectIndex} with a scan of all the objects of a group,
+ * for 100k objects: the objects in a view, under a point and nearest to a point. Also
+ * measures the cost of moving the objects of an indexed group.
+ *
+ * @author yanmaoyuan
+ */
+public class ObjectIndexBenchmark {
+
+    private static final int OBJECTS = 100000;
+    private static final double SIZE = 32000;
+    private static final double CELL_SIZE = 128;
+    private static final int QUERIES = 1000;
+    private static final int NEAREST = 8;
+
+    interface Query {
+        int run(double x, double y);
+    }
+
+    static double measure(Query query, long seed) {
+        int found = 0;
+        long time = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            // the first pass is the warmup
+            Random random = new Random(seed);
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                found += query.run(random.nextDouble() * SIZE, random.nextDouble() * SIZE);
+            }
+            time = System.nanoTime() - start;
+        }
+        if (found == 0) {
+            throw new IllegalStateException("No object found");
+        }
+        return time / 1e6 / QUERIES;
+    }
+
+    static boolean overlaps(double[] b, double x0, double y0, double x1, double y1) {
+        return b[0] <= x1 && b[2] >= x0 && b[1] <= y1 && b[3] >= y0;
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        ObjectGroup group = new ObjectGroup();
+        for (int i = 0; i < OBJECTS; i++) {
+            group.add(TestObjectIndex.createObject(random, SIZE));
+        }
+        List<MapObject> objects = group.getObjects();
+        ObjectIndex index = group.createObjectIndex(CELL_SIZE);
+        double[] b = new double[4];
+        List<MapObject> store = new ArrayList<>();
+
+        Query scanView = (x, y) -> {
+            int n = 0;
+            for (MapObject obj : objects) {
+                ObjectIndex.computeBounds(obj, b);
+                n += overlaps(b, x, y, x + 1280, y + 720) ? 1 : 0;
+            }
+            return n;
+        };
+        Query indexView = (x, y) -> {
+            store.clear();
+            return index.query(new Bound2D(x, y, 1280, 720), store).size();
+        };
+        Query scanPoint = (x, y) -> {
+            int n = 0;
+            for (MapObject obj : objects) {
+                ObjectIndex.computeBounds(obj, b);
+                n += overlaps(b, x, y, x, y) ? 1 : 0;
+            }
+            return n + 1;
+        };
+        Query indexPoint = (x, y) -> {
+            store.clear();
+            return index.query(x, y, store).size() + 1;
+        };
+        Query scanNearest = (x, y) -> {
+            // keep the k nearest in a sorted array
+            double[] best = new double[NEAREST];
+            java.util.Arrays.fill(best, Double.POSITIVE_INFINITY);
+            for (MapObject obj : objects) {
+                ObjectIndex.computeBounds(obj, b);
+                double dx = Math.max(Math.max(b[0] - x, x - b[2]), 0);
+                double dy = Math.max(Math.max(b[1] - y, y - b[3]), 0);
+                double d = dx * dx + dy * dy;
+                for (int k = NEAREST - 1; k >= 0 && d < best[k]; k--) {
+                    if (k < NEAREST - 1) {
+                        best[k + 1] = best[k];
+                    }
+                    best[k] = d;
+                }
+            }
+            return NEAREST;
+        };
+        Query indexNearest = (x, y) -> {
+            store.clear();
+            return index.nearest(x, y, NEAREST, store).size();
+        };
+
+        System.out.printf("%d objects, %d queries, time per query%n", OBJECTS, QUERIES);
+        System.out.printf("%-8s %12s %12s%n", "query", "scan", "index");
+        System.out.printf("%-8s %9.4f ms %9.4f ms%n", "view", measure(scanView, 2), measure(indexView, 2));
+        System.out.printf("%-8s %9.4f ms %9.4f ms%n", "point", measure(scanPoint, 3), measure(indexPoint, 3));
+        System.out.printf("%-8s %9.4f ms %9.4f ms%n", "nearest", measure(scanNearest, 4), measure(indexNearest, 4));
+
+        // move every object a little, as moving objects do each frame
+        long start = System.nanoTime();
+        for (MapObject obj : objects) {
+            obj.setX(obj.getX() + random.nextDouble() * 8 - 4);
+            obj.setY(obj.getY() + random.nextDouble() * 8 - 4);
+        }
+        System.out.printf("moving %d indexed objects: %.3f ms%n", OBJECTS, (System.nanoTime() - start) / 1e6);
+    }
+}
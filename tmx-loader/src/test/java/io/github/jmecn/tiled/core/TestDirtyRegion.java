@@ -0,0 +1,85 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.math2d.TileRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestDirtyRegion {
+
+    static List<Integer> cells(DirtyRegion region) {
+        List<Integer> cells = new ArrayList<>();
+        region.forEach((col, row) -> cells.add(row * region.getWidth() + col));
+        return cells;
+    }
+
+    @Test void coalesceNeighbourCells() {
+        DirtyRegion region = new DirtyRegion(100, 100);
+        region.mark(10, 10);
+        region.mark(11, 10);
+        region.mark(11, 11);
+        region.mark(80, 90);
+        region.mark(10, 10);
+
+        assertEquals(4, region.getCount());
+        assertEquals(2, region.getRects().size());
+        assertEquals(new TileRect(10, 10, 2, 2), region.getRects().get(0));
+        assertEquals(new TileRect(80, 90, 1, 1), region.getRects().get(1));
+
+        List<Integer> cells = cells(region);
+        assertEquals(4, cells.size());
+        assertTrue(cells.contains(10 * 100 + 10));
+        assertTrue(cells.contains(11 * 100 + 11));
+        assertFalse(cells.contains(11 * 100 + 10));
+        assertTrue(cells.contains(90 * 100 + 80));
+    }
+
+    @Test void mergeOverlappingRects() {
+        DirtyRegion region = new DirtyRegion(100, 100);
+        region.mark(2, 2);
+        region.mark(0, 0);
+        region.mark(1, 0);
+        region.mark(0, 1);
+        assertEquals(2, region.getRects().size());
+        // grows the first one over the second one
+        region.mark(1, 1);
+        assertEquals(1, region.getRects().size());
+        assertEquals(new TileRect(0, 0, 3, 3), region.getRects().get(0));
+        assertEquals(5, cells(region).size());
+
+        for (int i = 0; i < DirtyRegion.MAX_RECTS * 2; i++) {
+            region.mark(i * 3, 50 + i % 2 * 20);
+        }
+        assertTrue(region.getRects().size() <= DirtyRegion.MAX_RECTS);
+        assertEquals(region.getCount(), cells(region).size());
+    }
+
+    @Test void clearCells() {
+        DirtyRegion region = new DirtyRegion(70, 3);
+        region.markAll();
+        assertEquals(210, region.getCount());
+        assertEquals(210, cells(region).size());
+
+        region.clear(69, 2);
+        assertFalse(region.isDirty(69, 2));
+        assertEquals(209, cells(region).size());
+
+        region.clear();
+        assertTrue(region.isEmpty());
+        assertTrue(region.getRects().isEmpty());
+        assertEquals(0, cells(region).size());
+
+        region.mark(5, 1);
+        region.clear(5, 1);
+        assertTrue(region.isEmpty());
+        assertTrue(region.getRects().isEmpty());
+    }
+}
@@ -0,0 +1,184 @@
+package io.github.jmecn.tiled.core;
+
+import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.enums.ObjectType;
+import io.github.jmecn.tiled.math2d.Bound2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestObjectIndex {
+
+    static MapObject createObject(Random random, double size) {
+        MapObject obj = new MapObject(random.nextDouble() * size, random.nextDouble() * size,
+                random.nextDouble() * 64, random.nextDouble() * 64);
+        switch (random.nextInt(5)) {
+            case 0:
+                obj.setShape(ObjectType.TILE);
+                break;
+            case 1:
+                obj.setShape(ObjectType.POINT);
+                break;
+            case 2:
+                obj.setShape(ObjectType.POLYGON);
+                obj.setPoints(Arrays.asList(new Vector2f(0, 0), new Vector2f(40, -10), new Vector2f(-20, 30)));
+                break;
+            case 3:
+                obj.setRotation(random.nextDouble() * 360);
+                break;
+            default:
+                break;
+        }
+        if (random.nextInt(100) == 0) {
+            // a very large object
+            obj.setWidth(size);
+        }
+        return obj;
+    }
+
+    static Bound2D bounds(MapObject obj) {
+        double[] b = new double[4];
+        ObjectIndex.computeBounds(obj, b);
+        return new Bound2D(b[0], b[1], b[2] - b[0], b[3] - b[1]);
+    }
+
+    static List<MapObject> bruteForce(List<MapObject> objects, double x0, double y0, double x1, double y1) {
+        List<MapObject> result = new ArrayList<>();
+        for (MapObject obj : objects) {
+            Bound2D b = bounds(obj);
+            if (b.getX() <= x1 && b.getX() + b.getWidth() >= x0 && b.getY() <= y1 && b.getY() + b.getHeight() >= y0) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
+    static double distance(MapObject obj, double x, double y) {
+        Bound2D b = bounds(obj);
+        double dx = Math.max(Math.max(b.getX() - x, x - b.getX() - b.getWidth()), 0);
+        double dy = Math.max(Math.max(b.getY() - y, y - b.getY() - b.getHeight()), 0);
+        return dx * dx + dy * dy;
+    }
+
+    static void assertSameObjects(List<MapObject> expected, List<MapObject> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test void computeBoundsOfShapes() {
+        MapObject rect = new MapObject(100, 100, 20, 10);
+        rect.setRotation(90);
+        Bound2D b = bounds(rect);
+        assertEquals(90, b.getX(), 1e-9);
+        assertEquals(100, b.getY(), 1e-9);
+        assertEquals(10, b.getWidth(), 1e-9);
+        assertEquals(20, b.getHeight(), 1e-9);
+
+        MapObject tile = new MapObject(50, 50, 16, 16);
+        tile.setShape(ObjectType.TILE);
+        b = bounds(tile);
+        assertEquals(50, b.getX(), 1e-9);
+        assertEquals(34, b.getY(), 1e-9);
+
+        MapObject polygon = new MapObject(10, 10, 0, 0);
+        polygon.setShape(ObjectType.POLYGON);
+        polygon.setPoints(Arrays.asList(new Vector2f(-5, 0), new Vector2f(5, 20), new Vector2f(0, -3)));
+        b = bounds(polygon);
+        assertEquals(5, b.getX(), 1e-6);
+        assertEquals(7, b.getY(), 1e-6);
+        assertEquals(10, b.getWidth(), 1e-6);
+        assertEquals(23, b.getHeight(), 1e-6);
+    }
+
+    @Test void queryLikeBruteForce() {
+        Random random = new Random(7);
+        ObjectGroup group = new ObjectGroup();
+        List<MapObject> objects = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            MapObject obj = createObject(random, 2000);
+            objects.add(obj);
+            group.add(obj);
+        }
+        ObjectIndex index = group.createObjectIndex(64);
+        assertEquals(objects.size(), index.size());
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 50; i++) {
+                double x = random.nextDouble() * 2200 - 100;
+                double y = random.nextDouble() * 2200 - 100;
+                double w = random.nextDouble() * 300;
+                double h = random.nextDouble() * 300;
+                assertSameObjects(bruteForce(objects, x, y, x + w, y + h),
+                        index.query(new Bound2D(x, y, w, h), new ArrayList<>()));
+                assertSameObjects(bruteForce(objects, x, y, x, y), index.query(x, y, new ArrayList<>()));
+
+                List<MapObject> nearest = index.nearest(x, y, 5, new ArrayList<>());
+                List<MapObject> expected = new ArrayList<>(objects);
+                expected.sort(Comparator.comparingDouble(obj -> distance(obj, x, y)));
+                assertEquals(5, nearest.size());
+                for (int k = 0; k < 5; k++) {
+                    assertEquals(distance(expected.get(k), x, y), distance(nearest.get(k), x, y), 1e-6);
+                }
+            }
+
+            // move, resize and reshape some objects, remove and add others
+            for (int i = 0; i < 200; i++) {
+                MapObject obj = objects.get(random.nextInt(objects.size()));
+                switch (random.nextInt(6)) {
+                    case 0:
+                        obj.setX(random.nextDouble() * 2000);
+                        break;
+                    case 1:
+                        obj.setY(random.nextDouble() * 2000);
+                        break;
+                    case 2:
+                        obj.setWidth(random.nextDouble() * 500);
+                        break;
+                    case 3:
+                        obj.setHeight(random.nextDouble() * 500);
+                        break;
+                    case 4:
+                        obj.setRotation(random.nextDouble() * 360);
+                        break;
+                    default:
+                        group.remove(obj);
+                        objects.remove(obj);
+                        MapObject added = createObject(random, 2000);
+                        group.add(added);
+                        objects.add(added);
+                        break;
+                }
+            }
+            assertEquals(objects.size(), index.size());
+        }
+    }
+
+    @Test void nearestOfFarObjects() {
+        ObjectGroup group = new ObjectGroup();
+        ObjectIndex index = group.createObjectIndex(16);
+        MapObject a = new MapObject(10000, 10000, 1, 1);
+        MapObject b = new MapObject(-5000, 0, 1, 1);
+        group.add(a);
+        group.add(b);
+
+        assertEquals(Arrays.asList(b, a), index.nearest(0, 0, 3, new ArrayList<>()));
+        a.setX(0);
+        a.setY(0);
+        assertEquals(Arrays.asList(a), index.nearest(0, 0, 1, new ArrayList<>()));
+        group.remove(a);
+        assertEquals(Arrays.asList(b), index.nearest(0, 0, 1, new ArrayList<>()));
+        assertFalse(index.contains(a));
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.enums.DrawOrder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestObjectOrder {
+
+    static ObjectGroup createGroup(Random random, int count) {
+        ObjectGroup group = new ObjectGroup();
+        for (int i = 0; i < count; i++) {
+            MapObject obj = new MapObject(random.nextInt(1000), random.nextInt(1000), 16, 16);
+            obj.setId(i + 1);
+            group.add(obj);
+        }
+        return group;
+    }
+
+    static void assertSorted(ObjectGroup group, int count) {
+        List<MapObject> objects = group.getObjects();
+        assertEquals(count, objects.size());
+        for (int i = 1; i < objects.size(); i++) {
+            assertTrue(group.getDrawOrder().compare(objects.get(i - 1), objects.get(i)) <= 0, "at " + i);
+        }
+    }
+
+    @Test void repairTopDownOrder() {
+        Random random = new Random(3);
+        ObjectGroup group = createGroup(random, 1000);
+        group.sortObjects();
+        assertSorted(group, 1000);
+
+        List<MapObject> objects = new ArrayList<>(group.getObjects());
+        for (int frame = 0; frame < 50; frame++) {
+            // a few objects move a little, one moves far away
+            for (int i = 0; i < 10; i++) {
+                MapObject obj = objects.get(random.nextInt(objects.size()));
+                obj.setY(obj.getY() + random.nextInt(9) - 4);
+            }
+            objects.get(random.nextInt(objects.size())).setY(random.nextInt(1000));
+            group.sortObjects();
+            assertSorted(group, 1000);
+        }
+
+        // many objects move, and some are removed
+        for (int i = 0; i < 500; i++) {
+            objects.get(random.nextInt(objects.size())).setY(random.nextInt(1000));
+        }
+        group.remove(objects.get(0));
+        group.remove(objects.get(1));
+        group.sortObjects();
+        assertSorted(group, 998);
+    }
+
+    @Test void repairIndexOrder() {
+        Random random = new Random(5);
+        ObjectGroup group = createGroup(random, 100);
+        group.setDrawOrder(DrawOrder.INDEX);
+        group.sortObjects();
+        assertSorted(group, 100);
+
+        MapObject first = group.getObjects().get(0);
+        // the y coordinate doesn't change the order by index
+        first.setY(5000);
+        first.setId(1000);
+        group.sortObjects();
+        assertSorted(group, 100);
+        assertSame(first, group.getObjects().get(99));
+
+        group.setDrawOrder(DrawOrder.TOPDOWN);
+        group.sortObjects();
+        assertSorted(group, 100);
+        assertSame(first, group.getObjects().get(99));
+    }
+}
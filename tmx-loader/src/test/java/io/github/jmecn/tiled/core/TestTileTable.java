@@ -0,0 +1,67 @@
+package io.github.jmecn.tiled.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestTileTable {
+
+    static Tileset createTileset(String name, int firstGid, int count) {
+        Tileset tileset = new Tileset(16, 16, 0, 0);
+        tileset.setName(name);
+        tileset.setFirstGid(firstGid);
+        for (int i = 0; i < count; i++) {
+            tileset.addNewTile(new Tile(i * 16, 0, 16, 16));
+        }
+        return tileset;
+    }
+
+    @Test void resolveTilesOfAllTilesets() {
+        TiledMap map = new TiledMap(10, 10);
+        Tileset a = createTileset("a", 1, 10);
+        Tileset b = createTileset("b", 11, 300);
+        Tileset c = createTileset("c", 5000, 4);
+        map.addTileset(a);
+        map.addTileset(b);
+        map.addTileset(c);
+
+        assertNull(map.getTileForTileGID(0));
+        assertSame(a.getTile(0), map.getTileForTileGID(1));
+        assertSame(a.getTile(9), map.getTileForTileGID(10));
+        assertSame(b.getTile(0), map.getTileForTileGID(11));
+        assertSame(b.getTile(299), map.getTileForTileGID(310));
+        assertSame(c.getTile(3), map.getTileForTileGID(5003));
+        assertThrows(IllegalArgumentException.class, () -> map.getTileForTileGID(311));
+        assertThrows(IllegalArgumentException.class, () -> map.getTileForTileGID(5004));
+    }
+
+    @Test void updateWhenTilesetsChange() {
+        TiledMap map = new TiledMap(10, 10);
+        Tileset a = createTileset("a", 1, 10);
+        Tileset b = createTileset("b", 11, 10);
+        map.addTileset(a);
+        assertThrows(IllegalArgumentException.class, () -> map.getTileForTileGID(12));
+
+        map.addTileset(b);
+        assertSame(b.getTile(1), map.getTileForTileGID(12));
+
+        map.removeTileset(b);
+        assertThrows(IllegalArgumentException.class, () -> map.getTileForTileGID(12));
+        assertSame(a.getTile(1), map.getTileForTileGID(2));
+    }
+
+    @Test void resolveTileAddedAfterLookup() {
+        TiledMap map = new TiledMap(10, 10);
+        Tileset a = createTileset("a", 1, 10);
+        map.addTileset(a);
+        assertSame(a.getTile(0), map.getTileForTileGID(1));
+
+        a.addNewTile(new Tile(0, 16, 16, 16));
+        assertSame(a.getTile(10), map.getTileForTileGID(11));
+    }
+}
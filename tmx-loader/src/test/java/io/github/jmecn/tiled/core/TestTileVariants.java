@@ -0,0 +1,62 @@
+package io.github.jmecn.tiled.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestTileVariants {
+
+    @Test void shareFlippedVariants() {
+        TiledMap map = new TiledMap(4, 4);
+        Tileset tileset = TestTileTable.createTileset("a", 1, 10);
+        map.addTileset(tileset);
+
+        int flipped = 3 | Tile.FLIPPED_HORIZONTALLY_FLAG;
+        int rotated = 3 | Tile.FLIPPED_DIAGONALLY_FLAG | Tile.FLIPPED_VERTICALLY_FLAG;
+
+        TileLayer layer = new TileLayer(4, 4);
+        map.setTilesFromTileIds(layer, new int[]{
+                3, flipped, flipped, rotated,
+                flipped, flipped, rotated, 3,
+                0, 0, 0, 0,
+                0, 0, 0, 0});
+
+        Tile tile = tileset.getTile(2);
+        assertSame(tile, layer.getTileAt(0, 0));
+        assertSame(tile, layer.getTileAt(3, 1));
+
+        Tile h = layer.getTileAt(1, 0);
+        assertNotSame(tile, h);
+        assertEquals(flipped, h.getGid());
+        assertTrue(h.isFlippedHorizontally());
+        assertSame(tileset, h.getTileset());
+        assertSame(h, layer.getTileAt(2, 0));
+        assertSame(h, layer.getTileAt(0, 1));
+        assertSame(h, map.getTileForTileId(flipped));
+
+        Tile r = layer.getTileAt(3, 0);
+        assertNotSame(h, r);
+        assertEquals(rotated, r.getGid());
+        assertSame(r, layer.getTileAt(2, 1));
+    }
+
+    @Test void removeVariantsWithTileset() {
+        TiledMap map = new TiledMap(2, 1);
+        Tileset tileset = TestTileTable.createTileset("a", 1, 10);
+        map.addTileset(tileset);
+
+        TileLayer layer = new TileLayer(2, 1);
+        map.addLayer(layer);
+        map.setTilesFromTileIds(layer, new int[]{1, 1 | Tile.FLIPPED_VERTICALLY_FLAG});
+        assertNotNull(layer.getTileAt(1, 0));
+
+        map.removeTileset(tileset);
+        assertNull(layer.getTileAt(0, 0));
+        assertNull(layer.getTileAt(1, 0));
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.jmecn.tiled.core;
+
+import io.github.jmecn.tiled.enums.TileStorage;
+
+import java.util.Random;
+
+/**
+ * Compares the {@link TileStorage} of a tile layer: the heap retained by a large layer,
+ * and the time to iterate over its cells, by global id and by tile.
+ *
+ * @author yanmaoyuan
+ */
+public class TileStorageBenchmark {
+
+    private static final int WIDTH = 2048;
+    private static final int HEIGHT = 2048;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 10;
+
+    interface Visitor {
+        long visit(TileLayer layer);
+    }
+
+    static long sumTileIds(TileLayer layer) {
+        long sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                sum += layer.getTileIdAt(x, y);
+            }
+        }
+        return sum;
+    }
+
+    static long sumTiles(TileLayer layer) {
+        long sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                Tile tile = layer.getTileAt(x, y);
+                if (tile != null) {
+                    sum += tile.getGid();
+                }
+            }
+        }
+        return sum;
+    }
+
+    static double measure(Visitor visitor, TileLayer layer) {
+        long sum = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sum += visitor.visit(layer);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += visitor.visit(layer);
+        }
+        double time = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        if (sum == 0) {
+            throw new IllegalStateException("No tile found");
+        }
+        return time;
+    }
+
+    static TileLayer createLayer(TiledMap map, TileStorage storage, int[] tileIds) {
+        TileLayer layer = new TileLayer(map, WIDTH, HEIGHT, storage);
+        map.setTilesFromTileIds(layer, tileIds);
+        return layer;
+    }
+
+    public static void main(String[] args) {
+        TiledMap map = new TiledMap(WIDTH, HEIGHT);
+        map.addTileset(TestTileTable.createTileset("tiles", 1, 256));
+
+        Random random = new Random(1);
+        int[] tileIds = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < tileIds.length; i++) {
+            tileIds[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(256);
+        }
+
+        System.out.printf("%dx%d tiles%n", WIDTH, HEIGHT);
+        System.out.printf("%-8s %12s %12s %12s%n", "storage", "heap", "tile ids", "tiles");
+        for (TileStorage storage : TileStorage.values()) {
+            long base = TileVariantBenchmark.usedHeap();
+            TileLayer layer = createLayer(map, storage, tileIds);
+            long heap = TileVariantBenchmark.usedHeap() - base;
+
+            double ids = measure(TileStorageBenchmark::sumTileIds, layer);
+            double tiles = measure(TileStorageBenchmark::sumTiles, layer);
+            System.out.printf("%-8s %9.1f MB %9.3f ms %9.3f ms%n", storage, heap / 1048576.0, ids, tiles);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.jmecn.tiled.core;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compares the gid lookup of {@link TiledMap#getTileForTileGID(int)} with the former
+ * floor lookup on the firstgid followed by the lookup in the tileset, on a map with
+ * many tilesets.
+ *
+ * @author yanmaoyuan
+ */
+public class TileTableBenchmark {
+
+    private static final int TILESETS = 16;
+    private static final int TILES_PER_TILESET = 256;
+    private static final int COUNT = 1024 * 1024;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 20;
+
+    interface Lookup {
+        Tile get(int gid);
+    }
+
+    static double measure(Lookup lookup, int[] gids) {
+        int found = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            for (int gid : gids) {
+                found += lookup.get(gid) != null ? 1 : 0;
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int gid : gids) {
+                found += lookup.get(gid) != null ? 1 : 0;
+            }
+        }
+        double time = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        if (found == 0) {
+            throw new IllegalStateException("No tile found");
+        }
+        return time;
+    }
+
+    public static void main(String[] args) {
+        TiledMap map = new TiledMap(1024, 1024);
+        TreeMap<Integer, Tileset> tilesetPerFirstGid = new TreeMap<>();
+        int firstGid = 1;
+        for (int i = 0; i < TILESETS; i++) {
+            Tileset tileset = TestTileTable.createTileset("tileset" + i, firstGid, TILES_PER_TILESET);
+            map.addTileset(tileset);
+            tilesetPerFirstGid.put(firstGid, tileset);
+            firstGid += TILES_PER_TILESET;
+        }
+
+        Random random = new Random(1);
+        int[] gids = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            gids[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(TILESETS * TILES_PER_TILESET);
+        }
+
+        Lookup floorLookup = gid -> {
+            Map.Entry<Integer, Tileset> ts = tilesetPerFirstGid.floorEntry(gid);
+            return ts == null ? null : ts.getValue().getTile(gid - ts.getKey());
+        };
+
+        System.out.printf("%d tilesets, %d lookups%n", TILESETS, COUNT);
+        System.out.printf("%-8s %9.3f ms%n", "floor", measure(floorLookup, gids));
+        System.out.printf("%-8s %9.3f ms%n", "table", measure(map::getTileForTileGID, gids));
+    }
+}
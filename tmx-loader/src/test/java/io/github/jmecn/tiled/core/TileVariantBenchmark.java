@@ -0,0 +1,73 @@
+package io.github.jmecn.tiled.core;
+
+import java.util.Random;
+
+/**
+ * Measures the heap retained by a heavily mirrored layer, with one copy of the tile
+ * per flipped cell as it was done before, and with the shared variants of
+ * {@link TiledMap#getTileForTileId(int)}.
+ *
+ * @author yanmaoyuan
+ */
+public class TileVariantBenchmark {
+
+    private static final int WIDTH = 512;
+    private static final int HEIGHT = 512;
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The decoding as it was done before: a copy of the tile for every flipped cell.
+     */
+    static void setTilesWithCopies(TiledMap map, TileLayer layer, int[] tileIds) {
+        int i = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int tileId = tileIds[i++];
+                Tile tile = map.getTileForTileGID(tileId & ~Tile.FLIPPED_MASK);
+                if (tile != null && tile.getGid() != tileId) {
+                    tile = tile.copy();
+                    tile.setGid(tileId);
+                }
+                layer.setTileAt(x, y, tile);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        TiledMap map = new TiledMap(WIDTH, HEIGHT);
+        map.addTileset(TestTileTable.createTileset("walls", 1, 64));
+
+        // mirrored walls, most of the cells are flipped
+        Random random = new Random(1);
+        int[] tileIds = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < tileIds.length; i++) {
+            tileIds[i] = (1 + random.nextInt(8)) | (random.nextInt(8) << 29);
+        }
+
+        long base = usedHeap();
+        TileLayer copies = new TileLayer(WIDTH, HEIGHT);
+        setTilesWithCopies(map, copies, tileIds);
+        long copiesHeap = usedHeap() - base;
+
+        base = usedHeap();
+        TileLayer shared = new TileLayer(WIDTH, HEIGHT);
+        map.setTilesFromTileIds(shared, tileIds);
+        long sharedHeap = usedHeap() - base;
+
+        System.out.printf("%dx%d mirrored tiles%n", WIDTH, HEIGHT);
+        System.out.printf("%-8s %9.1f MB%n", "copies", copiesHeap / 1048576.0);
+        System.out.printf("%-8s %9.1f MB%n", "shared", sharedHeap / 1048576.0);
+
+        // keep the layers reachable until measured
+        if (copies.getTileAt(0, 0) == null || shared.getTileAt(0, 0) == null) {
+            throw new IllegalStateException();
+        }
+    }
+}
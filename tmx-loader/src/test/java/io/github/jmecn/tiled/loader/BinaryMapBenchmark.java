@@ -0,0 +1,101 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.TiledMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the load time of the example maps from their .tmx file and from their binary
+ * snapshot, a .tmxb file.
+ *
+ * <p>"cold" loads each map with a new AssetManager, the images are loaded too. "warm" loads
+ * it again with the same AssetManager: the images, external tilesets and templates are
+ * cached, only the map is read again.</p>
+ *
+ * <p>Run it from the tmx-loader folder, so the examples can be found. Pass map names
+ * relative to the examples folder as arguments to benchmark other maps.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class BinaryMapBenchmark {
+
+    private static final String[] MAPS = {"sewers.tmx", "csvmap.tmx", "Desert/desert.tmx",
+            "Orthogonal/orthogonal-outside.tmx", "Isometric/isometric_grass_and_water.tmx",
+            "BeatBoss/forest.tmx", "sticker-knight/map/sandbox.tmx"};
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    private final Path folder;
+
+    public BinaryMapBenchmark(Path folder) {
+        this.folder = folder;
+    }
+
+    private double cold(String map) {
+        for (int i = 0; i < WARMUP; i++) {
+            TestAssets.createAssetManager(folder.toString()).loadAsset(map);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            TestAssets.createAssetManager(folder.toString()).loadAsset(map);
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    private double warm(String map) {
+        AssetManager assetManager = TestAssets.createAssetManager(folder.toString());
+        AssetKey<TiledMap> key = new AssetKey<>(map);
+        for (int i = 0; i < WARMUP; i++) {
+            assetManager.loadAsset(key);
+            assetManager.deleteFromCache(key);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assetManager.loadAsset(key);
+            assetManager.deleteFromCache(key);
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    /**
+     * Write the snapshot of a map into the folder, next to where the .tmx is in the examples.
+     *
+     * @return the name of the snapshot
+     */
+    private String writeSnapshot(String map) throws IOException {
+        String snapshot = map + "b";
+        File file = folder.resolve(snapshot).toFile();
+        file.getParentFile().mkdirs();
+        TiledMap tiledMap = (TiledMap) TestAssets.createAssetManager(folder.toString()).loadAsset(map);
+        new BinaryMapWriter().write(tiledMap, file);
+        return snapshot;
+    }
+
+    private void run(String map) throws IOException {
+        String snapshot = writeSnapshot(map);
+        long tmxSize = new File("../examples", map).length();
+        long snapshotSize = folder.resolve(snapshot).toFile().length();
+
+        System.out.printf("%-45s %-5s %10.3f ms %10.3f ms %8d KB%n", map, "tmx", cold(map), warm(map), tmxSize / 1024);
+        System.out.printf("%-45s %-5s %10.3f ms %10.3f ms %8d KB%n", map, "tmxb", cold(snapshot), warm(snapshot), snapshotSize / 1024);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] maps = args.length > 0 ? args : MAPS;
+
+        Path folder = Files.createTempDirectory("tmxb");
+        BinaryMapBenchmark benchmark = new BinaryMapBenchmark(folder);
+        System.out.printf("%-45s %-5s %13s %13s %11s%n", "map", "file", "cold", "warm", "size");
+        for (String map : maps) {
+            benchmark.run(map);
+        }
+        System.out.println("The snapshots are in " + folder);
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.enums.DataCompression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Compares the sequential decoding of the layers with the parallel decoding of a
+ * {@link TmxMapKey}, on a generated map with many large zlib compressed layers.
+ * Pass the parallelism levels to run as arguments, e.g. "2 4 8".
+ *
+ * <p>Run it from the tmx-loader folder, so the tileset image can be found. The speed-up
+ * is only meaningful on a machine with at least as many processors as the parallelism.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class LayerDecodeBenchmark {
+
+    private static final int WIDTH = 512;
+    private static final int HEIGHT = 512;
+    private static final int LAYERS = 16;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 10;
+
+    static String createMap() throws IOException {
+        Random random = new Random(1);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<map version=\"1.10\" orientation=\"orthogonal\" renderorder=\"right-down\" width=\"")
+                .append(WIDTH).append("\" height=\"").append(HEIGHT)
+                .append("\" tilewidth=\"24\" tileheight=\"24\" infinite=\"0\" nextlayerid=\"")
+                .append(LAYERS + 1).append("\" nextobjectid=\"1\">\n");
+        sb.append(" <tileset firstgid=\"1\" name=\"sewer_tileset\" tilewidth=\"24\" tileheight=\"24\" tilecount=\"192\" columns=\"16\">\n");
+        sb.append("  <image source=\"sewer_tileset.png\" width=\"384\" height=\"288\"/>\n");
+        sb.append(" </tileset>\n");
+
+        int[] tileIds = new int[WIDTH * HEIGHT];
+        for (int layer = 1; layer <= LAYERS; layer++) {
+            for (int i = 0; i < tileIds.length; i++) {
+                tileIds[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(192);
+            }
+            sb.append(" <layer id=\"").append(layer).append("\" name=\"Layer ").append(layer)
+                    .append("\" width=\"").append(WIDTH).append("\" height=\"").append(HEIGHT).append("\">\n");
+            sb.append("  <data encoding=\"base64\" compression=\"zlib\">\n   ");
+            sb.append(TestTileDataDecoder.encode(tileIds, DataCompression.ZLIB));
+            sb.append("\n  </data>\n");
+            sb.append(" </layer>\n");
+        }
+        sb.append("</map>\n");
+        return sb.toString();
+    }
+
+    static double measure(byte[] tmx, int parallelism) throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TmxMapKey key = new TmxMapKey("generated.tmx");
+        key.setParallelism(parallelism);
+
+        for (int i = 0; i < WARMUP; i++) {
+            new MapLoader(assetManager, key).load(new ByteArrayInputStream(tmx));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            new MapLoader(assetManager, key).load(new ByteArrayInputStream(tmx));
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] levels = {2, 4, 8};
+        if (args.length > 0) {
+            levels = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                levels[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        byte[] tmx = createMap().getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%d layers of %dx%d tiles, %d KB, %d processors%n", LAYERS, WIDTH, HEIGHT,
+                tmx.length / 1024, Runtime.getRuntime().availableProcessors());
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            System.out.println("Only one processor, the parallel decoding can't be faster here.");
+        }
+        System.out.printf("%-12s %12s %9s%n", "parallelism", "time", "speed-up");
+        double sequential = measure(tmx, 0);
+        System.out.printf("%-12s %9.3f ms %8.2fx%n", "sequential", sequential, 1.0);
+        for (int parallelism : levels) {
+            double time = measure(tmx, parallelism);
+            System.out.printf("%-12d %9.3f ms %8.2fx%n", parallelism, time, sequential / time);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.enums.TileStorage;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestBinaryMap {
+
+    private static final Path EXAMPLES = Paths.get("../examples");
+
+    private static List<String> listExampleMaps() throws IOException {
+        try (Stream<Path> files = Files.walk(EXAMPLES)) {
+            return files.filter(path -> path.toString().endsWith(".tmx"))
+                    .map(path -> EXAMPLES.relativize(path).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test void roundTripExampleMaps() throws IOException {
+        List<String> maps = listExampleMaps();
+        assertFalse(maps.isEmpty());
+
+        BinaryMapWriter writer = new BinaryMapWriter();
+        for (String name : maps) {
+            TiledMap tmx = (TiledMap) TestAssets.createAssetManager().loadAsset(name);
+            byte[] bytes = toBytes(writer.write(tmx));
+
+            TiledMap binary = new BinaryMapLoader(TestAssets.createAssetManager(), new TmxMapKey(name + "b"))
+                    .load(ByteBuffer.wrap(bytes));
+            assertSameMap(name, tmx, binary);
+
+            // nothing is lost by the reader
+            assertArrayEquals(bytes, toBytes(writer.write(binary)));
+        }
+    }
+
+    @Test void loadWithAssetManager() throws IOException {
+        Path folder = Files.createTempDirectory("tmxb");
+        File file = folder.resolve("sewers.tmxb").toFile();
+        try {
+            AssetManager assetManager = TestAssets.createAssetManager();
+            TiledMap tmx = (TiledMap) assetManager.loadAsset("sewers.tmx");
+            new BinaryMapWriter().write(tmx, file);
+
+            assetManager.registerLocator(folder.toString(), FileLocator.class);
+            TiledMap binary = (TiledMap) assetManager.loadAsset("sewers.tmxb");
+            assertSameMap("sewers.tmxb", tmx, binary);
+
+            // the map is cached by its name and its tile storage
+            TmxMapKey key = new TmxMapKey("sewers.tmxb");
+            key.setTileStorage(TileStorage.GIDS);
+            TiledMap gids = assetManager.loadAsset(key);
+            assertEquals(TileStorage.GIDS, ((TileLayer) gids.getLayer(0)).getTileStorage());
+            assertSameMap("sewers.tmxb", tmx, gids);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(folder);
+        }
+    }
+
+    @Test void roundTripInfiniteMap() throws IOException {
+        TiledMap tmx = TestInfiniteMap.load(1);
+        ByteBuffer bytes = new BinaryMapWriter().write(tmx);
+        TiledMap binary = new BinaryMapLoader(TestAssets.createAssetManager(), new TmxMapKey("infinite.tmxb")).load(bytes);
+        TestInfiniteMap.assertChunks(binary);
+    }
+
+    @Test void refuseOtherVersions() {
+        TiledMap tmx = (TiledMap) TestAssets.createAssetManager().loadAsset("csvmap.tmx");
+        ByteBuffer bytes = new BinaryMapWriter().write(tmx);
+        bytes.putInt(BinaryMapFormat.MAGIC.length, BinaryMapFormat.VERSION + 1);
+
+        BinaryMapLoader loader = new BinaryMapLoader(TestAssets.createAssetManager(), new TmxMapKey("csvmap.tmxb"));
+        assertThrows(IllegalArgumentException.class, () -> loader.load(bytes));
+        assertThrows(IllegalArgumentException.class, () -> loader.load(ByteBuffer.wrap("<map/>".getBytes())));
+    }
+
+    @Test void reportTruncatedFiles() {
+        TiledMap tmx = (TiledMap) TestAssets.createAssetManager().loadAsset("csvmap.tmx");
+        ByteBuffer bytes = new BinaryMapWriter().write(tmx);
+        bytes.limit(bytes.limit() / 2);
+
+        BinaryMapLoader loader = new BinaryMapLoader(TestAssets.createAssetManager(), new TmxMapKey("csvmap.tmxb"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> loader.load(bytes));
+        assertTrue(e.getCause() instanceof BufferUnderflowException);
+    }
+
+    @Test void loadFromFileStream() throws IOException {
+        TiledMap tmx = (TiledMap) TestAssets.createAssetManager().loadAsset("sewers.tmx");
+        File file = File.createTempFile("sewers", ".tmxb");
+        try {
+            new BinaryMapWriter().write(tmx, file);
+            TiledMap binary;
+            try (FileInputStream in = new FileInputStream(file)) {
+                binary = new BinaryMapLoader(TestAssets.createAssetManager(), new TmxMapKey("sewers.tmxb")).load(in);
+            }
+            assertSameMap("sewers.tmxb", tmx, binary);
+        } finally {
+            // nothing holds the file once it is loaded
+            assertTrue(file.delete());
+        }
+    }
+
+    private static void assertSameMap(String name, TiledMap expected, TiledMap actual) {
+        assertEquals(expected.getOrientation(), actual.getOrientation(), name);
+        assertEquals(expected.getRenderOrder(), actual.getRenderOrder(), name);
+        assertEquals(expected.getWidth(), actual.getWidth(), name);
+        assertEquals(expected.getHeight(), actual.getHeight(), name);
+        assertEquals(expected.getTileWidth(), actual.getTileWidth(), name);
+        assertEquals(expected.getTileHeight(), actual.getTileHeight(), name);
+        assertEquals(expected.getHexSideLength(), actual.getHexSideLength(), name);
+        assertEquals(expected.getStaggerAxis(), actual.getStaggerAxis(), name);
+        assertEquals(expected.getStaggerIndex(), actual.getStaggerIndex(), name);
+        assertEquals(expected.getBackgroundColor(), actual.getBackgroundColor(), name);
+        assertEquals(expected.getProperties(), actual.getProperties(), name);
+
+        assertEquals(expected.getTileSets().size(), actual.getTileSets().size(), name);
+        for (int i = 0; i < expected.getTileSets().size(); i++) {
+            Tileset e = expected.getTileSets().get(i);
+            Tileset a = actual.getTileSets().get(i);
+            assertEquals(e.getName(), a.getName(), name);
+            assertEquals(e.getFirstGid(), a.getFirstGid(), name);
+            assertEquals(e.getTileOffset(), a.getTileOffset(), name);
+            assertEquals(e.size(), a.size(), name);
+            for (Tile te : e) {
+                Tile ta = a.getTile(te.getId());
+                assertEquals(te.getGid(), ta.getGid(), name);
+                assertEquals(te.getX(), ta.getX(), name);
+                assertEquals(te.getY(), ta.getY(), name);
+                assertEquals(te.getWidth(), ta.getWidth(), name);
+                assertEquals(te.getHeight(), ta.getHeight(), name);
+                assertEquals(te.getAnimations().size(), ta.getAnimations().size(), name);
+                assertEquals(te.getProperties(), ta.getProperties(), name);
+                assertEquals(te.getImage() == null ? null : te.getImage().getSource(),
+                        ta.getImage() == null ? null : ta.getImage().getSource(), name);
+                if (te.getImage() != null) {
+                    assertNotNull(ta.getImage().getTexture(), name);
+                }
+            }
+        }
+
+        assertEquals(expected.getObjectTemplates().size(), actual.getObjectTemplates().size(), name);
+        assertEquals(expected.getLayerCount(), actual.getLayerCount(), name);
+        for (int i = 0; i < expected.getLayerCount(); i++) {
+            assertSameLayer(name, expected.getLayer(i), actual.getLayer(i));
+        }
+    }
+
+    private static void assertSameLayer(String map, Layer expected, Layer actual) {
+        assertEquals(expected.getClass(), actual.getClass(), map);
+        assertEquals(expected.getId(), actual.getId(), map);
+        assertEquals(expected.getName(), actual.getName(), map);
+        assertEquals(expected.getProperties(), actual.getProperties(), map);
+        assertEquals(expected.getOpacity(), actual.getOpacity(), 0.0);
+        assertEquals(expected.isVisible(), actual.isVisible(), map);
+        assertEquals(expected.getRenderOffsetX(), actual.getRenderOffsetX(), map);
+        assertEquals(expected.getRenderOffsetY(), actual.getRenderOffsetY(), map);
+        assertEquals(expected.getTintColor(), actual.getTintColor(), map);
+        if (expected instanceof TileLayer) {
+            TileLayer e = (TileLayer) expected;
+            TileLayer a = (TileLayer) actual;
+            for (int y = 0; y < e.getHeight(); y++) {
+                for (int x = 0; x < e.getWidth(); x++) {
+                    Tile te = e.getTileAt(x, y);
+                    Tile ta = a.getTileAt(x, y);
+                    assertEquals(te == null ? 0 : te.getGid(), ta == null ? 0 : ta.getGid(), map + " " + x + "," + y);
+                }
+            }
+        } else if (expected instanceof ObjectGroup) {
+            List<MapObject> e = ((ObjectGroup) expected).getObjects();
+            List<MapObject> a = ((ObjectGroup) actual).getObjects();
+            assertEquals(e.size(), a.size(), map);
+            for (int i = 0; i < e.size(); i++) {
+                MapObject oe = e.get(i);
+                MapObject oa = a.get(i);
+                assertEquals(oe.getId(), oa.getId(), map);
+                assertEquals(oe.getShape(), oa.getShape(), map);
+                assertEquals(oe.getX(), oa.getX(), 0.0);
+                assertEquals(oe.getY(), oa.getY(), 0.0);
+                assertEquals(oe.getTemplate(), oa.getTemplate(), map);
+                assertEquals(oe.getPoints(), oa.getPoints(), map);
+                assertEquals(oe.getProperties(), oa.getProperties(), map);
+                assertEquals(oe.getTile() == null ? 0 : oe.getTile().getGid(),
+                        oa.getTile() == null ? 0 : oa.getTile().getGid(), map);
+            }
+        } else if (expected instanceof ImageLayer) {
+            assertEquals(((ImageLayer) expected).getImage().getSource(), ((ImageLayer) actual).getImage().getSource(), map);
+        } else if (expected instanceof GroupLayer) {
+            GroupLayer e = (GroupLayer) expected;
+            GroupLayer a = (GroupLayer) actual;
+            assertEquals(e.getLayerCount(), a.getLayerCount(), map);
+            for (int i = 0; i < e.getLayerCount(); i++) {
+                assertSameLayer(map, e.getLayer(i), a.getLayer(i));
+            }
+        }
+    }
+}
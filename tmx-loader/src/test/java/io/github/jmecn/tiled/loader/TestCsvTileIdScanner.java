@@ -0,0 +1,43 @@
+package io.github.jmecn.tiled.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestCsvTileIdScanner {
+
+    @Test void scanTileIds() throws IOException {
+        String csv = "\n0,1,2,\n3 , 4,\t5,\n2147483649,4294967295,536870915\n";
+        int[] expected = {0, 1, 2, 3, 4, 5, 0x80000001, 0xFFFFFFFF, 0x20000003};
+        assertArrayEquals(expected, CsvTileIdScanner.scan(csv, 9));
+    }
+
+    @Test void scanInPieces() throws IOException {
+        char[] csv = "12,34,\n56,78".toCharArray();
+        CsvTileIdScanner scanner = new CsvTileIdScanner(4);
+        // split in the middle of a value
+        scanner.scan(csv, 0, 1);
+        scanner.scan(csv, 1, 7);
+        scanner.scan(csv, 8, csv.length - 8);
+        assertArrayEquals(new int[]{12, 34, 56, 78}, scanner.finish());
+    }
+
+    @Test void tileCountMismatch() {
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1,2,3", 4));
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1,2,3,4,5", 4));
+    }
+
+    @Test void malformedData() {
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1,,2", 2));
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1 2", 2));
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1,-2", 2));
+        assertThrows(IOException.class, () -> CsvTileIdScanner.scan("1,4294967296", 2));
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.jmecn.tiled.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestDecodeScheduler {
+
+    @Test void awaitAllTasks() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AtomicInteger decoded = new AtomicInteger();
+            DecodeScheduler scheduler = new DecodeScheduler(executor, 2);
+            for (int i = 0; i < 10; i++) {
+                scheduler.submit(decoded::incrementAndGet);
+            }
+            scheduler.await();
+            assertEquals(10, decoded.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test void abortPendingTasks() throws Exception {
+        // a single thread, so the second task waits for the first one
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService aborting = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger decoded = new AtomicInteger();
+            DecodeScheduler scheduler = new DecodeScheduler(executor, 2);
+            scheduler.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                decoded.incrementAndGet();
+            });
+            scheduler.submit(decoded::incrementAndGet);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            Future<?> abort = aborting.submit(scheduler::abort);
+            while (!scheduler.isAborted()) {
+                Thread.yield();
+            }
+            // the running task is awaited
+            assertFalse(abort.isDone());
+            release.countDown();
+            abort.get(10, TimeUnit.SECONDS);
+
+            // the pending task is never run
+            assertEquals(1, decoded.get());
+        } finally {
+            executor.shutdownNow();
+            aborting.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.texture.plugins.AWTLoader;
+import io.github.jmecn.tiled.TmxLoader;
+import io.github.jmecn.tiled.core.Chunk;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.math2d.TileRect;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestInfiniteMap {
+
+    static final int CHUNK_SIZE = 16;
+    // the chunks of the layer, by tile coordinate
+    static final int[][] CHUNKS = {{-16, -16}, {0, -16}, {16, 0}, {-32, 16}};
+
+    static int gidAt(int x, int y) {
+        return Math.floorMod(x * 7 + y * 13, 5) == 0 ? 0 : 1 + Math.floorMod(x * 3 + y * 5, 192);
+    }
+
+    static String createMap() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<map version=\"1.10\" orientation=\"orthogonal\" renderorder=\"right-down\" width=\"30\" height=\"20\"")
+                .append(" tilewidth=\"24\" tileheight=\"24\" infinite=\"1\" nextlayerid=\"2\" nextobjectid=\"1\">\n");
+        sb.append(" <tileset firstgid=\"1\" name=\"sewer_tileset\" tilewidth=\"24\" tileheight=\"24\" tilecount=\"192\" columns=\"16\">\n");
+        sb.append("  <image source=\"sewer_tileset.png\" width=\"384\" height=\"288\"/>\n");
+        sb.append(" </tileset>\n");
+        sb.append(" <layer id=\"1\" name=\"Tile Layer 1\" width=\"30\" height=\"20\">\n");
+        sb.append("  <data encoding=\"csv\">\n");
+        for (int[] c : CHUNKS) {
+            sb.append("   <chunk x=\"").append(c[0]).append("\" y=\"").append(c[1])
+                    .append("\" width=\"").append(CHUNK_SIZE).append("\" height=\"").append(CHUNK_SIZE).append("\">\n");
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                for (int x = 0; x < CHUNK_SIZE; x++) {
+                    sb.append(gidAt(c[0] + x, c[1] + y)).append(',');
+                }
+                sb.append('\n');
+            }
+            sb.setLength(sb.length() - 2);
+            sb.append("\n   </chunk>\n");
+        }
+        sb.append("  </data>\n");
+        sb.append(" </layer>\n");
+        sb.append("</map>\n");
+        return sb.toString();
+    }
+
+    static TiledMap load(int parallelism) throws IOException {
+        AssetManager assetManager = new DesktopAssetManager();
+        assetManager.registerLocator("../examples", FileLocator.class);
+        assetManager.registerLoader(AWTLoader.class, "jpg", "bmp", "gif", "png", "jpeg");
+        TmxLoader.registerLoader(assetManager);
+        TmxMapKey key = new TmxMapKey("infinite.tmx");
+        key.setParallelism(parallelism);
+        byte[] tmx = createMap().getBytes(StandardCharsets.UTF_8);
+        return new MapLoader(assetManager, key).load(new ByteArrayInputStream(tmx));
+    }
+
+    static void assertChunks(TiledMap map) {
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        assertTrue(layer.isInfinite());
+        assertEquals(CHUNKS.length, layer.getChunks().size());
+        assertEquals(new TileRect(-32, -16, 64, 48), layer.getChunkBounds());
+
+        for (int[] c : CHUNKS) {
+            Chunk chunk = layer.getChunkAt(c[0] + 3, c[1] + 5);
+            assertNotNull(chunk);
+            assertEquals(c[0], chunk.getX());
+            assertEquals(c[1], chunk.getY());
+            for (int y = c[1]; y < c[1] + CHUNK_SIZE; y++) {
+                for (int x = c[0]; x < c[0] + CHUNK_SIZE; x++) {
+                    int gid = gidAt(x, y);
+                    Tile tile = layer.getTileAt(x, y);
+                    if (gid == 0) {
+                        assertNull(tile);
+                    } else {
+                        assertSame(map.getTileForTileGID(gid), tile, x + "," + y);
+                    }
+                }
+            }
+        }
+        assertNull(layer.getTileAt(-1, 20));
+        assertNull(layer.getChunkAt(100, 100));
+    }
+
+    @Test void loadChunks() throws IOException {
+        assertChunks(load(0));
+    }
+
+    @Test void loadChunksInParallel() throws IOException {
+        assertChunks(load(4));
+    }
+
+    @Test void editChunks() throws IOException {
+        TiledMap map = load(0);
+        TileLayer layer = (TileLayer) map.getLayer(0);
+
+        List<Chunk> chunks = layer.getChunks(new TileRect(-4, -8, 2, 4), new ArrayList<>());
+        assertEquals(1, chunks.size());
+        assertEquals(-16, chunks.get(0).getX());
+        assertEquals(2, layer.getChunks(new TileRect(-20, 10, 40, 10), new ArrayList<>()).size());
+
+        // a tile outside the chunks creates a chunk
+        Tile tile = map.getTileForTileGID(10);
+        layer.setNeedUpdated(false);
+        layer.setTileAt(-40, 50, tile);
+        assertSame(tile, layer.getTileAt(-40, 50));
+        assertTrue(layer.isNeedUpdated());
+        Chunk chunk = layer.getChunkAt(-40, 50);
+        assertEquals(-48, chunk.getX());
+        assertEquals(48, chunk.getY());
+        assertTrue(layer.isNeedUpdateAt(-40, 50));
+        assertEquals(new TileRect(-48, -16, 80, 80), layer.getChunkBounds());
+
+        // removing a tile outside the chunks does nothing
+        layer.setTileAt(200, 200, null);
+        assertEquals(CHUNKS.length + 1, layer.getChunks().size());
+    }
+}
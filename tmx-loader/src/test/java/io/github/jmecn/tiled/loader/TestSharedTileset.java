@@ -0,0 +1,171 @@
+package io.github.jmecn.tiled.loader;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestSharedTileset {
+
+    private static final String TILESET = "Desert/desert.tsx";
+
+    private Path folder;
+
+    /**
+     * Write a map of 2x1 cells next to the desert tileset, with the tileset at the given firstgid.
+     * The gids before it belong to an image collection with a single tile.
+     */
+    private String writeMap(String name, int firstGid) throws IOException {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<map version=\"1.0\" orientation=\"orthogonal\" renderorder=\"right-down\" width=\"2\" height=\"1\" tilewidth=\"32\" tileheight=\"32\">\n");
+        if (firstGid > 1) {
+            xml.append(" <tileset firstgid=\"1\" name=\"Collection\" tilewidth=\"265\" tileheight=\"199\">\n");
+            xml.append("  <tile id=\"").append(firstGid - 2).append("\">\n");
+            xml.append("   <image width=\"265\" height=\"199\" source=\"tmw_desert_spacing.png\"/>\n");
+            xml.append("  </tile>\n");
+            xml.append(" </tileset>\n");
+        }
+        xml.append(" <tileset firstgid=\"").append(firstGid).append("\" source=\"desert.tsx\"/>\n");
+        xml.append(" <layer name=\"Ground\" width=\"2\" height=\"1\">\n");
+        xml.append("  <data encoding=\"csv\">").append(firstGid + 29).append(',').append(firstGid).append("</data>\n");
+        xml.append(" </layer>\n");
+        xml.append("</map>\n");
+
+        Path file = folder.resolve("Desert").resolve(name);
+        Files.write(file, xml.toString().getBytes(StandardCharsets.UTF_8));
+        return "Desert/" + name;
+    }
+
+    @BeforeEach void createFolder() throws IOException {
+        folder = Files.createTempDirectory("tmx");
+        Files.createDirectories(folder.resolve("Desert"));
+    }
+
+    @AfterEach void deleteFolder() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.resolve("Desert"))) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder.resolve("Desert"));
+        Files.delete(folder);
+    }
+
+    private static Tileset getDesert(TiledMap map) {
+        return map.getTileset("Desert");
+    }
+
+    private static void assertDesertTiles(TiledMap map, int firstGid) {
+        Tileset desert = getDesert(map);
+        assertEquals(firstGid, desert.getFirstGid());
+        assertEquals("desert.tsx", desert.getSource());
+        for (Tile tile : desert) {
+            assertSame(desert, tile.getTileset());
+            assertEquals(firstGid + tile.getId(), tile.getGid());
+        }
+
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        assertEquals(29, layer.getTileAt(0, 0).getId());
+        assertEquals(firstGid + 29, layer.getTileAt(0, 0).getGid());
+        assertEquals(0, layer.getTileAt(1, 0).getId());
+        assertEquals(firstGid, layer.getTileAt(1, 0).getGid());
+        assertSame(desert, layer.getTileAt(0, 0).getTileset());
+    }
+
+    @Test void shareTilesetBetweenMaps() throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager(folder.toString());
+        TiledMap first = (TiledMap) assetManager.loadAsset(writeMap("first.tmx", 1));
+        TiledMap second = (TiledMap) assetManager.loadAsset(writeMap("second.tmx", 101));
+        assertDesertTiles(first, 1);
+        assertDesertTiles(second, 101);
+
+        // the .tsx is loaded and textured once, each map has its own binding
+        Tileset shared = (Tileset) assetManager.loadAsset(TILESET);
+        assertNotSame(getDesert(first), getDesert(second));
+        assertSame(shared, getDesert(first).getShared());
+        assertSame(shared, getDesert(second).getShared());
+        assertSame(shared.getImage(), getDesert(second).getImage());
+        assertEquals(shared.getTerrains(), getDesert(second).getTerrains());
+        assertSame(shared.getTile(29).getProperties(), getDesert(second).getTile(29).getProperties());
+
+        // the shared tileset is left as it was loaded
+        assertEquals(1, shared.getFirstGid());
+        assertEquals("Desert/desert.tsx", shared.getSource());
+        for (Tile tile : shared) {
+            assertSame(shared, tile.getTileset());
+            assertEquals(1 + tile.getId(), tile.getGid());
+        }
+    }
+
+    @Test void rejectChangesOfSharedTileset() throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager(folder.toString());
+        TiledMap map = (TiledMap) assetManager.loadAsset(writeMap("frozen.tmx", 101));
+        Tileset shared = (Tileset) assetManager.loadAsset(TILESET);
+        assertTrue(shared.isFrozen());
+        assertThrows(IllegalStateException.class, () -> shared.updateFirstGid(101));
+        assertThrows(IllegalStateException.class, () -> shared.setSource("desert.tsx"));
+        assertThrows(IllegalStateException.class, () -> shared.addTile(new Tile()));
+        assertThrows(IllegalStateException.class, () -> shared.putProperty("name", "value"));
+        assertThrows(UnsupportedOperationException.class, () -> shared.getTiles().clear());
+
+        // a binding can be changed, without changing the shared tileset
+        Tileset desert = getDesert(map);
+        assertFalse(desert.isFrozen());
+        desert.putProperty("name", "value");
+        assertFalse(shared.containsKey("name"));
+        assertThrows(UnsupportedOperationException.class, () -> desert.getWangSets().clear());
+        assertDesertTiles(map, 101);
+    }
+
+    @Test void loadMapsWithConflictingFirstGidConcurrently() throws Exception {
+        AssetManager assetManager = TestAssets.createAssetManager(folder.toString());
+        String first = writeMap("concurrent-first.tmx", 1);
+        String second = writeMap("concurrent-second.tmx", 101);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 20; i++) {
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                List<Future<TiledMap>> futures = new ArrayList<>();
+                for (String name : new String[]{first, second}) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        AssetKey<TiledMap> key = new AssetKey<>(name);
+                        TiledMap map = assetManager.loadAsset(key);
+                        assetManager.deleteFromCache(key);
+                        return map;
+                    }));
+                }
+                TiledMap map1 = futures.get(0).get(10, TimeUnit.SECONDS);
+                TiledMap map2 = futures.get(1).get(10, TimeUnit.SECONDS);
+                assertDesertTiles(map1, 1);
+                assertDesertTiles(map2, 101);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
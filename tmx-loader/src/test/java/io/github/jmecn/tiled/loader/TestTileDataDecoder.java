@@ -0,0 +1,100 @@
+package io.github.jmecn.tiled.loader;
+
+import io.github.jmecn.tiled.enums.DataCompression;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test case
+ *
+ * @author yanmaoyuan
+ */
+class TestTileDataDecoder {
+
+    private static final int[] TILE_IDS = {0, 1, 2, 3, 0x80000001, 0x40000002, 0x20000003, 0xE0000004, 65535};
+
+    static String encode(int[] tileIds, DataCompression compression) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tileIds.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(tileIds);
+        byte[] data = buffer.array();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out;
+        switch (compression) {
+            case ZLIB:
+                out = new DeflaterOutputStream(bytes);
+                break;
+            case GZIP:
+                out = new GZIPOutputStream(bytes);
+                break;
+            default:
+                out = bytes;
+                break;
+        }
+        out.write(data);
+        out.close();
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    @Test void decodeUncompressed() throws IOException {
+        String base64 = encode(TILE_IDS, DataCompression.NONE);
+        assertArrayEquals(TILE_IDS, TileDataDecoder.decodeBase64(base64, DataCompression.NONE, TILE_IDS.length));
+    }
+
+    @Test void decodeZlib() throws IOException {
+        String base64 = encode(TILE_IDS, DataCompression.ZLIB);
+        assertArrayEquals(TILE_IDS, TileDataDecoder.decodeBase64(base64, DataCompression.ZLIB, TILE_IDS.length));
+        // the pooled decoder is reused
+        assertArrayEquals(TILE_IDS, TileDataDecoder.decodeBase64(base64, DataCompression.ZLIB, TILE_IDS.length));
+    }
+
+    @Test void decodeGzip() throws IOException {
+        String base64 = encode(TILE_IDS, DataCompression.GZIP);
+        assertArrayEquals(TILE_IDS, TileDataDecoder.decodeBase64(base64, DataCompression.GZIP, TILE_IDS.length));
+    }
+
+    @Test void tileCountMismatch() throws IOException {
+        String base64 = encode(TILE_IDS, DataCompression.ZLIB);
+        assertThrows(IOException.class, () -> TileDataDecoder.decodeBase64(base64, DataCompression.ZLIB, TILE_IDS.length + 1));
+        assertThrows(IOException.class, () -> TileDataDecoder.decodeBase64(base64, DataCompression.ZLIB, TILE_IDS.length - 1));
+    }
+
+    @Test void boundPool() throws Exception {
+        String base64 = encode(TILE_IDS, DataCompression.ZLIB);
+        int threads = TileDataDecoder.MAX_POOL_SIZE * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // more decoders in flight than the pool keeps
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return TileDataDecoder.decodeBase64(base64, DataCompression.ZLIB, TILE_IDS.length);
+                }));
+            }
+            for (Future<int[]> future : futures) {
+                assertArrayEquals(TILE_IDS, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(TileDataDecoder.getPoolSize() <= TileDataDecoder.MAX_POOL_SIZE);
+
+        TileDataDecoder.clearPool();
+        assertEquals(0, TileDataDecoder.getPoolSize());
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.jmecn.tiled.loader;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import io.github.jmecn.tiled.enums.DataCompression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compares the bulk {@link TileDataDecoder} with the former per-tile stream decoding,
+ * for each {@link DataCompression}. Pass the compressions to run as arguments, e.g.
+ * "zlib gzip".
+ *
+ * @author yanmaoyuan
+ */
+public class TileDataBenchmark {
+
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 1024;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 20;
+
+    /**
+     * The decoding as it was done before: one read() call per byte.
+     */
+    static int[] decodeWithStream(String base64, DataCompression compression, int count) throws IOException {
+        byte[] decode = Base64.getDecoder().decode(base64);
+        InputStream is;
+        switch (compression) {
+            case GZIP:
+                is = new GZIPInputStream(new ByteArrayInputStream(decode), count * 4);
+                break;
+            case ZLIB:
+                is = new InflaterInputStream(new ByteArrayInputStream(decode));
+                break;
+            case ZSTANDARD:
+                is = new ZstdInputStream(new ByteArrayInputStream(decode));
+                break;
+            default:
+                is = new ByteArrayInputStream(decode);
+                break;
+        }
+
+        int[] tileIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            int tileId = 0;
+            tileId |= is.read();
+            tileId |= is.read() << 8;
+            tileId |= is.read() << 16;
+            tileId |= is.read() << 24;
+            tileIds[i] = tileId;
+        }
+        return tileIds;
+    }
+
+    static String encode(int[] tileIds, DataCompression compression) throws IOException {
+        if (compression == DataCompression.ZSTANDARD) {
+            String raw = TestTileDataDecoder.encode(tileIds, DataCompression.NONE);
+            return Base64.getEncoder().encodeToString(Zstd.compress(Base64.getDecoder().decode(raw)));
+        }
+        return TestTileDataDecoder.encode(tileIds, compression);
+    }
+
+    interface Decoder {
+        int[] decode(String base64, DataCompression compression, int count) throws IOException;
+    }
+
+    static double measure(Decoder decoder, String base64, DataCompression compression, int count) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            decoder.decode(base64, compression, count);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoder.decode(base64, compression, count);
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = WIDTH * HEIGHT;
+
+        // a tileset of 256 tiles, some of them flipped
+        Random random = new Random(1);
+        int[] tileIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            tileIds[i] = (1 + random.nextInt(256)) | (random.nextInt(8) << 29);
+        }
+
+        DataCompression[] compressions = DataCompression.values();
+        if (args.length > 0) {
+            compressions = new DataCompression[args.length];
+            for (int i = 0; i < args.length; i++) {
+                compressions[i] = "none".equals(args[i]) ? DataCompression.NONE : DataCompression.fromValue(args[i]);
+            }
+        }
+
+        System.out.printf("%dx%d tiles%n", WIDTH, HEIGHT);
+        System.out.printf("%-12s %12s %12s%n", "compression", "stream", "bulk");
+        for (DataCompression compression : compressions) {
+            String base64 = encode(tileIds, compression);
+            double stream = measure(TileDataBenchmark::decodeWithStream, base64, compression, count);
+            double bulk = measure(TileDataDecoder::decodeBase64, base64, compression, count);
+            System.out.printf("%-12s %9.3f ms %9.3f ms%n", compression, stream, bulk);
+        }
+    }
+}
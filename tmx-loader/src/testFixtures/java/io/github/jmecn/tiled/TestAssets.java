@@ -0,0 +1,47 @@
+package io.github.jmecn.tiled;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.ClasspathLocator;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.material.plugins.J3MLoader;
+import com.jme3.shader.plugins.GLSLLoader;
+import com.jme3.texture.plugins.AWTLoader;
+
+/**
+ * The assets of the tests and the benchmarks. The maps are read from the examples folder,
+ * so they must be run from the folder of a module.
+ *
+ * @author yanmaoyuan
+ */
+public final class TestAssets {
+
+    /**
+     * The folder of the example maps, relative to the folder of a module.
+     */
+    public static final String EXAMPLES = "../examples";
+
+    private TestAssets() {
+    }
+
+    /**
+     * Create a new AssetManager, so nothing is cached between two of them. It loads the maps,
+     * their images and the materials of the renderer.
+     *
+     * @param folders the folders searched before the examples folder
+     * @return the asset manager
+     */
+    public static AssetManager createAssetManager(String... folders) {
+        AssetManager assetManager = new DesktopAssetManager();
+        assetManager.registerLocator("/", ClasspathLocator.class);
+        for (String folder : folders) {
+            assetManager.registerLocator(folder, FileLocator.class);
+        }
+        assetManager.registerLocator(EXAMPLES, FileLocator.class);
+        assetManager.registerLoader(J3MLoader.class, "j3md");
+        assetManager.registerLoader(GLSLLoader.class, "vert", "frag", "geom", "tsctrl", "tseval", "glsl", "glsllib");
+        assetManager.registerLoader(AWTLoader.class, "jpg", "bmp", "gif", "png", "jpeg");
+        TmxLoader.registerLoader(assetManager);
+        return assetManager;
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.jmecn.tiled.animation;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.control.AbstractControl;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.renderer.MaterialConst;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays the animations of the tiles of a map.
+ *
+ * <p>Each animation is advanced once per frame, whatever the number of cells showing it,
+ * and the tile position of its current frame is set on the materials shared by these
+ * cells. The tile positions of the frames are computed once, so a frame change
+ * allocates nothing.</p>
+ *
+ * <p>Attach it to the root node of the map, or call {@link #update(float)} every frame.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class AnimationClock extends AbstractControl {
+
+    /**
+     * The state of an animation, same as in AnimatedTileControl.
+     */
+    private static final class Track {
+        private final Animation animation;
+        private final Vector2f[] positions;
+        private final List<Material> materials = new ArrayList<>();
+        private int currentFrameIndex;
+        private float unusedTime;
+
+        Track(Tile tile, Animation animation) {
+            this.animation = animation;
+            this.positions = new Vector2f[animation.getTotalFrames()];
+            for (int i = 0; i < positions.length; i++) {
+                Tile t = tile.getTileset().getTile(animation.getFrame(i).getTileId());
+                positions[i] = new Vector2f(t.getX(), t.getY());
+            }
+        }
+    }
+
+    private final Map<Animation, Track> trackMap = new HashMap<>();
+    private final List<Track> tracks = new ArrayList<>();
+
+    /**
+     * Play the animation of a tile on a material.
+     *
+     * @param tile the animated tile
+     * @param material the material of the cells showing this tile
+     */
+    public void add(Tile tile, Material material) {
+        Animation animation = tile.getAnimations().get(0);
+        Track track = trackMap.get(animation);
+        if (track == null) {
+            track = new Track(tile, animation);
+            trackMap.put(animation, track);
+            tracks.add(track);
+        }
+        track.materials.add(material);
+        material.setVector2(MaterialConst.TILE_POSITION, track.positions[track.currentFrameIndex]);
+    }
+
+    /**
+     * Stop playing an animation on a material.
+     *
+     * @param material the material
+     */
+    public void remove(Material material) {
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            Track track = tracks.get(i);
+            if (track.materials.remove(material) && track.materials.isEmpty()) {
+                tracks.remove(i);
+                trackMap.remove(track.animation);
+            }
+        }
+    }
+
+    public void clear() {
+        tracks.clear();
+        trackMap.clear();
+    }
+
+    /**
+     * @return the number of animations played
+     */
+    public int getAnimationCount() {
+        return tracks.size();
+    }
+
+    /**
+     * @param tile an animated tile
+     * @return the index of the current frame of its animation, or -1 if it is not played
+     */
+    public int getCurrentFrameIndex(Tile tile) {
+        Track track = trackMap.get(tile.getAnimations().get(0));
+        return track != null ? track.currentFrameIndex : -1;
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        float ms = tpf * 1000;
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            Animation anim = track.animation;
+            track.unusedTime += ms;
+            int previous = track.currentFrameIndex;
+            Frame frame = anim.getFrame(previous);
+            while (frame.getDuration() > 0 && track.unusedTime > frame.getDuration()) {
+                track.unusedTime -= frame.getDuration();
+                track.currentFrameIndex = (track.currentFrameIndex + 1) % anim.getTotalFrames();
+                frame = anim.getFrame(track.currentFrameIndex);
+            }
+
+            if (previous != track.currentFrameIndex) {
+                Vector2f position = track.positions[track.currentFrameIndex];
+                List<Material> materials = track.materials;
+                for (int j = 0, m = materials.size(); j < m; j++) {
+                    materials.get(j).setVector2(MaterialConst.TILE_POSITION, position);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // ignore
+    }
+}
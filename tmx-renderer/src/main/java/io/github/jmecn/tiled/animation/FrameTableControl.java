@@ -0,0 +1,34 @@
+package io.github.jmecn.tiled.animation;
+
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.control.AbstractControl;
+import io.github.jmecn.tiled.renderer.texture.TileFrameTable;
+
+/**
+ * This control used to play the animations of a tileset drawn from a data texture.
+ *
+ * @author yanmaoyuan
+ */
+public class FrameTableControl extends AbstractControl {
+
+    private final TileFrameTable frameTable;
+
+    public FrameTableControl(TileFrameTable frameTable) {
+        this.frameTable = frameTable;
+    }
+
+    public TileFrameTable getFrameTable() {
+        return frameTable;
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        frameTable.update(tpf);
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // ignore
+    }
+}
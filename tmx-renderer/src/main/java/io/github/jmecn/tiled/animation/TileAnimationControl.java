@@ -0,0 +1,122 @@
+package io.github.jmecn.tiled.animation;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.Vector2f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.control.AbstractControl;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.renderer.MaterialConst;
+
+import java.io.IOException;
+
+/**
+ * Plays the animation of a tile on the material of its geometry, same as
+ * {@link AnimatedTileControl}, but it keeps the tile positions and the durations of the
+ * frames instead of the tile, so it can be saved in a .j3o file with the geometry.
+ *
+ * @author yanmaoyuan
+ */
+public class TileAnimationControl extends AbstractControl {
+
+    private Vector2f[] positions;
+    private int[] durations;
+
+    private int currentFrameIndex;
+    private float unusedTime;
+    private boolean started;
+
+    /**
+     * Only used by the importer.
+     */
+    public TileAnimationControl() {
+    }
+
+    /**
+     * Play the first animation of a tile.
+     *
+     * @param tile the animated tile
+     */
+    public TileAnimationControl(Tile tile) {
+        Animation animation = tile.getAnimations().get(0);
+        int count = animation.getTotalFrames();
+        positions = new Vector2f[count];
+        durations = new int[count];
+        for (int i = 0; i < count; i++) {
+            Frame frame = animation.getFrame(i);
+            Tile t = tile.getTileset().getTile(frame.getTileId());
+            positions[i] = new Vector2f(t.getX(), t.getY());
+            durations[i] = frame.getDuration();
+        }
+    }
+
+    /**
+     * @return the number of frames of the animation
+     */
+    public int getFrameCount() {
+        return durations.length;
+    }
+
+    public int getCurrentFrameIndex() {
+        return currentFrameIndex;
+    }
+
+    /**
+     * Resets the tile animation.
+     */
+    public void resetAnimation() {
+        currentFrameIndex = 0;
+        unusedTime = 0f;
+        started = false;
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (durations == null || durations.length == 0) {
+            return;
+        }
+
+        int previous = currentFrameIndex;
+        unusedTime += tpf * 1000;
+        while (durations[currentFrameIndex] > 0 && unusedTime > durations[currentFrameIndex]) {
+            unusedTime -= durations[currentFrameIndex];
+            currentFrameIndex = (currentFrameIndex + 1) % durations.length;
+        }
+
+        if (!started || previous != currentFrameIndex) {
+            started = true;
+            ((Geometry) spatial).getMaterial().setVector2(MaterialConst.TILE_POSITION, positions[currentFrameIndex]);
+        }
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // ignore
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(positions, "positions", null);
+        capsule.write(durations, "durations", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        Savable[] savables = capsule.readSavableArray("positions", null);
+        durations = capsule.readIntArray("durations", null);
+        if (savables != null) {
+            positions = new Vector2f[savables.length];
+            System.arraycopy(savables, 0, positions, 0, savables.length);
+        }
+        resetAnimation();
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.core.DirtyRegion;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.math2d.TileRect;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+import io.github.jmecn.tiled.renderer.shape.TileBatchMesh;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a tile layer in batches, see {@link MapRenderer#setBatchSize(int)}. Only the
+ * regions with a dirty cell are rebuilt.
+ *
+ * @author yanmaoyuan
+ */
+final class BatchLayerRenderer extends TileLayerRenderer {
+
+    private final TileBatch batch;
+
+    BatchLayerRenderer(MapRenderer renderer, TileLayer layer, int batchSize) {
+        super(renderer, layer);
+        this.batch = new TileBatch(renderer.width, renderer.height, batchSize);
+    }
+
+    @Override
+    boolean render() {
+        DirtyRegion dirtyRegion = layer.getDirtyRegion();
+        if (dirtyRegion == null || dirtyRegion.isEmpty()) {
+            return true;
+        }
+        if (dirtyRegion.getCount() == dirtyRegion.getWidth() * dirtyRegion.getHeight()) {
+            batch.markAll();
+        } else {
+            final int offsetX = layer.getX();
+            final int offsetY = layer.getY();
+            dirtyRegion.forEach((col, row) -> batch.markDirty(col + offsetX, row + offsetY));
+        }
+        dirtyRegion.clear();
+
+        for (int i = batch.nextDirty(0); i >= 0; i = batch.nextDirty(i + 1)) {
+            renderBatch(i);
+        }
+        batch.clearDirty();
+        return true;
+    }
+
+    /**
+     * Rebuild the geometries of a region of the layer. The tiles are added to the meshes in
+     * render order, each one at the same position and depth as its own sprite would be.
+     */
+    private void renderBatch(int region) {
+        Node layerNode = renderer.getLayerNode(layer);
+        List<Geometry> geometries = batch.getGeometries(region);
+        for (Geometry geometry : geometries) {
+            layerNode.detachChild(geometry);
+        }
+        geometries.clear();
+
+        SpriteFactory spriteFactory = renderer.getSpriteFactory();
+        TileMaterialCache materialCache = renderer.getTileMaterialCache();
+        int size = batch.getSize();
+        TileRect rect = new TileRect(batch.getStartX(region), batch.getStartY(region), size, size);
+
+        Map<Material, TileBatchMesh> meshes = new IdentityHashMap<>();
+        renderer.visitTiles(rect, (x, y, zIndex) -> {
+            float z = renderer.getTileYAxis(zIndex);
+
+            Tile tile = layer.getTileAt(x, y);
+            if (tile != null && tile.isAnimated()) {
+                renderer.putTileSprite(layer, x, y, z, tile, renderer.tileToScreenCoords(x, y));
+                return;
+            }
+            if (layer.contains(x, y)) {
+                renderer.removeTileSprite(layer, x, y);
+            }
+            if (tile == null) {
+                return;
+            }
+
+            Material material = materialCache.get(spriteFactory, layer, tile);
+            TileBatchMesh mesh = meshes.get(material);
+            if (mesh == null) {
+                mesh = new TileBatchMesh(size * size);
+                meshes.put(material, mesh);
+            }
+            Vector2f pixelCoord = renderer.tileToScreenCoords(x, y);
+            mesh.add(spriteFactory.getMeshFactory().getTileMesh(tile), pixelCoord.x, z, pixelCoord.y);
+        });
+
+        for (Map.Entry<Material, TileBatchMesh> entry : meshes.entrySet()) {
+            TileBatchMesh mesh = entry.getValue();
+            mesh.update();
+            Geometry geometry = new Geometry("batch#" + region, mesh);
+            geometry.setMaterial(entry.getKey());
+            layerNode.attachChild(geometry);
+            geometries.add(geometry);
+        }
+    }
+}
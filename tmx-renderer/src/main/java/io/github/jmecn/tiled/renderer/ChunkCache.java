@@ -0,0 +1,200 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.core.Chunk;
+import io.github.jmecn.tiled.core.Layer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the scene graph of the chunks of the infinite layers, in least recently used order.
+ *
+ * <p>A chunk that leaves the view is only detached, so it's cheap to show it again. When
+ * there are more chunks or more tile spatials than the budget, the least recently used
+ * chunks that are not attached are evicted, and built again when they're needed. The
+ * attached chunks are never evicted, so the cache may go over the budget when the view
+ * needs more chunks.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class ChunkCache {
+
+    public static final int DEFAULT_MAX_CHUNKS = 256;
+    public static final int DEFAULT_MAX_TILES = 256 * 256;
+
+    /**
+     * The scene graph of a chunk.
+     */
+    static final class Entry {
+        final Layer layer;
+        final Chunk chunk;
+        final Node node;
+        final Spatial[] spatials;
+        int tileCount;
+        boolean attached;
+        // the last render of the layer that needed this chunk
+        int frame;
+
+        Entry(Layer layer, Chunk chunk) {
+            this.layer = layer;
+            this.chunk = chunk;
+            this.node = new Node("chunk#" + chunk.getX() + "," + chunk.getY());
+            this.spatials = new Spatial[chunk.getWidth() * chunk.getHeight()];
+        }
+    }
+
+    private final LinkedHashMap<Chunk, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxChunks = DEFAULT_MAX_CHUNKS;
+    private int maxTiles = DEFAULT_MAX_TILES;
+    private int tileCount;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Get the entry of a chunk and make it the most recently used.
+     *
+     * @return the entry, or null if the chunk is not cached
+     */
+    Entry get(Chunk chunk) {
+        Entry entry = entries.get(chunk);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    void put(Entry entry) {
+        Entry old = entries.put(entry.chunk, entry);
+        if (old != null) {
+            tileCount -= old.tileCount;
+        }
+        tileCount += entry.tileCount;
+    }
+
+    /**
+     * Update the number of tile spatials of an entry.
+     */
+    void addTiles(Entry entry, int count) {
+        entry.tileCount += count;
+        if (entries.get(entry.chunk) == entry) {
+            tileCount += count;
+        }
+    }
+
+    /**
+     * Evict the least recently used chunks that are not attached, until the cache fits in
+     * the budget.
+     */
+    void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxChunks || tileCount > maxTiles) && it.hasNext()) {
+            Entry entry = it.next();
+            if (!entry.attached) {
+                it.remove();
+                tileCount -= entry.tileCount;
+                evictions++;
+            }
+        }
+    }
+
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            entry.node.removeFromParent();
+        }
+        entries.clear();
+        tileCount = 0;
+    }
+
+    public boolean contains(Chunk chunk) {
+        return entries.containsKey(chunk);
+    }
+
+    /**
+     * @return the number of chunks in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of tile spatials of the chunks in the cache
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    /**
+     * Set the maximum number of chunks kept in the cache.
+     *
+     * @param maxChunks the number of chunks
+     */
+    public void setMaxChunks(int maxChunks) {
+        if (maxChunks < 0) {
+            throw new IllegalArgumentException("maxChunks must not be negative: " + maxChunks);
+        }
+        this.maxChunks = maxChunks;
+        evict();
+    }
+
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * Set the maximum number of tile spatials kept in the cache, this is what takes the
+     * memory of a chunk: a geometry and a mesh per tile.
+     *
+     * @param maxTiles the number of tiles
+     */
+    public void setMaxTiles(int maxTiles) {
+        if (maxTiles < 0) {
+            throw new IllegalArgumentException("maxTiles must not be negative: " + maxTiles);
+        }
+        this.maxTiles = maxTiles;
+        evict();
+    }
+
+    /**
+     * @return the number of times a chunk was found in the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times a chunk had to be built
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of chunks evicted to fit in the budget
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkCache[chunks=" + entries.size() + ", tiles=" + tileCount + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
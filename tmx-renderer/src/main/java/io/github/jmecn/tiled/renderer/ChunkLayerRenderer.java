@@ -0,0 +1,145 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.core.Chunk;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.math2d.TileRect;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders an infinite tile layer by chunks, the chunks are kept in the
+ * {@link MapRenderer#getChunkCache() chunk cache} of the map renderer.
+ *
+ * <p>An infinite layer has no fixed size, so the depth of its tiles is given by their
+ * position on screen, in rows and columns of tiles: the tiles further down are drawn on
+ * top, the same as the render order of the fixed size layers. The scale is fixed, the
+ * layer spans {@link #SPAN} rows around the origin of the map, so the depth of a tile never
+ * changes when chunks are added far from it. The tiles beyond are drawn at the first or
+ * the last row.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class ChunkLayerRenderer extends TileLayerRenderer {
+
+    /**
+     * The number of rows, and of columns in a row, that have their own depth in a layer.
+     */
+    static final double SPAN = 1 << 16;
+
+    // the chunks attached to the layer node
+    private final List<ChunkCache.Entry> attached = new ArrayList<>();
+    private int frame;
+
+    private final float tileWidth;
+    private final float tileHeight;
+
+    /**
+     * @param renderer the renderer of the map
+     * @param layer the infinite tile layer
+     */
+    ChunkLayerRenderer(MapRenderer renderer, TileLayer layer) {
+        super(renderer, layer);
+        this.tileWidth = renderer.getTileWidth();
+        this.tileHeight = renderer.getTileHeight();
+    }
+
+    /**
+     * Attach the chunks of the layer inside its visible region, build the chunks missing
+     * from the cache and update the cells changed in the others.
+     */
+    @Override
+    boolean render() {
+        Node layerNode = renderer.getLayerNode(layer);
+        ChunkCache chunkCache = renderer.getChunkCache();
+
+        TileRect region = renderer.getVisibleRegion(layer);
+        List<Chunk> chunks = region == null ? layer.getChunks() : layer.getChunks(region, new ArrayList<>());
+        int current = ++frame;
+        List<ChunkCache.Entry> entries = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            ChunkCache.Entry entry = chunkCache.get(chunk);
+            if (entry == null) {
+                entry = new ChunkCache.Entry(layer, chunk);
+                for (int row = 0; row < chunk.getHeight(); row++) {
+                    for (int col = 0; col < chunk.getWidth(); col++) {
+                        putChunkSprite(entry, col, row);
+                    }
+                }
+                chunkCache.put(entry);
+            } else if (chunk.isNeedUpdated()) {
+                final ChunkCache.Entry e = entry;
+                chunk.getDirtyRegion().forEach((col, row) -> putChunkSprite(e, col, row));
+            }
+            chunk.getDirtyRegion().clear();
+            chunk.setNeedUpdated(false);
+
+            if (!entry.attached) {
+                layerNode.attachChild(entry.node);
+                entry.attached = true;
+            }
+            entry.frame = current;
+            entries.add(entry);
+        }
+
+        // the chunks that left the view stay in the cache
+        for (ChunkCache.Entry entry : attached) {
+            if (entry.frame != current) {
+                layerNode.detachChild(entry.node);
+                entry.attached = false;
+            }
+        }
+        attached.clear();
+        attached.addAll(entries);
+        chunkCache.evict();
+        return true;
+    }
+
+    private void putChunkSprite(ChunkCache.Entry entry, int col, int row) {
+        ChunkCache chunkCache = renderer.getChunkCache();
+        Chunk chunk = entry.chunk;
+        int index = row * chunk.getWidth() + col;
+        Spatial old = entry.spatials[index];
+        if (old != null) {
+            entry.node.detachChild(old);
+            entry.spatials[index] = null;
+            chunkCache.addTiles(entry, -1);
+        }
+
+        Tile tile = chunk.getTileAt(col, row);
+        if (tile != null) {
+            Vector2f pixelCoord = renderer.tileToScreenCoords(chunk.getX() + col, chunk.getY() + row);
+            float z = getTileYAxis(pixelCoord, renderer.layerDistance);
+            SpriteFactory spriteFactory = renderer.getSpriteFactory();
+            Material material = renderer.getTileMaterialCache().get(spriteFactory, layer, tile);
+            Geometry visual = TileSpritePool.newSprite(spriteFactory, tile, material);
+            visual.move(pixelCoord.x, z, pixelCoord.y);
+            entry.node.attachChild(visual);
+            entry.spatials[index] = visual;
+            chunkCache.addTiles(entry, 1);
+        }
+    }
+
+    /**
+     * @param pixelCoord the position of the tile on screen
+     * @param layerDistance the distance between the layers
+     * @return the y-axis of the tile in the layer
+     */
+    float getTileYAxis(Vector2f pixelCoord, double layerDistance) {
+        double row = clamp(pixelCoord.y / tileHeight + SPAN / 2);
+        double col = clamp(pixelCoord.x / tileWidth + SPAN / 2);
+        double rank = row * SPAN + col;
+        return (float) (rank / (SPAN * SPAN) * layerDistance);
+    }
+
+    private static double clamp(double value) {
+        return Math.min(Math.max(value, 0), SPAN - 1);
+    }
+}
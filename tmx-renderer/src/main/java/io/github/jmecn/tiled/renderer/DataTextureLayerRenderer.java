@@ -0,0 +1,141 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.animation.FrameTableControl;
+import io.github.jmecn.tiled.core.DirtyRegion;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.renderer.shape.TileMesh;
+import io.github.jmecn.tiled.renderer.texture.TileDataTexture;
+import io.github.jmecn.tiled.renderer.texture.TileFrameTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders a tile layer from data textures, see {@link MapRenderer#setDataTexture(boolean)}:
+ * one quad per tileset, which draws all the tiles of this tileset in the layer.
+ *
+ * @author yanmaoyuan
+ */
+final class DataTextureLayerRenderer extends TileLayerRenderer {
+
+    static Logger logger = LoggerFactory.getLogger(DataTextureLayerRenderer.class);
+
+    /**
+     * The quad of the tiles from a tileset.
+     */
+    static final class Quad {
+        final TileDataTexture texture;
+        final Geometry geometry;
+
+        Quad(TileDataTexture texture, Geometry geometry) {
+            this.texture = texture;
+            this.geometry = geometry;
+        }
+    }
+
+    private final Map<Tileset, Quad> quads = new LinkedHashMap<>();
+
+    DataTextureLayerRenderer(MapRenderer renderer, TileLayer layer) {
+        super(renderer, layer);
+    }
+
+    Quad getQuad(Tileset tileset) {
+        return quads.get(tileset);
+    }
+
+    Collection<Quad> getQuads() {
+        return quads.values();
+    }
+
+    /**
+     * Write the dirty cells of the layer to its data textures.
+     *
+     * @return false if the layer has tiles that can't be drawn from a data texture
+     */
+    @Override
+    boolean render() {
+        DirtyRegion dirtyRegion = layer.getDirtyRegion();
+        final int offsetX = layer.getX();
+        final int offsetY = layer.getY();
+        final boolean[] supported = {true};
+        dirtyRegion.forEach((col, row) -> {
+            Tile tile = layer.getTileAt(col + offsetX, row + offsetY);
+            if (tile != null && !TileDataTexture.isSupported(renderer.tiledMap, tile)) {
+                supported[0] = false;
+            }
+        });
+
+        Node layerNode = renderer.getLayerNode(layer);
+        if (!supported[0]) {
+            logger.debug("Can't render layer {} from data textures", layer.getName());
+            for (Quad quad : quads.values()) {
+                layerNode.detachChild(quad.geometry);
+            }
+            quads.clear();
+            dirtyRegion.markAll();
+            return false;
+        }
+
+        final int width = renderer.width;
+        final int height = renderer.height;
+        dirtyRegion.forEach((col, row) -> {
+            int x = col + offsetX;
+            int y = row + offsetY;
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return;
+            }
+            Tile tile = layer.getTileAt(x, y);
+            for (Quad quad : quads.values()) {
+                quad.texture.setTileAt(x, y, tile);
+            }
+            if (tile != null && quads.get(tile.getTileset()) == null) {
+                Quad quad = newQuad(tile.getTileset());
+                quads.put(tile.getTileset(), quad);
+                layerNode.attachChild(quad.geometry);
+            }
+        });
+        dirtyRegion.clear();
+        return true;
+    }
+
+    private Quad newQuad(Tileset tileset) {
+        int width = renderer.width;
+        int height = renderer.height;
+        TileDataTexture texture = new TileDataTexture(tileset, layer, width, height);
+
+        int columns = tileset.getColumns();
+        if (columns <= 0) {
+            int spacing = tileset.getSpacing();
+            columns = (tileset.getImage().getWidth() - 2 * tileset.getMargin() + spacing) / (tileset.getTileWidth() + spacing);
+        }
+
+        Material material = renderer.getSpriteFactory().newMaterial(tileset);
+        material.setTexture(MaterialConst.LAYER_DATA, texture.getTexture());
+        material.setVector2(MaterialConst.LAYER_SIZE, new Vector2f(width, height));
+        material.setFloat(MaterialConst.COLUMNS, columns);
+
+        // the quad covers the whole map, the same way as a tile mesh
+        Vector2f size = new Vector2f(width * renderer.tileWidth, height * renderer.tileHeight);
+        TileMesh mesh = new TileMesh(new Vector2f(0, 0), size, new Vector2f(0, 0), new Vector2f(0, size.y));
+        Geometry geometry = new Geometry("layer#" + tileset.getName(), mesh);
+        geometry.setMaterial(material);
+        geometry.addControl(new TileDataControl(texture));
+
+        TileFrameTable frameTable = new TileFrameTable(tileset);
+        if (frameTable.hasAnimations()) {
+            material.setTexture(MaterialConst.FRAME_TABLE, frameTable.getTexture());
+            material.setVector2(MaterialConst.FRAME_TABLE_SIZE, new Vector2f(frameTable.getWidth(), frameTable.getHeight()));
+            geometry.addControl(new FrameTableControl(frameTable));
+        }
+        return new Quad(texture, geometry);
+    }
+}
@@ -10,6 +10,7 @@ import io.github.jmecn.tiled.core.TiledMap;
 import io.github.jmecn.tiled.enums.StaggerAxis;
 import io.github.jmecn.tiled.enums.StaggerIndex;
 import io.github.jmecn.tiled.math2d.Point;
+import io.github.jmecn.tiled.math2d.TileRect;
 import io.github.jmecn.tiled.renderer.shape.HexGrid;
 import io.github.jmecn.tiled.renderer.shape.Hexagon;
 import io.github.jmecn.tiled.renderer.shape.Rect;
@@ -134,6 +135,52 @@ public class HexagonalRenderer extends OrthogonalRenderer {
         }
     }
 
+    @Override
+    public void visitTiles(TileRect region, TileVisitor visitor) {
+        int x0 = Math.max(0, region.getX());
+        int y0 = Math.max(0, region.getY());
+        int x1 = Math.min(width, region.getMaxX());
+        int y1 = Math.min(height, region.getMaxY());
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        Point startTile = screenToTileCoords(0, 0);
+        int x = startTile.getX();
+        int y = startTile.getY();
+        if (staggerX) {
+            // walk the half rows as visitStaggerX, only counting the cells outside the region
+            int tileZIndex = 0;
+            boolean staggeredRow = doStaggerX(x);
+            while (y < y1) {
+                int count = x < width ? (width - x + 1) / 2 : 0;
+                if (y >= y0) {
+                    int from = Math.max(x, x0);
+                    from += (from - x) & 1;
+                    for (int rowX = from; rowX < x1; rowX += 2) {
+                        visitor.visit(rowX, y, tileZIndex + (rowX - x) / 2);
+                    }
+                }
+                tileZIndex += count;
+                if (staggeredRow) {
+                    x -= 1;
+                    y += 1;
+                    staggeredRow = false;
+                } else {
+                    x += 1;
+                    staggeredRow = true;
+                }
+            }
+        } else {
+            int rowWidth = width - x;
+            for (int rowY = Math.max(y, y0); rowY < y1; rowY++) {
+                for (int rowX = Math.max(x, x0); rowX < x1; rowX++) {
+                    visitor.visit(rowX, rowY, (rowY - y) * rowWidth + rowX - x);
+                }
+            }
+        }
+    }
+
     @Override
     public void renderGrid(Node gridVisual, Material gridMaterial) {
         Mesh border = new Rect(mapSize.getX(), mapSize.getY(), false);
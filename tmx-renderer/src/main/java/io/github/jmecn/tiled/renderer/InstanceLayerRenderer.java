@@ -0,0 +1,145 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+import io.github.jmecn.tiled.renderer.shape.TileInstanceMesh;
+
+/**
+ * Renders a tile layer with hardware instancing, see {@link MapRenderer#setInstancing(boolean)}.
+ * The tiles of a tileset are the instances of one geometry, the animated tiles keep their own
+ * sprites.
+ *
+ * @author yanmaoyuan
+ */
+final class InstanceLayerRenderer extends TileLayerRenderer {
+
+    private final TileInstances instances = new TileInstances();
+
+    InstanceLayerRenderer(MapRenderer renderer, TileLayer layer) {
+        super(renderer, layer);
+    }
+
+    TileInstances getInstances() {
+        return instances;
+    }
+
+    /**
+     * Update the instances of the dirty cells of the layer. A cell which stays in the same
+     * tileset is updated in place, otherwise the instances of the tilesets it leaves and
+     * joins are rebuilt, so they are still drawn in render order.
+     */
+    @Override
+    boolean render() {
+        final int width = renderer.width;
+        renderer.visitDirtyTiles(layer, (x, y, z) -> {
+            long cell = TileInstances.key(z, y * width + x);
+            Tile tile = layer.getTileAt(x, y);
+            TileInstances.Group group = null;
+            if (tile != null && tile.isAnimated()) {
+                renderer.putTileSprite(layer, x, y, renderer.getTileYAxis(z), tile, renderer.tileToScreenCoords(x, y));
+            } else {
+                if (layer.contains(x, y)) {
+                    renderer.removeTileSprite(layer, x, y);
+                    layer.setNeedUpdateAt(x, y, false);
+                }
+                if (tile != null) {
+                    group = getGroup(tile);
+                }
+            }
+
+            TileInstances.Group old = instances.getCellGroup(cell);
+            if (group != null && group == old && !group.dirty) {
+                setInstance(group.mesh, group.indexOf(cell), x, y, z, tile);
+                group.changed = true;
+            } else {
+                if (old != null) {
+                    instances.removeCell(old, cell);
+                }
+                if (group != null) {
+                    instances.addCell(group, cell);
+                }
+            }
+        });
+
+        Node layerNode = renderer.getLayerNode(layer);
+        for (TileInstances.Group group : instances.getGroups()) {
+            if (group.dirty) {
+                instances.collectCells(group);
+                if (group.cells.length == 0) {
+                    layerNode.detachChild(group.geometry);
+                    instances.removeGroup(group);
+                    continue;
+                }
+                group.mesh.setCount(group.cells.length);
+                for (int i = 0; i < group.cells.length; i++) {
+                    int cell = TileInstances.getCell(group.cells[i]);
+                    int x = cell % width;
+                    int y = cell / width;
+                    setInstance(group.mesh, i, x, y, TileInstances.getZIndex(group.cells[i]), layer.getTileAt(x, y));
+                }
+                layerNode.attachChild(group.geometry);
+            } else if (!group.changed) {
+                continue;
+            }
+            group.mesh.update();
+            group.dirty = false;
+            group.changed = false;
+        }
+        return true;
+    }
+
+    private TileInstances.Group getGroup(Tile tile) {
+        Object key = TileMaterialCache.getImageSource(tile);
+        TileInstances.Group group = instances.getGroup(key);
+        if (group == null) {
+            // the tint color and the opacity of the layer are in the instances, not in the material
+            SpriteFactory spriteFactory = renderer.getSpriteFactory();
+            Material material = spriteFactory.newMaterial(tile);
+            material.setBoolean(MaterialConst.USE_INSTANCING, true);
+            TileInstanceMesh mesh = new TileInstanceMesh(spriteFactory.getMeshFactory().getTileMesh(tile.getGidNoMask()));
+            group = new TileInstances.Group(key, material, mesh);
+            instances.addGroup(group);
+        }
+        return group;
+    }
+
+    /**
+     * Set the instance of the tile at (x, y), at the same position and depth as its own sprite.
+     */
+    private void setInstance(TileInstanceMesh mesh, int index, int x, int y, int zIndex, Tile tile) {
+        Vector2f pixelCoord = renderer.tileToScreenCoords(x, y);
+        float z = renderer.getTileYAxis(zIndex);
+
+        float rotation = 0f;
+        int flags = 0;
+        if (tile.isFlippedHorizontally()) {
+            flags |= TileInstanceMesh.FLIP_HORIZONTALLY;
+        }
+        if (tile.isFlippedVertically()) {
+            flags |= TileInstanceMesh.FLIP_VERTICALLY;
+        }
+        if (renderer.tiledMap.getOrientation() == Orientation.HEXAGONAL) {
+            // hexagonal tiles are rotated instead of flipped diagonally
+            if (tile.isFlippedAntiDiagonally()) {
+                rotation += FastMath.PI / 3f;
+            }
+            if (tile.isRotatedHexagonal120()) {
+                rotation += FastMath.TWO_PI / 3f;
+            }
+        } else if (tile.isFlippedAntiDiagonally()) {
+            flags |= TileInstanceMesh.FLIP_DIAGONALLY;
+        }
+
+        mesh.setTransform(index, pixelCoord.x, z, pixelCoord.y, rotation);
+        mesh.setTile(index, tile.getX(), tile.getY(), flags);
+        // the tint color and the opacity of the layer are the overrides of the layer node
+        mesh.setColor(index, ColorRGBA.White);
+    }
+}
@@ -7,6 +7,7 @@ import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import io.github.jmecn.tiled.core.TiledMap;
 import io.github.jmecn.tiled.math2d.Point;
+import io.github.jmecn.tiled.math2d.TileRect;
 import io.github.jmecn.tiled.renderer.shape.IsoGrid;
 import io.github.jmecn.tiled.renderer.shape.IsoRect;
 
@@ -48,6 +49,40 @@ public class IsometricRenderer extends MapRenderer {
         }
     }
 
+    @Override
+    public void visitTiles(TileRect region, TileVisitor visitor) {
+        int x0 = Math.max(0, region.getX());
+        int y0 = Math.max(0, region.getY());
+        int x1 = Math.min(width, region.getMaxX());
+        int y1 = Math.min(height, region.getMaxY());
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        // the diagonals crossing the region, the same sweep as above
+        for (int p = x0 + y0; p <= x1 + y1 - 2; p++) {
+            int first = Math.max(0, p - width + 1);
+            int count = (int) (countBefore(p) - first);
+            int from = Math.max(y0, p - x1 + 1);
+            int to = Math.min(y1 - 1, p - x0);
+            for (int y = from; y <= to; y++) {
+                visitor.visit(p - y, y, count + y);
+            }
+        }
+    }
+
+    /**
+     * @param p the index of a diagonal, x + y
+     * @return the number of cells of the map on the diagonals before p
+     */
+    private long countBefore(int p) {
+        return triangle(p) - triangle(p - width) - triangle(p - height) + triangle(p - width - height);
+    }
+
+    private static long triangle(long n) {
+        return n > 0 ? n * (n + 1) / 2 : 0;
+    }
+
     @Override
     public void renderGrid(Node gridVisual, Material gridMaterial) {
         // add boundary
@@ -0,0 +1,56 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.MatParamOverride;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Node;
+import com.jme3.shader.VarType;
+import io.github.jmecn.tiled.core.Layer;
+
+import static io.github.jmecn.tiled.renderer.MaterialConst.*;
+
+/**
+ * The tint color and the opacity of a layer, as material parameter overrides of its node.
+ *
+ * <p>The overrides apply to all the geometries under the node, whatever their material,
+ * so changing the tint color or fading the layer out costs the same for any number of
+ * tiles. The opacity of a single sprite is still its own {@link MaterialConst#OPACITY}.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class LayerOverrides {
+
+    private final ColorRGBA tintColor = new ColorRGBA(ColorRGBA.White);
+    private final MatParamOverride tintColorOverride = new MatParamOverride(VarType.Vector4, TINT_COLOR, tintColor);
+    private final MatParamOverride opacityOverride = new MatParamOverride(VarType.Float, LAYER_OPACITY, 1f);
+    private float opacity = 1f;
+
+    LayerOverrides(Node node) {
+        node.addMatParamOverride(tintColorOverride);
+        node.addMatParamOverride(opacityOverride);
+    }
+
+    /**
+     * Set the tint color and the opacity of the layer to the overrides, if they changed.
+     *
+     * @param layer the layer
+     */
+    void update(Layer layer) {
+        ColorRGBA color = layer.getTintColor() != null ? layer.getTintColor() : ColorRGBA.White;
+        if (!color.equals(tintColor)) {
+            tintColor.set(color);
+        }
+        float layerOpacity = (float) layer.getOpacity();
+        if (layerOpacity != opacity) {
+            opacity = layerOpacity;
+            opacityOverride.setValue(opacity);
+        }
+    }
+
+    ColorRGBA getTintColor() {
+        return tintColor;
+    }
+
+    float getOpacity() {
+        return opacity;
+    }
+}
@@ -0,0 +1,347 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.material.MatParamOverride;
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import io.github.jmecn.tiled.animation.TileAnimationControl;
+import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+import io.github.jmecn.tiled.renderer.shape.TileBatchMesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Bakes the scene of a map, so it can be saved in a .j3o file and loaded with
+ * {@code assetManager.loadModel()} instead of being rendered at every launch.
+ *
+ * <p>The map is rendered by its {@link MapRenderer} with batches of {@link #getBatchSize()}
+ * tiles, then the scene is copied:</p>
+ * <ul>
+ * <li>a node per layer, in render order, with the tint color and the opacity of the layer
+ * as material parameter overrides, and the id of the layer as user data {@link #LAYER_ID}.
+ * The nodes of the hidden layers are culled;</li>
+ * <li>the batches of the tile layers are kept. The other tiles, the animated tiles and the
+ * tiles of the chunks of infinite layers, are merged by material, and the merged animated
+ * tiles are played by a {@link TileAnimationControl};</li>
+ * <li>the sprites of the objects are kept one by one, with the id of their object as user data
+ * {@link #OBJECT_ID}, so they can still be moved or hidden. The animated tile objects are
+ * played by a {@link TileAnimationControl} too;</li>
+ * <li>the meshes of other classes are copied in plain meshes, as the importer needs a
+ * constructor without argument.</li>
+ * </ul>
+ *
+ * <p>The other controls are not baked. The textures are saved by their asset key, so the
+ * images of the map are loaded from the asset manager with the scene.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class MapBaker {
+
+    /**
+     * The user data of a layer node, the id of its layer.
+     */
+    public static final String LAYER_ID = "TiledLayerId";
+
+    /**
+     * The user data of the sprite of an object, the id of its object.
+     */
+    public static final String OBJECT_ID = "TiledObjectId";
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final MapRenderer renderer;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // the plain copies of the meshes, shared as the meshes they copy
+    private final Map<Mesh, Mesh> meshes = new IdentityHashMap<>();
+
+    /**
+     * @param renderer the renderer of the map, with its sprite factory
+     */
+    public MapBaker(MapRenderer renderer) {
+        if (renderer.getSpriteFactory() == null) {
+            throw new IllegalArgumentException("The renderer has no sprite factory");
+        }
+        this.renderer = renderer;
+    }
+
+    /**
+     * @param tiledMap the map
+     * @param spriteFactory the factory of the sprites
+     */
+    public MapBaker(TiledMap tiledMap, SpriteFactory spriteFactory) {
+        this(newRenderer(tiledMap, spriteFactory));
+    }
+
+    private static MapRenderer newRenderer(TiledMap tiledMap, SpriteFactory spriteFactory) {
+        MapRenderer renderer = MapRenderer.create(tiledMap);
+        renderer.setSpriteFactory(spriteFactory);
+        return renderer;
+    }
+
+    public MapRenderer getRenderer() {
+        return renderer;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the size of the batches of the tile layers. Smaller batches are culled closer to the
+     * view, larger ones make fewer draw calls.
+     *
+     * @param batchSize the width and height of a batch in tiles
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Render the whole map and bake its scene. The settings of the renderer are restored
+     * after, so a renderer in use renders its own scene again at its next {@link MapRenderer#render()}.
+     *
+     * @return the root node of the baked scene
+     */
+    public Node bake() {
+        MapBuild build = renderer.getBuild();
+        if (build != null && !build.isDone()) {
+            throw new IllegalStateException("The map is being built in the background");
+        }
+        Camera viewCamera = renderer.getViewCamera();
+        boolean dataTexture = renderer.isDataTexture();
+        boolean instancing = renderer.isInstancing();
+        int rendererBatchSize = renderer.getBatchSize();
+        try {
+            renderer.setViewCamera(null);
+            renderer.setDataTexture(false);
+            renderer.setInstancing(false);
+            renderer.setBatchSize(batchSize);
+            renderer.render();
+            return copyScene();
+        } finally {
+            renderer.setBatchSize(rendererBatchSize);
+            renderer.setInstancing(instancing);
+            renderer.setDataTexture(dataTexture);
+            renderer.setViewCamera(viewCamera);
+        }
+    }
+
+    private Node copyScene() {
+        Node rootNode = renderer.getRootNode();
+        Node scene = new Node(rootNode.getName());
+        scene.setQueueBucket(RenderQueue.Bucket.Opaque);
+        scene.setLocalTransform(rootNode.getLocalTransform());
+
+        meshes.clear();
+        for (Layer layer : renderer.getSortedLayers()) {
+            if (!(layer instanceof GroupLayer)) {
+                scene.attachChild(bake(layer));
+            }
+        }
+        meshes.clear();
+        return scene;
+    }
+
+    /**
+     * Bake the scene of the map and save it.
+     *
+     * @param file the .j3o file
+     * @throws IOException if the file can't be written
+     */
+    public void bake(File file) throws IOException {
+        BinaryExporter.getInstance().save(bake(), file);
+    }
+
+    /**
+     * Bake the scene of the map and save it.
+     *
+     * @param out the stream of the .j3o file
+     * @throws IOException if the stream can't be written
+     */
+    public void bake(OutputStream out) throws IOException {
+        BinaryExporter.getInstance().save(bake(), out);
+    }
+
+    /**
+     * Find the node of a layer in a baked scene. The maps saved before Tiled 1.2 have no
+     * layer id, all their layers have the id 0.
+     *
+     * @param scene the root node of the baked scene
+     * @param layerId the id of the layer
+     * @return the layer node, or null if not found
+     */
+    public static Node getLayerNode(Node scene, int layerId) {
+        for (Spatial child : scene.getChildren()) {
+            Integer id = child.getUserData(LAYER_ID);
+            if (id != null && id == layerId) {
+                return (Node) child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the sprite of an object in a baked scene.
+     *
+     * @param scene the root node of the baked scene
+     * @param objectId the id of the object
+     * @return the sprite of the object, or null if not found
+     */
+    public static Spatial getObjectSpatial(Node scene, int objectId) {
+        for (Spatial layerNode : scene.getChildren()) {
+            for (Spatial child : ((Node) layerNode).getChildren()) {
+                Integer id = child.getUserData(OBJECT_ID);
+                if (id != null && id == objectId) {
+                    return child;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Node bake(Layer layer) {
+        Node layerNode = renderer.getLayerNode(layer);
+        Node baked = newNode(layerNode);
+        baked.setUserData(LAYER_ID, layer.getId());
+        if (!layer.isVisible()) {
+            baked.setCullHint(Spatial.CullHint.Always);
+        }
+
+        if (layer instanceof TileLayer) {
+            bakeTiles(layerNode, baked, renderer.getTileMaterialCache().getAnimatedTiles(layer));
+        } else if (layer instanceof ObjectGroup) {
+            Map<Spatial, MapObject> objects = new IdentityHashMap<>();
+            for (Map.Entry<MapObject, Spatial> e : renderer.getObjectSpatialMap((ObjectGroup) layer).entrySet()) {
+                objects.put(e.getValue(), e.getKey());
+            }
+            for (Spatial child : layerNode.getChildren()) {
+                Spatial sprite = copy(child);
+                MapObject obj = objects.get(child);
+                if (obj != null) {
+                    sprite.setUserData(OBJECT_ID, obj.getId());
+                    Tile tile = obj.getTile();
+                    if (tile != null && tile.isAnimated() && sprite instanceof Geometry) {
+                        sprite.addControl(new TileAnimationControl(tile));
+                    }
+                }
+                baked.attachChild(sprite);
+            }
+        } else {
+            for (Spatial child : layerNode.getChildren()) {
+                baked.attachChild(copy(child));
+            }
+        }
+        return baked;
+    }
+
+    /**
+     * Copy the batches of a node of a tile layer, and merge its tiles by material. The chunks
+     * of an infinite layer are nodes, they are baked the same way.
+     */
+    private void bakeTiles(Node node, Node baked, Map<Material, Tile> animatedTiles) {
+        Map<Material, TileBatchMesh> batches = new IdentityHashMap<>();
+        for (Spatial child : node.getChildren()) {
+            if (child instanceof Node) {
+                Node chunk = newNode(child);
+                bakeTiles((Node) child, chunk, animatedTiles);
+                baked.attachChild(chunk);
+                continue;
+            }
+            Geometry geometry = (Geometry) child;
+            if (geometry.getMesh() instanceof TileBatchMesh || !isTranslation(geometry)) {
+                baked.attachChild(copy(geometry));
+                continue;
+            }
+            TileBatchMesh batch = batches.get(geometry.getMaterial());
+            if (batch == null) {
+                batch = new TileBatchMesh();
+                batches.put(geometry.getMaterial(), batch);
+            }
+            Vector3f position = geometry.getLocalTranslation();
+            batch.add(geometry.getMesh(), position.x, position.y, position.z);
+        }
+
+        for (Map.Entry<Material, TileBatchMesh> e : batches.entrySet()) {
+            TileBatchMesh batch = e.getValue();
+            batch.update();
+            Tile tile = animatedTiles.get(e.getKey());
+            Geometry geometry = new Geometry(tile != null ? "tile#" + tile.getGid() : "tiles", batch);
+            geometry.setMaterial(e.getKey());
+            if (tile != null) {
+                geometry.addControl(new TileAnimationControl(tile));
+            }
+            baked.attachChild(geometry);
+        }
+    }
+
+    private static boolean isTranslation(Spatial spatial) {
+        return Quaternion.IDENTITY.equals(spatial.getLocalRotation())
+                && Vector3f.UNIT_XYZ.equals(spatial.getLocalScale());
+    }
+
+    private Node newNode(Spatial spatial) {
+        Node node = new Node(spatial.getName());
+        copyState(spatial, node);
+        return node;
+    }
+
+    private void copyState(Spatial spatial, Spatial copy) {
+        copy.setLocalTransform(spatial.getLocalTransform());
+        copy.setQueueBucket(spatial.getLocalQueueBucket());
+        copy.setCullHint(spatial.getLocalCullHint());
+        for (MatParamOverride override : spatial.getLocalMatParamOverrides()) {
+            copy.addMatParamOverride((MatParamOverride) override.clone());
+        }
+    }
+
+    /**
+     * Copy a spatial without its controls, with plain meshes.
+     */
+    private Spatial copy(Spatial spatial) {
+        if (spatial instanceof Node) {
+            Node node = newNode(spatial);
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                node.attachChild(copy(child));
+            }
+            return node;
+        }
+        Geometry geometry = (Geometry) spatial;
+        Geometry copy = new Geometry(geometry.getName(), toPlainMesh(geometry.getMesh()));
+        copy.setMaterial(geometry.getMaterial());
+        copyState(geometry, copy);
+        return copy;
+    }
+
+    private Mesh toPlainMesh(Mesh mesh) {
+        if (mesh.getClass() == Mesh.class || mesh instanceof TileBatchMesh) {
+            return mesh;
+        }
+        return meshes.computeIfAbsent(mesh, key -> {
+            Mesh plain = new Mesh();
+            plain.setMode(key.getMode());
+            for (VertexBuffer buffer : key.getBufferList()) {
+                plain.setBuffer(buffer);
+            }
+            plain.updateCounts();
+            plain.updateBound();
+            plain.setStatic();
+            return plain;
+        });
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The build of the scene of a map in the background, see
+ * {@link MapRenderer#renderAsync(com.jme3.app.Application, java.util.concurrent.Executor, Node)}.
+ *
+ * <p>The layers are rendered on a worker thread while the root node of the map is out of
+ * the scene. Then the root node is attached on the update thread, and the spatials of the
+ * layers are attached to their layer node frame by frame, at most {@link #getAttachBudget()}
+ * per frame, so their buffers are sent to the GPU over several frames.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class MapBuild extends AbstractControl {
+
+    public static final int DEFAULT_ATTACH_BUDGET = 256;
+
+    private final CompletableFuture<Spatial> future = new CompletableFuture<>();
+    private final Node rootNode;
+    private final int layerCount;
+
+    // the spatials to attach, and their layer node
+    private final List<Node> parents = new ArrayList<>();
+    private final List<Spatial> children = new ArrayList<>();
+
+    private volatile int builtLayers;
+    private volatile boolean built;
+    private volatile int attached;
+    private volatile int attachBudget;
+
+    MapBuild(Node rootNode, int layerCount, int attachBudget) {
+        this.rootNode = rootNode;
+        this.layerCount = layerCount;
+        setAttachBudget(attachBudget);
+    }
+
+    /**
+     * Called by the worker thread when a layer is rendered.
+     */
+    void layerBuilt() {
+        builtLayers++;
+    }
+
+    /**
+     * Called by the worker thread when all the layers are rendered: detach the spatials of
+     * the layer nodes, to attach them frame by frame.
+     */
+    void detachLayers() {
+        for (Spatial child : rootNode.getChildren()) {
+            if (child instanceof Node) {
+                Node layerNode = (Node) child;
+                for (Spatial spatial : layerNode.getChildren()) {
+                    parents.add(layerNode);
+                    children.add(spatial);
+                }
+                layerNode.detachAllChildren();
+            }
+        }
+    }
+
+    /**
+     * Called on the update thread: attach the root node to the scene and start attaching
+     * the spatials of the layers.
+     *
+     * @param parent the parent of the root node
+     */
+    void attach(Node parent) {
+        if (future.isDone()) {
+            return;
+        }
+        parent.attachChild(rootNode);
+        built = true;
+        if (children.isEmpty()) {
+            finish();
+        } else {
+            rootNode.addControl(this);
+        }
+    }
+
+    /**
+     * Check that no build is running, before changing what a build in the background uses.
+     *
+     * @param build the last build, or null
+     * @throws IllegalStateException if the build is not done
+     */
+    static void checkNotRunning(MapBuild build) {
+        if (build != null && !build.isDone()) {
+            throw new IllegalStateException("The map is being built in the background");
+        }
+    }
+
+    void fail(Throwable throwable) {
+        parents.clear();
+        children.clear();
+        future.completeExceptionally(throwable);
+    }
+
+    private void finish() {
+        if (spatial != null) {
+            spatial.removeControl(this);
+        }
+        parents.clear();
+        children.clear();
+        future.complete(rootNode);
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (future.isDone()) {
+            // cancelled
+            spatial.removeControl(this);
+            return;
+        }
+        int end = Math.min(children.size(), attached + attachBudget);
+        for (int i = attached; i < end; i++) {
+            parents.get(i).attachChild(children.get(i));
+        }
+        attached = end;
+        if (end == children.size()) {
+            finish();
+        }
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // nothing
+    }
+
+    /**
+     * @return the future completed with the root node of the map once all its spatials are attached
+     */
+    public CompletableFuture<Spatial> getFuture() {
+        return future;
+    }
+
+    /**
+     * Get the progress of the build: the first half is the rendering of the layers, the
+     * second half is the attachment of their spatials.
+     *
+     * @return the progress, from 0 to 1
+     */
+    public float getProgress() {
+        if (future.isDone()) {
+            return 1f;
+        }
+        float progress = layerCount == 0 ? 0.5f : 0.5f * builtLayers / layerCount;
+        if (built) {
+            int total = children.size();
+            progress = 0.5f + (total == 0 ? 0.5f : 0.5f * attached / total);
+        }
+        return progress;
+    }
+
+    /**
+     * @return true once the root node is attached to the scene, the map renderer can be used
+     * from the update thread
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    /**
+     * Stop the build. The map renderer is left half built and should be discarded.
+     *
+     * @return true if the build was cancelled, false if it was already done
+     */
+    public boolean cancel() {
+        return future.cancel(false);
+    }
+
+    public int getAttachBudget() {
+        return attachBudget;
+    }
+
+    /**
+     * Set the number of spatials attached per frame.
+     *
+     * @param attachBudget the number of spatials, at least 1
+     */
+    public void setAttachBudget(int attachBudget) {
+        if (attachBudget < 1) {
+            throw new IllegalArgumentException("attachBudget must be positive: " + attachBudget);
+        }
+        this.attachBudget = attachBudget;
+    }
+}
@@ -1,10 +1,12 @@
 package io.github.jmecn.tiled.renderer;
 
+import com.jme3.app.Application;
 import com.jme3.material.Material;
 import com.jme3.math.FastMath;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.renderer.queue.RenderQueue;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
@@ -13,10 +15,12 @@ import com.jme3.scene.Spatial;
 import io.github.jmecn.tiled.core.*;
 import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
 import io.github.jmecn.tiled.math2d.Point;
+import io.github.jmecn.tiled.math2d.TileRect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -74,6 +78,34 @@ public abstract class MapRenderer {
     // for image layer, save the layer image-spatial relation
     protected Map<Layer, Spatial> imageSpatialMap;
     protected Map<Layer, Material> layerMaterialMap;
+    // the tint color and the opacity of the layers, as overrides of the layer nodes
+    protected Map<Layer, LayerOverrides> layerOverridesMap;
+    // for tile layer, the materials shared by the tile sprites
+    protected TileMaterialCache tileMaterialCache;
+    // for tile layer, the geometries of the tile sprites recycled when the cells are edited
+    protected TileSpritePool tileSpritePool;
+    // keeps the moving sprites at the depth of their y coordinate
+    protected YSorter ySorter;
+    // the build in the background, see renderAsync
+    protected volatile MapBuild build;
+    // the number of spatials attached per frame by the builds in the background
+    protected int attachBudget = MapBuild.DEFAULT_ATTACH_BUDGET;
+    // for tile layer, the mode rendering its cells
+    protected Map<Layer, TileLayerRenderer> layerRendererMap;
+    // the width and height in tiles of the batches, 0 to render one geometry per tile
+    protected int batchSize = 0;
+    // render the tile layers with hardware instancing
+    protected boolean instancing = false;
+    // render the tile layers of an orthogonal map with one quad per tileset
+    protected boolean dataTexture = false;
+    // for tile layer, the cells that have spatials when viewCamera is set
+    protected Map<Layer, TileRect> layerVisibleMap;
+    // only render the tiles seen by this camera, null to render all the tiles
+    protected Camera viewCamera;
+    // the number of tiles rendered around the view of the camera
+    protected int viewMargin = 2;
+    // the scene graph of the chunks of the infinite layers
+    protected ChunkCache chunkCache;
 
     protected SpriteFactory spriteFactory;
 
@@ -99,6 +131,15 @@ public abstract class MapRenderer {
         this.objectSpatialMap = new HashMap<>();
         this.imageSpatialMap = new HashMap<>();
         this.layerMaterialMap = new HashMap<>();
+        this.layerOverridesMap = new HashMap<>();
+        this.tileMaterialCache = new TileMaterialCache();
+        this.rootNode.addControl(tileMaterialCache.getAnimationClock());
+        this.tileSpritePool = new TileSpritePool();
+        this.ySorter = new YSorter(this);
+        this.rootNode.addControl(ySorter);
+        this.layerRendererMap = new HashMap<>();
+        this.layerVisibleMap = new HashMap<>();
+        this.chunkCache = new ChunkCache();
         sortLayers();
     }
 
@@ -118,6 +159,7 @@ public abstract class MapRenderer {
     }
 
     public void sortLayers() {
+        MapBuild.checkNotRunning(build);
         List<Layer> layers = new ArrayList<>();
 
         for (Layer layer : tiledMap.getLayers()) {
@@ -155,7 +197,10 @@ public abstract class MapRenderer {
      * @param spriteFactory the sprite factory
      */
     public void setSpriteFactory(SpriteFactory spriteFactory) {
+        MapBuild.checkNotRunning(build);
         this.spriteFactory = spriteFactory;
+        this.tileMaterialCache.clear();
+        this.tileSpritePool.clear();
     }
 
     /**
@@ -166,6 +211,263 @@ public abstract class MapRenderer {
         return spriteFactory;
     }
 
+    /**
+     * Render the tile layers in batches: the map is split in regions of size x size tiles,
+     * and the tiles of a region are merged in one geometry per tileset. Changing a tile only
+     * rebuilds the geometries of its region. The batched tiles have no spatial of their own,
+     * only the animated tiles are still rendered one by one.
+     *
+     * <p>The tile layers already rendered are rendered again with the new mode.</p>
+     *
+     * @param batchSize the width and height of a region in tiles, 0 to render one geometry per tile
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("batchSize must not be negative: " + batchSize);
+        }
+        MapBuild.checkNotRunning(build);
+        if (this.batchSize == batchSize) {
+            return;
+        }
+        this.batchSize = batchSize;
+        resetTileLayers();
+    }
+
+    /**
+     * Render the tile layers with hardware instancing: the tiles of a layer are drawn by one
+     * geometry per tileset, made of one tile quad and a buffer with the position, the tile,
+     * the flip flags and the tint color of each instance. Changing a tile of the same tileset
+     * updates its instance in place. Only the animated tiles are still rendered one by one.
+     *
+     * <p>When enabled, it takes precedence over the batches.</p>
+     *
+     * @param instancing true to render the tile layers with instancing
+     */
+    public void setInstancing(boolean instancing) {
+        MapBuild.checkNotRunning(build);
+        if (this.instancing == instancing) {
+            return;
+        }
+        this.instancing = instancing;
+        resetTileLayers();
+    }
+
+    public boolean isInstancing() {
+        return instancing;
+    }
+
+    /**
+     * Render the tile layers of an orthogonal map from data textures: the tiles of a layer
+     * are stored in a texture with one texel per cell, one texture per tileset, and the layer
+     * is drawn with one quad per tileset. The shader resolves the tile of every pixel, so the
+     * cost of a layer doesn't depend on the size of the map. Changing a tile only writes its
+     * texel, and the animations are played by a frame table texture per tileset.
+     *
+     * <p>It only supports the tiles of image based tilesets with the size of the cells of the
+     * map, the layers with other tiles are rendered with the other modes.</p>
+     *
+     * @param dataTexture true to render the tile layers from data textures
+     */
+    public void setDataTexture(boolean dataTexture) {
+        MapBuild.checkNotRunning(build);
+        if (this.dataTexture == dataTexture) {
+            return;
+        }
+        this.dataTexture = dataTexture;
+        resetTileLayers();
+    }
+
+    public boolean isDataTexture() {
+        return dataTexture;
+    }
+
+    /**
+     * Only render the tiles seen by a camera: the tile layers rendered one tile by one only
+     * have the spatials of the cells inside the view of the camera, plus a margin. The spatials
+     * of the cells that leave the view are released, and created again when they come back.
+     * The view is checked at every {@link #render()}, in the space of every layer node, so the
+     * layers moved by parallax scrolling are culled right.
+     *
+     * <p>The infinite layers only build the chunks near the view, see {@link #getChunkCache()}.
+     * The batches, the instances and the data textures always render the whole layer.</p>
+     *
+     * @param camera the camera, or null to render all the tiles
+     */
+    public void setViewCamera(Camera camera) {
+        MapBuild.checkNotRunning(build);
+        this.viewCamera = camera;
+        if (camera == null) {
+            for (Layer layer : new ArrayList<>(layerVisibleMap.keySet())) {
+                setVisibleRegion((TileLayer) layer, null);
+            }
+        }
+    }
+
+    public Camera getViewCamera() {
+        return viewCamera;
+    }
+
+    /**
+     * Set the number of tiles rendered around the view of the camera, so the tiles larger
+     * than the cells of the map and the tiles next to the view are not culled too early.
+     *
+     * @param viewMargin the margin in tiles
+     */
+    public void setViewMargin(int viewMargin) {
+        if (viewMargin < 0) {
+            throw new IllegalArgumentException("viewMargin must not be negative: " + viewMargin);
+        }
+        MapBuild.checkNotRunning(build);
+        this.viewMargin = viewMargin;
+    }
+
+    public int getViewMargin() {
+        return viewMargin;
+    }
+
+    /**
+     * Get the cells of a tile layer that have spatials.
+     *
+     * @param layer the tile layer
+     * @return the visible region, or null if all the cells are rendered
+     */
+    public TileRect getVisibleRegion(TileLayer layer) {
+        return layerVisibleMap.get(layer);
+    }
+
+    /**
+     * Set the cells of a tile layer that have spatials. The spatials of the cells out of the
+     * new region are released and the cells are marked dirty, so they're created again when
+     * they're in the region.
+     *
+     * @param layer the tile layer
+     * @param region the visible region, or null to render all the cells
+     */
+    protected void setVisibleRegion(TileLayer layer, TileRect region) {
+        TileRect old = layerVisibleMap.get(layer);
+        if (Objects.equals(old, region)) {
+            return;
+        }
+        if (region == null) {
+            layerVisibleMap.remove(layer);
+        } else {
+            layerVisibleMap.put(layer, new TileRect(region));
+        }
+        layer.setNeedUpdated(true);
+
+        Spatial[] spatials = layerSpatialMap.get(layer);
+        if (spatials == null || region == null) {
+            return;
+        }
+        if (old == null) {
+            old = new TileRect(layer.getX(), layer.getY(), layer.getWidth(), layer.getHeight());
+        }
+        Node layerNode = getLayerNode(layer);
+        int x0 = Math.max(old.getX(), layer.getX());
+        int y0 = Math.max(old.getY(), layer.getY());
+        int x1 = Math.min(old.getMaxX(), layer.getX() + layer.getWidth());
+        int y1 = Math.min(old.getMaxY(), layer.getY() + layer.getHeight());
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                if (region.contains(x, y)) {
+                    continue;
+                }
+                int index = (y - layer.getY()) * layer.getWidth() + (x - layer.getX());
+                Spatial spatial = spatials[index];
+                if (spatial != null) {
+                    layerNode.detachChild(spatial);
+                    tileSpritePool.release(spatial);
+                    spatials[index] = null;
+                    layer.setNeedUpdateAt(x, y, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the cells of a layer seen by a camera, in the space of the layer node.
+     *
+     * @param layer the tile layer
+     * @param viewCamera the view camera
+     * @return the cells seen by the camera plus the margin, or null if the camera is parallel to the map
+     */
+    protected TileRect computeVisibleRegion(TileLayer layer, Camera viewCamera) {
+        Node layerNode = getLayerNode(layer);
+        float minX = Float.POSITIVE_INFINITY;
+        float minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxZ = Float.NEGATIVE_INFINITY;
+
+        Vector2f screen = new Vector2f();
+        Vector3f near = new Vector3f();
+        Vector3f far = new Vector3f();
+        for (int i = 0; i < 4; i++) {
+            screen.set((i & 1) * viewCamera.getWidth(), (i >> 1) * viewCamera.getHeight());
+            layerNode.worldToLocal(viewCamera.getWorldCoordinates(screen, 0f, near), near);
+            layerNode.worldToLocal(viewCamera.getWorldCoordinates(screen, 1f, far), far);
+            // where the view ray of this corner crosses the layer
+            float dy = near.y - far.y;
+            if (FastMath.abs(dy) < FastMath.ZERO_TOLERANCE) {
+                return null;
+            }
+            float t = near.y / dy;
+            float x = near.x + (far.x - near.x) * t;
+            float z = near.z + (far.z - near.z) * t;
+            minX = Math.min(minX, x);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        // the tiles of the corners of the view, on screen
+        TileRect region = new TileRect();
+        float[] corners = {minX, minZ, maxX, minZ, minX, maxZ, maxX, maxZ};
+        for (int i = 0; i < corners.length; i += 2) {
+            Point tile = screenToTileCoords(corners[i], corners[i + 1]);
+            region.add(tile.getX(), tile.getY());
+        }
+        region.set(region.getX() - viewMargin, region.getY() - viewMargin,
+                region.getWidth() + viewMargin * 2, region.getHeight() + viewMargin * 2);
+        if (layer.isInfinite()) {
+            return region;
+        }
+        return region.intersectLocal(new TileRect(0, 0, width, height));
+    }
+
+    /**
+     * Get the cache of the chunks of the infinite layers, to set its budget or read its statistics.
+     * @return the chunk cache
+     */
+    public ChunkCache getChunkCache() {
+        return chunkCache;
+    }
+
+    /**
+     * Remove the spatials of the tile layers already rendered, so they are rendered again.
+     */
+    private void resetTileLayers() {
+        for (Layer layer : sortedLayers) {
+            if (layer instanceof TileLayer && layerNodeMap.containsKey(layer)) {
+                TileLayer tileLayer = (TileLayer) layer;
+                getLayerNode(layer).detachAllChildren();
+                Arrays.fill(getLayerSpatials(tileLayer), null);
+                tileLayer.getDirtyRegion().markAll();
+                tileLayer.setNeedUpdated(true);
+            }
+        }
+        layerRendererMap.clear();
+        chunkCache.clear();
+        tileSpritePool.clear();
+    }
+
+    /**
+     * Get the size of the batches
+     * @return the width and height of a batch in tiles, 0 if the tiles are rendered one by one
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public Node getLayerNode(Layer layer) {
         return layerNodeMap.computeIfAbsent(layer, key -> {
             Node node = new Node(layer.getName());
@@ -174,6 +476,16 @@ public abstract class MapRenderer {
         });
     }
 
+    /**
+     * Get the overrides of the tint color and the opacity of a layer, set on its node.
+     *
+     * @param layer the layer
+     * @return the overrides of the layer
+     */
+    LayerOverrides getLayerOverrides(Layer layer) {
+        return layerOverridesMap.computeIfAbsent(layer, key -> new LayerOverrides(getLayerNode(layer)));
+    }
+
     public Spatial[] getLayerSpatials(TileLayer layer) {
         if (layerSpatialMap.containsKey(layer)) {
             return layerSpatialMap.get(layer);
@@ -191,7 +503,8 @@ public abstract class MapRenderer {
 
     /**
      * Sets the spatial at the specified position. Does nothing if (tx, ty) falls
-     * outside of this layer.
+     * outside of this layer. The tint color and the opacity of the layer apply to it
+     * through the overrides of the layer node.
      *
      * @param layer the layer
      * @param tx x position of tile
@@ -199,6 +512,16 @@ public abstract class MapRenderer {
      * @param spatial the spatial to place
      */
     public void setSpatialAt(TileLayer layer, int tx, int ty, Spatial spatial) {
+        MapBuild.checkNotRunning(build);
+        attachSpatialAt(layer, tx, ty, spatial);
+    }
+
+    /**
+     * Places the spatial at the specified position, without changing its material.
+     *
+     * @return false if (tx, ty) falls outside of this layer
+     */
+    private boolean attachSpatialAt(TileLayer layer, int tx, int ty, Spatial spatial) {
         if (layer.contains(tx, ty)) {
 
             Node parent = getLayerNode(layer);
@@ -208,16 +531,18 @@ public abstract class MapRenderer {
             Spatial old = spatials[index];
             if (old != null) {
                 parent.detachChild(old);
+                if (old != spatial) {
+                    tileSpritePool.release(old);
+                }
             }
 
             parent.attachChild(spatial);
             spatials[index] = spatial;
 
             layer.setNeedUpdateAt(tx, ty, false);
-
-            spriteFactory.setTintColor(spatial, layer.getTintColor());
-            spriteFactory.setLayerOpacity(spatial, (float) layer.getOpacity());
+            return true;
         }
+        return false;
     }
 
     public Map<MapObject, Spatial> getObjectSpatialMap(ObjectGroup layer) {
@@ -234,6 +559,11 @@ public abstract class MapRenderer {
     }
 
     public Spatial getOrCreateMapObjectSpatial(ObjectGroup layer, MapObject obj, Material material) {
+        MapBuild.checkNotRunning(build);
+        return findOrCreateMapObjectSpatial(layer, obj, material);
+    }
+
+    private Spatial findOrCreateMapObjectSpatial(ObjectGroup layer, MapObject obj, Material material) {
         Map<MapObject, Spatial> objectMap = getObjectSpatialMap(layer);
 
         Spatial spatial;
@@ -255,6 +585,11 @@ public abstract class MapRenderer {
     }
 
     public Spatial getOrCreateImageLayerSpatial(ImageLayer layer) {
+        MapBuild.checkNotRunning(build);
+        return findOrCreateImageLayerSpatial(layer);
+    }
+
+    private Spatial findOrCreateImageLayerSpatial(ImageLayer layer) {
         if (imageSpatialMap.containsKey(layer)) {
             return imageSpatialMap.get(layer);
         } else {
@@ -271,10 +606,8 @@ public abstract class MapRenderer {
         // cache or create material
         Material material = layerMaterialMap.get(layer);
         if (material == null) {
-            material = spriteFactory.newMaterial(layer.getColor(), layer.getTintColor());
+            material = spriteFactory.newMaterial(layer.getColor());
             layerMaterialMap.put(layer, material);
-        } else {
-            spriteFactory.setTintColor(material, layer.getTintColor());
         }
         return material;
     }
@@ -283,10 +616,8 @@ public abstract class MapRenderer {
         // cache or create material
         Material material = layerMaterialMap.get(layer);
         if (material == null) {
-            material = spriteFactory.newMaterial(layer.getImage(), layer.getTintColor());
+            material = spriteFactory.newMaterial(layer.getImage());
             layerMaterialMap.put(layer, material);
-        } else {
-            spriteFactory.setTintColor(material, layer.getTintColor());
         }
         return material;
     }
@@ -304,35 +635,198 @@ public abstract class MapRenderer {
             return null;
         }
 
+        MapBuild current = build;
+        if (current != null && !current.isDone()) {
+            // the build in the background owns the scene until it's done
+            return rootNode;
+        }
+
         int len = sortedLayers.size();
         for (int i = 0; i < len; i++) {
-            Layer layer = sortedLayers.get(i);
+            renderLayer(i, viewCamera);
+        }
 
-            // skip layer not updated
-            if (!layer.isNeedUpdated() || (layer instanceof GroupLayer)) {
-                continue;
-            }
+        return rootNode;
+    }
 
-            Spatial visual = render(layer);
+    private void renderLayer(int i, Camera camera) {
+        Layer layer = sortedLayers.get(i);
 
-            if (visual != null) {
-                Vector3f loc = visual.getLocalTranslation();
-                visual.setLocalTranslation(loc.x, getLayerYIndex(i), loc.z);
-                layer.setNeedUpdated(false);
-            }
+        if (camera != null && layer instanceof TileLayer) {
+            setVisibleRegion((TileLayer) layer, computeVisibleRegion((TileLayer) layer, camera));
+        }
 
-            if (layer.isVisible()) {
-                rootNode.attachChild(visual);
-            } else {
-                rootNode.detachChild(visual);
-            }
+        // fading or tinting a layer doesn't need to render it again
+        if (!(layer instanceof GroupLayer)) {
+            getLayerOverrides(layer).update(layer);
         }
 
-        return rootNode;
+        // skip layer not updated
+        if (!layer.isNeedUpdated() || (layer instanceof GroupLayer)) {
+            return;
+        }
+
+        Spatial visual = render(layer);
+
+        if (visual != null) {
+            Vector3f loc = visual.getLocalTranslation();
+            visual.setLocalTranslation(loc.x, getLayerYIndex(i), loc.z);
+            layer.setNeedUpdated(false);
+        }
+
+        if (layer.isVisible()) {
+            rootNode.attachChild(visual);
+        } else {
+            rootNode.detachChild(visual);
+        }
+    }
+
+    /**
+     * Render the tiled map in the background, so the update thread doesn't stall on large maps.
+     *
+     * <p>The meshes, the materials and the spatials of the layers are created by the executor,
+     * while the root node is out of the scene. Then the root node is attached to the parent
+     * on the update thread of the application, and the spatials of the layers are attached
+     * frame by frame, {@link #getAttachBudget()} per frame. {@link #render()} does nothing until
+     * the build is done, and the map must not be changed meanwhile. The setters of this renderer,
+     * of its sprite pool and of its material cache throw an {@link IllegalStateException}
+     * until then.</p>
+     *
+     * <p>The view camera is still moved by the update thread, so the build culls the tiles with
+     * a copy of the camera, taken when the build starts.</p>
+     *
+     * @param app the application, to attach the root node on its update thread
+     * @param executor the executor rendering the layers
+     * @param parent the node to attach the root node to
+     * @return the build, with its progress and its future
+     */
+    public MapBuild renderAsync(Application app, Executor executor, Node parent) {
+        return renderAsync(executor, app::enqueue, parent);
+    }
+
+    /**
+     * Render the tiled map in the background, see {@link #renderAsync(Application, Executor, Node)}.
+     *
+     * @param executor the executor rendering the layers
+     * @param updateThread the executor of the tasks on the update thread
+     * @param parent the node to attach the root node to
+     * @return the build, with its progress and its future
+     */
+    public MapBuild renderAsync(Executor executor, Executor updateThread, Node parent) {
+        MapBuild current = build;
+        if (current != null && !current.isDone()) {
+            throw new IllegalStateException("The map is already being built");
+        }
+        if (rootNode.getParent() != null) {
+            throw new IllegalStateException("The root node must be out of the scene while the map is built");
+        }
+
+        MapBuild newBuild = new MapBuild(rootNode, sortedLayers.size(), attachBudget);
+        build = newBuild;
+        tileMaterialCache.setBuild(newBuild);
+        tileSpritePool.setBuild(newBuild);
+        final Camera camera = viewCamera != null ? viewCamera.clone() : null;
+        executor.execute(() -> {
+            try {
+                int len = sortedLayers.size();
+                for (int i = 0; i < len && !newBuild.isCancelled(); i++) {
+                    renderLayer(i, camera);
+                    newBuild.layerBuilt();
+                }
+                newBuild.detachLayers();
+                updateThread.execute(() -> newBuild.attach(parent));
+            } catch (Throwable e) {
+                // complete the build on errors too, or render() would wait for it forever
+                logger.error("Failed to build the map", e);
+                newBuild.fail(e);
+            }
+        });
+        return newBuild;
+    }
+
+    /**
+     * @return the build in the background, null if the map was never rendered in the background
+     */
+    public MapBuild getBuild() {
+        return build;
+    }
+
+    public int getAttachBudget() {
+        return attachBudget;
+    }
+
+    /**
+     * Set the number of spatials attached per frame by the next builds in the background.
+     *
+     * @param attachBudget the number of spatials, at least 1
+     */
+    public void setAttachBudget(int attachBudget) {
+        if (attachBudget < 1) {
+            throw new IllegalArgumentException("attachBudget must be positive: " + attachBudget);
+        }
+        this.attachBudget = attachBudget;
     }
 
     public abstract void visitTiles(TileVisitor visitor);
 
+    /**
+     * Visit the cells of the map inside a region, in render order, with the same z-index as
+     * {@link #visitTiles(TileVisitor)}. Only the cells of the region are visited, so the cost
+     * doesn't depend on the size of the map.
+     *
+     * @param region the region, in tile coordinates
+     * @param visitor the visitor
+     */
+    public abstract void visitTiles(TileRect region, TileVisitor visitor);
+
+    /**
+     * Visit the cells of a tile layer that need to be updated, in render order.
+     *
+     * <p>When only a few cells changed, only the rectangles of the dirty region are visited,
+     * and their dirty cells are sorted by their z-index, otherwise all the cells of the map
+     * are visited and checked.</p>
+     *
+     * @param layer the tile layer
+     * @param visitor the visitor
+     */
+    public void visitDirtyTiles(TileLayer layer, TileVisitor visitor) {
+        DirtyRegion dirtyRegion = layer.getDirtyRegion();
+        if (dirtyRegion == null || dirtyRegion.isEmpty()) {
+            return;
+        }
+
+        if (dirtyRegion.getCount() > width * height / 8) {
+            visitTiles((x, y, z) -> {
+                if (layer.isNeedUpdateAt(x, y)) {
+                    visitor.visit(x, y, z);
+                }
+            });
+            return;
+        }
+
+        // z-index in the high bits, cell index in the low bits
+        final long[] cells = new long[dirtyRegion.getCount()];
+        final int offsetX = layer.getX();
+        final int offsetY = layer.getY();
+        final int[] count = {0};
+        TileRect rect = new TileRect();
+        for (TileRect r : dirtyRegion.getRects()) {
+            // the rectangles are disjoint, a cell is visited once
+            rect.set(r.getX() + offsetX, r.getY() + offsetY, r.getWidth(), r.getHeight());
+            visitTiles(rect, (x, y, z) -> {
+                if (dirtyRegion.isDirty(x - offsetX, y - offsetY)) {
+                    cells[count[0]++] = ((long) z << 32) | (y * width + x);
+                }
+            });
+        }
+        Arrays.sort(cells, 0, count[0]);
+
+        for (int i = 0; i < count[0]; i++) {
+            int index = (int) cells[i];
+            visitor.visit(index % width, index / width, (int) (cells[i] >>> 32));
+        }
+    }
+
     protected Spatial render(Layer layer) {
         if (layer instanceof TileLayer) {
             return render((TileLayer) layer);
@@ -347,20 +841,46 @@ public abstract class MapRenderer {
 
     protected Spatial render(TileLayer layer) {
         Node layerNode = getLayerNode(layer);
+        TileLayerRenderer layerRenderer = getTileLayerRenderer(layer);
+        if (!layerRenderer.render()) {
+            // the layer can't be drawn in this mode, it falls back to the next one
+            layerRenderer = newTileLayerRenderer(layer, false);
+            layerRendererMap.put(layer, layerRenderer);
+            layerRenderer.render();
+        }
+        return layerNode;
+    }
 
-        visitTiles((x, y, z) -> {
-            if (layer.isNeedUpdateAt(x, y)) {
-                final Tile tile = layer.getTileAt(x, y);
-                if (tile == null) {
-                    removeTileSprite(layer, x, y);
-                } else {
-                    Vector2f pixelCoord = tileToScreenCoords(x, y);
-                    putTileSprite(layer, x, y, getTileYAxis(z), tile, pixelCoord);
-                }
-            }
-        });
+    /**
+     * Get the mode rendering the cells of a tile layer, it's picked the first time the layer is
+     * rendered, and again when the mode of this renderer is changed.
+     *
+     * @param layer the tile layer
+     * @return the mode of the layer
+     */
+    TileLayerRenderer getTileLayerRenderer(TileLayer layer) {
+        return layerRendererMap.computeIfAbsent(layer, key -> newTileLayerRenderer(layer, true));
+    }
 
-        return layerNode;
+    /**
+     * @param layer the tile layer
+     * @param withDataTexture false when the layer falls back from the data textures
+     * @return a new mode for the layer
+     */
+    private TileLayerRenderer newTileLayerRenderer(TileLayer layer, boolean withDataTexture) {
+        if (layer.isInfinite()) {
+            return new ChunkLayerRenderer(this, layer);
+        }
+        if (withDataTexture && dataTexture) {
+            return new DataTextureLayerRenderer(this, layer);
+        }
+        if (instancing) {
+            return new InstanceLayerRenderer(this, layer);
+        }
+        if (batchSize > 0) {
+            return new BatchLayerRenderer(this, layer, batchSize);
+        }
+        return new SpriteLayerRenderer(this, layer);
     }
 
     /**
@@ -379,7 +899,7 @@ public abstract class MapRenderer {
         Material material = getLayerMaterial(layer);
 
         int len = objects.size();
-        objects.sort(layer.getDrawOrder());
+        layer.sortObjects();
         for (int i = 0; i < len; i++) {
             MapObject obj = objects.get(i);
 
@@ -388,14 +908,11 @@ public abstract class MapRenderer {
             }
 
             if (obj.isVisible()) {
-                Spatial spatial = getOrCreateMapObjectSpatial(layer, obj, material);
+                Spatial spatial = findOrCreateMapObjectSpatial(layer, obj, material);
                 if (spatial == null) {
                     continue;
                 }
 
-                spriteFactory.setTintColor(spatial, layer.getTintColor());
-                spriteFactory.setLayerOpacity(spatial, (float) layer.getOpacity());
-
                 float x = (float) obj.getX();
                 float y = (float) obj.getY();
 
@@ -431,10 +948,7 @@ public abstract class MapRenderer {
         if (layer.isNeedUpdated()) {
 
             if (layer.isVisible()) {
-                Spatial spatial = getOrCreateImageLayerSpatial(layer);
-
-                spriteFactory.setTintColor(spatial, layer.getTintColor());
-                spriteFactory.setLayerOpacity(spatial, (float) layer.getOpacity());
+                Spatial spatial = findOrCreateImageLayerSpatial(layer);
 
                 layerNode.attachChild(spatial);
             } else {
@@ -510,15 +1024,44 @@ public abstract class MapRenderer {
         if (spatials[index] != null) {
             Node parent = getLayerNode(layer);
             parent.detachChild(spatials[index]);
+            tileSpritePool.release(spatials[index]);
             spatials[index] = null;
         }
     }
 
     protected void putTileSprite(TileLayer layer, int x, int y, float z, Tile tile, Vector2f pixelCoord) {
-        Material material = spriteFactory.newMaterial(tile);
-        Geometry visual = spriteFactory.newTileSprite(tile, material);
-        visual.move(pixelCoord.x, z, pixelCoord.y);
-        setSpatialAt(layer, x, y, visual);
+        if (layer.contains(x, y)) {
+            // give back the old sprite first, the new tile may take the same geometry
+            removeTileSprite(layer, x, y);
+        }
+        Material material = tileMaterialCache.get(spriteFactory, layer, tile);
+        Geometry visual = tileSpritePool.acquire(spriteFactory, tile, material);
+        visual.setLocalTranslation(pixelCoord.x, z, pixelCoord.y);
+        attachSpatialAt(layer, x, y, visual);
+    }
+
+    /**
+     * Get the cache of the materials shared by the tile sprites
+     * @return the material cache
+     */
+    public TileMaterialCache getTileMaterialCache() {
+        return tileMaterialCache;
+    }
+
+    /**
+     * Get the pool of the geometries of the tile sprites, to set its size or read its statistics.
+     * @return the sprite pool
+     */
+    public TileSpritePool getTileSpritePool() {
+        return tileSpritePool;
+    }
+
+    /**
+     * Get the service that sorts the moving sprites by their y coordinate in the map.
+     * @return the y sorter
+     */
+    public YSorter getYSorter() {
+        return ySorter;
     }
 
     /**
@@ -530,18 +1073,21 @@ public abstract class MapRenderer {
     }
 
     public void updateLayerYAxis() {
+        MapBuild.checkNotRunning(build);
         for (Layer layer : sortedLayers) {
             layer.setNeedUpdated(true);
         }
     }
 
     public void setLayerDistance(double layerDistance) {
+        MapBuild.checkNotRunning(build);
         this.layerDistance = layerDistance;
         this.step = layerDistance / (height * width);
         updateLayerYAxis();
     }
 
     public void setLayerGap(double layerGap) {
+        MapBuild.checkNotRunning(build);
         this.layerGap = layerGap;
         updateLayerYAxis();
     }
@@ -26,6 +26,12 @@ public final class MaterialConst {
     public static final String USE_TILESET_IMAGE = "UseTilesetImage";
     public static final String TILE_POSITION = "TilePosition";
     public static final String USE_TILE_POSITION = "UseTilePosition";
+    public static final String USE_INSTANCING = "UseInstancing";
+    public static final String LAYER_DATA = "LayerData";
+    public static final String LAYER_SIZE = "LayerSize";
+    public static final String COLUMNS = "Columns";
+    public static final String FRAME_TABLE = "FrameTable";
+    public static final String FRAME_TABLE_SIZE = "FrameTableSize";
 
     public static final String OPACITY = "Opacity";
     public static final String LAYER_OPACITY = "LayerOpacity";
@@ -9,6 +9,7 @@ import com.jme3.scene.Spatial;
 import io.github.jmecn.tiled.core.TiledMap;
 import io.github.jmecn.tiled.enums.RenderOrder;
 import io.github.jmecn.tiled.math2d.Point;
+import io.github.jmecn.tiled.math2d.TileRect;
 import io.github.jmecn.tiled.renderer.shape.OrthoGrid;
 import io.github.jmecn.tiled.renderer.shape.Rect;
 
@@ -110,6 +111,31 @@ public class OrthogonalRenderer extends MapRenderer {
         }
     }
 
+    @Override
+    public void visitTiles(TileRect region, TileVisitor visitor) {
+        int x0 = Math.max(0, region.getX());
+        int y0 = Math.max(0, region.getY());
+        int x1 = Math.min(width, region.getMaxX());
+        int y1 = Math.min(height, region.getMaxY());
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        RenderOrder renderOrder = tiledMap.getRenderOrder();
+        boolean right = renderOrder != RenderOrder.LEFT_DOWN && renderOrder != RenderOrder.LEFT_UP;
+        boolean down = renderOrder != RenderOrder.RIGHT_UP && renderOrder != RenderOrder.LEFT_UP;
+
+        for (int i = 0; i < y1 - y0; i++) {
+            int y = down ? y0 + i : y1 - 1 - i;
+            int row = down ? y : height - 1 - y;
+            for (int j = 0; j < x1 - x0; j++) {
+                int x = right ? x0 + j : x1 - 1 - j;
+                int col = right ? x : width - 1 - x;
+                visitor.visit(x, y, row * width + col);
+            }
+        }
+    }
+
     @Override
     public void renderGrid(Node gridVisual, Material gridMaterial) {
         // add boundary
@@ -0,0 +1,46 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.math.Vector2f;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.math2d.TileRect;
+
+/**
+ * Renders a tile layer with one geometry per tile. When the map renderer has a view camera,
+ * only the cells of the visible region of the layer have a geometry.
+ *
+ * @author yanmaoyuan
+ */
+final class SpriteLayerRenderer extends TileLayerRenderer {
+
+    SpriteLayerRenderer(MapRenderer renderer, TileLayer layer) {
+        super(renderer, layer);
+    }
+
+    @Override
+    boolean render() {
+        TileVisitor visitor = (x, y, z) -> {
+            final Tile tile = layer.getTileAt(x, y);
+            if (tile == null) {
+                renderer.removeTileSprite(layer, x, y);
+                layer.setNeedUpdateAt(x, y, false);
+            } else {
+                Vector2f pixelCoord = renderer.tileToScreenCoords(x, y);
+                renderer.putTileSprite(layer, x, y, renderer.getTileYAxis(z), tile, pixelCoord);
+            }
+        };
+
+        TileRect region = renderer.getVisibleRegion(layer);
+        if (region == null) {
+            renderer.visitDirtyTiles(layer, visitor);
+        } else {
+            // the dirty cells out of the region stay dirty until they're in the view
+            renderer.visitTiles(region, (x, y, z) -> {
+                if (layer.isNeedUpdateAt(x, y)) {
+                    visitor.visit(x, y, z);
+                }
+            });
+        }
+        return true;
+    }
+}
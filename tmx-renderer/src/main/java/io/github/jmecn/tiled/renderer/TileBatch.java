@@ -0,0 +1,85 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.scene.Geometry;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The batches of a tile layer: the map is split in square regions of tiles, each region
+ * is rendered with one geometry per material, so per tileset.
+ *
+ * @author yanmaoyuan
+ */
+final class TileBatch {
+
+    private final int size;
+    private final int columns;
+    private final int rows;
+    private final List<List<Geometry>> geometries;
+    private final BitSet dirty;
+
+    /**
+     * @param width the width of the map in tiles
+     * @param height the height of the map in tiles
+     * @param size the width and height of a region in tiles
+     */
+    TileBatch(int width, int height, int size) {
+        this.size = size;
+        this.columns = (width + size - 1) / size;
+        this.rows = (height + size - 1) / size;
+        this.geometries = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            geometries.add(new ArrayList<>());
+        }
+        this.dirty = new BitSet(columns * rows);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getCount() {
+        return columns * rows;
+    }
+
+    int getStartX(int region) {
+        return (region % columns) * size;
+    }
+
+    int getStartY(int region) {
+        return (region / columns) * size;
+    }
+
+    /**
+     * Mark the region of the cell (x, y) to be rebuilt. Does nothing if the cell is outside of the map.
+     */
+    void markDirty(int x, int y) {
+        if (x >= 0 && y >= 0 && x < columns * size && y < rows * size) {
+            dirty.set((y / size) * columns + x / size);
+        }
+    }
+
+    void markAll() {
+        dirty.set(0, columns * rows);
+    }
+
+    /**
+     * @return the next region to rebuild from the given one, or -1
+     */
+    int nextDirty(int region) {
+        return dirty.nextSetBit(region);
+    }
+
+    void clearDirty() {
+        dirty.clear();
+    }
+
+    /**
+     * @return the geometries of the region
+     */
+    List<Geometry> getGeometries(int region) {
+        return geometries.get(region);
+    }
+}
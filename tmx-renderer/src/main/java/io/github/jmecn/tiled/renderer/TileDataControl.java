@@ -0,0 +1,35 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.control.AbstractControl;
+import io.github.jmecn.tiled.renderer.texture.TileDataTexture;
+
+/**
+ * Sends the edited texels of a data texture to the GPU before its quad is drawn, so an edited
+ * cell doesn't upload the whole texture of the layer again.
+ *
+ * @author yanmaoyuan
+ */
+public class TileDataControl extends AbstractControl {
+
+    private final TileDataTexture texture;
+
+    public TileDataControl(TileDataTexture texture) {
+        this.texture = texture;
+    }
+
+    public TileDataTexture getTexture() {
+        return texture;
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        // ignore
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        texture.upload(rm.getRenderer());
+    }
+}
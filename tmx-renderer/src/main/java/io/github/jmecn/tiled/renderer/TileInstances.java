@@ -0,0 +1,169 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import io.github.jmecn.tiled.renderer.shape.TileInstanceMesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The instances of a tile layer: one geometry per material, so per tileset, which draws a
+ * quad for each cell of the layer using this tileset.
+ *
+ * <p>A cell is identified by a key, its z-index in the high bits and its index in the map
+ * in the low bits, so sorting the keys sorts the cells in render order. Each group keeps
+ * the sorted keys of its cells, the instance of a cell is the position of its key, and
+ * nothing is kept for the cells without instance.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class TileInstances {
+
+    /**
+     * The instances of the tiles sharing a material.
+     */
+    static final class Group {
+        final Object key;
+        final Geometry geometry;
+        final TileInstanceMesh mesh;
+        // the keys of the cells of the instances, in render order
+        long[] cells = new long[0];
+        // the keys of the cells added and removed since the instances were rebuilt
+        private long[] added = new long[0];
+        private int addedCount;
+        private long[] removed = new long[0];
+        private int removedCount;
+        // the instances must be rebuilt, because a cell was added or removed
+        boolean dirty;
+        // an instance was changed in place
+        boolean changed;
+
+        Group(Object key, Material material, TileInstanceMesh mesh) {
+            this.key = key;
+            this.mesh = mesh;
+            this.geometry = new Geometry("instances#" + key, mesh);
+            this.geometry.setMaterial(material);
+        }
+
+        /**
+         * @param cell the key of a cell
+         * @return the instance of the cell, or a negative value if the cell has no instance in this group
+         */
+        int indexOf(long cell) {
+            return Arrays.binarySearch(cells, cell);
+        }
+    }
+
+    private final Map<Object, Group> groups = new HashMap<>();
+
+    /**
+     * @param z the z-index of the cell
+     * @param cell the index of the cell in the map
+     * @return the key of the cell
+     */
+    static long key(int z, int cell) {
+        return ((long) z << 32) | cell;
+    }
+
+    static int getCell(long key) {
+        return (int) key;
+    }
+
+    static int getZIndex(long key) {
+        return (int) (key >>> 32);
+    }
+
+    Group getGroup(Object key) {
+        return groups.get(key);
+    }
+
+    void addGroup(Group group) {
+        groups.put(group.key, group);
+    }
+
+    void removeGroup(Group group) {
+        groups.remove(group.key);
+    }
+
+    Collection<Group> getGroups() {
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Find the group of a cell, as it was when the instances were last rebuilt.
+     *
+     * @param cell the key of the cell
+     * @return the group which has an instance for this cell, or null
+     */
+    Group getCellGroup(long cell) {
+        for (Group group : groups.values()) {
+            if (group.indexOf(cell) >= 0) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add a cell to a group, the instances of the group must be rebuilt.
+     */
+    void addCell(Group group, long cell) {
+        if (group.addedCount == group.added.length) {
+            group.added = Arrays.copyOf(group.added, Math.max(16, group.addedCount * 2));
+        }
+        group.added[group.addedCount++] = cell;
+        group.dirty = true;
+    }
+
+    /**
+     * Remove a cell from a group, the instances of the group must be rebuilt.
+     */
+    void removeCell(Group group, long cell) {
+        if (group.removedCount == group.removed.length) {
+            group.removed = Arrays.copyOf(group.removed, Math.max(16, group.removedCount * 2));
+        }
+        group.removed[group.removedCount++] = cell;
+        group.dirty = true;
+    }
+
+    /**
+     * Apply the cells added and removed since the last rebuild to the cells of a group, which
+     * stay in render order. A cell removed and added again is kept.
+     *
+     * @param group the group
+     */
+    void collectCells(Group group) {
+        Arrays.sort(group.added, 0, group.addedCount);
+        Arrays.sort(group.removed, 0, group.removedCount);
+
+        long[] cells = new long[group.cells.length + group.addedCount];
+        int count = 0;
+        int a = 0;
+        for (long cell : group.cells) {
+            if (Arrays.binarySearch(group.removed, 0, group.removedCount, cell) >= 0) {
+                continue;
+            }
+            while (a < group.addedCount && group.added[a] < cell) {
+                cells[count++] = group.added[a++];
+            }
+            cells[count++] = cell;
+        }
+        while (a < group.addedCount) {
+            cells[count++] = group.added[a++];
+        }
+
+        group.cells = count == cells.length ? cells : Arrays.copyOf(cells, count);
+        group.addedCount = 0;
+        group.removedCount = 0;
+        if (group.added.length > 16) {
+            group.added = new long[0];
+        }
+        if (group.removed.length > 16) {
+            group.removed = new long[0];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.jmecn.tiled.renderer;
+
+import io.github.jmecn.tiled.core.TileLayer;
+
+/**
+ * Renders the cells of a tile layer in one of the modes of the {@link MapRenderer}.
+ *
+ * <p>The map renderer picks the mode of a layer the first time it renders the layer, and
+ * picks it again when the mode of the map renderer is changed. The mode keeps its own
+ * state of the layer, and only updates the cells that changed since the last render.</p>
+ *
+ * @author yanmaoyuan
+ */
+abstract class TileLayerRenderer {
+
+    protected final MapRenderer renderer;
+    protected final TileLayer layer;
+
+    protected TileLayerRenderer(MapRenderer renderer, TileLayer layer) {
+        this.renderer = renderer;
+        this.layer = layer;
+    }
+
+    /**
+     * Update the cells of the layer that need to be updated.
+     *
+     * @return false if this mode can't render the layer, the map renderer falls back to another one
+     */
+    abstract boolean render();
+}
@@ -0,0 +1,166 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import io.github.jmecn.tiled.animation.AnimationClock;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TiledImage;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shares the material of the tile sprites of a layer.
+ *
+ * <p>The position of a tile in the tileset image is carried by its mesh, so all the tiles
+ * of an image based tileset can use the same material, and all the tiles using the same
+ * image and size in a collection of images too. There is one material per image and per layer.
+ * The tint color and the opacity of the layer are not set on it, they are the material
+ * parameter overrides of the layer node.</p>
+ *
+ * <p>An animated tile has its own material per layer, shared by all the cells showing it.
+ * The {@link AnimationClock} of the cache sets the current frame on it.</p>
+ *
+ * <p>The materials can't be removed while the map is built in the background.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileMaterialCache {
+
+    private final Map<Layer, Map<Object, Material>> layerMaterials = new HashMap<>();
+
+    private final AnimationClock animationClock = new AnimationClock();
+
+    // the build in the background using this cache, see MapRenderer#renderAsync
+    private volatile MapBuild build;
+
+    /**
+     * Get the material shared by the tiles of the layer that use the same image.
+     *
+     * @param spriteFactory the factory to create the material
+     * @param layer the layer of the tile
+     * @param tile the tile
+     * @return the shared material
+     */
+    public Material get(SpriteFactory spriteFactory, Layer layer, Tile tile) {
+        Map<Object, Material> materials = layerMaterials.computeIfAbsent(layer, key -> new HashMap<>());
+
+        Object source = tile.isAnimated() ? tile : getImageSource(tile);
+        Material material = materials.get(source);
+        if (material == null) {
+            material = spriteFactory.newMaterial(tile);
+            materials.put(source, material);
+            if (tile.isAnimated()) {
+                animationClock.add(tile, material);
+            }
+        }
+        return material;
+    }
+
+    /**
+     * The tileset for an image based tileset, the image and the size of the tile otherwise,
+     * as the material of a tile from a collection of images holds the size of the tile.
+     */
+    static Object getImageSource(Tile tile) {
+        Tileset tileset = tile.getTileset();
+        if (tileset != null && tileset.isImageBased()) {
+            return tileset;
+        }
+        return new ImageKey(tile.getImage(), tile.getWidth(), tile.getHeight());
+    }
+
+    private static final class ImageKey {
+        private final TiledImage image;
+        private final int width;
+        private final int height;
+
+        ImageKey(TiledImage image, int width, int height) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ImageKey)) return false;
+            ImageKey that = (ImageKey) o;
+            return image == that.image && width == that.width && height == that.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(image) * 31 + width) * 31 + height;
+        }
+    }
+
+    /**
+     * Forget the materials of a layer.
+     *
+     * @param layer the layer
+     */
+    public void remove(Layer layer) {
+        MapBuild.checkNotRunning(build);
+        Map<Object, Material> materials = layerMaterials.remove(layer);
+        if (materials == null) {
+            return;
+        }
+        for (Map.Entry<Object, Material> e : materials.entrySet()) {
+            if (e.getKey() instanceof Tile) {
+                animationClock.remove(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the materials of the animated tiles of a layer.
+     *
+     * @param layer the layer
+     * @return the animated tiles by their material
+     */
+    public Map<Material, Tile> getAnimatedTiles(Layer layer) {
+        Map<Material, Tile> tiles = new IdentityHashMap<>();
+        Map<Object, Material> materials = layerMaterials.get(layer);
+        if (materials != null) {
+            for (Map.Entry<Object, Material> e : materials.entrySet()) {
+                if (e.getKey() instanceof Tile) {
+                    tiles.put(e.getValue(), (Tile) e.getKey());
+                }
+            }
+        }
+        return tiles;
+    }
+
+    public void clear() {
+        MapBuild.checkNotRunning(build);
+        layerMaterials.clear();
+        animationClock.clear();
+    }
+
+    void setBuild(MapBuild build) {
+        this.build = build;
+    }
+
+    /**
+     * The clock playing the animated tiles, it must be updated every frame.
+     *
+     * @return the animation clock
+     */
+    public AnimationClock getAnimationClock() {
+        return animationClock;
+    }
+
+    /**
+     * @return the number of shared materials
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Object, Material> materials : layerMaterials.values()) {
+            size += materials.size();
+        }
+        return size;
+    }
+}
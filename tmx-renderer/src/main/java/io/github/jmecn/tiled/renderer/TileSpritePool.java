@@ -0,0 +1,200 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.animation.AnimatedTileControl;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.renderer.factory.SpriteFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Recycles the geometries of the tile sprites of the tile layers rendered one by one.
+ *
+ * <p>When a cell is edited, the geometry of its old tile is released to the pool, and the
+ * geometry of its new tile is taken from the pool: its mesh and its material are set to
+ * the ones of the new tile, which are shared, so an edit allocates nothing. The pool only
+ * takes back the geometries it created, and only when no control or material parameter
+ * override was added to them.</p>
+ *
+ * <p>The pool can't be cleared or resized while the map is built in the background.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileSpritePool {
+
+    public static final int DEFAULT_MAX_FREE = 4096;
+
+    // the sprites created by this pool that are in use
+    private final Set<Geometry> sprites = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ArrayDeque<Geometry> free = new ArrayDeque<>();
+    private int maxFree = DEFAULT_MAX_FREE;
+
+    private long created;
+    private long reused;
+    private long released;
+    private long discarded;
+
+    // the build in the background using this pool, see MapRenderer#renderAsync
+    private volatile MapBuild build;
+
+    /**
+     * Create the geometry of a tile.
+     *
+     * @param spriteFactory the factory to create the geometry
+     * @param tile the tile
+     * @param material the material shared by the cells of the tile
+     * @return the geometry of the tile
+     */
+    static Geometry newSprite(SpriteFactory spriteFactory, Tile tile, Material material) {
+        Geometry geometry = spriteFactory.newTileSprite(tile, material);
+        if (tile.isAnimated()) {
+            // the animation clock plays the material shared by the cells of this tile
+            geometry.removeControl(AnimatedTileControl.class);
+        }
+        return geometry;
+    }
+
+    /**
+     * Get a geometry for a tile, a free one from the pool if any.
+     *
+     * @param spriteFactory the factory to create the geometry and to get the mesh of the tile
+     * @param tile the tile
+     * @param material the material shared by the cells of the tile
+     * @return the geometry of the tile, at the origin
+     */
+    public Geometry acquire(SpriteFactory spriteFactory, Tile tile, Material material) {
+        Geometry geometry = free.poll();
+        if (geometry == null) {
+            geometry = newSprite(spriteFactory, tile, material);
+            created++;
+        } else {
+            geometry.setName("tile#" + tile.getGid());
+            geometry.setMesh(spriteFactory.getMeshFactory().getTileMesh(tile));
+            geometry.setMaterial(material);
+            reused++;
+        }
+        sprites.add(geometry);
+        return geometry;
+    }
+
+    /**
+     * Give back a sprite detached from the scene. Does nothing if the spatial was not
+     * created by this pool.
+     *
+     * @param spatial the spatial
+     * @return true if the spatial was a sprite of this pool
+     */
+    public boolean release(Spatial spatial) {
+        if (!(spatial instanceof Geometry) || !sprites.remove(spatial)) {
+            return false;
+        }
+        released++;
+
+        Geometry geometry = (Geometry) spatial;
+        if (free.size() >= maxFree || geometry.getNumControls() > 0
+                || !geometry.getLocalMatParamOverrides().isEmpty()) {
+            discarded++;
+            return true;
+        }
+        geometry.setLocalTranslation(0, 0, 0);
+        geometry.setLocalRotation(Quaternion.IDENTITY);
+        geometry.setLocalScale(1f);
+        free.push(geometry);
+        return true;
+    }
+
+    /**
+     * Forget all the sprites, when the tile layers are rendered again.
+     */
+    public void clear() {
+        MapBuild.checkNotRunning(build);
+        sprites.clear();
+        free.clear();
+    }
+
+    /**
+     * @return the number of sprites of this pool in use
+     */
+    public int getSpriteCount() {
+        return sprites.size();
+    }
+
+    /**
+     * @return the number of free sprites
+     */
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    public int getMaxFree() {
+        return maxFree;
+    }
+
+    /**
+     * Set the maximum number of free sprites kept in the pool, 0 to disable the pool.
+     *
+     * @param maxFree the number of sprites
+     */
+    public void setMaxFree(int maxFree) {
+        if (maxFree < 0) {
+            throw new IllegalArgumentException("maxFree must not be negative: " + maxFree);
+        }
+        MapBuild.checkNotRunning(build);
+        this.maxFree = maxFree;
+        while (free.size() > maxFree) {
+            free.pop();
+        }
+    }
+
+    /**
+     * @return the number of sprites created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the number of sprites taken from the pool
+     */
+    public long getReused() {
+        return reused;
+    }
+
+    /**
+     * @return the number of sprites given back
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    /**
+     * @return the number of sprites given back but not kept, because the pool was full or
+     * the sprite was changed
+     */
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    void setBuild(MapBuild build) {
+        this.build = build;
+    }
+
+    public void resetStats() {
+        created = 0;
+        reused = 0;
+        released = 0;
+        discarded = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TileSpritePool[sprites=" + sprites.size() + ", free=" + free.size() + ", created=" + created
+                + ", reused=" + reused + ", released=" + released + ", discarded=" + discarded + "]";
+    }
+}
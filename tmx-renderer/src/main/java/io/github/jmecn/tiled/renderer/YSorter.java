@@ -0,0 +1,137 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the moving sprites of a map at the depth of their layer and of their y coordinate
+ * in the map, like the objects of the object layers.
+ *
+ * <p>The sprites are registered with the index of their layer. A sprite is placed in the
+ * map by the x and z of its local translation, and once per frame the y of its local
+ * translation is set to its depth, only when the depth changed. The sprites are drawn in
+ * order of depth by the {@link io.github.jmecn.tiled.renderer.queue.YAxisComparator}.</p>
+ *
+ * <p>It is attached to the root node of the map renderer, see {@link MapRenderer#getYSorter()}.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class YSorter extends AbstractControl {
+
+    private final MapRenderer mapRenderer;
+
+    private Spatial[] spatials = new Spatial[16];
+    private int[] layers = new int[16];
+    private int count;
+    private final Map<Spatial, Integer> slots = new IdentityHashMap<>();
+
+    // the number of sprites moved by the last update
+    private int updatedCount;
+
+    public YSorter(MapRenderer mapRenderer) {
+        this.mapRenderer = mapRenderer;
+    }
+
+    /**
+     * Sort a spatial, or change the layer of a sorted spatial.
+     *
+     * @param spatial the spatial
+     * @param layerIndex the index of its layer
+     */
+    public void add(Spatial spatial, int layerIndex) {
+        Integer slot = slots.get(spatial);
+        if (slot != null) {
+            layers[slot] = layerIndex;
+            return;
+        }
+        if (count == spatials.length) {
+            spatials = Arrays.copyOf(spatials, count * 2);
+            layers = Arrays.copyOf(layers, count * 2);
+        }
+        spatials[count] = spatial;
+        layers[count] = layerIndex;
+        slots.put(spatial, count);
+        count++;
+    }
+
+    /**
+     * Stop sorting a spatial.
+     *
+     * @param spatial the spatial
+     * @return true if the spatial was sorted
+     */
+    public boolean remove(Spatial spatial) {
+        Integer slot = slots.remove(spatial);
+        if (slot == null) {
+            return false;
+        }
+        // move the last one to the free slot
+        int last = --count;
+        if (slot != last) {
+            spatials[slot] = spatials[last];
+            layers[slot] = layers[last];
+            slots.put(spatials[slot], slot);
+        }
+        spatials[last] = null;
+        return true;
+    }
+
+    public boolean contains(Spatial spatial) {
+        return slots.containsKey(spatial);
+    }
+
+    public void clear() {
+        Arrays.fill(spatials, 0, count, null);
+        slots.clear();
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of spatials whose depth changed in the last update
+     */
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * Get the depth of a point of the map in a layer.
+     *
+     * @param layerIndex the index of the layer
+     * @param y the y coordinate in the map, in pixels
+     * @return the y-axis in the scene
+     */
+    public float getDepth(int layerIndex, float y) {
+        return mapRenderer.getLayerYIndex(layerIndex) + mapRenderer.getObjectTopDownYIndex(y);
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        int updated = 0;
+        for (int i = 0; i < count; i++) {
+            Spatial spatial = spatials[i];
+            Vector3f position = spatial.getLocalTranslation();
+            float depth = getDepth(layers[i], position.z);
+            if (position.y != depth) {
+                spatial.setLocalTranslation(position.x, depth, position.z);
+                updated++;
+            }
+        }
+        updatedCount = updated;
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // nothing
+    }
+}
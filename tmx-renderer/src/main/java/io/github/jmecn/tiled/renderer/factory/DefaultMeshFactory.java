@@ -31,6 +31,7 @@ public class DefaultMeshFactory implements MeshFactory {
     private final Orientation orientation;
     private final float ratio;
     private final IntMap<TileMesh> cache;
+    private final TileMeshCache meshCache;
 
     public DefaultMeshFactory() {
         this(null);
@@ -41,10 +42,22 @@ public class DefaultMeshFactory implements MeshFactory {
         this.orientation = orientation;
         this.ratio = ratio;
         this.cache = new IntMap<>();
+        this.meshCache = new TileMeshCache();
     }
 
     public DefaultMeshFactory(TiledMap tiledMap) {
+        this(tiledMap, new TileMeshCache());
+    }
+
+    /**
+     * Create a mesh factory whose tile meshes are shared with the other maps using the same cache.
+     *
+     * @param tiledMap the map
+     * @param meshCache the tile meshes shared by the maps
+     */
+    public DefaultMeshFactory(TiledMap tiledMap, TileMeshCache meshCache) {
         this.tiledMap = tiledMap;
+        this.meshCache = meshCache;
         if (tiledMap != null) {
             this.orientation = tiledMap.getOrientation();
             this.ratio = (float) tiledMap.getTileHeight() / tiledMap.getTileWidth();
@@ -57,25 +70,21 @@ public class DefaultMeshFactory implements MeshFactory {
 
     @Override
     public TileMesh newTileMesh(int tileId) {
-        // clear the flag
-        int gid = tileId & ~Tile.FLIPPED_MASK;
-
-        Tile tile = tiledMap.getTileForTileGID(gid);
+        // the shared variant of the tile, same as the one in the layers
+        Tile tile = tiledMap.getTileForTileId(tileId);
         if (tile == null) {
             throw new IllegalArgumentException("Tile not found, id: " + tileId);
         }
 
-        if (tile.getGid() != tileId) {
-            Tile t = tile.copy();
-            t.setGid(tileId);
-            tile = t;
-        }
-
         return newTileMesh(tile);
     }
 
     @Override
     public TileMesh newTileMesh(Tile tile) {
+        return newTileMesh(tile, false);
+    }
+
+    private TileMesh newTileMesh(Tile tile, boolean shared) {
         Tileset tileset = tile.getTileset();
         Vector2f offset = tileset.getTileOffset();
 
@@ -91,7 +100,10 @@ public class DefaultMeshFactory implements MeshFactory {
         Vector2f coord = new Vector2f(tile.getX(), tile.getY());
         Vector2f size = new Vector2f(tile.getWidth(), tile.getHeight());
 
-        return new TileMesh(coord, size, offset, origin, tile.getGid(), orientation);
+        if (shared) {
+            return meshCache.get(coord, size, offset, origin, tile.getGid(), orientation);
+        }
+        return new TileMesh(coord, size, offset, origin, tile.getGid(), orientation, meshCache.isPacked(), meshCache.getBuffers());
     }
 
     @Override
@@ -99,7 +111,11 @@ public class DefaultMeshFactory implements MeshFactory {
         if (cache.containsKey(tileId)) {
             return cache.get(tileId);
         } else {
-            TileMesh mesh = newTileMesh(tileId);
+            Tile tile = tiledMap.getTileForTileId(tileId);
+            if (tile == null) {
+                throw new IllegalArgumentException("Tile not found, id: " + tileId);
+            }
+            TileMesh mesh = newTileMesh(tile, true);
             cache.put(tileId, mesh);
             return mesh;
         }
@@ -110,12 +126,19 @@ public class DefaultMeshFactory implements MeshFactory {
         if (cache.containsKey(tile.getGid())) {
             return cache.get(tile.getGid());
         } else {
-            TileMesh mesh = newTileMesh(tile);
+            TileMesh mesh = newTileMesh(tile, true);
             cache.put(tile.getGid(), mesh);
             return mesh;
         }
     }
 
+    /**
+     * @return the tile meshes shared with the other maps
+     */
+    public TileMeshCache getMeshCache() {
+        return meshCache;
+    }
+
     @Override
     public Mesh newObjectMesh(MapObject obj) {
         Mesh mesh;
@@ -275,6 +298,6 @@ public class DefaultMeshFactory implements MeshFactory {
         // When the object has a gid set, then it is represented by
         // the image of the tile with that global ID. The image
         // alignment currently depends on the map orientation.
-        return new TileMesh(coord, size, offset, origin, tile.getGid(), orientation);
+        return new TileMesh(coord, size, offset, origin, tile.getGid(), orientation, meshCache.isPacked(), meshCache.getBuffers());
     }
 }
@@ -0,0 +1,198 @@
+package io.github.jmecn.tiled.renderer.factory;
+
+import com.jme3.math.Vector2f;
+import com.jme3.scene.VertexBuffer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.renderer.shape.TileMesh;
+import io.github.jmecn.tiled.renderer.shape.TileMeshBuffers;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tile meshes shared by the mesh factories of several maps.
+ *
+ * <p>A tile mesh only depends on the size and offset of the tile, its position in the
+ * image, its origin and how it's flipped, so the tiles of the tilesets used by several
+ * maps share their meshes. Give the same cache to the {@link DefaultMeshFactory} of each
+ * map to keep the meshes when another map is shown.</p>
+ *
+ * <p>The meshes of a cache share their index buffer and their texture coordinates, see
+ * {@link TileMeshBuffers}. A cache kept across maps should be bounded by
+ * {@link #setMaxSize(int)}: the least recently used meshes are dropped first, the maps
+ * already rendered keep the meshes they use.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileMeshCache {
+
+    private static final class Key {
+        private final float coordX;
+        private final float coordY;
+        private final float width;
+        private final float height;
+        private final float offsetX;
+        private final float offsetY;
+        private final float originX;
+        private final float originY;
+        private final int flags;
+        private final Orientation orientation;
+
+        Key(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int flags, Orientation orientation) {
+            this.coordX = coord.x;
+            this.coordY = coord.y;
+            this.width = size.x;
+            this.height = size.y;
+            this.offsetX = offset.x;
+            this.offsetY = offset.y;
+            this.originX = origin.x;
+            this.originY = origin.y;
+            this.flags = flags;
+            this.orientation = orientation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Float.compare(key.coordX, coordX) == 0 && Float.compare(key.coordY, coordY) == 0
+                    && Float.compare(key.width, width) == 0 && Float.compare(key.height, height) == 0
+                    && Float.compare(key.offsetX, offsetX) == 0 && Float.compare(key.offsetY, offsetY) == 0
+                    && Float.compare(key.originX, originX) == 0 && Float.compare(key.originY, originY) == 0
+                    && flags == key.flags && orientation == key.orientation;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(coordX);
+            result = 31 * result + Float.floatToIntBits(coordY);
+            result = 31 * result + Float.floatToIntBits(width);
+            result = 31 * result + Float.floatToIntBits(height);
+            result = 31 * result + Float.floatToIntBits(offsetX);
+            result = 31 * result + Float.floatToIntBits(offsetY);
+            result = 31 * result + Float.floatToIntBits(originX);
+            result = 31 * result + Float.floatToIntBits(originY);
+            result = 31 * result + flags;
+            result = 31 * result + (orientation == null ? 0 : orientation.hashCode());
+            return result;
+        }
+    }
+
+    private final boolean packed;
+    private final TileMeshBuffers buffers = new TileMeshBuffers();
+    // in access order, the least recently used first
+    private final Map<Key, TileMesh> meshes = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxSize;
+
+    public TileMeshCache() {
+        this(false);
+    }
+
+    /**
+     * @param packed true to store the vertices of the meshes as shorts when possible,
+     *               see {@link TileMesh}
+     */
+    public TileMeshCache(boolean packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Get the mesh of a tile, create it if not cached.
+     *
+     * @param coord the coordinate of the tile in the image
+     * @param size the size of the tile
+     * @param offset the offset of the tile
+     * @param origin the origin of the tile
+     * @param gid the gid of the tile, only its flip flags are used
+     * @param orientation the orientation of the map
+     * @return the mesh
+     */
+    public synchronized TileMesh get(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int gid,
+                                     Orientation orientation) {
+        int flags = gid & Tile.FLIPPED_MASK;
+        Key key = new Key(coord, size, offset, origin, flags, orientation);
+        TileMesh mesh = meshes.get(key);
+        if (mesh == null) {
+            mesh = new TileMesh(coord.clone(), size.clone(), offset.clone(), origin.clone(), flags, orientation, packed, buffers);
+            meshes.put(key, mesh);
+            trim();
+        }
+        return mesh;
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * @return the buffers shared by the meshes of this cache
+     */
+    public TileMeshBuffers getBuffers() {
+        return buffers;
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum number of meshes kept by the cache.
+     *
+     * @param maxSize the number of meshes, or 0 for no limit
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    private void trim() {
+        if (maxSize == 0) {
+            return;
+        }
+        Iterator<TileMesh> it = meshes.values().iterator();
+        while (meshes.size() > maxSize) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return meshes.size();
+    }
+
+    public synchronized void clear() {
+        meshes.clear();
+    }
+
+    /**
+     * Get the size of the native buffers of the cached meshes, the buffers shared by
+     * several meshes are counted once.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getNativeBytes() {
+        Set<VertexBuffer> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (TileMesh mesh : meshes.values()) {
+            for (VertexBuffer vb : mesh.getBufferList()) {
+                if (buffers.add(vb)) {
+                    bytes += vb.getData().limit() * (long) vb.getFormat().getComponentSize();
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -5,16 +5,34 @@ import com.jme3.renderer.queue.GeometryComparator;
 import com.jme3.scene.Geometry;
 
 /**
- * desc:
+ * Sort the geometries by the y-axis of their world translation.
+ *
+ * <p>The y-axis of a geometry is read once per frame and kept in its queue distance, as the
+ * comparators of jME do with the distance to the camera. The render queue resets it after
+ * rendering the geometry.</p>
  *
  * @author yanmaoyuan
  */
 public class YAxisComparator implements GeometryComparator {
+
+    /**
+     * Get the y-axis of a geometry, computed once per frame.
+     *
+     * @param geom the geometry
+     * @return the y-axis of its world translation
+     */
+    static float getKey(Geometry geom) {
+        float key = geom.queueDistance;
+        if (key == Float.NEGATIVE_INFINITY) {
+            key = geom.getWorldTranslation().getY();
+            geom.queueDistance = key;
+        }
+        return key;
+    }
+
     @Override
     public int compare(Geometry o1, Geometry o2) {
-        float y1 = o1.getWorldTranslation().getY();
-        float y2 = o2.getWorldTranslation().getY();
-        return Float.compare(y1, y2);
+        return Float.compare(getKey(o1), getKey(o2));
     }
     @Override
     public void setCamera(Camera cam) {
@@ -0,0 +1,155 @@
+package io.github.jmecn.tiled.renderer.shape;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * This is the mesh of a batch of tiles.
+ *
+ * <p>It's made of the meshes of the tiles moved to their position, with the same vertex
+ * buffers as the {@link TileMesh}: the position, the texture coordinate, and the position
+ * of the tile in the image in TexCoord2. The tiles are drawn in the order they are
+ * added.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileBatchMesh extends Mesh {
+
+    private static final int VERTICES_PER_TILE = 4;
+    private static final int INDEXES_PER_TILE = 6;
+
+    private float[] positions;
+    private float[] texCoords;
+    private float[] texCoords2;
+    private int[] indexes;
+
+    private int vertexCount;
+    private int indexCount;
+    private int tileCount;
+
+    public TileBatchMesh() {
+        this(16);
+    }
+
+    /**
+     * @param capacity the expected number of tiles
+     */
+    public TileBatchMesh(int capacity) {
+        positions = new float[capacity * VERTICES_PER_TILE * 3];
+        texCoords = new float[capacity * VERTICES_PER_TILE * 2];
+        texCoords2 = new float[capacity * VERTICES_PER_TILE * 3];
+        indexes = new int[capacity * INDEXES_PER_TILE];
+    }
+
+    /**
+     * Add the mesh of a tile to the batch. Call {@link #update()} once all the tiles are added.
+     *
+     * @param tileMesh the mesh of the tile
+     * @param x the x translation of the tile
+     * @param y the y translation of the tile
+     * @param z the z translation of the tile
+     */
+    public void add(Mesh tileMesh, float x, float y, float z) {
+        int count = tileMesh.getVertexCount();
+        ensureCapacity(count, tileMesh.getTriangleCount() * 3);
+
+        if (tileMesh instanceof TileMesh) {
+            // the vertices of a packed tile mesh may not be floats
+            TileMesh mesh = (TileMesh) tileMesh;
+            float[] position = mesh.getPositions();
+            for (int i = 0; i < count; i++) {
+                int k = (vertexCount + i) * 3;
+                positions[k] = position[i * 3] + x;
+                positions[k + 1] = position[i * 3 + 1] + y;
+                positions[k + 2] = position[i * 3 + 2] + z;
+                texCoords2[k] = mesh.getCoord().x;
+                texCoords2[k + 1] = mesh.getCoord().y;
+                texCoords2[k + 2] = 0f;
+            }
+        } else {
+            FloatBuffer position = tileMesh.getFloatBuffer(VertexBuffer.Type.Position);
+            for (int i = 0; i < count; i++) {
+                int k = (vertexCount + i) * 3;
+                positions[k] = position.get(i * 3) + x;
+                positions[k + 1] = position.get(i * 3 + 1) + y;
+                positions[k + 2] = position.get(i * 3 + 2) + z;
+            }
+            copy(tileMesh.getFloatBuffer(VertexBuffer.Type.TexCoord2), texCoords2, count, 3);
+        }
+        copy(tileMesh.getFloatBuffer(VertexBuffer.Type.TexCoord), texCoords, count, 2);
+
+        Buffer index = tileMesh.getBuffer(VertexBuffer.Type.Index).getData();
+        int indexes = tileMesh.getTriangleCount() * 3;
+        for (int i = 0; i < indexes; i++) {
+            int value;
+            if (index instanceof ShortBuffer) {
+                value = ((ShortBuffer) index).get(i) & 0xFFFF;
+            } else {
+                value = ((IntBuffer) index).get(i);
+            }
+            this.indexes[indexCount + i] = vertexCount + value;
+        }
+
+        vertexCount += count;
+        indexCount += indexes;
+        tileCount++;
+    }
+
+    private void copy(FloatBuffer src, float[] dst, int count, int components) {
+        int offset = vertexCount * components;
+        if (src == null) {
+            Arrays.fill(dst, offset, offset + count * components, 0f);
+            return;
+        }
+        for (int i = 0; i < count * components; i++) {
+            dst[offset + i] = src.get(i);
+        }
+    }
+
+    private void ensureCapacity(int vertices, int indexes) {
+        int needed = vertexCount + vertices;
+        if (needed * 3 > positions.length) {
+            int capacity = Math.max(needed, vertexCount * 2);
+            positions = Arrays.copyOf(positions, capacity * 3);
+            texCoords = Arrays.copyOf(texCoords, capacity * 2);
+            texCoords2 = Arrays.copyOf(texCoords2, capacity * 3);
+        }
+        if (indexCount + indexes > this.indexes.length) {
+            this.indexes = Arrays.copyOf(this.indexes, Math.max(indexCount + indexes, indexCount * 2));
+        }
+    }
+
+    /**
+     * Set the vertex buffers with the tiles added.
+     */
+    public void update() {
+        this.setBuffer(VertexBuffer.Type.Position, 3, Arrays.copyOf(positions, vertexCount * 3));
+        this.setBuffer(VertexBuffer.Type.TexCoord, 2, Arrays.copyOf(texCoords, vertexCount * 2));
+        this.setBuffer(VertexBuffer.Type.TexCoord2, 3, Arrays.copyOf(texCoords2, vertexCount * 3));
+        if (vertexCount <= 0xFFFF) {
+            short[] shorts = new short[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                shorts[i] = (short) indexes[i];
+            }
+            this.setBuffer(VertexBuffer.Type.Index, 3, shorts);
+        } else {
+            this.setBuffer(VertexBuffer.Type.Index, 3, Arrays.copyOf(indexes, indexCount));
+        }
+        this.updateBound();
+        this.updateCounts();
+        this.setStatic();
+    }
+
+    /**
+     * @return the number of tiles in the batch
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.jmecn.tiled.renderer.shape;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+/**
+ * This is the mesh of the instances of a tile quad.
+ *
+ * <p>It has the position, the texture coordinate and the index of the quad of a tile, and
+ * the per instance buffers used by the instancing path of the Tiled shader:</p>
+ * <ul>
+ *     <li>InstanceData: the transform of the instance, in the format of Instancing.glsllib.
+ *     It's relative to the geometry, not to the world.</li>
+ *     <li>TexCoord2: the position of the tile in the image, and its flip flags in z.</li>
+ *     <li>Color: the tint color of the instance.</li>
+ * </ul>
+ *
+ * <p>The instances are drawn in their order.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileInstanceMesh extends Mesh {
+
+    public static final int FLIP_HORIZONTALLY = 1;
+    public static final int FLIP_VERTICALLY = 2;
+    public static final int FLIP_DIAGONALLY = 4;
+
+    private static final int INSTANCE_DATA_SIZE = 16;
+
+    private final float[] quad;
+    private final float centerX;
+    private final float centerZ;
+
+    private int count;
+    private FloatBuffer instanceData;
+    private FloatBuffer tilePositions;
+    private FloatBuffer colors;
+
+    /**
+     * Create the instances of a tile quad.
+     *
+     * @param tileMesh the mesh of the tile, not flipped nor rotated
+     */
+    public TileInstanceMesh(Mesh tileMesh) {
+        int vertexCount = tileMesh.getVertexCount();
+        if (tileMesh instanceof TileMesh) {
+            // the vertices of a packed tile mesh may not be floats
+            quad = ((TileMesh) tileMesh).getPositions().clone();
+        } else {
+            FloatBuffer position = tileMesh.getFloatBuffer(VertexBuffer.Type.Position);
+            quad = new float[vertexCount * 3];
+            for (int i = 0; i < quad.length; i++) {
+                quad[i] = position.get(i);
+            }
+        }
+        float x = 0f;
+        float z = 0f;
+        for (int i = 0; i < vertexCount; i++) {
+            x += quad[i * 3];
+            z += quad[i * 3 + 2];
+        }
+        centerX = x / vertexCount;
+        centerZ = z / vertexCount;
+
+        this.setBuffer(VertexBuffer.Type.Position, 3, quad.clone());
+        this.setBuffer(tileMesh.getBuffer(VertexBuffer.Type.TexCoord));
+        this.setBuffer(tileMesh.getBuffer(VertexBuffer.Type.Index));
+        setCount(0);
+    }
+
+    /**
+     * Allocate the buffers for the given number of instances. The content of the
+     * instances is not kept.
+     *
+     * @param count the number of instances
+     */
+    public void setCount(int count) {
+        this.count = count;
+        // the buffers are never empty
+        int capacity = Math.max(count, 1);
+        instanceData = BufferUtils.createFloatBuffer(capacity * INSTANCE_DATA_SIZE);
+        tilePositions = BufferUtils.createFloatBuffer(capacity * 3);
+        colors = BufferUtils.createFloatBuffer(capacity * 4);
+        instanceData.limit(count * INSTANCE_DATA_SIZE);
+        tilePositions.limit(count * 3);
+        colors.limit(count * 4);
+
+        setInstanceBuffer(VertexBuffer.Type.InstanceData, INSTANCE_DATA_SIZE, instanceData);
+        setInstanceBuffer(VertexBuffer.Type.TexCoord2, 3, tilePositions);
+        setInstanceBuffer(VertexBuffer.Type.Color, 4, colors);
+    }
+
+    private void setInstanceBuffer(VertexBuffer.Type type, int components, FloatBuffer data) {
+        clearBuffer(type);
+        VertexBuffer vb = new VertexBuffer(type);
+        vb.setInstanced(true);
+        vb.setupData(VertexBuffer.Usage.Stream, components, VertexBuffer.Format.Float, data);
+        setBuffer(vb);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Set the transform of an instance: a rotation around the y-axis at the center of the
+     * quad, then a translation.
+     *
+     * @param index the index of the instance
+     * @param x the x translation
+     * @param y the y translation
+     * @param z the z translation
+     * @param rotation the rotation in radian, clockwise
+     */
+    public void setTransform(int index, float x, float y, float z, float rotation) {
+        float cos = 1f;
+        float sin = 0f;
+        float halfSin = 0f;
+        float halfCos = 1f;
+        if (rotation != 0f) {
+            // same as Matrix3f.fromAngleAxis(-rotation, Vector3f.UNIT_Y)
+            cos = FastMath.cos(-rotation);
+            sin = FastMath.sin(-rotation);
+            halfSin = FastMath.sin(-rotation * 0.5f);
+            halfCos = FastMath.cos(-rotation * 0.5f);
+        }
+        // keep the center of the quad in place
+        float tx = x + centerX - (cos * centerX + sin * centerZ);
+        float tz = z + centerZ - (-sin * centerX + cos * centerZ);
+
+        int i = index * INSTANCE_DATA_SIZE;
+        // columns of the rotation with the quaternion in w, then the translation
+        instanceData.put(i, cos).put(i + 1, 0f).put(i + 2, -sin).put(i + 3, 0f);
+        instanceData.put(i + 4, 0f).put(i + 5, 1f).put(i + 6, 0f).put(i + 7, halfSin);
+        instanceData.put(i + 8, sin).put(i + 9, 0f).put(i + 10, cos).put(i + 11, 0f);
+        instanceData.put(i + 12, tx).put(i + 13, y).put(i + 14, tz).put(i + 15, halfCos);
+    }
+
+    /**
+     * Set the tile of an instance.
+     *
+     * @param index the index of the instance
+     * @param tileX the x position of the tile in the image
+     * @param tileY the y position of the tile in the image
+     * @param flags the flip flags
+     */
+    public void setTile(int index, float tileX, float tileY, int flags) {
+        int i = index * 3;
+        tilePositions.put(i, tileX).put(i + 1, tileY).put(i + 2, flags);
+    }
+
+    /**
+     * Set the tint color of an instance.
+     *
+     * @param index the index of the instance
+     * @param color the color
+     */
+    public void setColor(int index, ColorRGBA color) {
+        int i = index * 4;
+        colors.put(i, color.r).put(i + 1, color.g).put(i + 2, color.b).put(i + 3, color.a);
+    }
+
+    /**
+     * Get the position of a vertex of an instance, as drawn by the shader.
+     *
+     * @param index the index of the instance
+     * @param vertex the index of the vertex of the quad
+     * @param store the vector to store the result
+     * @return the position
+     */
+    public Vector3f getVertex(int index, int vertex, Vector3f store) {
+        int i = index * INSTANCE_DATA_SIZE;
+        float x = quad[vertex * 3];
+        float y = quad[vertex * 3 + 1];
+        float z = quad[vertex * 3 + 2];
+        store.x = instanceData.get(i) * x + instanceData.get(i + 4) * y + instanceData.get(i + 8) * z + instanceData.get(i + 12);
+        store.y = instanceData.get(i + 1) * x + instanceData.get(i + 5) * y + instanceData.get(i + 9) * z + instanceData.get(i + 13);
+        store.z = instanceData.get(i + 2) * x + instanceData.get(i + 6) * y + instanceData.get(i + 10) * z + instanceData.get(i + 14);
+        return store;
+    }
+
+    /**
+     * Upload the instances after a change.
+     */
+    public void update() {
+        getBuffer(VertexBuffer.Type.InstanceData).updateData(instanceData);
+        getBuffer(VertexBuffer.Type.TexCoord2).updateData(tilePositions);
+        getBuffer(VertexBuffer.Type.Color).updateData(colors);
+        this.updateCounts();
+        this.updateBound();
+    }
+
+    /**
+     * The bound of all the instances, so the geometry is culled as a whole.
+     */
+    @Override
+    public void updateBound() {
+        if (count == 0 || quad == null) {
+            super.updateBound();
+            return;
+        }
+        Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        Vector3f v = new Vector3f();
+        int vertexCount = quad.length / 3;
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < vertexCount; j++) {
+                getVertex(i, j, v);
+                min.minLocal(v);
+                max.maxLocal(v);
+            }
+        }
+        setBound(new BoundingBox(min, max));
+    }
+}
@@ -1,20 +1,34 @@
 package io.github.jmecn.tiled.renderer.shape;
 
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
+import com.jme3.math.Matrix4f;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
 import com.jme3.util.TempVars;
 import io.github.jmecn.tiled.core.Tile;
 import io.github.jmecn.tiled.enums.Orientation;
 
-import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
 
 /**
  * This is the mesh of a tile.
  *
+ * <p>It has no normal, the Tiled shader doesn't use it. The index buffer and the texture
+ * coordinates are shared by the tile meshes created with the same {@link TileMeshBuffers}:
+ * the texture coordinates only depend on how the tile is flipped.</p>
+ *
+ * <p>A packed tile mesh stores the positions and the position of the tile in the image as
+ * shorts when they are integers, and as floats otherwise. Its bound and its collisions are
+ * computed from the float positions kept by the mesh.</p>
+ *
  * @author yanmaoyuan
  */
 public class TileMesh extends Mesh {
@@ -23,6 +37,10 @@ public class TileMesh extends Mesh {
     private final Vector2f size;
     private final Vector2f offset;
     private final Vector2f origin;
+    private final float[] positions;
+    private final boolean packed;
+    // the positions as floats, for the collisions of a packed mesh
+    private Mesh collisionMesh;
 
     /**
      * Create a tile mesh.
@@ -33,29 +51,99 @@ public class TileMesh extends Mesh {
      * @param origin the origin of the tile
      */
     public TileMesh(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin) {
+        this(coord, size, offset, origin, 0, Orientation.ORTHOGONAL, false);
+    }
+
+    public TileMesh(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int gid, Orientation orientation) {
+        this(coord, size, offset, origin, gid, orientation, false);
+    }
+
+    /**
+     * Create a tile mesh, flipped by the flags of its gid.
+     *
+     * @param coord the coordinate of the tile
+     * @param size the size of the tile
+     * @param offset the offset of the tile
+     * @param origin the origin of the tile
+     * @param gid the gid of the tile, with its flip flags
+     * @param orientation the orientation of the map
+     * @param packed true to store the vertices as shorts when possible
+     */
+    public TileMesh(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int gid, Orientation orientation,
+                    boolean packed) {
+        this(coord, size, offset, origin, gid, orientation, packed, new TileMeshBuffers());
+    }
+
+    /**
+     * Create a tile mesh, flipped by the flags of its gid, sharing its index buffer and its
+     * texture coordinates with the other meshes of the buffers.
+     *
+     * @param coord the coordinate of the tile
+     * @param size the size of the tile
+     * @param offset the offset of the tile
+     * @param origin the origin of the tile
+     * @param gid the gid of the tile, with its flip flags
+     * @param orientation the orientation of the map
+     * @param packed true to store the vertices as shorts when possible
+     * @param buffers the shared buffers
+     */
+    public TileMesh(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int gid, Orientation orientation,
+                    boolean packed, TileMeshBuffers buffers) {
         this.coord = coord;
         this.size = size;
         this.offset = offset;
         this.origin = origin;
+        this.packed = packed;
 
-        float x = coord.getX();
-        float y = coord.getY();
+        boolean isFlipHorizontally = (gid & Tile.FLIPPED_HORIZONTALLY_FLAG) != 0;
+        boolean isFlipVertically = (gid & Tile.FLIPPED_VERTICALLY_FLAG) != 0;
+        boolean isFlipAntiDiagonally = (gid & Tile.FLIPPED_DIAGONALLY_FLAG) != 0;
+        boolean isRotatedHexagonal120 = (gid & Tile.ROTATED_HEXAGONAL_120_FLAG) != 0;
+
+        positions = getPositions(size, offset, origin);
 
-        float[] vertices = getPositions(size, offset, origin);
+        int flags = 0;
+        if (isFlipHorizontally) {
+            flags |= TileMeshBuffers.FLIP_HORIZONTALLY;
+        }
+        if (isFlipVertically) {
+            flags |= TileMeshBuffers.FLIP_VERTICALLY;
+        }
+        if (orientation == Orientation.HEXAGONAL) {
+            float rotate = 0f;
+            if (isFlipAntiDiagonally) {
+                rotate += FastMath.PI / 3f;// 60
+            }
+            if (isRotatedHexagonal120) {
+                rotate += FastMath.TWO_PI / 3f;// 120
+            }
+            if (rotate != 0f) {
+                rotate(positions, rotate);
+            }
+        } else if (isFlipAntiDiagonally) {
+            flags |= TileMeshBuffers.FLIP_DIAGONALLY;
+        }
+
+        if (packed && isShorts(positions)) {
+            this.setBuffer(VertexBuffer.Type.Position, 3, VertexBuffer.Format.Short, toShorts(positions));
+        } else {
+            this.setBuffer(VertexBuffer.Type.Position, 3, positions.clone());
+        }
 
         // use TexCoord2 to store the tile's position in the image.
         // this is useful when we want to get the tile's position in the image.
-        float[] texCoord2 = new float[]{x, y, 0, x, y, 0, x, y, 0, x, y, 0};
-
-        float[] texCoords = new float[]{0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
-        short[] indexes = new short[]{3, 2, 1, 3, 1, 0};
-        float[] normals = new float[]{0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0};
+        float x = coord.getX();
+        float y = coord.getY();
+        float[] texCoord2 = new float[]{x, y, x, y, x, y, x, y};
+        if (packed && isShorts(texCoord2)) {
+            // the shader reads 0 for the missing z
+            this.setBuffer(VertexBuffer.Type.TexCoord2, 2, VertexBuffer.Format.Short, toShorts(texCoord2));
+        } else {
+            this.setBuffer(VertexBuffer.Type.TexCoord2, 3, new float[]{x, y, 0, x, y, 0, x, y, 0, x, y, 0});
+        }
 
-        this.setBuffer(VertexBuffer.Type.Position, 3, vertices);
-        this.setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
-        this.setBuffer(VertexBuffer.Type.TexCoord2, 3, texCoord2);
-        this.setBuffer(VertexBuffer.Type.Normal, 3, normals);
-        this.setBuffer(VertexBuffer.Type.Index, 3, indexes);
+        this.setBuffer(buffers.getTexCoord(flags));
+        this.setBuffer(buffers.getIndex());
         this.updateBound();
         this.updateCounts();
         this.setStatic();
@@ -78,7 +166,7 @@ public class TileMesh extends Mesh {
      * @param offset the offset of the tile
      * @param origin the origin of the tile
      */
-    private float[] getPositions(Vector2f size, Vector2f offset, Vector2f origin) {
+    private static float[] getPositions(Vector2f size, Vector2f offset, Vector2f origin) {
         float[] vertices = new float[]{
                 0, 0, -1,
                 1, 0, -1,
@@ -93,66 +181,7 @@ public class TileMesh extends Mesh {
         return vertices;
     }
 
-    public TileMesh(Vector2f coord, Vector2f size, Vector2f offset, Vector2f origin, int gid, Orientation orientation) {
-        this(coord, size, offset, origin);
-
-        boolean isFlipHorizontally = (gid & Tile.FLIPPED_HORIZONTALLY_FLAG) != 0;
-        boolean isFlipVertically = (gid & Tile.FLIPPED_VERTICALLY_FLAG) != 0;
-        boolean isFlipAntiDiagonally = (gid & Tile.FLIPPED_DIAGONALLY_FLAG) != 0;
-        boolean isRotatedHexagonal120 = (gid & Tile.ROTATED_HEXAGONAL_120_FLAG) != 0;
-
-        float[] texCoords = new float[]{0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
-
-        if (isFlipHorizontally) {
-            swapUV(texCoords, 0, 1);
-            swapUV(texCoords, 2, 3);
-        }
-        if (isFlipVertically) {
-            swapUV(texCoords, 0, 3);
-            swapUV(texCoords, 1, 2);
-        }
-
-        if (orientation == Orientation.HEXAGONAL) {
-            float rotate = 0f;
-            if (isFlipAntiDiagonally) {
-                rotate += FastMath.PI / 3f;// 60
-            }
-            if (isRotatedHexagonal120) {
-                rotate += FastMath.TWO_PI / 3f;// 120
-            }
-            if (rotate != 0f) {
-                rotate(rotate);
-            }
-        } else {
-            if (isFlipAntiDiagonally) {
-                swapUV(texCoords, 0, 2);
-            }
-        }
-
-        this.setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
-
-        this.updateBound();
-        this.updateCounts();
-        this.setStatic();
-    }
-
-    private void swapUV(float[] buf, int i, int j) {
-        int component = 2;
-        for (int k = 0; k < component; k++) {
-            int a = i * component + k;
-            int b = j * component + k;
-            float tmp = buf[b];
-            buf[b] = buf[a];
-            buf[a] = tmp;
-        }
-    }
-
-    private void rotate(float rotate) {
-        float[] vertices = new float[12];
-        FloatBuffer buffer = (FloatBuffer) getBuffer(VertexBuffer.Type.Position).getData();
-        buffer.flip();
-        buffer.get(vertices);
-
+    private static void rotate(float[] vertices, float rotate) {
         TempVars vars = TempVars.get();
         Matrix3f mat3 = vars.tempMat3;
         mat3.fromAngleAxis(-rotate, Vector3f.UNIT_Y);
@@ -174,8 +203,62 @@ public class TileMesh extends Mesh {
             vertices[i * 3 + 2] = pos.z;
         }
         vars.release();
+    }
+
+    /**
+     * Compute the bound from the positions, whatever the format of the position buffer.
+     */
+    @Override
+    public void updateBound() {
+        setBound(getBound(positions));
+    }
+
+    @Override
+    public int collideWith(Collidable other, Matrix4f worldMatrix, BoundingVolume worldBound, CollisionResults results) {
+        if (getBuffer(VertexBuffer.Type.Position).getFormat() == VertexBuffer.Format.Float) {
+            return super.collideWith(other, worldMatrix, worldBound, results);
+        }
+        // the collision tree reads the positions as floats
+        if (collisionMesh == null) {
+            Mesh mesh = new Mesh();
+            mesh.setBuffer(VertexBuffer.Type.Position, 3, positions.clone());
+            mesh.setBuffer(getBuffer(VertexBuffer.Type.Index));
+            mesh.setBound(getBound(positions));
+            mesh.updateCounts();
+            collisionMesh = mesh;
+        }
+        return collisionMesh.collideWith(other, worldMatrix, worldBound, results);
+    }
+
+    private static BoundingBox getBound(float[] vertices) {
+        Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertices.length; i += 3) {
+            min.set(Math.min(min.x, vertices[i]), Math.min(min.y, vertices[i + 1]), Math.min(min.z, vertices[i + 2]));
+            max.set(Math.max(max.x, vertices[i]), Math.max(max.y, vertices[i + 1]), Math.max(max.z, vertices[i + 2]));
+        }
+        return new BoundingBox(min, max);
+    }
+
+    /**
+     * @return true if all the values are integers that fit in a short
+     */
+    private static boolean isShorts(float[] values) {
+        for (float value : values) {
+            if (value != (short) value) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        this.setBuffer(VertexBuffer.Type.Position, 3, vertices);
+    private static ShortBuffer toShorts(float[] values) {
+        ShortBuffer shorts = BufferUtils.createShortBuffer(values.length);
+        for (float value : values) {
+            shorts.put((short) value);
+        }
+        shorts.flip();
+        return shorts;
     }
 
     public Vector2f getCoord() {
@@ -193,4 +276,21 @@ public class TileMesh extends Mesh {
     public Vector2f getOrigin() {
         return origin;
     }
+
+    /**
+     * Get the positions of the 4 vertices, whatever the format of the position buffer.
+     * Don't modify them.
+     *
+     * @return the x, y, z of the vertices
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return true if the vertices are stored as shorts when possible
+     */
+    public boolean isPacked() {
+        return packed;
+    }
 }
@@ -0,0 +1,78 @@
+package io.github.jmecn.tiled.renderer.shape;
+
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+/**
+ * The index buffer and the texture coordinates shared by tile meshes. The texture
+ * coordinates only depend on how a tile is flipped, so there are at most 8 of them.
+ *
+ * <p>A vertex buffer is uploaded to the context of the renderer drawing it, so the buffers
+ * are shared by the meshes of a {@link io.github.jmecn.tiled.renderer.factory.TileMeshCache},
+ * not by every mesh in the JVM. The buffers are created when first needed.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class TileMeshBuffers {
+
+    static final int FLIP_HORIZONTALLY = 1;
+    static final int FLIP_VERTICALLY = 2;
+    static final int FLIP_DIAGONALLY = 4;
+
+    private VertexBuffer index;
+    private final VertexBuffer[] texCoords = new VertexBuffer[8];
+
+    /**
+     * @return the index buffer of the two triangles of a tile
+     */
+    public synchronized VertexBuffer getIndex() {
+        if (index == null) {
+            index = new VertexBuffer(VertexBuffer.Type.Index);
+            index.setupData(VertexBuffer.Usage.Static, 3, VertexBuffer.Format.UnsignedShort,
+                    BufferUtils.createShortBuffer(new short[]{3, 2, 1, 3, 1, 0}));
+        }
+        return index;
+    }
+
+    /**
+     * @param flags the flip flags, {@link #FLIP_HORIZONTALLY}, {@link #FLIP_VERTICALLY} and {@link #FLIP_DIAGONALLY}
+     * @return the texture coordinates of a tile flipped by these flags
+     */
+    public synchronized VertexBuffer getTexCoord(int flags) {
+        VertexBuffer vb = texCoords[flags];
+        if (vb == null) {
+            vb = newTexCoordBuffer(flags);
+            texCoords[flags] = vb;
+        }
+        return vb;
+    }
+
+    private static VertexBuffer newTexCoordBuffer(int flags) {
+        float[] texCoord = new float[]{0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
+        if ((flags & FLIP_HORIZONTALLY) != 0) {
+            swapUV(texCoord, 0, 1);
+            swapUV(texCoord, 2, 3);
+        }
+        if ((flags & FLIP_VERTICALLY) != 0) {
+            swapUV(texCoord, 0, 3);
+            swapUV(texCoord, 1, 2);
+        }
+        if ((flags & FLIP_DIAGONALLY) != 0) {
+            swapUV(texCoord, 0, 2);
+        }
+        VertexBuffer vb = new VertexBuffer(VertexBuffer.Type.TexCoord);
+        vb.setupData(VertexBuffer.Usage.Static, 2, VertexBuffer.Format.Float, BufferUtils.createFloatBuffer(texCoord));
+        return vb;
+    }
+
+    private static void swapUV(float[] buf, int i, int j) {
+        int component = 2;
+        for (int k = 0; k < component; k++) {
+            int a = i * component + k;
+            int b = j * component + k;
+            float tmp = buf[b];
+            buf[b] = buf[a];
+            buf[a] = tmp;
+        }
+    }
+}
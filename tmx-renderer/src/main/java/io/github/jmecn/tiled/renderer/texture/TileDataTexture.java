@@ -0,0 +1,269 @@
+package io.github.jmecn.tiled.renderer.texture;
+
+import com.jme3.renderer.Renderer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.enums.Orientation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The tiles of a layer from one tileset, stored in a RGBA8 texture with one texel per cell.
+ *
+ * <p>A texel holds the index of the tile in the tileset in red (low byte) and green (high
+ * byte), the flip flags in blue, and 255 in alpha. The alpha is 0 when the cell has no tile
+ * of this tileset. The Tiled shader resolves the tile and its position in the tileset image
+ * for every pixel, so the whole layer is drawn with a single quad.</p>
+ *
+ * <p>The texels written after the first upload are kept in a list, and {@link #upload(Renderer)}
+ * sends them one by one with {@link Renderer#modifyTexture(Texture2D, Image, int, int, int, int, int, int)}.
+ * When more than {@link #MAX_TEXEL_UPDATES} texels are waiting, the whole texture is uploaded
+ * again instead.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileDataTexture {
+
+    public static final int FLIP_HORIZONTALLY = 1;
+    public static final int FLIP_VERTICALLY = 2;
+    public static final int FLIP_DIAGONALLY = 4;
+
+    public static final int MAX_TILES = 0x10000;
+
+    /**
+     * The number of texels sent one by one, beyond which the whole texture is uploaded.
+     */
+    public static final int MAX_TEXEL_UPDATES = 256;
+
+    private static final int BYTES_PER_TEXEL = 4;
+
+    private final Tileset tileset;
+    private final int width;
+    private final int height;
+    private final ByteBuffer data;
+    private final Image image;
+    private final Texture2D texture;
+
+    // the index of the texels written since the last upload
+    private int[] pendingTexels = new int[16];
+    private int pendingCount;
+    private boolean fullUpdate;
+
+    /**
+     * Create an empty texture.
+     *
+     * @param tileset the tileset of the tiles
+     * @param width the width of the layer in tiles
+     * @param height the height of the layer in tiles
+     */
+    public TileDataTexture(Tileset tileset, int width, int height) {
+        this.tileset = tileset;
+        this.width = width;
+        this.height = height;
+        // the texels are read and written as int, red in the high byte
+        this.data = BufferUtils.createByteBuffer(width * height * BYTES_PER_TEXEL).order(ByteOrder.BIG_ENDIAN);
+        this.image = new Image(Image.Format.RGBA8, width, height, data, ColorSpace.Linear);
+        this.texture = new Texture2D(image);
+        this.texture.setMagFilter(Texture.MagFilter.Nearest);
+        this.texture.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        this.texture.setWrap(Texture.WrapMode.EdgeClamp);
+    }
+
+    /**
+     * Create the texture of the tiles of a layer from a tileset.
+     *
+     * @param tileset the tileset of the tiles
+     * @param layer the layer
+     * @param width the width of the map in tiles
+     * @param height the height of the map in tiles
+     */
+    public TileDataTexture(Tileset tileset, TileLayer layer, int width, int height) {
+        this(tileset, width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Tile tile = layer.getTileAt(x, y);
+                if (tile != null && tile.getTileset() == tileset) {
+                    data.putInt((y * width + x) * BYTES_PER_TEXEL, encode(tile));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a tile can be drawn from a data texture: it must come from an image
+     * based tileset of an orthogonal map, with the size of the cells of the map and no offset.
+     *
+     * @param map the map
+     * @param tile the tile
+     * @return true if the tile can be drawn from a data texture
+     */
+    public static boolean isSupported(TiledMap map, Tile tile) {
+        Tileset tileset = tile.getTileset();
+        return map.getOrientation() == Orientation.ORTHOGONAL
+                && tileset != null
+                && tileset.isImageBased()
+                && tile.getId() < MAX_TILES
+                && tile.getWidth() == map.getTileWidth()
+                && tile.getHeight() == map.getTileHeight()
+                && tileset.getTileOffset().x == 0f
+                && tileset.getTileOffset().y == 0f;
+    }
+
+    /**
+     * Encode a tile as a texel.
+     *
+     * @param tile the tile, or null
+     * @return the texel
+     */
+    public static int encode(Tile tile) {
+        if (tile == null) {
+            return 0;
+        }
+        return pack(tile.getId(), getFlags(tile));
+    }
+
+    /**
+     * @param index the index of the tile in the tileset
+     * @param flags the flip flags
+     * @return the texel, with red in the high byte and alpha in the low byte
+     */
+    public static int pack(int index, int flags) {
+        if (index < 0 || index >= MAX_TILES) {
+            throw new IllegalArgumentException("Tile index out of range: " + index);
+        }
+        return (index & 0xFF) << 24 | ((index >> 8) & 0xFF) << 16 | (flags & 0xFF) << 8 | 0xFF;
+    }
+
+    /**
+     * @param texel the texel
+     * @return the index of the tile in the tileset, -1 if the cell is empty
+     */
+    public static int getIndex(int texel) {
+        if ((texel & 0xFF) == 0) {
+            return -1;
+        }
+        return (texel >>> 24) | ((texel >>> 16) & 0xFF) << 8;
+    }
+
+    /**
+     * @param texel the texel
+     * @return the flip flags
+     */
+    public static int getFlags(int texel) {
+        return (texel >>> 8) & 0xFF;
+    }
+
+    /**
+     * @param tile the tile
+     * @return the flip flags of the tile
+     */
+    public static int getFlags(Tile tile) {
+        int flags = 0;
+        if (tile.isFlippedHorizontally()) {
+            flags |= FLIP_HORIZONTALLY;
+        }
+        if (tile.isFlippedVertically()) {
+            flags |= FLIP_VERTICALLY;
+        }
+        if (tile.isFlippedAntiDiagonally()) {
+            flags |= FLIP_DIAGONALLY;
+        }
+        return flags;
+    }
+
+    /**
+     * Set the tile of a cell, only this texel is written. A tile from another tileset
+     * clears the cell.
+     *
+     * @param x the x position of the cell
+     * @param y the y position of the cell
+     * @param tile the tile, or null
+     * @return true if the texel changed
+     */
+    public boolean setTileAt(int x, int y, Tile tile) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        int texel = tile != null && tile.getTileset() == tileset ? encode(tile) : 0;
+        int offset = (y * width + x) * BYTES_PER_TEXEL;
+        if (data.getInt(offset) == texel) {
+            return false;
+        }
+        data.putInt(offset, texel);
+        if (!fullUpdate) {
+            if (pendingCount == MAX_TEXEL_UPDATES) {
+                fullUpdate = true;
+                pendingCount = 0;
+                image.setUpdateNeeded();
+            } else {
+                if (pendingCount == pendingTexels.length) {
+                    pendingTexels = Arrays.copyOf(pendingTexels, pendingCount * 2);
+                }
+                pendingTexels[pendingCount++] = y * width + x;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send the texels written since the last upload to the GPU. It must be called on the
+     * render thread, see {@link io.github.jmecn.tiled.renderer.TileDataControl}.
+     *
+     * @param renderer the renderer
+     */
+    public void upload(Renderer renderer) {
+        // the texture is not uploaded yet, or is uploaded whole on this frame
+        if (image.getId() == -1 || image.isUpdateNeeded()) {
+            pendingCount = 0;
+            fullUpdate = false;
+            return;
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            int x = pendingTexels[i] % width;
+            int y = pendingTexels[i] / width;
+            renderer.modifyTexture(texture, image, x, y, x, y, 1, 1);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * @return the number of texels waiting to be sent one by one
+     */
+    public int getPendingTexelCount() {
+        return pendingCount;
+    }
+
+    /**
+     * @param x the x position of the cell
+     * @param y the y position of the cell
+     * @return the texel of the cell
+     */
+    public int getTexelAt(int x, int y) {
+        return data.getInt((y * width + x) * BYTES_PER_TEXEL);
+    }
+
+    public Tileset getTileset() {
+        return tileset;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Texture2D getTexture() {
+        return texture;
+    }
+}
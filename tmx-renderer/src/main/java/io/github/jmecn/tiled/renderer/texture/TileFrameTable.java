@@ -0,0 +1,140 @@
+package io.github.jmecn.tiled.renderer.texture;
+
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import io.github.jmecn.tiled.animation.Animation;
+import io.github.jmecn.tiled.animation.Frame;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.Tileset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The current frame of the animated tiles of a tileset, stored in a RGBA8 texture with one
+ * texel per tile of the tileset. A texel holds the index of the tile to draw instead, in the
+ * same format as the {@link TileDataTexture}, so all the cells of the layers showing an
+ * animated tile are animated by updating one texel.
+ *
+ * @author yanmaoyuan
+ */
+public class TileFrameTable {
+
+    public static final int WIDTH = 256;
+
+    private static final int BYTES_PER_TEXEL = 4;
+
+    /**
+     * The state of the animation of a tile, same as in AnimatedTileControl.
+     */
+    private static final class AnimatedTile {
+        private final int index;
+        private final Animation animation;
+        private int currentFrameIndex;
+        private float unusedTime;
+
+        AnimatedTile(int index, Animation animation) {
+            this.index = index;
+            this.animation = animation;
+        }
+    }
+
+    private final int height;
+    private final ByteBuffer data;
+    private final Image image;
+    private final Texture2D texture;
+    private final List<AnimatedTile> animatedTiles = new ArrayList<>();
+
+    public TileFrameTable(Tileset tileset) {
+        int count = tileset.getMaxTileId() + 1;
+        this.height = Math.max(1, (count + WIDTH - 1) / WIDTH);
+        this.data = BufferUtils.createByteBuffer(WIDTH * height * BYTES_PER_TEXEL).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < count && i < TileDataTexture.MAX_TILES; i++) {
+            data.putInt(i * BYTES_PER_TEXEL, TileDataTexture.pack(i, 0));
+        }
+        for (Tile tile : tileset) {
+            if (tile != null && tile.isAnimated() && tile.getId() < TileDataTexture.MAX_TILES) {
+                AnimatedTile animatedTile = new AnimatedTile(tile.getId(), tile.getAnimations().get(0));
+                animatedTiles.add(animatedTile);
+                setFrame(animatedTile);
+            }
+        }
+
+        this.image = new Image(Image.Format.RGBA8, WIDTH, height, data, ColorSpace.Linear);
+        this.texture = new Texture2D(image);
+        this.texture.setMagFilter(Texture.MagFilter.Nearest);
+        this.texture.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        this.texture.setWrap(Texture.WrapMode.EdgeClamp);
+    }
+
+    /**
+     * @return true if the tileset has animated tiles
+     */
+    public boolean hasAnimations() {
+        return !animatedTiles.isEmpty();
+    }
+
+    /**
+     * Advance the animations.
+     *
+     * @param tpf the time per frame in seconds
+     * @return true if a texel changed
+     */
+    public boolean update(float tpf) {
+        boolean changed = false;
+        float ms = tpf * 1000;
+        for (AnimatedTile tile : animatedTiles) {
+            Animation anim = tile.animation;
+            tile.unusedTime += ms;
+            Frame frame = anim.getFrame(tile.currentFrameIndex);
+            int previous = tile.currentFrameIndex;
+            while (frame.getDuration() > 0 && tile.unusedTime > frame.getDuration()) {
+                tile.unusedTime -= frame.getDuration();
+                tile.currentFrameIndex = (tile.currentFrameIndex + 1) % anim.getTotalFrames();
+                frame = anim.getFrame(tile.currentFrameIndex);
+            }
+            if (previous != tile.currentFrameIndex) {
+                changed |= setFrame(tile);
+            }
+        }
+        if (changed) {
+            image.setUpdateNeeded();
+        }
+        return changed;
+    }
+
+    private boolean setFrame(AnimatedTile tile) {
+        int texel = TileDataTexture.pack(tile.animation.getFrame(tile.currentFrameIndex).getTileId(), 0);
+        int offset = tile.index * BYTES_PER_TEXEL;
+        if (data.getInt(offset) == texel) {
+            return false;
+        }
+        data.putInt(offset, texel);
+        return true;
+    }
+
+    /**
+     * @param index the index of a tile in the tileset
+     * @return the index of the tile drawn instead
+     */
+    public int getFrameAt(int index) {
+        return TileDataTexture.getIndex(data.getInt(index * BYTES_PER_TEXEL));
+    }
+
+    public int getWidth() {
+        return WIDTH;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Texture2D getTexture() {
+        return texture;
+    }
+}
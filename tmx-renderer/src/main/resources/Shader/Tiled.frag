@@ -32,8 +32,27 @@ varying vec2 v_TilePos;
 
 varying vec2 v_TexCoord;
 
-vec2 getTileUVClamped(vec2 tilePos, vec2 tileSize, vec2 imageSize) {
-    vec2 pixel = v_TexCoord * tileSize + tilePos;
+#ifdef INSTANCING
+varying vec4 v_InstanceColor;
+#endif
+
+#ifdef HAS_LAYER_DATA
+uniform sampler2D m_LayerData;
+uniform vec2 m_LayerSize;
+uniform float m_Columns;
+#ifdef HAS_FRAME_TABLE
+uniform sampler2D m_FrameTable;
+uniform vec2 m_FrameTableSize;
+#endif
+
+// the index of the tile from the red and green bytes of a texel
+float getTileIndex(vec4 texel) {
+    return floor(texel.r * 255.0 + 0.5) + floor(texel.g * 255.0 + 0.5) * 256.0;
+}
+#endif
+
+vec2 getTileUVClamped(vec2 texCoord, vec2 tilePos, vec2 tileSize, vec2 imageSize) {
+    vec2 pixel = texCoord * tileSize + tilePos;
     vec2 min = vec2(tilePos + 0.5);
     vec2 max = vec2(tilePos + tileSize - 0.5);
     vec2 uv = clamp(pixel, min, max) / imageSize;
@@ -47,8 +66,40 @@ void main(){
 #ifdef HAS_COLOR_MAP
     vec2 uv = v_TexCoord;
 
-    #ifdef USE_TILESET_IMAGE
-    uv = getTileUVClamped(v_TilePos, m_TileSize.xy, m_ImageSize.xy);
+    #if defined(USE_TILESET_IMAGE) && defined(HAS_LAYER_DATA)
+    // resolve the tile of the cell under this pixel
+    vec2 cell = v_TexCoord * m_LayerSize;
+    vec4 texel = texture2D(m_LayerData, (floor(cell) + 0.5) / m_LayerSize);
+    if (texel.a < 0.5) {
+        discard;
+    }
+    float index = getTileIndex(texel);
+        #ifdef HAS_FRAME_TABLE
+    vec2 frame = vec2(mod(index, m_FrameTableSize.x), floor(index / m_FrameTableSize.x));
+    index = getTileIndex(texture2D(m_FrameTable, (frame + 0.5) / m_FrameTableSize));
+        #endif
+
+    // the flip flags: 1 horizontally, 2 vertically, 4 diagonally
+    vec2 tileCoord = fract(cell);
+    float flags = floor(texel.b * 255.0 + 0.5);
+    if (flags >= 4.0) {
+        tileCoord = vec2(1.0 - tileCoord.y, 1.0 - tileCoord.x);
+        flags -= 4.0;
+    }
+    if (flags >= 2.0) {
+        tileCoord.y = 1.0 - tileCoord.y;
+        flags -= 2.0;
+    }
+    if (flags >= 1.0) {
+        tileCoord.x = 1.0 - tileCoord.x;
+    }
+
+    // (width, height, margin, space)
+    vec2 tileGrid = vec2(mod(index, m_Columns), floor(index / m_Columns));
+    vec2 tilePos = m_TileSize.zz + tileGrid * (m_TileSize.xy + m_TileSize.ww);
+    uv = getTileUVClamped(tileCoord, tilePos, m_TileSize.xy, m_ImageSize.xy);
+    #elif defined(USE_TILESET_IMAGE)
+    uv = getTileUVClamped(v_TexCoord, v_TilePos, m_TileSize.xy, m_ImageSize.xy);
     #endif
 
     color = texture2D(m_ColorMap, uv);
@@ -68,6 +119,10 @@ void main(){
     color *= m_TintColor;
     #endif
 
+    #ifdef INSTANCING
+    color *= v_InstanceColor;
+    #endif
+
     #ifdef HAS_LAYER_OPACITY
     color.a *= m_LayerOpacity;
     #endif
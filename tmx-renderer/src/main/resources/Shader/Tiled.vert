@@ -16,9 +16,33 @@ varying vec2 v_TilePos;
 
 varying vec2 v_TexCoord;
 
+#ifdef INSTANCING
+// the tint color of the instance
+attribute vec4 inColor;
+varying vec4 v_InstanceColor;
+#endif
+
 void main() {
     v_TexCoord = inTexCoord;
 
+#ifdef INSTANCING
+    v_InstanceColor = inColor;
+
+    // the flip flags of the instance: 1 horizontally, 2 vertically, 4 diagonally
+    float flags = inTexCoord2.z;
+    if (flags >= 4.0) {
+        v_TexCoord = vec2(1.0 - v_TexCoord.y, 1.0 - v_TexCoord.x);
+        flags -= 4.0;
+    }
+    if (flags >= 2.0) {
+        v_TexCoord.y = 1.0 - v_TexCoord.y;
+        flags -= 2.0;
+    }
+    if (flags >= 1.0) {
+        v_TexCoord.x = 1.0 - v_TexCoord.x;
+    }
+#endif
+
 #ifdef USE_TILESET_IMAGE
     #ifdef USE_TILE_POSITION
     v_TilePos = m_TilePosition;
@@ -30,5 +54,10 @@ void main() {
     vec3 position = inPosition;
     vec4 modelSpacePos = vec4(position, 1.0);
 
+#ifdef INSTANCING
+    // the instance transform is relative to the geometry
+    gl_Position = g_WorldViewProjectionMatrix * TransformWorld(modelSpacePos);
+#else
     gl_Position = TransformWorldViewProjection(modelSpacePos);
+#endif
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.control.AbstractControl;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.animation.AnimatedTileControl;
+import io.github.jmecn.tiled.animation.AnimationClock;
+import io.github.jmecn.tiled.animation.Frame;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the cost of a frame of the animations of the tiles against the number of
+ * animated cells: the former {@link AnimatedTileControl} per cell with its own material,
+ * and the {@link AnimationClock} with one material per animated tile.
+ *
+ * @author yanmaoyuan
+ */
+public class AnimationClockBenchmark {
+
+    private static final int ANIMATED_TILES = 8;
+    private static final int FRAMES = 600;
+    private static final float TPF = 1f / 60;
+    private static final int[] CELLS = {1000, 5000, 20000};
+
+    static double measure(List<? extends AbstractControl> controls) {
+        long time = 0;
+        for (int i = 0; i < FRAMES * 2; i++) {
+            long start = System.nanoTime();
+            for (int c = 0, n = controls.size(); c < n; c++) {
+                controls.get(c).update(TPF);
+            }
+            if (i >= FRAMES) {
+                // the first half is the warmup
+                time += System.nanoTime() - start;
+            }
+        }
+        return time / 1e6 / FRAMES;
+    }
+
+    public static void main(String[] args) {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        DefaultMaterialFactory materialFactory = new DefaultMaterialFactory(assetManager);
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tileset tileset = map.getTileSets().get(0);
+
+        Tile[] tiles = new Tile[ANIMATED_TILES];
+        for (int i = 0; i < ANIMATED_TILES; i++) {
+            tiles[i] = tileset.getTile(i);
+            int first = ANIMATED_TILES + i * 4;
+            tiles[i].addAnimation(Arrays.asList(new Frame(first, 100), new Frame(first + 1, 150),
+                    new Frame(first + 2, 100), new Frame(first + 3, 200)));
+        }
+
+        System.out.printf("%d animated tiles, time per frame%n", ANIMATED_TILES);
+        System.out.printf("%-8s %12s %12s%n", "cells", "controls", "clock");
+        for (int cells : CELLS) {
+            List<AnimatedTileControl> controls = new ArrayList<>(cells);
+            for (int i = 0; i < cells; i++) {
+                Tile tile = tiles[i % ANIMATED_TILES];
+                Geometry geometry = new Geometry("tile#" + i);
+                geometry.setMaterial(materialFactory.newMaterial(tile));
+                AnimatedTileControl control = new AnimatedTileControl(tile);
+                geometry.addControl(control);
+                controls.add(control);
+            }
+
+            // the cells of a tile share its material, the clock does not depend on their number
+            AnimationClock clock = new AnimationClock();
+            for (Tile tile : tiles) {
+                Material material = materialFactory.newMaterial(tile);
+                clock.add(tile, material);
+            }
+
+            double perCell = measure(controls);
+            double shared = measure(Arrays.asList(clock));
+            System.out.printf("%-8d %9.3f ms %9.3f ms%n", cells, perCell, shared);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.jmecn.tiled.renderer;
+
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+
+import java.util.Random;
+
+/**
+ * Measures the cost of a frame of {@link MapRenderer#render(TileLayer)} for the tile
+ * visiting part only: the former scan of every cell of the map, and the scan of the
+ * dirty region, against the number of tiles edited per frame.
+ *
+ * @author yanmaoyuan
+ */
+public class DirtyTilesBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int FRAMES = 100;
+    private static final int[] EDITS = {1, 10, 100, 1000, 10000};
+
+    interface Frame {
+        void render(MapRenderer renderer, TileLayer layer);
+    }
+
+    static void fullScan(MapRenderer renderer, TileLayer layer) {
+        renderer.visitTiles((x, y, z) -> {
+            if (layer.isNeedUpdateAt(x, y)) {
+                layer.setNeedUpdateAt(x, y, false);
+            }
+        });
+    }
+
+    static void dirtyScan(MapRenderer renderer, TileLayer layer) {
+        renderer.visitDirtyTiles(layer, (x, y, z) -> layer.setNeedUpdateAt(x, y, false));
+    }
+
+    static double measure(Frame frame, MapRenderer renderer, TileLayer layer, int edits, Tile tile) {
+        Random random = new Random(1);
+        long time = 0;
+        for (int i = 0; i < FRAMES * 2; i++) {
+            for (int e = 0; e < edits; e++) {
+                layer.setTileAt(random.nextInt(SIZE), random.nextInt(SIZE), tile);
+            }
+            long start = System.nanoTime();
+            frame.render(renderer, layer);
+            if (i >= FRAMES) {
+                // the first half is the warmup
+                time += System.nanoTime() - start;
+            }
+        }
+        return time / 1e6 / FRAMES;
+    }
+
+    public static void main(String[] args) {
+        TiledMap map = new TiledMap(SIZE, SIZE);
+        map.setTileWidth(32);
+        map.setTileHeight(32);
+        TileLayer layer = new TileLayer(SIZE, SIZE);
+        map.addLayer(layer);
+        MapRenderer renderer = new OrthogonalRenderer(map);
+        Tile tile = new Tile(0, 0, 32, 32);
+
+        System.out.printf("%dx%d tiles, time per frame%n", SIZE, SIZE);
+        System.out.printf("%-8s %12s %12s%n", "edits", "full scan", "dirty");
+        for (int edits : EDITS) {
+            double full = measure(DirtyTilesBenchmark::fullScan, renderer, layer, edits, tile);
+            double dirty = measure(DirtyTilesBenchmark::dirtyScan, renderer, layer, edits, tile);
+            System.out.printf("%-8d %9.3f ms %9.3f ms%n", edits, full, dirty);
+        }
+    }
+}
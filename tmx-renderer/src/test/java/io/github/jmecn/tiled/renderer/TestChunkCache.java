@@ -0,0 +1,188 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Chunk;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.enums.RenderOrder;
+import io.github.jmecn.tiled.enums.TileStorage;
+import io.github.jmecn.tiled.math2d.TileRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestChunkCache {
+
+    /**
+     * An infinite map with tiles from (-40, -40) to (39, 39), in 6x6 chunks of 16x16 tiles.
+     */
+    static TiledMap createInfiniteMap(AssetManager assetManager) {
+        TiledMap sewers = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tileset tileset = sewers.getTileSets().get(0);
+
+        TiledMap map = new TiledMap(30, 20);
+        map.setInfinite(true);
+        map.setOrientation(Orientation.ORTHOGONAL);
+        map.setRenderOrder(RenderOrder.RIGHT_DOWN);
+        map.setTileWidth(24);
+        map.setTileHeight(24);
+        map.addTileset(tileset);
+
+        TileLayer layer = new TileLayer(map, 30, 20, TileStorage.TILES);
+        layer.setName("chunks");
+        map.addLayer(layer);
+        for (int y = -40; y < 40; y++) {
+            for (int x = -40; x < 40; x++) {
+                if ((x + y) % 3 != 0) {
+                    layer.setTileAt(x, y, tileset.getTile(Math.floorMod(x * 3 + y, 64)));
+                }
+            }
+        }
+        return map;
+    }
+
+    static int countTiles(Node layerNode) {
+        int count = 0;
+        for (Spatial chunk : layerNode.getChildren()) {
+            count += ((Node) chunk).getQuantity();
+        }
+        return count;
+    }
+
+    @Test void renderAllChunks() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = createInfiniteMap(assetManager);
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        renderer.render();
+
+        Node layerNode = renderer.getLayerNode(layer);
+        assertEquals(36, layer.getChunks().size());
+        assertEquals(36, layerNode.getQuantity());
+        int tiles = 0;
+        for (int y = -40; y < 40; y++) {
+            for (int x = -40; x < 40; x++) {
+                tiles += layer.getTileAt(x, y) != null ? 1 : 0;
+            }
+        }
+        assertEquals(tiles, countTiles(layerNode));
+        assertEquals(tiles, renderer.getChunkCache().getTileCount());
+
+        // the tiles further down are drawn on top
+        ChunkCache.Entry entry = renderer.getChunkCache().get(layer.getChunkAt(-10, -10));
+        float above = entry.spatials[1].getLocalTranslation().y;
+        float below = entry.spatials[16].getLocalTranslation().y;
+        assertTrue(below > above);
+    }
+
+    @Test void evictLeastRecentlyUsedChunks() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = createInfiniteMap(assetManager);
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        ChunkCache cache = renderer.getChunkCache();
+        cache.setMaxChunks(8);
+        Node layerNode = renderer.getLayerNode(layer);
+
+        // 2x2 chunks each
+        TileRect a = new TileRect(-48, -48, 32, 32);
+        TileRect b = new TileRect(16, 16, 32, 32);
+        TileRect c = new TileRect(-48, 16, 32, 32);
+
+        renderer.setVisibleRegion(layer, a);
+        renderer.render();
+        assertEquals(4, layerNode.getQuantity());
+        assertEquals(4, cache.getMisses());
+
+        renderer.setVisibleRegion(layer, b);
+        renderer.render();
+        assertEquals(4, layerNode.getQuantity());
+        assertEquals(8, cache.getMisses());
+        assertEquals(8, cache.size());
+        assertEquals(0, cache.getEvictions());
+
+        renderer.setVisibleRegion(layer, a);
+        renderer.render();
+        assertEquals(4, cache.getHits());
+        assertEquals(8, cache.getMisses());
+
+        // the chunks of b are the least recently used
+        renderer.setVisibleRegion(layer, c);
+        renderer.render();
+        assertEquals(4, cache.getEvictions());
+        assertEquals(8, cache.size());
+        for (Chunk chunk : layer.getChunks(b, new ArrayList<>())) {
+            assertFalse(cache.contains(chunk));
+        }
+        for (Chunk chunk : layer.getChunks(a, new ArrayList<>())) {
+            assertTrue(cache.contains(chunk));
+        }
+        assertEquals(4, layerNode.getQuantity());
+    }
+
+    @Test void updateChangedCells() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = createInfiniteMap(assetManager);
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        renderer.render();
+
+        Chunk chunk = layer.getChunkAt(-10, -10);
+        ChunkCache.Entry entry = renderer.getChunkCache().get(chunk);
+        int index = (-10 - chunk.getY()) * chunk.getWidth() + (-10 - chunk.getX());
+        Spatial before = entry.spatials[index];
+        Spatial next = entry.spatials[index + 1];
+
+        layer.setTileAt(-10, -10, null);
+        renderer.render();
+        assertSame(entry, renderer.getChunkCache().get(chunk));
+        assertNull(entry.spatials[index]);
+        assertNull(before.getParent());
+        assertSame(next, entry.spatials[index + 1]);
+
+        layer.setTileAt(-10, -10, map.getTileSets().get(0).getTile(5));
+        renderer.render();
+        assertNotNull(entry.spatials[index]);
+        assertFalse(layer.isNeedUpdateAt(-10, -10));
+    }
+
+    @Test void keepChunksWhenBoundsGrow() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = createInfiniteMap(assetManager);
+        TileLayer layer = (TileLayer) map.getLayer(0);
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        renderer.render();
+
+        Chunk chunk = layer.getChunkAt(-10, -10);
+        ChunkCache.Entry entry = renderer.getChunkCache().get(chunk);
+        float depth = entry.spatials[1].getLocalTranslation().y;
+        long misses = renderer.getChunkCache().getMisses();
+
+        // paint out of the chunks, only the new chunk is built
+        layer.setTileAt(100, 100, map.getTileSets().get(0).getTile(5));
+        renderer.render();
+        assertSame(entry, renderer.getChunkCache().get(chunk));
+        assertEquals(depth, entry.spatials[1].getLocalTranslation().y);
+        assertEquals(misses + 1, renderer.getChunkCache().getMisses());
+
+        // the new tile is further down, it's drawn on top
+        ChunkCache.Entry far = renderer.getChunkCache().get(layer.getChunkAt(100, 100));
+        for (Spatial spatial : far.spatials) {
+            if (spatial != null) {
+                assertTrue(spatial.getLocalTranslation().y > depth);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.jmecn.tiled.renderer;
+
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.enums.RenderOrder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestDirtyTiles {
+
+    static final int SIZE = 64;
+
+    static TileLayer createLayer(TiledMap map) {
+        TileLayer layer = new TileLayer(SIZE, SIZE);
+        Tile tile = new Tile(0, 0, 32, 32);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                layer.setTileAt(x, y, tile);
+            }
+        }
+        map.addLayer(layer);
+        return layer;
+    }
+
+    static List<int[]> visitDirty(MapRenderer renderer, TileLayer layer) {
+        List<int[]> visited = new ArrayList<>();
+        renderer.visitDirtyTiles(layer, (x, y, z) -> visited.add(new int[]{x, y, z}));
+        return visited;
+    }
+
+    @Test void visitOnlyDirtyCells() {
+        TiledMap map = new TiledMap(SIZE, SIZE);
+        map.setRenderOrder(RenderOrder.LEFT_UP);
+        TileLayer layer = createLayer(map);
+        MapRenderer renderer = new OrthogonalRenderer(map);
+
+        assertEquals(SIZE * SIZE, visitDirty(renderer, layer).size());
+
+        layer.getDirtyRegion().clear();
+        assertEquals(0, visitDirty(renderer, layer).size());
+
+        Tile tile = new Tile(32, 0, 32, 32);
+        layer.setTileAt(3, 60, tile);
+        layer.setTileAt(40, 2, tile);
+        layer.setTileAt(41, 2, tile);
+        layer.setTileAt(5, 5, null);
+
+        List<int[]> visited = visitDirty(renderer, layer);
+        assertEquals(4, visited.size());
+
+        // same z-index as a full visit, in render order
+        int[] zIndices = new int[SIZE * SIZE];
+        renderer.visitTiles((x, y, z) -> zIndices[y * SIZE + x] = z);
+        int lastZ = -1;
+        for (int[] cell : visited) {
+            assertTrue(layer.isNeedUpdateAt(cell[0], cell[1]));
+            assertEquals(zIndices[cell[1] * SIZE + cell[0]], cell[2]);
+            assertTrue(cell[2] > lastZ);
+            lastZ = cell[2];
+        }
+        // left-up, the bottom row first
+        assertArrayEquals(new int[]{3, 60}, new int[]{visited.get(0)[0], visited.get(0)[1]});
+    }
+
+    @Test void visitDirtyCellsInIsometricOrder() {
+        TiledMap map = new TiledMap(SIZE, SIZE);
+        map.setOrientation(Orientation.ISOMETRIC);
+        map.setTileWidth(64);
+        map.setTileHeight(32);
+        TileLayer layer = createLayer(map);
+        MapRenderer renderer = new IsometricRenderer(map);
+        layer.getDirtyRegion().clear();
+
+        Tile tile = new Tile(32, 0, 32, 32);
+        layer.setTileAt(10, 0, tile);
+        layer.setTileAt(0, 9, tile);
+        layer.setTileAt(2, 2, tile);
+
+        List<int[]> visited = visitDirty(renderer, layer);
+        assertEquals(3, visited.size());
+        // by diagonal, then by row
+        assertArrayEquals(new int[]{2, 2}, new int[]{visited.get(0)[0], visited.get(0)[1]});
+        assertArrayEquals(new int[]{0, 9}, new int[]{visited.get(1)[0], visited.get(1)[1]});
+        assertArrayEquals(new int[]{10, 0}, new int[]{visited.get(2)[0], visited.get(2)[1]});
+    }
+}
@@ -0,0 +1,202 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.animation.TileAnimationControl;
+import io.github.jmecn.tiled.core.*;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestMapBaker {
+
+    private static final Path EXAMPLES = Paths.get("../examples");
+
+    private static List<String> listExampleMaps() throws IOException {
+        try (Stream<Path> files = Files.walk(EXAMPLES)) {
+            return files.filter(path -> path.toString().endsWith(".tmx"))
+                    .map(path -> EXAMPLES.relativize(path).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static MapBaker newBaker(AssetManager assetManager, TiledMap map) {
+        return new MapBaker(map, new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+    }
+
+    private static Node reimport(AssetManager assetManager, Node scene) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(scene, out);
+        BinaryImporter importer = BinaryImporter.getInstance();
+        importer.setAssetManager(assetManager);
+        return (Node) importer.load(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    static int countGeometries(Spatial spatial) {
+        if (spatial instanceof Geometry) {
+            return 1;
+        }
+        int count = 0;
+        for (Spatial child : ((Node) spatial).getChildren()) {
+            count += countGeometries(child);
+        }
+        return count;
+    }
+
+    static int countAnimations(Spatial spatial) {
+        int count = spatial.getControl(TileAnimationControl.class) != null ? 1 : 0;
+        if (spatial instanceof Node) {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                count += countAnimations(child);
+            }
+        }
+        return count;
+    }
+
+    @Test void bakeExampleMaps() throws IOException {
+        List<String> maps = listExampleMaps();
+        assertFalse(maps.isEmpty());
+
+        for (String name : maps) {
+            AssetManager assetManager = TestAssets.createAssetManager();
+            TiledMap map = (TiledMap) assetManager.loadAsset(name);
+            Node baked = newBaker(assetManager, map).bake();
+            MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+            renderer.setBatchSize(MapBaker.DEFAULT_BATCH_SIZE);
+            renderer.render();
+
+            // the tiles are merged, nothing is lost
+            int layers = 0;
+            for (Layer layer : renderer.getSortedLayers()) {
+                if (layer instanceof GroupLayer) {
+                    continue;
+                }
+                Node layerNode = (Node) baked.getChild(layers++);
+                assertEquals(layer.getId(), (int) layerNode.getUserData(MapBaker.LAYER_ID), name);
+                assertEquals(layer.getName(), layerNode.getName(), name);
+                assertEquals(renderer.getLayerNode(layer).getTriangleCount(), layerNode.getTriangleCount(), name);
+                assertTrue(countGeometries(layerNode) <= countGeometries(renderer.getLayerNode(layer)), name);
+            }
+            assertEquals(layers, baked.getQuantity(), name);
+
+            Node imported = reimport(assetManager, baked);
+            baked.updateGeometricState();
+            imported.updateGeometricState();
+            assertEquals(baked.getQuantity(), imported.getQuantity(), name);
+            for (int i = 0; i < baked.getQuantity(); i++) {
+                Spatial expected = baked.getChild(i);
+                Spatial actual = imported.getChild(i);
+                assertEquals(expected.getName(), actual.getName(), name);
+                assertEquals((Integer) expected.getUserData(MapBaker.LAYER_ID), actual.getUserData(MapBaker.LAYER_ID), name);
+                assertEquals(expected.getCullHint(), actual.getCullHint(), name);
+                assertEquals(expected.getLocalMatParamOverrides().size(), actual.getLocalMatParamOverrides().size(), name);
+                assertEquals(countGeometries(expected), countGeometries(actual), name);
+                assertEquals(countAnimations(expected), countAnimations(actual), name);
+                assertEquals(expected.getVertexCount(), actual.getVertexCount(), name);
+                assertEquals(expected.getTriangleCount(), actual.getTriangleCount(), name);
+                assertSameBound(name, expected.getWorldBound(), actual.getWorldBound());
+            }
+        }
+    }
+
+    @Test void playAnimatedTiles() throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Node imported = reimport(assetManager, newBaker(assetManager, map).bake());
+        assertTrue(countAnimations(imported) > 0);
+
+        // the animations play after the import, without the map
+        imported.updateLogicalState(10f);
+        imported.depthFirstTraversal(spatial -> {
+            TileAnimationControl control = spatial.getControl(TileAnimationControl.class);
+            if (control != null) {
+                assertTrue(control.getFrameCount() > 0);
+                assertNotNull(((Geometry) spatial).getMaterial().getParam(MaterialConst.TILE_POSITION));
+            }
+        });
+    }
+
+    @Test void findObjectSprites() throws IOException {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sticker-knight/map/sandbox.tmx");
+        MapBaker baker = newBaker(assetManager, map);
+        Node imported = reimport(assetManager, baker.bake());
+
+        int count = 0;
+        for (Layer layer : baker.getRenderer().getSortedLayers()) {
+            if (!(layer instanceof ObjectGroup)) {
+                continue;
+            }
+            for (MapObject obj : ((ObjectGroup) layer).getObjects()) {
+                Spatial expected = baker.getRenderer().getMapObjectSpatial((ObjectGroup) layer, obj);
+                if (expected == null || expected.getParent() == null) {
+                    continue;
+                }
+                Spatial sprite = MapBaker.getObjectSpatial(imported, obj.getId());
+                assertNotNull(sprite, obj.toString());
+                assertSame(MapBaker.getLayerNode(imported, layer.getId()), sprite.getParent());
+                assertEquals(expected.getLocalTranslation(), sprite.getLocalTranslation());
+                count++;
+            }
+        }
+        assertTrue(count > 0);
+    }
+
+    @Test void restoreRendererSettings() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        Camera camera = new Camera(640, 480);
+        renderer.setViewCamera(camera);
+        renderer.setInstancing(true);
+        renderer.render();
+
+        new MapBaker(renderer).bake();
+        assertSame(camera, renderer.getViewCamera());
+        assertTrue(renderer.isInstancing());
+        assertEquals(0, renderer.getBatchSize());
+    }
+
+    private static void assertSameBound(String name, BoundingVolume expected, BoundingVolume actual) {
+        if (expected == null) {
+            assertNull(actual, name);
+            return;
+        }
+        BoundingBox e = (BoundingBox) expected;
+        BoundingBox a = (BoundingBox) actual;
+        assertEquals(e.getCenter().x, a.getCenter().x, 1e-3f, name);
+        assertEquals(e.getCenter().y, a.getCenter().y, 1e-3f, name);
+        assertEquals(e.getCenter().z, a.getCenter().z, 1e-3f, name);
+        assertEquals(e.getXExtent(), a.getXExtent(), 1e-3f, name);
+        assertEquals(e.getYExtent(), a.getYExtent(), 1e-3f, name);
+        assertEquals(e.getZExtent(), a.getZExtent(), 1e-3f, name);
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestMapBuild {
+
+    static int countSpatials(MapRenderer renderer) {
+        int count = 0;
+        for (Layer layer : renderer.getSortedLayers()) {
+            count += renderer.getLayerNode(layer).getQuantity();
+        }
+        return count;
+    }
+
+    @Test void attachSpatialsFrameByFrame() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        int expected = countSpatials(TestTileMaterialCache.render(assetManager, map));
+
+        // another asset manager, the layers of the cached map are already rendered
+        assetManager = TestAssets.createAssetManager();
+        map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+        renderer.setAttachBudget(100);
+
+        // the tasks of the update thread
+        List<Runnable> tasks = new ArrayList<>();
+        Node parent = new Node("parent");
+        MapBuild build = renderer.renderAsync(Runnable::run, tasks::add, parent);
+        assertSame(build, renderer.getBuild());
+        assertEquals(0.5f, build.getProgress());
+        assertFalse(build.isBuilt());
+        assertNull(renderer.getRootNode().getParent());
+        assertEquals(0, countSpatials(renderer));
+        assertThrows(IllegalStateException.class, () -> renderer.renderAsync(Runnable::run, tasks::add, parent));
+
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertTrue(build.isBuilt());
+        assertSame(parent, renderer.getRootNode().getParent());
+
+        int frames = 0;
+        float progress = build.getProgress();
+        while (!build.isDone()) {
+            int count = countSpatials(renderer);
+            build.update(0.016f);
+            assertTrue(countSpatials(renderer) - count <= 100);
+            assertTrue(build.getProgress() >= progress);
+            progress = build.getProgress();
+
+            // nothing is rendered until the build is done
+            renderer.render();
+            frames++;
+        }
+        assertEquals(expected, countSpatials(renderer));
+        assertEquals((expected + 99) / 100, frames);
+        assertEquals(1f, build.getProgress());
+        assertSame(renderer.getRootNode(), build.getFuture().join());
+        assertNull(renderer.getRootNode().getControl(MapBuild.class));
+    }
+
+    @Test void rejectChangesWhileBuilding() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+
+        List<Runnable> workers = new ArrayList<>();
+        MapBuild build = renderer.renderAsync(workers::add, Runnable::run, new Node("parent"));
+        assertThrows(IllegalStateException.class, () -> renderer.setBatchSize(16));
+        assertThrows(IllegalStateException.class, () -> renderer.setSpatialAt((TileLayer) map.getLayer(0), 0, 0, new Node("tile")));
+        assertThrows(IllegalStateException.class, () -> renderer.getTileSpritePool().setMaxFree(0));
+        assertThrows(IllegalStateException.class, () -> renderer.getTileMaterialCache().clear());
+
+        workers.get(0).run();
+        assertTrue(build.isBuilt());
+        while (!build.isDone()) {
+            build.update(0.016f);
+        }
+        renderer.setBatchSize(16);
+        renderer.getTileSpritePool().setMaxFree(0);
+    }
+
+    @Test void failBuildOnError() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+
+        Error error = new OutOfMemoryError("test");
+        MapBuild build = renderer.renderAsync(Runnable::run, task -> {
+            throw error;
+        }, new Node("parent"));
+        assertTrue(build.isDone());
+        assertTrue(build.getFuture().isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, () -> build.getFuture().join());
+        assertSame(error, e.getCause());
+
+        // the renderer can be used again
+        renderer.setBatchSize(16);
+        assertSame(renderer.getRootNode(), renderer.render());
+    }
+
+    @Test void cancelBuild() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+
+        List<Runnable> workers = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        Node parent = new Node("parent");
+        MapBuild build = renderer.renderAsync(workers::add, tasks::add, parent);
+        assertTrue(build.cancel());
+        workers.get(0).run();
+        tasks.get(0).run();
+        assertTrue(build.isCancelled());
+        assertFalse(build.isBuilt());
+        assertNull(renderer.getRootNode().getParent());
+
+        renderer.getRootNode().removeFromParent();
+        assertThrows(IllegalStateException.class, () -> {
+            parent.attachChild(renderer.getRootNode());
+            renderer.renderAsync(Runnable::run, tasks::add, parent);
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
+import io.github.jmecn.tiled.renderer.shape.TileBatchMesh;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileBatch {
+
+    static final String[] EXAMPLES = {"Orthogonal/orthogonal-outside.tmx", "Isometric/01.tmx",
+            "Staggered/01.tmx", "Hexagonal/01.tmx", "sewers.tmx"};
+
+    static MapRenderer render(AssetManager assetManager, TiledMap map, int batchSize) {
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+        renderer.setBatchSize(batchSize);
+        renderer.render();
+        return renderer;
+    }
+
+    static List<Geometry> getTileGeometries(MapRenderer renderer) {
+        List<Geometry> geometries = new ArrayList<>();
+        for (Layer layer : renderer.getSortedLayers()) {
+            if (layer instanceof TileLayer) {
+                for (Spatial child : renderer.getLayerNode(layer).getChildren()) {
+                    // animated tiles are not batched
+                    if (child.getNumControls() == 0) {
+                        geometries.add((Geometry) child);
+                    }
+                }
+            }
+        }
+        return geometries;
+    }
+
+    /**
+     * @return the positions of the vertices in the layers, sorted by y, z then x
+     */
+    static List<Vector3f> getVertices(List<Geometry> geometries) {
+        List<Vector3f> vertices = new ArrayList<>();
+        for (Geometry geometry : geometries) {
+            Vector3f t = geometry.getLocalTranslation();
+            FloatBuffer position = geometry.getMesh().getFloatBuffer(VertexBuffer.Type.Position);
+            for (int v = 0; v < geometry.getMesh().getVertexCount(); v++) {
+                vertices.add(new Vector3f(position.get(v * 3) + t.x, position.get(v * 3 + 1) + t.y, position.get(v * 3 + 2) + t.z));
+            }
+        }
+        vertices.sort(Comparator.comparingDouble((Vector3f v) -> v.y).thenComparingDouble(v -> v.z).thenComparingDouble(v -> v.x));
+        return vertices;
+    }
+
+    @Test void batchTilesOfAllOrientations() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        for (String example : EXAMPLES) {
+            TiledMap map = (TiledMap) assetManager.loadAsset(example);
+            List<Geometry> sprites = getTileGeometries(render(assetManager, map, 0));
+
+            // render the same map again
+            for (Layer layer : map.getLayers()) {
+                if (layer instanceof TileLayer) {
+                    ((TileLayer) layer).getDirtyRegion().markAll();
+                }
+                layer.setNeedUpdated(true);
+            }
+            MapRenderer renderer = render(assetManager, map, 8);
+            List<Geometry> batches = getTileGeometries(renderer);
+
+            int regions = ((map.getWidth() + 7) / 8) * ((map.getHeight() + 7) / 8);
+            assertTrue(batches.size() <= regions * map.getTileSets().size() * map.getLayers().size(), example);
+            assertTrue(batches.size() < sprites.size(), example);
+
+            int tiles = 0;
+            for (Geometry batch : batches) {
+                tiles += ((TileBatchMesh) batch.getMesh()).getTileCount();
+            }
+            assertEquals(sprites.size(), tiles, example);
+            List<Vector3f> expected = getVertices(sprites);
+            List<Vector3f> actual = getVertices(batches);
+            assertEquals(expected.size(), actual.size(), example);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).y, actual.get(i).y, 1e-6f, example);
+                assertEquals(expected.get(i).z, actual.get(i).z, 1e-3f, example);
+                assertEquals(expected.get(i).x, actual.get(i).x, 1e-3f, example);
+            }
+        }
+    }
+
+    @Test void rebuildOnlyTheChangedRegion() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = render(assetManager, map, 16);
+
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        List<Geometry> before = getTileGeometries(renderer);
+
+        Tile tile = layer.getTileAt(0, 0);
+        layer.setTileAt(20, 20, tile);
+        renderer.render();
+        List<Geometry> after = getTileGeometries(renderer);
+
+        int changed = 0;
+        for (Geometry geometry : after) {
+            if (!before.contains(geometry)) {
+                changed++;
+                assertEquals("batch#" + (20 / 16 + (20 / 16) * ((map.getWidth() + 15) / 16)), geometry.getName());
+            }
+        }
+        assertTrue(changed > 0);
+        assertEquals(before.size(), after.size());
+
+        // back to one geometry per tile
+        renderer.setBatchSize(0);
+        renderer.render();
+        assertNotNull(renderer.getLayerSpatialAt(layer, 20, 20));
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.renderer.texture.TileDataTexture;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileDataTexture {
+
+    @Test void packTexels() {
+        for (int index : new int[]{0, 1, 255, 256, 1000, TileDataTexture.MAX_TILES - 1}) {
+            for (int flags = 0; flags < 8; flags++) {
+                int texel = TileDataTexture.pack(index, flags);
+                assertEquals(index, TileDataTexture.getIndex(texel));
+                assertEquals(flags, TileDataTexture.getFlags(texel));
+            }
+        }
+        assertEquals(-1, TileDataTexture.getIndex(TileDataTexture.encode(null)));
+        assertThrows(IllegalArgumentException.class, () -> TileDataTexture.pack(TileDataTexture.MAX_TILES, 0));
+    }
+
+    static DataTextureLayerRenderer getDataLayer(MapRenderer renderer, TileLayer layer) {
+        TileLayerRenderer layerRenderer = renderer.getTileLayerRenderer(layer);
+        assertTrue(layerRenderer instanceof DataTextureLayerRenderer, layer.getName());
+        return (DataTextureLayerRenderer) layerRenderer;
+    }
+
+    @Test void renderLayerAsQuads() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        int x = 5;
+        int y = 5;
+        Tile tile = layer.getTileAt(x, y);
+        map.setTileAtFromTileId(layer, x, y, tile.getGidNoMask() | Tile.FLIPPED_HORIZONTALLY_FLAG | Tile.FLIPPED_DIAGONALLY_FLAG);
+
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        renderer.setDataTexture(true);
+        renderer.render();
+
+        for (Layer l : map.getLayers()) {
+            if (l instanceof TileLayer) {
+                DataTextureLayerRenderer dataLayer = getDataLayer(renderer, (TileLayer) l);
+                for (Spatial child : renderer.getLayerNode(l).getChildren()) {
+                    assertTrue(child.getName().startsWith("layer#"), child.getName());
+                }
+                assertEquals(dataLayer.getQuads().size(), renderer.getLayerNode(l).getQuantity());
+            }
+        }
+
+        DataTextureLayerRenderer.Quad quad = getDataLayer(renderer, layer).getQuad(tile.getTileset());
+        int texel = quad.texture.getTexelAt(x, y);
+        assertEquals(tile.getId(), TileDataTexture.getIndex(texel));
+        assertEquals(TileDataTexture.FLIP_HORIZONTALLY | TileDataTexture.FLIP_DIAGONALLY, TileDataTexture.getFlags(texel));
+
+        // only the texel of the cell is written
+        Tile other = tile.getTileset().getTile(tile.getId() == 0 ? 1 : 0);
+        int next = quad.texture.getTexelAt(x + 1, y);
+        layer.setTileAt(x, y, other);
+        renderer.render();
+        assertSame(quad, getDataLayer(renderer, layer).getQuad(tile.getTileset()));
+        assertEquals(other.getId(), TileDataTexture.getIndex(quad.texture.getTexelAt(x, y)));
+        assertEquals(next, quad.texture.getTexelAt(x + 1, y));
+        assertEquals(1, quad.texture.getPendingTexelCount());
+        assertNotNull(quad.geometry.getControl(TileDataControl.class));
+
+        layer.setTileAt(x, y, null);
+        renderer.render();
+        assertEquals(-1, TileDataTexture.getIndex(quad.texture.getTexelAt(x, y)));
+    }
+
+    @Test void fallBackOnOtherOrientations() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("Isometric/01.tmx");
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        renderer.setDataTexture(true);
+        renderer.render();
+
+        for (Layer layer : map.getLayers()) {
+            if (layer instanceof TileLayer) {
+                assertFalse(renderer.getTileLayerRenderer((TileLayer) layer) instanceof DataTextureLayerRenderer);
+            }
+        }
+        assertFalse(TestTileBatch.getTileGeometries(renderer).isEmpty());
+    }
+}
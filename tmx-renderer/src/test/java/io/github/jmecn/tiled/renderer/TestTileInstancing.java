@@ -0,0 +1,235 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
+import io.github.jmecn.tiled.renderer.shape.TileInstanceMesh;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileInstancing {
+
+    static final int[] FLAGS = {
+            Tile.FLIPPED_HORIZONTALLY_FLAG,
+            Tile.FLIPPED_VERTICALLY_FLAG,
+            Tile.FLIPPED_DIAGONALLY_FLAG,
+            Tile.ROTATED_HEXAGONAL_120_FLAG,
+            Tile.FLIPPED_HORIZONTALLY_FLAG | Tile.FLIPPED_DIAGONALLY_FLAG,
+            Tile.FLIPPED_VERTICALLY_FLAG | Tile.FLIPPED_DIAGONALLY_FLAG | Tile.ROTATED_HEXAGONAL_120_FLAG,
+    };
+
+    static MapRenderer createRenderer(AssetManager assetManager, TiledMap map) {
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+        return renderer;
+    }
+
+    /**
+     * Flip some tiles of the first layer
+     */
+    static void flipTiles(TiledMap map, TileLayer layer) {
+        int i = 0;
+        for (int y = 0; y < layer.getHeight(); y += 3) {
+            for (int x = 0; x < layer.getWidth(); x += 2) {
+                Tile tile = layer.getTileAt(x, y);
+                if (tile != null && !tile.isAnimated()) {
+                    map.setTileAtFromTileId(layer, x, y, tile.getGidNoMask() | FLAGS[i++ % FLAGS.length]);
+                }
+            }
+        }
+    }
+
+    static void markAllDirty(TiledMap map) {
+        for (Layer layer : map.getLayers()) {
+            if (layer instanceof TileLayer) {
+                ((TileLayer) layer).getDirtyRegion().markAll();
+            }
+            layer.setNeedUpdated(true);
+        }
+    }
+
+    /**
+     * The texture coordinate of a vertex of a flipped instance, as computed by the vertex shader.
+     */
+    static float[] flipTexCoord(float u, float v, int flags) {
+        if ((flags & TileInstanceMesh.FLIP_DIAGONALLY) != 0) {
+            float t = u;
+            u = 1f - v;
+            v = 1f - t;
+        }
+        if ((flags & TileInstanceMesh.FLIP_VERTICALLY) != 0) {
+            v = 1f - v;
+        }
+        if ((flags & TileInstanceMesh.FLIP_HORIZONTALLY) != 0) {
+            u = 1f - u;
+        }
+        return new float[]{u, v};
+    }
+
+    /**
+     * Compare the instances of the tiles with the sprites of the per tile path.
+     *
+     * @return the number of instances
+     */
+    static int assertInstancesMatchSprites(String example, MapRenderer sprites, MapRenderer instanced, TileLayer layer, int width) {
+        TileInstances instances = getInstances(instanced, layer);
+        // the tint color and the opacity of the layer are the overrides of both layer nodes
+        LayerOverrides overrides = instanced.getLayerOverrides(layer);
+        assertEquals(sprites.getLayerOverrides(layer).getTintColor(), overrides.getTintColor(), example);
+        assertEquals(sprites.getLayerOverrides(layer).getOpacity(), overrides.getOpacity(), example);
+        ColorRGBA color = ColorRGBA.White;
+
+        int count = 0;
+        Vector3f vertex = new Vector3f();
+        for (TileInstances.Group group : instances.getGroups()) {
+            TileInstanceMesh mesh = group.mesh;
+            FloatBuffer texCoord = mesh.getFloatBuffer(VertexBuffer.Type.TexCoord);
+            FloatBuffer tilePositions = mesh.getFloatBuffer(VertexBuffer.Type.TexCoord2);
+            FloatBuffer colors = mesh.getFloatBuffer(VertexBuffer.Type.Color);
+            assertEquals(group.cells.length, mesh.getCount(), example);
+
+            for (int i = 0; i < mesh.getCount(); i++) {
+                int cell = TileInstances.getCell(group.cells[i]);
+                Geometry sprite = (Geometry) sprites.getLayerSpatialAt(layer, cell % width, cell / width);
+                assertNotNull(sprite, example);
+                Vector3f t = sprite.getLocalTranslation();
+                FloatBuffer position = sprite.getMesh().getFloatBuffer(VertexBuffer.Type.Position);
+                FloatBuffer spriteTexCoord = sprite.getMesh().getFloatBuffer(VertexBuffer.Type.TexCoord);
+                FloatBuffer spriteTilePosition = sprite.getMesh().getFloatBuffer(VertexBuffer.Type.TexCoord2);
+
+                int flags = (int) tilePositions.get(i * 3 + 2);
+                for (int v = 0; v < 4; v++) {
+                    mesh.getVertex(i, v, vertex);
+                    assertEquals(position.get(v * 3) + t.x, vertex.x, 1e-3f, example);
+                    assertEquals(position.get(v * 3 + 1) + t.y, vertex.y, 1e-6f, example);
+                    assertEquals(position.get(v * 3 + 2) + t.z, vertex.z, 1e-3f, example);
+
+                    float[] uv = flipTexCoord(texCoord.get(v * 2), texCoord.get(v * 2 + 1), flags);
+                    assertEquals(spriteTexCoord.get(v * 2), uv[0], 1e-6f, example);
+                    assertEquals(spriteTexCoord.get(v * 2 + 1), uv[1], 1e-6f, example);
+                }
+                assertEquals(spriteTilePosition.get(0), tilePositions.get(i * 3), example);
+                assertEquals(spriteTilePosition.get(1), tilePositions.get(i * 3 + 1), example);
+
+                assertEquals(color.r, colors.get(i * 4), example);
+                assertEquals(color.a, colors.get(i * 4 + 3), example);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test void instancesMatchSprites() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        for (String example : TestTileBatch.EXAMPLES) {
+            TiledMap map = (TiledMap) assetManager.loadAsset(example);
+            TileLayer first = null;
+            for (Layer layer : map.getLayers()) {
+                if (layer instanceof TileLayer) {
+                    first = (TileLayer) layer;
+                    break;
+                }
+            }
+            flipTiles(map, first);
+
+            MapRenderer sprites = createRenderer(assetManager, map);
+            sprites.render();
+
+            markAllDirty(map);
+            MapRenderer instanced = createRenderer(assetManager, map);
+            instanced.setInstancing(true);
+            instanced.render();
+
+            int instances = 0;
+            int geometries = 0;
+            for (Layer layer : instanced.getSortedLayers()) {
+                if (layer instanceof TileLayer) {
+                    instances += assertInstancesMatchSprites(example, sprites, instanced, (TileLayer) layer, map.getWidth());
+                    geometries += getInstances(instanced, (TileLayer) layer).getGroups().size();
+                }
+            }
+            assertEquals(TestTileBatch.getTileGeometries(sprites).size(), instances, example);
+            assertTrue(geometries < instances, example);
+        }
+    }
+
+    static TileInstances getInstances(MapRenderer renderer, TileLayer layer) {
+        return ((InstanceLayerRenderer) renderer.getTileLayerRenderer(layer)).getInstances();
+    }
+
+    /**
+     * @return the key of a cell which has an instance
+     */
+    static long findCell(TileInstances instances, int cell) {
+        for (TileInstances.Group group : instances.getGroups()) {
+            for (long key : group.cells) {
+                if (TileInstances.getCell(key) == cell) {
+                    return key;
+                }
+            }
+        }
+        throw new AssertionError("No instance for cell " + cell);
+    }
+
+    @Test void updateInstancesInPlace() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        MapRenderer renderer = createRenderer(assetManager, map);
+        renderer.setInstancing(true);
+        renderer.render();
+
+        TileInstances instances = getInstances(renderer, layer);
+        long cell = findCell(instances, 5 * map.getWidth() + 5);
+        TileInstances.Group group = instances.getCellGroup(cell);
+        int index = group.indexOf(cell);
+        int count = group.mesh.getCount();
+        FloatBuffer before = group.mesh.getFloatBuffer(VertexBuffer.Type.TexCoord2);
+
+        // another tile of the same tileset
+        Tile tile = layer.getTileAt(5, 5);
+        Tile other = tile.getTileset().getTile(tile.getId() == 0 ? 1 : 0);
+        layer.setTileAt(5, 5, other);
+        renderer.render();
+
+        assertSame(group, instances.getCellGroup(cell));
+        assertEquals(count, group.mesh.getCount());
+        FloatBuffer after = group.mesh.getFloatBuffer(VertexBuffer.Type.TexCoord2);
+        assertSame(before, after);
+        assertEquals(other.getX(), after.get(index * 3));
+        assertEquals(other.getY(), after.get(index * 3 + 1));
+
+        // remove a tile
+        layer.setTileAt(5, 5, null);
+        renderer.render();
+        assertNull(instances.getCellGroup(cell));
+        assertEquals(count - 1, group.mesh.getCount());
+
+        // tint the layer, the instances are not changed
+        layer.setTintColor(ColorRGBA.Red);
+        renderer.render();
+        FloatBuffer colors = group.mesh.getFloatBuffer(VertexBuffer.Type.Color);
+        assertEquals(1f, colors.get(0));
+        assertEquals(1f, colors.get(1));
+        assertEquals(ColorRGBA.Red, renderer.getLayerOverrides(layer).getTintColor());
+    }
+}
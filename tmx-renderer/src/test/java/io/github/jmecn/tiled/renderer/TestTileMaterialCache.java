@@ -0,0 +1,141 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.MatParamOverride;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.animation.AnimationClock;
+import io.github.jmecn.tiled.animation.Frame;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+import io.github.jmecn.tiled.renderer.factory.DefaultMaterialFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.DefaultSpriteFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static io.github.jmecn.tiled.renderer.MaterialConst.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileMaterialCache {
+
+    static MapRenderer render(AssetManager assetManager, TiledMap map) {
+        MapRenderer renderer = MapRenderer.create(map);
+        renderer.setSpriteFactory(new DefaultSpriteFactory(new DefaultMeshFactory(map), new DefaultMaterialFactory(assetManager)));
+        renderer.render();
+        return renderer;
+    }
+
+    static int countTileGeometries(MapRenderer renderer, Set<Material> materials) {
+        int count = 0;
+        for (Layer layer : renderer.getSortedLayers()) {
+            if (layer instanceof TileLayer) {
+                Node node = renderer.getLayerNode(layer);
+                for (int i = 0; i < node.getQuantity(); i++) {
+                    materials.add(((Geometry) node.getChild(i)).getMaterial());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test void shareMaterialsOfExamples() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        String[] examples = {"Orthogonal/01.tmx", "Orthogonal/orthogonal-outside.tmx", "Isometric/01.tmx",
+                "Desert/desert.tmx", "Staggered/01.tmx", "Hexagonal/01.tmx", "sewers.tmx"};
+        for (String example : examples) {
+            TiledMap map = (TiledMap) assetManager.loadAsset(example);
+            MapRenderer renderer = render(assetManager, map);
+
+            Set<Material> materials = Collections.newSetFromMap(new IdentityHashMap<>());
+            int geometries = countTileGeometries(renderer, materials);
+            assertTrue(geometries > 0, example);
+            assertTrue(materials.size() * 10 < geometries, example + ": " + materials.size() + " materials for " + geometries + " tiles");
+        }
+    }
+
+    @Test void tintLayerWithOverrides() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = render(assetManager, map);
+
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        Geometry geometry = (Geometry) renderer.getLayerNode(layer).getChild(0);
+        Material material = geometry.getMaterial();
+
+        // the layer is faded without being rendered again
+        layer.setOpacity(0.5);
+        layer.setTintColor(ColorRGBA.Red);
+        renderer.render();
+
+        assertSame(material, geometry.getMaterial());
+        assertNull(material.getParamValue(LAYER_OPACITY));
+        assertNull(material.getParamValue(TINT_COLOR));
+
+        LayerOverrides overrides = renderer.getLayerOverrides(layer);
+        assertEquals(0.5f, overrides.getOpacity(), 1e-6f);
+        assertEquals(ColorRGBA.Red, overrides.getTintColor());
+        for (MatParamOverride override : renderer.getLayerNode(layer).getLocalMatParamOverrides()) {
+            if (LAYER_OPACITY.equals(override.getName())) {
+                assertEquals(0.5f, (Float) override.getValue(), 1e-6f);
+            } else {
+                assertEquals(TINT_COLOR, override.getName());
+                assertEquals(ColorRGBA.Red, override.getValue());
+            }
+        }
+        assertEquals(2, renderer.getLayerNode(layer).getLocalMatParamOverrides().size());
+    }
+
+    @Test void shareMaterialOfAnimatedTiles() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tileset tileset = map.getTileSets().get(0);
+        Tile animated = tileset.getTile(0);
+        animated.addAnimation(Arrays.asList(new Frame(1, 100), new Frame(2, 100)));
+
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        for (int y = 0; y < layer.getHeight(); y++) {
+            for (int x = 0; x < layer.getWidth(); x++) {
+                layer.setTileAt(x, y, (x + y) % 2 == 0 ? animated : tileset.getTile(5));
+            }
+        }
+        MapRenderer renderer = render(assetManager, map);
+
+        Node node = renderer.getLayerNode(layer);
+        Set<Material> materials = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < node.getQuantity(); i++) {
+            materials.add(((Geometry) node.getChild(i)).getMaterial());
+        }
+        assertEquals(2, materials.size());
+
+        AnimationClock clock = renderer.getTileMaterialCache().getAnimationClock();
+        assertSame(clock, renderer.getRootNode().getControl(AnimationClock.class));
+        assertEquals(1, clock.getAnimationCount());
+
+        Material material = ((Geometry) node.getChild(0)).getMaterial();
+        Tile frame = tileset.getTile(1);
+        assertEquals(new Vector2f(frame.getX(), frame.getY()), material.getParamValue(TILE_POSITION));
+
+        clock.update(0.15f);
+        frame = tileset.getTile(2);
+        assertEquals(1, clock.getCurrentFrameIndex(animated));
+        assertEquals(new Vector2f(frame.getX(), frame.getY()), material.getParamValue(TILE_POSITION));
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector2f;
+import com.jme3.scene.VertexBuffer;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.enums.Orientation;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.TileMeshCache;
+import io.github.jmecn.tiled.renderer.shape.TileBatchMesh;
+import io.github.jmecn.tiled.renderer.shape.TileMesh;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileMeshCache {
+
+    @Test void shareMeshesBetweenMaps() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tile tile = map.getTileSets().get(0).getTile(5);
+        Tile flipped = tile.copy();
+        flipped.setGid(tile.getGid() | Tile.FLIPPED_HORIZONTALLY_FLAG);
+
+        TileMeshCache meshCache = new TileMeshCache();
+        TileMesh mesh = new DefaultMeshFactory(map, meshCache).getTileMesh(tile);
+        assertSame(mesh, new DefaultMeshFactory(map, meshCache).getTileMesh(tile));
+        assertNotSame(mesh, new DefaultMeshFactory(map).getTileMesh(tile));
+        assertEquals(1, meshCache.size());
+
+        // no normal, the index buffer is shared, the texture coordinates are shared by the flip flags
+        TileMesh other = new DefaultMeshFactory(map, meshCache).getTileMesh(flipped);
+        assertNotSame(mesh, other);
+        assertNull(mesh.getBuffer(VertexBuffer.Type.Normal));
+        assertSame(mesh.getBuffer(VertexBuffer.Type.Index), other.getBuffer(VertexBuffer.Type.Index));
+        assertNotSame(mesh.getBuffer(VertexBuffer.Type.TexCoord), other.getBuffer(VertexBuffer.Type.TexCoord));
+        assertSame(other.getBuffer(VertexBuffer.Type.TexCoord), meshCache.getBuffers().getTexCoord(1));
+        // the buffers are not shared with the meshes of another cache
+        assertNotSame(other.getBuffer(VertexBuffer.Type.TexCoord),
+                new DefaultMeshFactory(map).getTileMesh(flipped).getBuffer(VertexBuffer.Type.TexCoord));
+        assertEquals(1f, other.getFloatBuffer(VertexBuffer.Type.TexCoord).get(0));
+        assertEquals(2, mesh.getTriangleCount());
+    }
+
+    @Test void packVertices() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tile tile = map.getTileSets().get(0).getTile(5);
+        TileMesh mesh = new DefaultMeshFactory(map).getTileMesh(tile);
+        TileMesh packed = new DefaultMeshFactory(map, new TileMeshCache(true)).getTileMesh(tile);
+
+        VertexBuffer position = packed.getBuffer(VertexBuffer.Type.Position);
+        assertEquals(VertexBuffer.Format.Short, position.getFormat());
+        ShortBuffer shorts = (ShortBuffer) position.getData();
+        FloatBuffer floats = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        for (int i = 0; i < 12; i++) {
+            assertEquals(floats.get(i), shorts.get(i));
+        }
+        VertexBuffer texCoord2 = packed.getBuffer(VertexBuffer.Type.TexCoord2);
+        assertEquals(VertexBuffer.Format.Short, texCoord2.getFormat());
+        assertEquals(2, texCoord2.getNumComponents());
+        assertEquals((short) tile.getX(), ((ShortBuffer) texCoord2.getData()).get(0));
+        assertEquals(((BoundingBox) mesh.getBound()).getCenter(), ((BoundingBox) packed.getBound()).getCenter());
+        packed.updateBound();
+        assertEquals(((BoundingBox) mesh.getBound()).getCenter(), ((BoundingBox) packed.getBound()).getCenter());
+        assertEquals(((BoundingBox) mesh.getBound()).getXExtent(), ((BoundingBox) packed.getBound()).getXExtent());
+        assertTrue(new TileMeshCache(true).isPacked());
+
+        // the batches read the vertices of packed meshes
+        TileBatchMesh batch = new TileBatchMesh();
+        batch.add(packed, 10, 0, 20);
+        batch.update();
+        FloatBuffer batched = batch.getFloatBuffer(VertexBuffer.Type.Position);
+        assertEquals(floats.get(0) + 10, batched.get(0));
+        assertEquals(floats.get(2) + 20, batched.get(2));
+        assertEquals(tile.getX(), batch.getFloatBuffer(VertexBuffer.Type.TexCoord2).get(0));
+
+        // not integers, kept as floats
+        TileMesh half = new TileMesh(new Vector2f(0, 0), new Vector2f(33, 16), new Vector2f(0, 0),
+                new Vector2f(-16.5f, 16), 0, Orientation.ISOMETRIC, true);
+        assertEquals(VertexBuffer.Format.Float, half.getBuffer(VertexBuffer.Type.Position).getFormat());
+        assertEquals(VertexBuffer.Format.Short, half.getBuffer(VertexBuffer.Type.TexCoord2).getFormat());
+    }
+
+    @Test void boundCache() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        TileMeshCache meshCache = new TileMeshCache();
+        meshCache.setMaxSize(4);
+        DefaultMeshFactory factory = new DefaultMeshFactory(map, meshCache);
+        TileMesh first = meshCache.get(new Vector2f(0, 0), new Vector2f(24, 24), new Vector2f(0, 0), new Vector2f(0, 24), 0, Orientation.ORTHOGONAL);
+        for (int i = 0; i < 10; i++) {
+            factory.getTileMesh(map.getTileSets().get(0).getTile(i));
+        }
+        assertEquals(4, meshCache.size());
+        // the least recently used mesh is dropped
+        assertNotSame(first, meshCache.get(new Vector2f(0, 0), new Vector2f(24, 24), new Vector2f(0, 0), new Vector2f(0, 24), 0, Orientation.ORTHOGONAL));
+
+        meshCache.setMaxSize(2);
+        assertEquals(2, meshCache.size());
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestTileSpritePool {
+
+    @Test void recycleEditedTiles() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = TestTileMaterialCache.render(assetManager, map);
+        TileSpritePool pool = renderer.getTileSpritePool();
+
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        Node node = renderer.getLayerNode(layer);
+        int quantity = node.getQuantity();
+        int count = pool.getSpriteCount();
+        assertTrue(count >= quantity);
+        assertEquals(count, pool.getCreated());
+
+        Tile other = map.getTileSets().get(0).getTile(5);
+        Spatial old = renderer.getLayerSpatialAt(layer, 2, 3);
+        layer.setTileAt(2, 3, other);
+        renderer.render();
+
+        Geometry sprite = (Geometry) renderer.getLayerSpatialAt(layer, 2, 3);
+        assertSame(old, sprite);
+        assertEquals(1, pool.getReleased());
+        assertEquals(1, pool.getReused());
+        assertEquals(count, pool.getCreated());
+        assertEquals(quantity, node.getQuantity());
+        assertEquals("tile#" + other.getGid(), sprite.getName());
+        assertSame(renderer.getSpriteFactory().getMeshFactory().getTileMesh(other), sprite.getMesh());
+        assertEquals(renderer.tileToScreenCoords(2, 3).x, sprite.getLocalTranslation().x, 1e-6f);
+
+        layer.setTileAt(2, 3, null);
+        renderer.render();
+        assertNull(renderer.getLayerSpatialAt(layer, 2, 3));
+        assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test void keepSpatialsNotCreatedByPool() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        MapRenderer renderer = TestTileMaterialCache.render(assetManager, map);
+        TileSpritePool pool = renderer.getTileSpritePool();
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+
+        Geometry custom = renderer.getSpriteFactory().newTileSprite(layer.getTileAt(0, 0));
+        renderer.setSpatialAt(layer, 0, 0, custom);
+        assertEquals(1, pool.getFreeCount());
+
+        renderer.setSpatialAt(layer, 0, 0, new Node("custom"));
+        assertEquals(1, pool.getFreeCount());
+        assertFalse(pool.release(custom));
+
+        pool.setMaxFree(0);
+        assertEquals(0, pool.getFreeCount());
+    }
+}
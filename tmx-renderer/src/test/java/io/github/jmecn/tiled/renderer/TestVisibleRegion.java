@@ -0,0 +1,116 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.scene.Spatial;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.enums.RenderOrder;
+import io.github.jmecn.tiled.math2d.TileRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestVisibleRegion {
+
+    static void assertSameVisits(String example, MapRenderer renderer, Random random) {
+        int width = renderer.tiledMap.getWidth();
+        int height = renderer.tiledMap.getHeight();
+        List<TileRect> regions = new ArrayList<>();
+        regions.add(new TileRect(0, 0, width, height));
+        regions.add(new TileRect(-5, -5, width + 10, height + 10));
+        regions.add(new TileRect(width, 0, 4, 4));
+        for (int i = 0; i < 20; i++) {
+            int x = random.nextInt(width + 4) - 2;
+            int y = random.nextInt(height + 4) - 2;
+            regions.add(new TileRect(x, y, 1 + random.nextInt(width), 1 + random.nextInt(height)));
+        }
+
+        for (TileRect region : regions) {
+            List<String> expected = new ArrayList<>();
+            renderer.visitTiles((x, y, z) -> {
+                if (region.contains(x, y) && x >= 0 && y >= 0 && x < width && y < height) {
+                    expected.add(x + "," + y + "," + z);
+                }
+            });
+            List<String> visited = new ArrayList<>();
+            renderer.visitTiles(region, (x, y, z) -> visited.add(x + "," + y + "," + z));
+            assertEquals(expected, visited, example + " " + region);
+        }
+    }
+
+    @Test void visitRegions() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        Random random = new Random(1);
+        for (String example : TestTileBatch.EXAMPLES) {
+            TiledMap map = (TiledMap) assetManager.loadAsset(example);
+            assertSameVisits(example, MapRenderer.create(map), random);
+        }
+
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        for (RenderOrder renderOrder : RenderOrder.values()) {
+            map.setRenderOrder(renderOrder);
+            assertSameVisits(renderOrder.name(), MapRenderer.create(map), random);
+        }
+    }
+
+    @Test void releaseTilesOutOfRegion() {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        TestTileInstancing.markAllDirty(map);
+        MapRenderer renderer = TestTileInstancing.createRenderer(assetManager, map);
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+
+        TileRect region = new TileRect(2, 3, 5, 4);
+        renderer.setVisibleRegion(layer, region);
+        renderer.render();
+        assertSpatialsIn(renderer, layer, region);
+        assertTrue(renderer.getLayerNode(layer).getQuantity() > 0);
+
+        // scroll the view
+        TileRect moved = new TileRect(5, 3, 5, 4);
+        renderer.setVisibleRegion(layer, moved);
+        renderer.render();
+        assertSpatialsIn(renderer, layer, moved);
+        for (int x = 2; x < 5; x++) {
+            assertTrue(layer.isNeedUpdateAt(x, 3) || layer.getTileAt(x, 3) == null);
+        }
+
+        // render all the tiles again
+        renderer.setVisibleRegion(layer, null);
+        renderer.render();
+        assertNull(renderer.getVisibleRegion(layer));
+        for (int y = 0; y < layer.getHeight(); y++) {
+            for (int x = 0; x < layer.getWidth(); x++) {
+                assertEquals(layer.getTileAt(x, y) != null, renderer.getLayerSpatialAt(layer, x, y) != null);
+            }
+        }
+    }
+
+    static void assertSpatialsIn(MapRenderer renderer, TileLayer layer, TileRect region) {
+        int count = 0;
+        for (int y = 0; y < layer.getHeight(); y++) {
+            for (int x = 0; x < layer.getWidth(); x++) {
+                Spatial spatial = renderer.getLayerSpatialAt(layer, x, y);
+                if (region.contains(x, y)) {
+                    assertEquals(layer.getTileAt(x, y) != null, spatial != null);
+                } else {
+                    assertNull(spatial);
+                }
+                if (spatial != null) {
+                    count++;
+                }
+            }
+        }
+        assertEquals(count, renderer.getLayerNode(layer).getQuantity());
+    }
+}
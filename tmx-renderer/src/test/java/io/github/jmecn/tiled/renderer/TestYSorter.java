@@ -0,0 +1,64 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.scene.Node;
+import io.github.jmecn.tiled.core.TiledMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * desc:
+ *
+ * @author yanmaoyuan
+ */
+class TestYSorter {
+
+    @Test void updateChangedDepths() {
+        TiledMap map = new TiledMap(16, 9);
+        map.setTileWidth(16);
+        map.setTileHeight(16);
+        OrthogonalRenderer renderer = new OrthogonalRenderer(map);
+        YSorter sorter = renderer.getYSorter();
+
+        Node[] sprites = new Node[4];
+        for (int i = 0; i < sprites.length; i++) {
+            sprites[i] = new Node("npc" + i);
+            sprites[i].setLocalTranslation(10 * i, 0, 20 * i);
+            sorter.add(sprites[i], i % 2);
+        }
+        assertEquals(4, sorter.size());
+
+        sorter.update(0.016f);
+        assertEquals(3, sorter.getUpdatedCount());// the first one is already at depth 0
+        for (int i = 0; i < sprites.length; i++) {
+            float depth = renderer.getLayerYIndex(i % 2) + renderer.getObjectTopDownYIndex(20 * i);
+            assertEquals(depth, sprites[i].getLocalTranslation().y);
+            assertEquals(10 * i, sprites[i].getLocalTranslation().x);
+        }
+
+        // only the moved sprite is updated
+        sprites[2].setLocalTranslation(50, sprites[2].getLocalTranslation().y, 100);
+        sorter.update(0.016f);
+        assertEquals(1, sorter.getUpdatedCount());
+        assertEquals(sorter.getDepth(0, 100), sprites[2].getLocalTranslation().y);
+
+        // change the layer of a sprite
+        sorter.add(sprites[2], 1);
+        sorter.update(0.016f);
+        assertEquals(1, sorter.getUpdatedCount());
+        assertEquals(sorter.getDepth(1, 100), sprites[2].getLocalTranslation().y);
+
+        assertTrue(sorter.remove(sprites[1]));
+        assertFalse(sorter.remove(sprites[1]));
+        assertFalse(sorter.contains(sprites[1]));
+        assertTrue(sorter.contains(sprites[3]));
+        sprites[1].setLocalTranslation(0, 0, 0);
+        sprites[3].setLocalTranslation(0, 0, 0);
+        sorter.update(0.016f);
+        assertEquals(0f, sprites[1].getLocalTranslation().y);
+        assertEquals(sorter.getDepth(1, 0), sprites[3].getLocalTranslation().y);
+
+        sorter.clear();
+        assertEquals(0, sorter.size());
+    }
+}
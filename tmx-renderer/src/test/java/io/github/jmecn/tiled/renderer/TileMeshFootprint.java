@@ -0,0 +1,79 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Layer;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.renderer.factory.DefaultMeshFactory;
+import io.github.jmecn.tiled.renderer.factory.TileMeshCache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Prints the native bytes of the tile meshes of the examples, per distinct tile, in the
+ * former format (position, texture coordinates, TexCoord2, normal and index buffers per
+ * tile), in the compact format and in the packed format. The last line shows the examples
+ * sharing one cache.
+ *
+ * @author yanmaoyuan
+ */
+public class TileMeshFootprint {
+
+    // the former format: 12 floats of position, 8 of texture coordinates, 12 of TexCoord2,
+    // 12 of normal, and 6 shorts of index
+    private static final int FORMER_BYTES_PER_TILE = (12 + 8 + 12 + 12) * 4 + 6 * 2;
+
+    public static void main(String[] args) {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        String[] examples = {"Orthogonal/01.tmx", "Orthogonal/orthogonal-outside.tmx", "Isometric/01.tmx",
+                "Desert/desert.tmx", "Staggered/01.tmx", "Hexagonal/01.tmx", "sewers.tmx"};
+
+        TileMeshCache sharedCompact = new TileMeshCache();
+        TileMeshCache sharedPacked = new TileMeshCache(true);
+        long former = 0;
+        int total = 0;
+        System.out.printf("%-36s %6s %10s %10s %10s%n", "map", "tiles", "former", "compact", "packed");
+        for (String example : examples) {
+            TiledMap map = (TiledMap) assetManager.loadAsset(example);
+            TileMeshCache compact = new TileMeshCache();
+            TileMeshCache packed = new TileMeshCache(true);
+            int tiles = mesh(map, new DefaultMeshFactory[]{
+                    new DefaultMeshFactory(map, compact), new DefaultMeshFactory(map, packed),
+                    new DefaultMeshFactory(map, sharedCompact), new DefaultMeshFactory(map, sharedPacked)});
+            former += (long) tiles * FORMER_BYTES_PER_TILE;
+            total += tiles;
+            print(example, tiles, (long) tiles * FORMER_BYTES_PER_TILE, compact, packed);
+        }
+        print("all, shared", total, former, sharedCompact, sharedPacked);
+    }
+
+    private static int mesh(TiledMap map, DefaultMeshFactory[] factories) {
+        Set<Integer> gids = new HashSet<>();
+        for (Layer layer : map.getLayers()) {
+            if (!(layer instanceof TileLayer)) {
+                continue;
+            }
+            TileLayer tileLayer = (TileLayer) layer;
+            for (int y = 0; y < tileLayer.getHeight(); y++) {
+                for (int x = 0; x < tileLayer.getWidth(); x++) {
+                    Tile tile = tileLayer.getTileAt(x, y);
+                    if (tile != null && gids.add(tile.getGid())) {
+                        for (DefaultMeshFactory factory : factories) {
+                            factory.getTileMesh(tile);
+                        }
+                    }
+                }
+            }
+        }
+        return gids.size();
+    }
+
+    private static void print(String name, int tiles, long former, TileMeshCache compact, TileMeshCache packed) {
+        System.out.printf("%-36s %6d %10d %10d %10d   per tile: %.1f, %.1f, %.1f%n", name, tiles, former,
+                compact.getNativeBytes(), packed.getNativeBytes(), (double) former / tiles,
+                (double) compact.getNativeBytes() / tiles, (double) packed.getNativeBytes() / tiles);
+    }
+}
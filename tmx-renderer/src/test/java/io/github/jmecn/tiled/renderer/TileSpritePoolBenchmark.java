@@ -0,0 +1,80 @@
+package io.github.jmecn.tiled.renderer;
+
+import com.jme3.asset.AssetManager;
+import io.github.jmecn.tiled.TestAssets;
+import io.github.jmecn.tiled.core.Tile;
+import io.github.jmecn.tiled.core.TileLayer;
+import io.github.jmecn.tiled.core.TiledMap;
+import io.github.jmecn.tiled.core.Tileset;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Performs random edits of the cells of a tile layer rendered one by one, with and without
+ * the {@link TileSpritePool}, and reports the time and the memory allocated per edit.
+ *
+ * <p>The allocated bytes are read from the HotSpot thread MXBean, they are not reported on
+ * other JVMs.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TileSpritePoolBenchmark {
+
+    private static final int EDITS = 100000;
+    private static final int EDITS_PER_FRAME = 1000;
+
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    static void edit(MapRenderer renderer, TileLayer layer, Tileset tileset, Random random, int edits) {
+        for (int i = 0; i < edits; i++) {
+            int x = random.nextInt(layer.getWidth());
+            int y = random.nextInt(layer.getHeight());
+            if (random.nextInt(8) == 0) {
+                layer.setTileAt(x, y, null);
+            } else {
+                Tile tile = tileset.getTile(random.nextInt(64));
+                layer.setTileAt(x, y, tile);
+            }
+            if ((i + 1) % EDITS_PER_FRAME == 0) {
+                renderer.render();
+            }
+        }
+    }
+
+    static void run(AssetManager assetManager, String name, int maxFree) {
+        TiledMap map = (TiledMap) assetManager.loadAsset("sewers.tmx");
+        Tileset tileset = map.getTileSets().get(0);
+        TileLayer layer = (TileLayer) map.getLayers().get(0);
+        MapRenderer renderer = TestTileMaterialCache.render(assetManager, map);
+        TileSpritePool pool = renderer.getTileSpritePool();
+        pool.setMaxFree(maxFree);
+
+        // the first run is the warmup
+        Random random = new Random(1);
+        edit(renderer, layer, tileset, random, EDITS);
+        pool.resetStats();
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        edit(renderer, layer, tileset, random, EDITS);
+        double time = (System.nanoTime() - start) / 1e6;
+        bytes = allocatedBytes() - bytes;
+
+        System.out.printf("%-8s %9.3f ms %9.1f MB %9.1f B/edit  %s%n", name, time, bytes / 1024.0 / 1024.0,
+                (double) bytes / EDITS, pool);
+    }
+
+    public static void main(String[] args) {
+        AssetManager assetManager = TestAssets.createAssetManager();
+        System.out.printf("%d random edits, %d per frame%n", EDITS, EDITS_PER_FRAME);
+        run(assetManager, "no pool", 0);
+        run(assetManager, "pool", TileSpritePool.DEFAULT_MAX_FREE);
+    }
+}